@@ -2,11 +2,15 @@ package org.antlr.works;
 
 import org.antlr.Tool;
 import org.antlr.works.ate.syntax.generic.ATESyntaxEngineDelegate;
+import org.antlr.works.debugger.batch.DBBatchProfiler;
+import org.antlr.works.debugger.batch.DBProfileReport;
+import org.antlr.works.grammar.element.ElementGrammarName;
 import org.antlr.works.grammar.engine.GrammarEngine;
 import org.antlr.works.grammar.engine.GrammarEngineDelegate;
 import org.antlr.works.grammar.engine.GrammarEngineImpl;
 import org.antlr.works.grammar.syntax.GrammarSyntaxEngine;
 import org.antlr.works.utils.ConsoleHelper;
+import org.antlr.works.visualization.SDBatchExporter;
 import org.antlr.works.visualization.SDGenerator;
 import org.antlr.works.visualization.serializable.SEncoder;
 import org.antlr.works.visualization.serializable.SXMLEncoder;
@@ -14,6 +18,7 @@ import org.antlr.xjlib.foundation.XJUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 /*
 
@@ -69,9 +74,14 @@ public class Console {
         StringBuilder sb = new StringBuilder();
         sb.append("Usage: java -cp antlrworks.jar org.antlr.works.Console [args]\n");
         sb.append(" -f grammarFile : ").append("specify the input grammar file (*.g)\n");
-        sb.append(" -sd format : ").append("specify the format of the syntax diagram output file. For EPS, use 'eps'. For bitmap, use either 'png' or any available extensions\n");
+        sb.append(" -sd formats : ").append("specify the comma-separated formats of the syntax diagram output files (e.g. 'png,eps'). For EPS, use 'eps'. For SVG, use 'svg'. For bitmap, use either 'png' or any available extensions\n");
+        sb.append(" -threads count : ").append("specify the number of threads rendering the syntax diagrams\n");
         sb.append(" -serialize outputFile : ").append("serialize all the syntax diagram of the specified files");
         sb.append(" -o outputDir : ").append("specify the output directory\n");
+        sb.append(" -profile inputDir : ").append("profile the grammar over all the files of the input directory\n");
+        sb.append(" -rule startRule : ").append("specify the start rule used to profile the input files\n");
+        sb.append(" -workers count : ").append("specify the number of JVMs parsing the input files in parallel\n");
+        sb.append(" -report reportFile : ").append("specify the file of the profile report (tab-separated text)\n");
         sb.append(" -verbose : ").append("prints the operations\n");
         System.out.println(sb.toString());
     }
@@ -86,12 +96,18 @@ public class Console {
         String sdFormat = getArgumentValue(args, "-sd");
         if(sdFormat != null) {
             if(verbose) System.out.println("Generating syntax diagram in "+sdFormat);
-            generateSyntaxDiagrams(sdFormat);
+            generateSyntaxDiagrams(sdFormat, getArgumentValue(args, "-threads"));
         }
         if(hasArgument(args, "-serialize")) {
             if(verbose) System.out.println("Serializing syntax diagram ");
             serializeSyntaxDiagrams();
         }
+        String profileDir = getArgumentValue(args, "-profile");
+        if(profileDir != null) {
+            if(verbose) System.out.println("Profiling "+profileDir);
+            profile(profileDir, getArgumentValue(args, "-rule"), getArgumentValue(args, "-workers"),
+                    getArgumentValue(args, "-report"));
+        }
     }
 
     private void readArguments(String args[]) {
@@ -119,15 +135,73 @@ public class Console {
         }
     }
 
-    private void generateSyntaxDiagrams(String format) throws Exception {
-        processSyntaxDiagram(new GeneratePSDDelegate(format));
+    private void generateSyntaxDiagrams(String formats, String threads) throws Exception {
+        SDBatchExporter exporter = new SDBatchExporter(createGrammarEngine());
+        exporter.setFormats(SDBatchExporter.parseFormats(formats));
+        if(threads != null)
+            exporter.setThreads(Integer.parseInt(threads));
+        exporter.setListener(new SDBatchExporter.Listener() {
+            public void ruleExported(String rule, int exported, int total) {
+                if(verbose) System.out.println("Generate rule "+rule+" ("+exported+"/"+total+")");
+            }
+        });
+
+        if(verbose) System.out.println("Begin");
+        for(SDBatchExporter.Output output : exporter.export(outputDirectory)) {
+            if(output.error != null)
+                System.err.println(output);
+        }
+        if(verbose) System.out.println("Done");
     }
 
     private void serializeSyntaxDiagrams() throws Exception {
         processSyntaxDiagram(new SerializePSDDelegate());
     }
 
-    private void processSyntaxDiagram(ProcessSyntaxDiagramDelegate delegate) throws Exception {
+    private void profile(String inputDirectory, String startRule, String workers, String reportFile) throws Exception {
+        if(startRule == null) {
+            System.err.println("Start rule not specified (-rule)");
+            return;
+        }
+
+        GrammarEngine engine = createGrammarEngine();
+        String lexer = engine.getGeneratedClassName(ElementGrammarName.LEXER);
+        if(lexer == null) {
+            // Parser grammar: use the lexer of the token vocabulary
+            lexer = engine.getTokenVocab();
+        }
+        String parser = engine.getGeneratedClassName(ElementGrammarName.PARSER);
+
+        String output = outputDirectory != null ? outputDirectory : new EngineDelegate().getOutputPath();
+        DBBatchProfiler profiler = new DBBatchProfiler(new ConsoleConsole(), file, output);
+        profiler.setClassNames(lexer, parser);
+        profiler.setStartRule(startRule);
+        if(workers != null)
+            profiler.setWorkers(Integer.parseInt(workers));
+
+        if(verbose) System.out.println("Generating and compiling "+parser);
+        if(!profiler.generate() || !profiler.compile()) {
+            for (String error : profiler.getErrors()) {
+                System.err.println(error);
+            }
+            return;
+        }
+
+        List<String> files = DBBatchProfiler.listInputFiles(inputDirectory);
+        if(verbose) System.out.println("Parsing "+files.size()+" files");
+        DBProfileReport report = profiler.run(files);
+        for (String error : profiler.getErrors()) {
+            System.err.println(error);
+        }
+
+        if(reportFile == null)
+            reportFile = XJUtils.concatPath(output, "profile.txt");
+        report.write(reportFile);
+        DBBatchProfiler.printSummary(report, System.out, 10);
+        System.out.println("Report written to "+reportFile);
+    }
+
+    private GrammarEngine createGrammarEngine() throws Exception {
         GrammarEngine engine = new GrammarEngineImpl(new EngineDelegate());
         GrammarSyntaxEngine syntaxEngine = engine.getSyntaxEngine();
 
@@ -135,7 +209,12 @@ public class Console {
         syntaxEngine.processSyntax();
 
         engine.parserCompleted();
-        
+        return engine;
+    }
+
+    private void processSyntaxDiagram(ProcessSyntaxDiagramDelegate delegate) throws Exception {
+        GrammarEngine engine = createGrammarEngine();
+
         SDGenerator gen = new SDGenerator(engine);
 
         delegate.beginProcess();
@@ -154,35 +233,6 @@ public class Console {
 
     }
 
-    private class GeneratePSDDelegate implements ProcessSyntaxDiagramDelegate {
-
-        private String format;
-
-        public GeneratePSDDelegate(String format) {
-            this.format = format;
-        }
-
-        public void beginProcess() {
-            if(verbose) System.out.println("Begin");
-            new File(outputDirectory).mkdirs();
-        }
-
-        public void endProcess() throws IOException {
-            if(verbose) System.out.println("Done");
-        }
-
-        public void processRule(String name, SDGenerator gen) throws Exception {
-            if(verbose) System.out.println("Generate rule "+name);
-
-            String file = XJUtils.concatPath(outputDirectory, name+"."+format);
-            if(format.equals("eps")) {
-                gen.renderRuleToEPSFile(name, file);
-            } else {
-                gen.renderRuleToBitmapFile(name, format, file);
-            }
-        }
-    }
-
     private class SerializePSDDelegate implements ProcessSyntaxDiagramDelegate {
 
         private StringBuilder content;
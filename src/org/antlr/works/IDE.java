@@ -278,7 +278,8 @@ public class IDE extends XJApplicationDelegate implements XJMenuItemDelegate {
     }
 
     public static String getApplicationPath() {
-        Class c = XJApplication.getAppDelegate().getClass();
+        // There is no application delegate when running from the command line
+        Class c = XJApplication.getAppDelegate() == null ? IDE.class : XJApplication.getAppDelegate().getClass();
         URL url = c.getProtectionDomain().getCodeSource().getLocation();
         String p;
         if(url == null) {
@@ -40,6 +40,7 @@ public abstract class ATEThread implements Runnable {
     protected boolean run = false;
     protected Thread thread = null;
     protected boolean asleep = false;
+    protected boolean awakened = false;
     protected boolean skip = false;
 
     public ATEThread() {
@@ -103,6 +104,17 @@ public abstract class ATEThread implements Runnable {
         this.threshold = threshold;
         if(asleep)
             thread.interrupt();
+        else
+            awakened = true;
+    }
+
+    /** Returns true if the thread has been awaken while it was not sleeping (i.e. running). In this
+     * case, the thread has to run again instead of going to sleep.
+     */
+    private synchronized boolean consumeAwakened() {
+        boolean flag = awakened;
+        awakened = false;
+        return flag;
     }
 
     public boolean cancel() {
@@ -130,7 +142,7 @@ public abstract class ATEThread implements Runnable {
     public void run() {
         setRunning(true);
         while(run) {
-            if(threadSleep(threadSleep)) {
+            if(consumeAwakened() || threadSleep(threadSleep)) {
                 // Sleep interrupted. If threshold is > 0, then wait
                 // this amount of time and loop until the thread is not
                 // anymore interrupted.
@@ -102,6 +102,7 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
     public static final int MI_SHOW_GENERATED_PARSER_CODE = 71;
     public static final int MI_SHOW_GENERATED_LEXER_CODE = 72;
     public static final int MI_SHOW_RULE_GENCODE = 73;
+    public static final int MI_GENERATE_ALL = 74;
 
     // Run
     public static final int MI_RUN_INTERPRETER = 80;
@@ -124,6 +125,9 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
     public static final int MI_EXPORT_ALL_AS_EPS = 113;
     public static final int MI_EXPORT_AS_DOT = 114;
     public static final int MI_EXPORT_EVENT = 115;
+    public static final int MI_EXPORT_ALL_IN_ALL_FORMATS = 116;
+    public static final int MI_EXPORT_AS_SVG = 117;
+    public static final int MI_EXPORT_ALL_AS_SVG = 118;
 
     public static final int MI_PRIVATE_UNREGISTER = 200;
     public static final int MI_SERIALIZE_SD = 201;
@@ -179,13 +183,16 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
         exportMenu = new XJMenu();
         exportMenu.setTitle(resourceBundle.getString("menu.title.exportAllRules"));
         exportMenu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.exportAsEPS"), MI_EXPORT_ALL_AS_EPS, this));
+        exportMenu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.exportAsSVG"), MI_EXPORT_ALL_AS_SVG, this));
         exportMenu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.exportAsBitmap"), MI_EXPORT_ALL_AS_IMAGE, this));
+        exportMenu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.exportInAllFormats"), MI_EXPORT_ALL_IN_ALL_FORMATS, this));
 
         menu.insertItemAfter(exportMenu, XJMainMenuBar.MI_SAVEAS);
 
         exportMenu = new XJMenu();
         exportMenu.setTitle(resourceBundle.getString("menu.title.export"));
         exportMenu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.exportAsEPS"), MI_EXPORT_AS_EPS, this));
+        exportMenu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.exportAsSVG"), MI_EXPORT_AS_SVG, this));
         exportMenu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.exportAsBitmap"), MI_EXPORT_AS_IMAGE, this));
         exportMenu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.exportAsDot"), MI_EXPORT_AS_DOT, this));
 
@@ -260,6 +267,7 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
         menu = new XJMenu();
         menu.setTitle(resourceBundle.getString("menu.title.generate"));
         menu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.generateCode"), KeyEvent.VK_G, XJMenuItem.getKeyModifier() | Event.SHIFT_MASK, MI_GENERATE_CODE, this));
+        menu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.generateAll"), MI_GENERATE_ALL, this));
         menu.addSeparator();
         menu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.showParserCode"), MI_SHOW_GENERATED_PARSER_CODE, this));
         menu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.showLexerCode"), MI_SHOW_GENERATED_LEXER_CODE, this));
@@ -432,6 +440,10 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
                 item = new XJMenuItem(contextual? resourceBundle.getString("contextual.item.exportAsEPS") : resourceBundle.getString("menu.item.exportAsEPS"), MI_EXPORT_AS_EPS, this);
                 break;
 
+            case MI_EXPORT_AS_SVG:
+                item = new XJMenuItem(contextual? resourceBundle.getString("contextual.item.exportAsSVG") : resourceBundle.getString("menu.item.exportAsSVG"), MI_EXPORT_AS_SVG, this);
+                break;
+
             case MI_EXPORT_AS_DOT:
                 item = new XJMenuItem(contextual? resourceBundle.getString("contextual.item.exportAsDot") : resourceBundle.getString("menu.item.exportAsDot"), MI_EXPORT_AS_DOT, this);
                 break;
@@ -551,6 +563,7 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
                 break;
 
             case MI_EXPORT_AS_EPS:
+            case MI_EXPORT_AS_SVG:
                 item.setEnabled(tab != null && tab.canExportToEPS());
                 break;
 
@@ -747,6 +760,10 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
                 actionGenerate.generateCode();
                 break;
 
+            case MI_GENERATE_ALL:
+                actionGenerate.generateAll();
+                break;
+
             case MI_SHOW_GENERATED_LEXER_CODE:
                 actionGenerate.showGeneratedCode(ElementGrammarName.LEXER);
                 break;
@@ -815,6 +832,10 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
                 actionExport.exportAsEPS();
                 break;
 
+            case MI_EXPORT_AS_SVG:
+                actionExport.exportAsSVG();
+                break;
+
             case MI_EXPORT_AS_DOT:
                 actionExport.exportAsDOT();
                 break;
@@ -827,6 +848,14 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
                 actionExport.exportAllRulesAsEPS();
                 break;
 
+            case MI_EXPORT_ALL_AS_SVG:
+                actionExport.exportAllRulesAsSVG();
+                break;
+
+            case MI_EXPORT_ALL_IN_ALL_FORMATS:
+                actionExport.exportAllRulesInAllFormats();
+                break;
+
             case MI_EXPORT_EVENT:
                 actionExport.exportEventsAsTextFile();
                 break;
@@ -0,0 +1,303 @@
+package org.antlr.works.debugger;
+
+import org.antlr.works.IDE;
+import org.antlr.works.utils.Console;
+import org.antlr.works.utils.StreamWatcherDelegate;
+import org.antlr.works.utils.Utils;
+
+import java.io.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.util.*;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/** This class compiles the generated files with the javax.tools compiler of the running JVM
+ * instead of launching javac. The compiler and its standard file manager are created once and
+ * reused by every compilation. The compiled classes are kept in memory for the in-process parser
+ * and also written to the output directory for the remote parser.
+ *
+ * The javax.tools API is accessed by reflection (like the integrated compiler) because ANTLRWorks
+ * still runs on Java 5: isAvailable() returns false if there is no system compiler.
+ */
+public class DebuggerCompiler {
+
+    private static DebuggerCompiler shared;
+
+    protected Object compiler;
+    protected Object fileManager;
+    protected Object classKind;
+
+    protected Class<?> compilerClass;
+    protected Class<?> fileManagerClass;
+    protected Class<?> fileObjectClass;
+    protected Class<?> diagnosticListenerClass;
+
+    protected Map<String, Map<String, byte[]>> classesPerOutputDir = new HashMap<String, Map<String, byte[]>>();
+
+    public static synchronized DebuggerCompiler shared() {
+        if(shared == null)
+            shared = new DebuggerCompiler();
+        return shared;
+    }
+
+    protected DebuggerCompiler() {
+        try {
+            compiler = Class.forName("javax.tools.ToolProvider").getMethod("getSystemJavaCompiler").invoke(null);
+            if(compiler == null) {
+                // Running on a JRE without the compiler
+                return;
+            }
+
+            compilerClass = Class.forName("javax.tools.JavaCompiler");
+            fileManagerClass = Class.forName("javax.tools.JavaFileManager");
+            fileObjectClass = Class.forName("javax.tools.JavaFileObject");
+            diagnosticListenerClass = Class.forName("javax.tools.DiagnosticListener");
+            classKind = Class.forName("javax.tools.JavaFileObject$Kind").getField("CLASS").get(null);
+
+            Method m = compilerClass.getMethod("getStandardFileManager", diagnosticListenerClass, Locale.class, Charset.class);
+            fileManager = m.invoke(compiler, null, null, null);
+        } catch(Throwable e) {
+            // javax.tools is not available before Java 6
+            compiler = null;
+        }
+    }
+
+    public boolean isAvailable() {
+        return compiler != null && fileManager != null;
+    }
+
+    /** Returns a copy of the classes compiled in memory for this output directory */
+    public synchronized Map<String, byte[]> getClasses(String outputDir) {
+        return new HashMap<String, byte[]>(getClassesMap(outputDir));
+    }
+
+    public synchronized void clearClasses(String outputDir) {
+        classesPerOutputDir.remove(new File(outputDir).getAbsolutePath());
+    }
+
+    protected Map<String, byte[]> getClassesMap(String outputDir) {
+        String key = new File(outputDir).getAbsolutePath();
+        Map<String, byte[]> classes = classesPerOutputDir.get(key);
+        if(classes == null) {
+            classes = new HashMap<String, byte[]>();
+            classesPerOutputDir.put(key, classes);
+        }
+        return classes;
+    }
+
+    /** Compile all the files in a single task. The diagnostics are sent to the delegate
+     * formatted like the output of javac. Returns an error message or null if the compilation succeeded.
+     */
+    public synchronized String compile(Console console, String[] files, String classPath, String outputDir, StreamWatcherDelegate delegate) {
+        List<String> options = new ArrayList<String>();
+        options.add("-classpath");
+        options.add(Utils.unquotePath(classPath));
+        options.add("-d");
+        options.add(outputDir);
+
+        IDE.debugVerbose(console, DebuggerCompiler.class, "Compile in memory: "+options+" "+Utils.toString(files));
+        new File(outputDir).mkdirs();
+
+        try {
+            Object units = Class.forName("javax.tools.StandardJavaFileManager")
+                    .getMethod("getJavaFileObjectsFromStrings", Iterable.class).invoke(fileManager, Arrays.asList(files));
+            Object diagnostics = Class.forName("javax.tools.DiagnosticCollector").getConstructor().newInstance();
+            Object memoryFileManager = Proxy.newProxyInstance(fileManagerClass.getClassLoader(), new Class<?>[] { fileManagerClass },
+                    new MemoryFileManager(outputDir, getClassesMap(outputDir)));
+
+            Method m = compilerClass.getMethod("getTask", Writer.class, fileManagerClass, diagnosticListenerClass,
+                    Iterable.class, Iterable.class, Iterable.class);
+            Object task = m.invoke(compiler, null, memoryFileManager, diagnostics, options, null, units);
+            Boolean success = (Boolean) Class.forName("javax.tools.JavaCompiler$CompilationTask").getMethod("call").invoke(task);
+
+            String firstError = reportDiagnostics(diagnostics, delegate);
+            if(!success) {
+                return "Compiler failed:\n"+(firstError == null ? "unknown error" : firstError);
+            }
+        } catch(InvocationTargetException e) {
+            return reportException(console, e.getCause());
+        } catch(Exception e) {
+            return reportException(console, e);
+        }
+        return null;
+    }
+
+    /** Prints the exception to the console and returns the error reported to the debugger */
+    protected String reportException(Console console, Throwable e) {
+        if(console != null)
+            console.println(e);
+        return "Compiler exception:\n"+e.toString();
+    }
+
+    /** Send each diagnostic to the delegate and returns the first error */
+    protected String reportDiagnostics(Object diagnostics, StreamWatcherDelegate delegate) throws Exception {
+        Class<?> diagnosticClass = Class.forName("javax.tools.Diagnostic");
+        Method getKind = diagnosticClass.getMethod("getKind");
+        Method getSource = diagnosticClass.getMethod("getSource");
+        Method getLineNumber = diagnosticClass.getMethod("getLineNumber");
+        Method getMessage = diagnosticClass.getMethod("getMessage", Locale.class);
+        Method getName = Class.forName("javax.tools.FileObject").getMethod("getName");
+
+        String firstError = null;
+        List<?> list = (List<?>) diagnostics.getClass().getMethod("getDiagnostics").invoke(diagnostics);
+        for(Object d : list) {
+            String kind = getKind.invoke(d).toString();
+            Object source = getSource.invoke(d);
+
+            StringBuilder sb = new StringBuilder();
+            if(source != null) {
+                sb.append(getName.invoke(source));
+                sb.append(':');
+                sb.append(getLineNumber.invoke(d));
+                sb.append(": ");
+            }
+            sb.append(kind.toLowerCase());
+            sb.append(": ");
+            sb.append(getMessage.invoke(d, (Object)null));
+
+            if(delegate != null)
+                delegate.streamWatcherDidReceiveString(sb.toString()+"\n");
+            if(firstError == null && kind.equals("ERROR"))
+                firstError = sb.toString();
+        }
+        return firstError;
+    }
+
+    /** Delegates to the standard file manager except for the class files, which are
+     * created in memory.
+     */
+    protected class MemoryFileManager implements InvocationHandler {
+
+        protected String outputDir;
+        protected Map<String, byte[]> classes;
+
+        public MemoryFileManager(String outputDir, Map<String, byte[]> classes) {
+            this.outputDir = outputDir;
+            this.classes = classes;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if(name.equals("getJavaFileForOutput") && classKind.equals(args[2]))
+                return createClassFile((String)args[1], invokeFileManager(method, args));
+            if(name.equals("close"))
+                // The standard file manager is reused by the next compilation
+                return null;
+            if(name.equals("equals"))
+                return proxy == args[0];
+            if(name.equals("hashCode"))
+                return System.identityHashCode(proxy);
+            if(name.equals("toString"))
+                return "MemoryFileManager["+outputDir+"]";
+
+            return invokeFileManager(method, args);
+        }
+
+        protected Object invokeFileManager(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(fileManager, args);
+            } catch(InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /** Creates the file object of a class file: its content is written in memory (and
+         * then to the disk) and read back from memory. The other methods are delegated to
+         * the file object created by the standard file manager for the same class.
+         */
+        protected Object createClassFile(final String className, final Object standardFile) {
+            final File file = new File(outputDir, className.replace('.', File.separatorChar)+".class");
+            return Proxy.newProxyInstance(fileObjectClass.getClassLoader(), new Class<?>[] { fileObjectClass }, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    String name = method.getName();
+                    if(name.equals("openInputStream")) {
+                        byte[] bytes = getClassBytes(className);
+                        if(bytes != null)
+                            return new ByteArrayInputStream(bytes);
+                    }
+                    if(name.equals("openOutputStream")) {
+                        return new ByteArrayOutputStream() {
+                            public void close() throws IOException {
+                                super.close();
+                                classDidCompile(className, file, toByteArray());
+                            }
+                        };
+                    }
+                    if(name.equals("getKind"))
+                        return classKind;
+                    if(name.equals("toUri"))
+                        return file.toURI();
+                    if(name.equals("getName") || name.equals("toString"))
+                        return file.getPath();
+                    if(name.equals("isNameCompatible"))
+                        return classKind.equals(args[1]) && (className.equals(args[0]) || className.endsWith("."+args[0]));
+                    if(name.equals("getLastModified"))
+                        return file.lastModified();
+                    if(name.equals("delete"))
+                        return file.delete();
+                    if(name.equals("equals"))
+                        return proxy == args[0];
+                    if(name.equals("hashCode"))
+                        return System.identityHashCode(proxy);
+                    if(name.equals("getNestingKind") || name.equals("getAccessLevel"))
+                        return null;
+                    try {
+                        return method.invoke(standardFile, args);
+                    } catch(InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            });
+        }
+
+        protected byte[] getClassBytes(String className) {
+            return classes.get(className);
+        }
+
+        protected void classDidCompile(String className, File file, byte[] bytes) throws IOException {
+            classes.put(className, bytes);
+
+            // The remote parser and the batch profiler load the classes from the disk
+            file.getParentFile().mkdirs();
+            OutputStream os = new FileOutputStream(file);
+            try {
+                os.write(bytes);
+            } finally {
+                os.close();
+            }
+        }
+    }
+
+}
@@ -1,6 +1,7 @@
 package org.antlr.works.debugger;
 
 import org.antlr.works.IDE;
+import org.antlr.works.generate.CodeGenerateTool;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.Console;
 import org.antlr.works.utils.StreamWatcher;
@@ -91,56 +92,21 @@ public class DebuggerEngine {
     }
 
     public static String runANTLR(Console console, String file, String libPath, String outputPath, StreamWatcherDelegate delegate) {
-        String error = null;
-        StreamWatcher esw = null;
-        int result = 0;
-        try {
-            String[] args = new String[9];
-            args[0] = "java";
-            args[1] = "-cp";
-            args[2] = getClassPath(outputPath);
-            args[3] = "org.antlr.Tool";
-            args[4] = "-o";
-            args[5] = Utils.quotePath(outputPath);
-            args[6] = "-lib";
-            args[7] = Utils.quotePath(libPath);
-            args[8] = file;
-
-            IDE.debugVerbose(console, DebuggerEngine.class, "Run ANTLR: "+Utils.toString(args));
+        String[] args = new String[] { "-o", outputPath, "-lib", libPath, file };
+        IDE.debugVerbose(console, DebuggerEngine.class, "Run ANTLR: "+Utils.toString(args));
 
-            Process p = Runtime.getRuntime().exec(args);
-            setProcess(p);
-            esw = new StreamWatcher(p.getErrorStream(), "ANTLR[error]", delegate);
-            esw.start();
-            new StreamWatcher(p.getInputStream(), "ANTLR[stdout]", delegate).start();
-            result = p.waitFor();
-        } catch(Exception e) {
-            error = "Failed to run ANTLR with exception:\n"+e.toString();
-        } finally {
-            removeProcess();
-        }
-
-        if(result != 0) {
-            error = "Failed to run ANTLR with result:\n"+result;
-        }
-
-        /** Make sure ANTLR didn't return an error in the error string
-         *
-         */
-
-        if(error == null) {
-            for (String line : esw.getLines()) {
-                if (line.startsWith("ANTLR Parser Generator"))
-                    continue;
-
-                if (line.startsWith("no such locale file"))
-                    continue;
-
-                error = line;
-                break;
+        // ANTLR runs in-process like CodeGenerate instead of being launched in another JVM
+        String[] error = new String[1];
+        try {
+            Map<String, String> outputs = CodeGenerateTool.run(args, error);
+            if(outputs != null) {
+                CodeGenerateTool.writeOutputs(outputs);
+                return null;
             }
+        } catch(Exception e) {
+            return "Failed to run ANTLR with exception:\n"+e.toString();
         }
-        return error;
+        return error[0] == null ? "Failed to run ANTLR" : error[0];
     }
 
     public static String runJava(Console console, String currentPath, String[] params, StreamWatcherDelegate delegate) {
@@ -173,6 +139,20 @@ public class DebuggerEngine {
         return error;
     }
 
+    /** Returns a description of the compiler settings that affect the compiled classes */
+    public static String getCompilerSettings() {
+        String compiler = AWPrefs.getCompiler();
+        if(compiler.equalsIgnoreCase(AWPrefs.COMPILER_MEMORY) && !DebuggerCompiler.shared().isAvailable())
+            compiler = AWPrefs.COMPILER_JAVAC;
+
+        if(compiler.equalsIgnoreCase(AWPrefs.COMPILER_JAVAC) && AWPrefs.getJavaCCustomPath())
+            return compiler+" "+AWPrefs.getJavaCPath();
+        else if(compiler.equalsIgnoreCase(AWPrefs.COMPILER_JIKES))
+            return compiler+" "+AWPrefs.getJikesPath();
+        else
+            return compiler;
+    }
+
     public static String compileFiles(Console console, String[] files, String outputFileDir, StreamWatcherDelegate delegate) {
         String error = null;
 
@@ -181,6 +161,14 @@ public class DebuggerEngine {
             String compiler = AWPrefs.getCompiler();
             String classPath = getClassPath(outputFileDir);
 
+            if(compiler.equalsIgnoreCase(AWPrefs.COMPILER_MEMORY)) {
+                if(DebuggerCompiler.shared().isAvailable())
+                    return DebuggerCompiler.shared().compile(console, files, classPath, outputFileDir, delegate);
+
+                // No system compiler available (i.e. running on a JRE): use javac instead
+                compiler = AWPrefs.COMPILER_JAVAC;
+            }
+
             if(compiler.equalsIgnoreCase(AWPrefs.COMPILER_JAVAC)) {
                 String[] args = new String[5+files.length];
                 if(AWPrefs.getJavaCCustomPath())
@@ -40,11 +40,12 @@ import org.antlr.works.debugger.events.DBEventEnterRule;
 import org.antlr.works.debugger.events.DBEventExitRule;
 import org.antlr.works.debugger.events.DBEventLocation;
 import org.antlr.works.debugger.input.DBInputTextTokenInfo;
+import org.antlr.works.debugger.local.DBInProcessParser;
 import org.antlr.works.debugger.local.DBLocal;
 import org.antlr.works.debugger.panels.*;
 import org.antlr.works.debugger.remote.DBRemoteConnectDialog;
+import org.antlr.works.debugger.tivo.DBBreakpointMatcher;
 import org.antlr.works.debugger.tivo.DBPlayer;
-import org.antlr.works.debugger.tivo.DBPlayerContextInfo;
 import org.antlr.works.debugger.tivo.DBRecorder;
 import org.antlr.works.debugger.tree.DBASTModel;
 import org.antlr.works.debugger.tree.DBASTPanel;
@@ -101,6 +102,7 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
 
     protected DBStackPanel stackPanel;
     protected DBEventsPanel eventsPanel;
+    protected DBProfilePanel profilePanel;
 
     protected DBControlPanel controlPanel;
 
@@ -151,6 +153,8 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         stackPanel.setTag(CustomSplitPanel.RIGHT_INDEX);
         eventsPanel = new DBEventsPanel(this);
         eventsPanel.setTag(CustomSplitPanel.RIGHT_INDEX);
+        profilePanel = new DBProfilePanel(this);
+        profilePanel.setTag(CustomSplitPanel.RIGHT_INDEX);
 
         panel.add(controlPanel, BorderLayout.NORTH);
         panel.add(splitPanel, BorderLayout.CENTER);
@@ -178,6 +182,7 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         astPanel.close();
         stackPanel.close();
         eventsPanel.close();
+        profilePanel.close();
 
         local.close();
         recorder.close();
@@ -203,6 +208,7 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
     public static final int TOGGLE_AST = 3;
     public static final int TOGGLE_STACK = 4;
     public static final int TOGGLE_EVENTS = 5;
+    public static final int TOGGLE_PROFILE = 6;
 
     public Box createToggleButtons() {
         Box b = Box.createHorizontalBox();
@@ -214,6 +220,7 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         b.add(Box.createHorizontalStrut(15));
         b.add(createToggleButton("Stack", TOGGLE_STACK, stackPanel));
         b.add(createToggleButton("Events", TOGGLE_EVENTS, eventsPanel));
+        b.add(createToggleButton("Profile", TOGGLE_PROFILE, profilePanel));
         b.add(Box.createHorizontalGlue());
         return b;
     }
@@ -240,6 +247,7 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
 
         setComponentVisible(stackPanel, true);
         setComponentVisible(eventsPanel, false);
+        setComponentVisible(profilePanel, false);
 
         splitPanel.setComponentWidth(inputPanel, width*PERCENT_WIDTH_LEFT);
         splitPanel.setComponentWidth(outputPanel, width*PERCENT_WIDTH_LEFT);
@@ -273,26 +281,40 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
                 break;
 
             case TOGGLE_STACK:
-                toggleComponents(stackPanel, eventsPanel, CustomSplitPanel.RIGHT_INDEX);
+                toggleComponents(stackPanel, new DetachablePanel[] { eventsPanel, profilePanel }, CustomSplitPanel.RIGHT_INDEX);
                 break;
             case TOGGLE_EVENTS:
-                toggleComponents(eventsPanel, stackPanel, CustomSplitPanel.RIGHT_INDEX);
+                toggleComponents(eventsPanel, new DetachablePanel[] { stackPanel, profilePanel }, CustomSplitPanel.RIGHT_INDEX);
+                break;
+            case TOGGLE_PROFILE:
+                toggleComponents(profilePanel, new DetachablePanel[] { stackPanel, eventsPanel }, CustomSplitPanel.RIGHT_INDEX);
                 break;
         }
     }
 
     public void toggleComponents(DetachablePanel c, DetachablePanel other, int index) {
+        toggleComponents(c, new DetachablePanel[] { other }, index);
+    }
+
+    /** Toggles a panel sharing the same split pane location with the other panels */
+    public void toggleComponents(DetachablePanel c, DetachablePanel[] others, int index) {
         c.setVisible(!c.isVisible());
         if(c.isVisible()) {
-            if(!other.isDetached())
-                setComponentVisible(other, false);
+            for (DetachablePanel other : others) {
+                if(!other.isDetached())
+                    setComponentVisible(other, false);
+            }
             if(!c.isDetached())
                 splitPanel.setComponent(c, index);
         } else {
-            if(other.isVisible() && !other.isDetached())
-                splitPanel.setComponent(other, index);
-            else
-                splitPanel.setComponent(null, index);
+            DetachablePanel visible = null;
+            for (DetachablePanel other : others) {
+                if(other.isVisible() && !other.isDetached()) {
+                    visible = other;
+                    break;
+                }
+            }
+            splitPanel.setComponent(visible, index);
         }
     }
 
@@ -346,6 +368,7 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         astPanel.updateOnBreakEvent();
         stackPanel.updateOnBreakEvent();
         eventsPanel.updateOnBreakEvent();
+        profilePanel.updateOnBreakEvent();
     }
 
     public boolean needsToGenerateGrammar() {
@@ -376,6 +399,18 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         return inputPanel.isBreakpointAtToken(token);
     }
 
+    /** Adds the grammar and input breakpoints to the matcher used by the recorder */
+    public void compileBreakpoints(DBBreakpointMatcher matcher) {
+        if(breakpoints != null) {
+            for (Map.Entry<Integer, Set<String>> entry : breakpoints.entrySet()) {
+                for (String name : entry.getValue()) {
+                    matcher.addGrammarBreakpoint(name, entry.getKey());
+                }
+            }
+        }
+        inputPanel.compileBreakpoints(matcher);
+    }
+
     public void selectToken(Token token, DBEventLocation location) {
         if(token != null) {
             /** If token is not null, ask the input text object the
@@ -456,18 +491,18 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
             } else {
                 options = options | OPTION_BUILD;
             }
+        } else if(!local.isRequiredFilesExisting()) {
+            // The grammar is unchanged but its imports, token vocabulary, options or class path may have changed
+            options = options | OPTION_BUILD;
         }
 
         if((options & OPTION_BUILD) > 0 && !delegate.ensureDocumentSaved()) {
             return;
         }
 
-        if((options & OPTION_BUILD) > 0 || !local.isRequiredFilesExisting()) {
-            local.prepareAndLaunch(options);
-
+        local.prepareAndLaunch(options);
+        if((options & OPTION_BUILD) > 0) {
             grammarGenerated();
-        } else {
-            local.prepareAndLaunch(options);
         }
     }
 
@@ -476,7 +511,11 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
             StatisticsAW.shared().recordEvent(StatisticsAW.EVENT_LOCAL_DEBUGGER_BUILD);
         else
             StatisticsAW.shared().recordEvent(StatisticsAW.EVENT_LOCAL_DEBUGGER);
-        return debuggerLaunch(DEFAULT_LOCAL_ADDRESS, AWPrefs.getDebugDefaultLocalPort(), false);
+        DBInProcessParser parser = local.getInProcessParser();
+        if(parser != null)
+            return debuggerLaunch(parser);
+        else
+            return debuggerLaunch(DEFAULT_LOCAL_ADDRESS, AWPrefs.getDebugDefaultLocalPort(), false);
     }
 
     public void launchRemoteDebugger() {
@@ -494,13 +533,22 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
             return false;
         }
 
+        prepareLaunch();
+        recorder.connect(address, port);
+        return true;
+    }
+
+    public boolean debuggerLaunch(DBInProcessParser parser) {
+        prepareLaunch();
+        recorder.connect(parser);
+        return true;
+    }
+
+    protected void prepareLaunch() {
         queryGrammarBreakpoints();
         rootGrammarName = delegate.getGrammarName();
         inputPanel.prepareForGrammar(delegate.getGrammarEngine());
         player.setInputBuffer(inputPanel.getInputBuffer());
-
-        recorder.connect(address, port);
-        return true;
     }
 
     public void showEditTestRig() {
@@ -559,12 +607,10 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         astPanel.clear();
     }
 
-    public void addEvent(DBEvent event, DBPlayerContextInfo info) {
-        eventsPanel.addEvent(event, info);
-    }
-
-    public void playEvents(List events, int lastEventPosition, boolean reset) {
+    public void playEvents(List<DBEvent> events, int lastEventPosition, boolean reset) {
         player.playEvents(events, lastEventPosition, reset);
+        eventsPanel.setEvents(events, lastEventPosition);
+        profilePanel.setEvents(events, lastEventPosition);
         breaksOnEvent();
     }
 
@@ -686,6 +732,7 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
     public JPopupMenu treeGetContextualMenu() {
         ContextualMenuFactory factory = delegate.createContextualMenuFactory();
         factory.addItem(GrammarWindowMenu.MI_EXPORT_AS_EPS);
+        factory.addItem(GrammarWindowMenu.MI_EXPORT_AS_SVG);
         factory.addItem(GrammarWindowMenu.MI_EXPORT_AS_IMAGE);
         return factory.menu;
     }
@@ -0,0 +1,146 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.batch;
+
+import org.antlr.runtime.Token;
+import org.antlr.works.debugger.events.DBEvent;
+import org.antlr.works.debugger.events.DBEventEnterRule;
+import org.antlr.works.debugger.events.DBEventRecognitionException;
+import org.antlr.works.debugger.tivo.DBDecisionProfiler;
+import org.antlr.works.debugger.tivo.DBRecorderEventListener;
+
+import java.util.Stack;
+
+/** This listener receives the debug events of a parser running in the same JVM
+ * and streams them to a DBDecisionProfiler instead of recording them. The AST
+ * events are ignored because they carry the parser's own tree objects.
+ */
+public class DBBatchEventListener extends DBRecorderEventListener {
+
+    protected DBDecisionProfiler profiler;
+    protected Stack<String> grammarNamesStack = new Stack<String>();
+
+    protected int eventCount;
+    protected int tokenCount;
+    protected int errorCount;
+    protected String firstError;
+
+    public DBBatchEventListener(DBDecisionProfiler profiler) {
+        super(null);
+        this.profiler = profiler;
+    }
+
+    public void reset() {
+        grammarNamesStack.clear();
+        eventCount = 0;
+        tokenCount = 0;
+        errorCount = 0;
+        firstError = null;
+    }
+
+    @Override
+    public void event(DBEvent event) {
+        event.setTime(System.nanoTime());
+        handleGrammarName(event);
+        eventCount++;
+
+        switch(event.getEventType()) {
+            case DBEvent.CONSUME_TOKEN:
+                tokenCount++;
+                break;
+            case DBEvent.RECOGNITION_EXCEPTION:
+                errorCount++;
+                if(firstError == null)
+                    firstError = String.valueOf(((DBEventRecognitionException)event).e);
+                break;
+        }
+
+        profiler.add(event);
+    }
+
+    /** Same as DBRecorder.handleGrammarName */
+    protected void handleGrammarName(DBEvent event) {
+        if(event instanceof DBEventEnterRule) {
+            grammarNamesStack.push(event.getGrammarName());
+        } else if(event.getEventType() == DBEvent.EXIT_RULE && !grammarNamesStack.isEmpty()) {
+            grammarNamesStack.pop();
+        }
+        event.setGrammarName(grammarNamesStack.isEmpty() ? null : grammarNamesStack.peek());
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    public String getFirstError() {
+        return firstError;
+    }
+
+    /** AST events are not profiled */
+
+    @Override
+    public void nilNode(Object t) {
+    }
+
+    @Override
+    public void errorNode(Object t) {
+    }
+
+    @Override
+    public void createNode(Object t) {
+    }
+
+    @Override
+    public void createNode(Object node, Token token) {
+    }
+
+    @Override
+    public void becomeRoot(Object newRoot, Object oldRoot) {
+    }
+
+    @Override
+    public void addChild(Object root, Object child) {
+    }
+
+    @Override
+    public void setTokenBoundaries(Object t, int tokenStartIndex, int tokenStopIndex) {
+    }
+
+}
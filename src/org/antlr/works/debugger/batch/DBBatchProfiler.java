@@ -0,0 +1,286 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.batch;
+
+import org.antlr.works.debugger.DebuggerEngine;
+import org.antlr.works.debugger.tivo.DBDecisionProfiler;
+import org.antlr.works.generate.CodeGenerateTool;
+import org.antlr.works.prefs.AWPrefs;
+import org.antlr.works.utils.Console;
+import org.antlr.works.utils.StreamWatcher;
+import org.antlr.works.utils.StreamWatcherDelegate;
+import org.antlr.works.utils.Utils;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.*;
+
+/** This class profiles a grammar over a corpus of input files without the user interface.
+ * The parser is generated in debug mode and compiled once, then the input files are
+ * distributed over several worker JVMs (see DBBatchWorker) which profile the debug events
+ * in-process. The partial reports of the workers are merged into a single DBProfileReport.
+ */
+public class DBBatchProfiler implements StreamWatcherDelegate {
+
+    public static final String WORKER_PREFIX = "worker";
+
+    protected Console console;
+    protected String grammarFile;
+    protected String outputPath;
+
+    protected String lexerClassName;
+    protected String parserClassName;
+    protected String startRule;
+    protected int workers = Runtime.getRuntime().availableProcessors();
+
+    protected List<String> errors = new ArrayList<String>();
+
+    public DBBatchProfiler(Console console, String grammarFile, String outputPath) {
+        this.console = console;
+        this.grammarFile = grammarFile;
+        this.outputPath = outputPath;
+    }
+
+    public void setClassNames(String lexerClassName, String parserClassName) {
+        this.lexerClassName = lexerClassName;
+        this.parserClassName = parserClassName;
+    }
+
+    public void setStartRule(String startRule) {
+        this.startRule = startRule;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public String getClassesPath() {
+        return XJUtils.concatPath(outputPath, "classes");
+    }
+
+    /** Generates the parser in debug mode. Returns false if ANTLR reported an error. */
+    public boolean generate() {
+        new File(outputPath).mkdirs();
+        String[] params = new String[] { "-debug", "-o", outputPath, "-lib",
+                XJUtils.getPathByDeletingLastComponent(grammarFile), grammarFile };
+        String[] error = new String[1];
+        Map<String, String> outputs = CodeGenerateTool.run(Utils.concat(params, AWPrefs.getANTLR3Options()), error);
+        if(outputs == null) {
+            errors.add("Error while generating the grammar:\n"+error[0]);
+            return false;
+        }
+
+        try {
+            CodeGenerateTool.writeOutputs(outputs);
+        } catch (IOException e) {
+            errors.add("Error while writing the generated files:\n"+e.toString());
+            return false;
+        }
+        return true;
+    }
+
+    /** Compiles all the generated Java files. Returns false if the compiler reported an error. */
+    public boolean compile() {
+        String classesPath = getClassesPath();
+        XJUtils.deleteDirectory(classesPath);
+        new File(classesPath).mkdirs();
+
+        List<String> files = new ArrayList<String>();
+        File[] generated = new File(outputPath).listFiles();
+        if(generated != null) {
+            for (File f : generated) {
+                if(f.getName().endsWith(".java"))
+                    files.add(f.getAbsolutePath());
+            }
+        }
+
+        String error = DebuggerEngine.compileFiles(console, files.toArray(new String[files.size()]), classesPath, this);
+        if(error != null)
+            errors.add(error);
+        return error == null;
+    }
+
+    /** Profiles the files in parallel worker JVMs and returns the merged report */
+    public DBProfileReport run(List<String> inputFiles) throws IOException, InterruptedException {
+        List<List<String>> batches = distribute(inputFiles, Math.min(workers, Math.max(1, inputFiles.size())));
+        String batchPath = XJUtils.concatPath(outputPath, "batch");
+        new File(batchPath).mkdirs();
+
+        String classPath = DebuggerEngine.getClassPath(getClassesPath());
+        List<Process> processes = new ArrayList<Process>();
+        List<String> reports = new ArrayList<String>();
+        for(int i=0; i<batches.size(); i++) {
+            String listFile = XJUtils.concatPath(batchPath, WORKER_PREFIX+i+".txt");
+            String reportFile = XJUtils.concatPath(batchPath, WORKER_PREFIX+i+".report");
+            XJUtils.writeStringToFile(join(batches.get(i)), listFile);
+            new File(reportFile).delete();
+
+            Process p = new ProcessBuilder("java", "-cp", classPath, DBBatchWorker.class.getName(),
+                    lexerClassName, parserClassName, startRule, listFile, reportFile).start();
+            new StreamWatcher(p.getErrorStream(), "Worker"+i+"[error]", this).start();
+            new StreamWatcher(p.getInputStream(), "Worker"+i+"[stdout]", this).start();
+            processes.add(p);
+            reports.add(reportFile);
+        }
+
+        DBProfileReport report = new DBProfileReport();
+        for(int i=0; i<processes.size(); i++) {
+            int result = processes.get(i).waitFor();
+            if(result != 0 || !new File(reports.get(i)).exists()) {
+                errors.add("Worker "+i+" failed with result "+result);
+                continue;
+            }
+            report.merge(DBProfileReport.read(reports.get(i)));
+        }
+        return report;
+    }
+
+    /** Distributes the files over the workers, largest files first to the least loaded worker */
+    public static List<List<String>> distribute(List<String> files, int count) {
+        List<String> sorted = new ArrayList<String>(files);
+        final Map<String, Long> sizes = new HashMap<String, Long>();
+        for (String file : sorted) {
+            sizes.put(file, new File(file).length());
+        }
+        Collections.sort(sorted, new Comparator<String>() {
+            public int compare(String f1, String f2) {
+                int c = sizes.get(f2).compareTo(sizes.get(f1));
+                return c != 0 ? c : f1.compareTo(f2);
+            }
+        });
+
+        List<List<String>> batches = new ArrayList<List<String>>();
+        long[] loads = new long[count];
+        for(int i=0; i<count; i++) {
+            batches.add(new ArrayList<String>());
+        }
+        for (String file : sorted) {
+            int lightest = 0;
+            for(int i=1; i<count; i++) {
+                if(loads[i] < loads[lightest])
+                    lightest = i;
+            }
+            batches.get(lightest).add(file);
+            loads[lightest] += sizes.get(file);
+        }
+        return batches;
+    }
+
+    /** Returns the files of the directory (recursively) sorted by path */
+    public static List<String> listInputFiles(String directory) {
+        List<String> files = new ArrayList<String>();
+        collectFiles(new File(directory), files);
+        Collections.sort(files);
+        return files;
+    }
+
+    private static void collectFiles(File directory, List<String> files) {
+        File[] children = directory.listFiles();
+        if(children == null)
+            return;
+
+        for (File f : children) {
+            if(f.isDirectory())
+                collectFiles(f, files);
+            else if(!f.isHidden())
+                files.add(f.getAbsolutePath());
+        }
+    }
+
+    private static String join(List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** Prints a human readable summary of the report */
+    public static void printSummary(DBProfileReport report, PrintStream out, int top) {
+        long bytes = 0;
+        long tokens = 0;
+        long time = 0;
+        int errors = 0;
+        for (DBProfileReport.FileResult f : report.getFiles()) {
+            bytes += f.bytes;
+            tokens += f.tokens;
+            time += f.time;
+            errors += f.errors;
+        }
+        out.println(String.format("%d files, %d bytes, %d tokens, %.1f ms parsing, %.0f tokens/s, %d errors",
+                report.getFiles().size(), bytes, tokens, time/1e6, time == 0 ? 0 : tokens*1e9/time, errors));
+
+        out.println("Slowest decisions:");
+        printStats(report.getSortedStats(DBDecisionProfiler.SORT_TIME), out, top, false);
+        out.println("Backtracking hot spots:");
+        printStats(report.getSortedStats(DBDecisionProfiler.SORT_BACKTRACKS), out, top, true);
+
+        if(errors > 0) {
+            out.println("Errors:");
+            for (DBProfileReport.FileResult f : report.getFiles()) {
+                if(f.errors > 0)
+                    out.println("  "+f.name+": "+f.errors+" ("+f.error+")");
+            }
+        }
+    }
+
+    private static void printStats(List<DBDecisionProfiler.Stats> stats, PrintStream out, int top, boolean backtracking) {
+        int count = 0;
+        for (DBDecisionProfiler.Stats s : stats) {
+            if(s.isRule() || backtracking && s.backtracks == 0)
+                continue;
+            if(count++ == top)
+                break;
+            out.println(String.format("  decision %d in %s: %d invocations, max k %d, avg k %.2f, %d backtracks, %.3f ms%s",
+                    s.decision, s.rule, s.invocations, s.maxLookahead, s.getAverageLookahead(), s.backtracks, s.time/1e6,
+                    s.location == null ? "" : " at "+s.location.line+":"+s.location.pos));
+        }
+    }
+
+    public void streamWatcherDidStart() {
+    }
+
+    public void streamWatcherDidReceiveString(String string) {
+        console.print(string, Console.LEVEL_NORMAL);
+    }
+
+    public void streamWatcherException(Exception e) {
+        console.println(e);
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.batch;
+
+import org.antlr.runtime.ANTLRFileStream;
+import org.antlr.runtime.CharStream;
+import org.antlr.runtime.CommonTokenStream;
+import org.antlr.runtime.TokenSource;
+import org.antlr.runtime.TokenStream;
+import org.antlr.runtime.debug.DebugEventListener;
+import org.antlr.works.debugger.tivo.DBDecisionProfiler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/** This class is the main class of the worker JVMs launched by DBBatchProfiler. It parses
+ * each input file listed in a file with the parser generated in debug mode and profiles
+ * the debug events in the same JVM, then writes a partial DBProfileReport.
+ *
+ * Usage: DBBatchWorker lexerClass parserClass startRule inputListFile reportFile
+ */
+public class DBBatchWorker {
+
+    protected Constructor<?> lexerConstructor;
+    protected Constructor<?> parserConstructor;
+    protected Method startRuleMethod;
+
+    protected DBDecisionProfiler profiler = new DBDecisionProfiler();
+    protected DBBatchEventListener listener = new DBBatchEventListener(profiler);
+    protected DBProfileReport report = new DBProfileReport();
+
+    public static void main(String[] args) throws Exception {
+        if(args.length != 5) {
+            System.err.println("Usage: DBBatchWorker lexerClass parserClass startRule inputListFile reportFile");
+            System.exit(1);
+        }
+
+        DBBatchWorker worker = new DBBatchWorker(args[0], args[1], args[2]);
+        for(String file : readLines(args[3])) {
+            worker.profile(file);
+        }
+        worker.getReport().write(args[4]);
+    }
+
+    public DBBatchWorker(String lexerClassName, String parserClassName, String startRule) throws Exception {
+        Class<?> lexerClass = Class.forName(lexerClassName);
+        Class<?> parserClass = Class.forName(parserClassName);
+        lexerConstructor = lexerClass.getConstructor(CharStream.class);
+        // The parser generated in debug mode accepts the debug listener instead of opening a socket
+        parserConstructor = parserClass.getConstructor(TokenStream.class, DebugEventListener.class);
+        startRuleMethod = parserClass.getMethod(startRule);
+    }
+
+    public DBProfileReport getReport() {
+        report.addStats(profiler.getStats(DBDecisionProfiler.SORT_TIME));
+        return report;
+    }
+
+    public void profile(String file) {
+        DBProfileReport.FileResult result = new DBProfileReport.FileResult(file);
+        result.bytes = new File(file).length();
+        listener.reset();
+
+        long start = System.nanoTime();
+        try {
+            TokenSource lexer = (TokenSource)lexerConstructor.newInstance(new ANTLRFileStream(file));
+            Object parser = parserConstructor.newInstance(new CommonTokenStream(lexer), listener);
+            startRuleMethod.invoke(parser);
+        } catch(InvocationTargetException e) {
+            result.error = String.valueOf(e.getCause());
+            result.errors++;
+        } catch(Exception e) {
+            result.error = e.toString();
+            result.errors++;
+        }
+        result.time = System.nanoTime()-start;
+
+        result.tokens = listener.getTokenCount();
+        result.events = listener.getEventCount();
+        result.errors += listener.getErrorCount();
+        if(result.error == null)
+            result.error = listener.getFirstError();
+        report.addFile(result);
+    }
+
+    public static List<String> readLines(String file) throws Exception {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader r = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while((line = r.readLine()) != null) {
+                if(line.length() > 0)
+                    lines.add(line);
+            }
+        } finally {
+            r.close();
+        }
+        return lines;
+    }
+
+}
@@ -0,0 +1,224 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.batch;
+
+import org.antlr.works.debugger.events.DBEventLocation;
+import org.antlr.works.debugger.tivo.DBDecisionProfiler;
+
+import java.io.*;
+import java.util.*;
+
+/** This class is the result of a batch profiling run. It is written as a tab-separated
+ * text file with one record per line so reports of two grammar versions can be diffed:
+ *
+ *   file      name  bytes  tokens  events  time(ns)  errors  first error
+ *   rule      grammar  rule  -         invocations  max k  total k  k count  backtracks  time(ns)  line:pos
+ *   decision  grammar  rule  decision  invocations  max k  total k  k count  backtracks  time(ns)  line:pos
+ *
+ * The files are sorted by name and the rules and decisions by grammar, rule and decision
+ * number. Partial reports written by each worker are merged by summing the counters.
+ */
+public class DBProfileReport {
+
+    public static final String HEADER = "# ANTLRWorks profile report";
+    public static final String RECORD_FILE = "file";
+    public static final String RECORD_RULE = "rule";
+    public static final String RECORD_DECISION = "decision";
+
+    protected Map<String, FileResult> files = new TreeMap<String, FileResult>();
+    protected Map<String, DBDecisionProfiler.Stats> stats = new TreeMap<String, DBDecisionProfiler.Stats>();
+
+    public void addFile(FileResult result) {
+        files.put(result.name, result);
+    }
+
+    public Collection<FileResult> getFiles() {
+        return files.values();
+    }
+
+    public Collection<DBDecisionProfiler.Stats> getStats() {
+        return stats.values();
+    }
+
+    /** Adds the statistics to the ones already in the report */
+    public void addStats(Collection<DBDecisionProfiler.Stats> newStats) {
+        for (DBDecisionProfiler.Stats s : newStats) {
+            String key = getKey(s);
+            DBDecisionProfiler.Stats total = stats.get(key);
+            if(total == null) {
+                total = new DBDecisionProfiler.Stats(s.grammarName, s.rule, s.decision);
+                total.location = s.location;
+                stats.put(key, total);
+            }
+            total.invocations += s.invocations;
+            total.backtracks += s.backtracks;
+            total.maxLookahead = Math.max(total.maxLookahead, s.maxLookahead);
+            total.totalLookahead += s.totalLookahead;
+            total.lookaheadCount += s.lookaheadCount;
+            total.time += s.time;
+            if(total.location == null)
+                total.location = s.location;
+        }
+    }
+
+    public void merge(DBProfileReport report) {
+        files.putAll(report.files);
+        addStats(report.stats.values());
+    }
+
+    /** Returns the statistics sorted by the specified DBDecisionProfiler criteria */
+    public List<DBDecisionProfiler.Stats> getSortedStats(int sort) {
+        List<DBDecisionProfiler.Stats> sorted = new ArrayList<DBDecisionProfiler.Stats>(stats.values());
+        Collections.sort(sorted, DBDecisionProfiler.getComparator(sort));
+        return sorted;
+    }
+
+    protected static String getKey(DBDecisionProfiler.Stats s) {
+        // Sort the decisions after the rules of each grammar
+        if(s.isRule())
+            return s.grammarName+"\t0\t"+s.rule;
+        else
+            return s.grammarName+"\t1\t"+(char)('0'+String.valueOf(s.decision).length())+s.decision;
+    }
+
+    public void write(String file) throws IOException {
+        Writer w = new BufferedWriter(new FileWriter(file));
+        try {
+            write(w);
+        } finally {
+            w.close();
+        }
+    }
+
+    public void write(Writer w) throws IOException {
+        PrintWriter pw = new PrintWriter(w);
+        pw.println(HEADER);
+        for (FileResult f : files.values()) {
+            pw.println(join(RECORD_FILE, f.name, f.bytes, f.tokens, f.events, f.time, f.errors,
+                    f.error == null ? "-" : f.error.replace('\t', ' ').replace('\n', ' ')));
+        }
+        for (DBDecisionProfiler.Stats s : stats.values()) {
+            pw.println(join(s.isRule() ? RECORD_RULE : RECORD_DECISION, s.grammarName, s.rule,
+                    s.isRule() ? "-" : String.valueOf(s.decision),
+                    s.invocations, s.maxLookahead, s.totalLookahead, s.lookaheadCount, s.backtracks, s.time,
+                    s.location == null ? "-" : s.location.line+":"+s.location.pos));
+        }
+        pw.flush();
+    }
+
+    public static DBProfileReport read(String file) throws IOException {
+        Reader r = new BufferedReader(new FileReader(file));
+        try {
+            return read(r);
+        } finally {
+            r.close();
+        }
+    }
+
+    public static DBProfileReport read(Reader r) throws IOException {
+        DBProfileReport report = new DBProfileReport();
+        List<DBDecisionProfiler.Stats> stats = new ArrayList<DBDecisionProfiler.Stats>();
+        BufferedReader br = new BufferedReader(r);
+        String line;
+        while((line = br.readLine()) != null) {
+            if(line.length() == 0 || line.startsWith("#"))
+                continue;
+
+            String[] f = line.split("\t", -1);
+            if(f[0].equals(RECORD_FILE)) {
+                FileResult result = new FileResult(f[1]);
+                result.bytes = Long.parseLong(f[2]);
+                result.tokens = Integer.parseInt(f[3]);
+                result.events = Integer.parseInt(f[4]);
+                result.time = Long.parseLong(f[5]);
+                result.errors = Integer.parseInt(f[6]);
+                result.error = f[7].equals("-") ? null : f[7];
+                report.addFile(result);
+            } else {
+                DBDecisionProfiler.Stats s = new DBDecisionProfiler.Stats(nullable(f[1]), nullable(f[2]),
+                        f[3].equals("-") ? -1 : Integer.parseInt(f[3]));
+                s.invocations = Integer.parseInt(f[4]);
+                s.maxLookahead = Integer.parseInt(f[5]);
+                s.totalLookahead = Long.parseLong(f[6]);
+                s.lookaheadCount = Integer.parseInt(f[7]);
+                s.backtracks = Integer.parseInt(f[8]);
+                s.time = Long.parseLong(f[9]);
+                if(!f[10].equals("-")) {
+                    int colon = f[10].indexOf(':');
+                    s.location = new DBEventLocation(Integer.parseInt(f[10].substring(0, colon)),
+                            Integer.parseInt(f[10].substring(colon+1)));
+                    s.location.setGrammarName(s.grammarName);
+                }
+                stats.add(s);
+            }
+        }
+        report.addStats(stats);
+        return report;
+    }
+
+    private static String nullable(String s) {
+        return s.equals("null") ? null : s;
+    }
+
+    private static String join(Object... values) {
+        StringBuilder sb = new StringBuilder();
+        for (Object value : values) {
+            if(sb.length() > 0)
+                sb.append('\t');
+            sb.append(value);
+        }
+        return sb.toString();
+    }
+
+    /** Result of the parsing of one input file */
+    public static class FileResult {
+
+        public String name;
+        public long bytes;
+        public int tokens;
+        public int events;
+        /** Parsing time in nanoseconds */
+        public long time;
+        public int errors;
+        /** First error or failure message */
+        public String error;
+
+        public FileResult(String name) {
+            this.name = name;
+        }
+
+        public double getTokensPerSecond() {
+            return time == 0 ? 0 : tokens*1e9/time;
+        }
+    }
+
+}
@@ -75,6 +75,12 @@ public class DBEvent {
 
     private int eventType;
     private String grammarName;
+    /** Time (System.nanoTime) at which the event was received from the parser, without the
+     * time the debugger was paused (see DBEventClock). The remote debug protocol does not
+     * transmit any time: for a parser running in a separate process, this time includes the
+     * transport of the event over the socket.
+     */
+    private long time;
 
     public DBEvent(int eventType) {
         this.eventType = eventType;
@@ -143,6 +149,14 @@ public class DBEvent {
         this.grammarName = grammarName;
     }
 
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
     public String toString() {
         switch(getEventType()) {
             case BEGIN_RESYNC:  return "Begin resync";
@@ -34,10 +34,12 @@ package org.antlr.works.debugger.input;
 import org.antlr.runtime.Token;
 import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.events.DBEventLocation;
+import org.antlr.works.debugger.tivo.DBBreakpointMatcher;
 import org.antlr.works.dialog.AWPrefsDialog;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.TextPane;
 import org.antlr.works.utils.TextPaneDelegate;
+import org.antlr.works.utils.Utils;
 import org.antlr.xjlib.foundation.XJSystem;
 import org.antlr.xjlib.foundation.notification.XJNotificationCenter;
 import org.antlr.xjlib.foundation.notification.XJNotificationObserver;
@@ -47,6 +49,7 @@ import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.SimpleAttributeSet;
 import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -64,10 +67,22 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
     protected TextPane textPane;
     protected int mouseIndex = -1;
 
-    protected LinkedList<Integer> inputTokenIndexes = new LinkedList<Integer>();
-    protected Map<Integer,DBInputTextTokenInfo> indexToTokenInfoMap = new HashMap<Integer, DBInputTextTokenInfo>();
-    protected Map<Integer,AttributeSet> indexToConsumeAttributeMap = new HashMap<Integer, AttributeSet>();
-    protected Set<Integer> lookaheadTokenIndexes = new HashSet<Integer>();
+    /** Token indexes sorted in ascending order - used to render the tokens */
+    protected int[] sortedTokenIndexes = new int[1024];
+    protected int sortedTokenCount;
+
+    /** Arrays keyed by token index */
+    protected DBInputTextTokenInfo[] tokenInfos = new DBInputTextTokenInfo[1024];
+    protected AttributeSet[] consumeAttributes = new AttributeSet[1024];
+    protected AttributeSet[] renderedAttributes = new AttributeSet[1024];
+    protected BitSet consumedTokenIndexes = new BitSet();
+    protected BitSet lookaheadTokenIndexes = new BitSet();
+
+    /** Tokens whose attribute may have changed since the last rendering */
+    protected BitSet dirtyTokenIndexes = new BitSet();
+
+    /** Position in sortedTokenIndexes of the first token whose text is not rendered yet */
+    protected int textDirtyPosition;
 
     /** Current token index */
     protected int currentTokenIndex;
@@ -166,18 +181,33 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
     }
 
     public void addConsumeAttribute(Token token, AttributeSet attribute) {
-        indexToConsumeAttributeMap.put(token.getTokenIndex(), attribute);
+        int index = token.getTokenIndex();
+        if(index < 0) return;
+
+        ensureTokenCapacity(index);
+        consumeAttributes[index] = attribute;
+        consumedTokenIndexes.set(index);
+        dirtyTokenIndexes.set(index);
     }
 
     public void addTokenLT(Token token) {
-        lookaheadTokenIndexes.add(token.getTokenIndex());
+        int index = token.getTokenIndex();
+        if(index < 0) return;
+
+        lookaheadTokenIndexes.set(index);
+        dirtyTokenIndexes.set(index);
     }
 
     public void removeTokenLT(Token token) {
-        lookaheadTokenIndexes.remove(Integer.valueOf(token.getTokenIndex()));
+        int index = token.getTokenIndex();
+        if(index < 0) return;
+
+        lookaheadTokenIndexes.clear(index);
+        dirtyTokenIndexes.set(index);
     }
 
     public void removeAllLT() {
+        dirtyTokenIndexes.or(lookaheadTokenIndexes);
         lookaheadTokenIndexes.clear();
     }
 
@@ -192,10 +222,14 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
         currentTokenIndex = -1;
         currentTokenIndexInText = 0;
 
-        inputTokenIndexes.clear();
-        indexToTokenInfoMap.clear();
-        indexToConsumeAttributeMap.clear();
+        sortedTokenCount = 0;
+        textDirtyPosition = 0;
+        Arrays.fill(tokenInfos, null);
+        Arrays.fill(consumeAttributes, null);
+        Arrays.fill(renderedAttributes, null);
+        consumedTokenIndexes.clear();
         lookaheadTokenIndexes.clear();
+        dirtyTokenIndexes.clear();
     }
 
     public void rewindAll() {
@@ -208,11 +242,14 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
         /** Remove any consume and lookahead attribute for any token with index
          * greater than start
          */
-        for (Integer idx : inputTokenIndexes) {
-            if (idx >= start) {
-                indexToConsumeAttributeMap.remove(idx);
-                lookaheadTokenIndexes.remove(idx);
-            }
+        for(int idx = consumedTokenIndexes.nextSetBit(Math.max(start, 0)); idx >= 0; idx = consumedTokenIndexes.nextSetBit(idx+1)) {
+            consumedTokenIndexes.clear(idx);
+            consumeAttributes[idx] = null;
+            dirtyTokenIndexes.set(idx);
+        }
+        for(int idx = lookaheadTokenIndexes.nextSetBit(Math.max(start, 0)); idx >= 0; idx = lookaheadTokenIndexes.nextSetBit(idx+1)) {
+            lookaheadTokenIndexes.clear(idx);
+            dirtyTokenIndexes.set(idx);
         }
     }
 
@@ -224,72 +261,138 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
         }
 
         currentTokenIndex = index;
+        ensureTokenCapacity(index);
+
+        DBInputTextTokenInfo info = tokenInfos[index];
+        if(info == null) {
+            tokenInfos[index] = new DBInputTextTokenInfo(token, locationEvent);
+            insertSortedTokenIndex(index);
+        } else {
+            /** Update the token even if it is already known because its location
+             * may have changed
+             */
+            info.token = token;
+            info.location = locationEvent;
+        }
+    }
 
-        /** Insert the index into the list of sorted indexes - used to render the token */
-
-        if(!indexToTokenInfoMap.containsKey(index)) {
-            if(inputTokenIndexes.isEmpty())
-                inputTokenIndexes.add((Integer)index);
-            else {
-                for(int i=inputTokenIndexes.size()-1; i >= 0; i--) {
-                    Integer n = inputTokenIndexes.get(i);
-                    if(n < index) {
-                        inputTokenIndexes.add(i+1, (Integer)index);
-                        break;
-                    }
-                }
-            }
+    /** Insert the index into the array of sorted indexes. Tokens are almost
+     * always received in ascending order so the search starts from the end.
+     */
+    protected void insertSortedTokenIndex(int index) {
+        sortedTokenIndexes = Utils.ensureCapacity(sortedTokenIndexes, sortedTokenCount+1);
+
+        int position = sortedTokenCount;
+        if(position > 0 && sortedTokenIndexes[position-1] > index) {
+            position = Arrays.binarySearch(sortedTokenIndexes, 0, sortedTokenCount, index);
+            position = -position-1;
+            System.arraycopy(sortedTokenIndexes, position, sortedTokenIndexes, position+1, sortedTokenCount-position);
         }
+        sortedTokenIndexes[position] = index;
+        sortedTokenCount++;
 
-        /** Add the token even if it is already in the map because its position or attribute
-         * may have changed
-         */
+        /** The text from this position needs to be rendered again */
+        textDirtyPosition = Math.min(textDirtyPosition, position);
+    }
+
+    protected void ensureTokenCapacity(int index) {
+        if(index < tokenInfos.length)
+            return;
+
+        int capacity = Math.max(index+1, tokenInfos.length*2);
+
+        DBInputTextTokenInfo[] infos = new DBInputTextTokenInfo[capacity];
+        System.arraycopy(tokenInfos, 0, infos, 0, tokenInfos.length);
+        tokenInfos = infos;
 
-        indexToTokenInfoMap.put(index, new DBInputTextTokenInfo(token, locationEvent));
+        AttributeSet[] attributes = new AttributeSet[capacity];
+        System.arraycopy(consumeAttributes, 0, attributes, 0, consumeAttributes.length);
+        consumeAttributes = attributes;
+
+        attributes = new AttributeSet[capacity];
+        System.arraycopy(renderedAttributes, 0, attributes, 0, renderedAttributes.length);
+        renderedAttributes = attributes;
     }
 
     public Token getCurrentToken() {
-        DBInputTextTokenInfo info = indexToTokenInfoMap.get(getCurrentTokenIndex());
+        DBInputTextTokenInfo info = getTokenInfoAtTokenIndex(getCurrentTokenIndex());
         if(info == null)
             return null;
         else
             return info.token;
     }
 
-    public String renderTokensText() {
-        currentTokenIndexInText = 0;
+    /** Render the text of the tokens added since the last rendering. Only the text
+     * located after the first new token is replaced in the document. Any text after
+     * the last token (i.e. left from before a reset) is removed.
+     */
+    public void renderTokensText() throws BadLocationException {
+        textDirtyPosition = Math.min(textDirtyPosition, sortedTokenCount);
+
+        int offset = 0;
+        if(textDirtyPosition > 0)
+            offset = tokenInfos[sortedTokenIndexes[textDirtyPosition-1]].end;
+
+        StyledDocument doc = textPane.getStyledDocument();
+        if(textDirtyPosition == sortedTokenCount) {
+            if(doc.getLength() > offset)
+                doc.remove(offset, doc.getLength()-offset);
+            return;
+        }
+
         StringBuilder text = new StringBuilder();
-        for (Integer idx : inputTokenIndexes) {
-            DBInputTextTokenInfo info = indexToTokenInfoMap.get(idx);
-            info.setStart(text.length());
+        for(int position = textDirtyPosition; position < sortedTokenCount; position++) {
+            int idx = sortedTokenIndexes[position];
+            DBInputTextTokenInfo info = tokenInfos[idx];
+            info.setStart(offset+text.length());
             text.append(info.getText());
 
-            if (idx == getCurrentTokenIndex())
-                currentTokenIndexInText = info.start;
+            /** The text is inserted using the non-consumed attribute */
+            renderedAttributes[idx] = attributeNonConsumed;
+            dirtyTokenIndexes.set(idx);
         }
-        return text.toString();
+
+        doc.remove(offset, doc.getLength()-offset);
+        doc.insertString(offset, text.toString(), attributeNonConsumed);
+
+        textDirtyPosition = sortedTokenCount;
     }
 
     public void render() {
         /** Apply the text */
+        try {
+            renderTokensText();
+        } catch (BadLocationException e) {
+            debuggerTab.getConsole().println(e);
+        }
 
-        String text = renderTokensText();
-        textPane.setText(text);
-        textPane.getStyledDocument().setCharacterAttributes(0, text.length(), SimpleAttributeSet.EMPTY, true);
+        /** Apply the style only to the tokens whose state changed since the last rendering */
+        StyledDocument doc = textPane.getStyledDocument();
+        for(int idx = dirtyTokenIndexes.nextSetBit(0); idx >= 0; idx = dirtyTokenIndexes.nextSetBit(idx+1)) {
+            if(idx >= tokenInfos.length)
+                break;
+
+            DBInputTextTokenInfo info = tokenInfos[idx];
+            if(info == null)
+                continue;
 
-        /** Apply the style for each token */
-        for (Integer idx : inputTokenIndexes) {
-            DBInputTextTokenInfo info = indexToTokenInfoMap.get(idx);
-            AttributeSet attribute = indexToConsumeAttributeMap.get(idx);
+            AttributeSet attribute = consumeAttributes[idx];
             if (attribute == null)
                 attribute = attributeNonConsumed;
 
             /** LT attribute override the other */
-            if (lookaheadTokenIndexes.contains(idx))
+            if (lookaheadTokenIndexes.get(idx))
                 attribute = attributeLookahead;
 
-            textPane.getStyledDocument().setCharacterAttributes(info.start, info.end, attribute, true);
+            if(renderedAttributes[idx] != attribute) {
+                doc.setCharacterAttributes(info.start, info.end-info.start, attribute, true);
+                renderedAttributes[idx] = attribute;
+            }
         }
+        dirtyTokenIndexes.clear();
+
+        DBInputTextTokenInfo info = getTokenInfoAtTokenIndex(getCurrentTokenIndex());
+        currentTokenIndexInText = info == null?0:info.start;
     }
 
     public void updateOnBreakEvent() {
@@ -328,10 +431,27 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
         attributeLookahead = new SimpleAttributeSet();
         StyleConstants.setForeground(attributeLookahead, AWPrefs.getLookaheadTokenColor());
         StyleConstants.setItalic(attributeLookahead, true);
+
+        /** Apply the new attributes to every token the next time the text is rendered */
+        Arrays.fill(renderedAttributes, null);
+        for(int position = 0; position < sortedTokenCount; position++) {
+            dirtyTokenIndexes.set(sortedTokenIndexes[position]);
+        }
     }
 
     public void textPaneDidPaint(Graphics g) {
-        for (DBInputTextTokenInfo info : indexToTokenInfoMap.values()) {
+        /** Only paint the tokens that are visible */
+        Rectangle r = g.getClipBounds();
+        if(r == null)
+            r = textPane.getVisibleRect();
+
+        int first = getSortedPositionAtTextIndex(getTextIndexAtPoint(r.x, r.y));
+        int last = getSortedPositionAtTextIndex(getTextIndexAtPoint(r.x+r.width, r.y+r.height));
+        if(first < 0) first = 0;
+        if(last < 0) last = sortedTokenCount-1;
+
+        for(int position = first; position <= last && position < textDirtyPosition; position++) {
+            DBInputTextTokenInfo info = tokenInfos[sortedTokenIndexes[position]];
             if (drawTokensBox)
                 drawToken(info, (Graphics2D) g, Color.red, false);
 
@@ -342,6 +462,31 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
         }
     }
 
+    /** JTextComponent.viewToModel is deprecated in later JDKs but its replacement does not exist in 1.5 */
+    @SuppressWarnings("deprecation")
+    private int getTextIndexAtPoint(int x, int y) {
+        return textPane.viewToModel(new Point(x, y));
+    }
+
+    /** Returns the position in sortedTokenIndexes of the rendered token containing
+     * the specified text index or -1 if there is none.
+     */
+    public int getSortedPositionAtTextIndex(int index) {
+        int low = 0;
+        int high = textDirtyPosition-1;
+        while(low <= high) {
+            int middle = (low+high) >>> 1;
+            DBInputTextTokenInfo info = tokenInfos[sortedTokenIndexes[middle]];
+            if(index < info.start)
+                high = middle-1;
+            else if(index >= info.end)
+                low = middle+1;
+            else
+                return middle;
+        }
+        return -1;
+    }
+
     public void drawToken(DBInputTextTokenInfo info, Graphics2D g, Color c, boolean fill) {
         g.setColor(c);
         try {
@@ -375,21 +520,30 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
     }
 
     public DBInputTextTokenInfo getTokenInfoAtTokenIndex(int index) {
-        return indexToTokenInfoMap.get(index);
+        if(index < 0 || index >= tokenInfos.length)
+            return null;
+        else
+            return tokenInfos[index];
     }
 
     public DBInputTextTokenInfo getTokenInfoAtPositionIndex(int index) {
-        for (DBInputTextTokenInfo info : indexToTokenInfoMap.values()) {
-            if (index >= info.start && index < info.end)
-                return info;
-        }
-        return null;
+        int position = getSortedPositionAtTextIndex(index);
+        if(position == -1)
+            return null;
+        else
+            return tokenInfos[sortedTokenIndexes[position]];
     }
 
     public boolean isBreakpointAtToken(Token token) {
         return inputBreakpointIndexes.contains(Integer.valueOf(token.getTokenIndex()));
     }
 
+    public void compileBreakpoints(DBBreakpointMatcher matcher) {
+        for (Integer index : inputBreakpointIndexes) {
+            matcher.addTokenBreakpoint(index);
+        }
+    }
+
     /** This method highlights the token at the specified index
      * in the input stream.
      */
@@ -415,13 +569,12 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
     }
 
     public DBInputTextTokenInfo getTokenInfoForToken(Token t) {
-        for (DBInputTextTokenInfo info : indexToTokenInfoMap.values()) {
-            // FIX AW-61 - compare also the token type to avoid selecting the wrong one (e.g. imaginary)
-            if (info.token.getTokenIndex() == t.getTokenIndex() &&
-                    info.token.getType() == t.getType())
-                return info;
-        }
-        return null;
+        DBInputTextTokenInfo info = getTokenInfoAtTokenIndex(t.getTokenIndex());
+        // FIX AW-61 - compare also the token type to avoid selecting the wrong one (e.g. imaginary)
+        if (info != null && info.token.getType() == t.getType())
+            return info;
+        else
+            return null;
     }
 
     public void notificationFire(Object source, String name) {
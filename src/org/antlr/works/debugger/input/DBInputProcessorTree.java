@@ -3,6 +3,7 @@ package org.antlr.works.debugger.input;
 import org.antlr.runtime.Token;
 import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.events.DBEventLocation;
+import org.antlr.works.debugger.tivo.DBBreakpointMatcher;
 import org.antlr.works.debugger.tree.DBTreeNode;
 import org.antlr.works.debugger.tree.DBTreeToken;
 import org.antlr.works.dialog.AWPrefsDialog;
@@ -231,6 +232,14 @@ public class DBInputProcessorTree implements DBInputProcessor, XJNotificationObs
         return !(info == null || info.node == null) && info.node.breakpoint;
     }
 
+    public void compileBreakpoints(DBBreakpointMatcher matcher) {
+        for (Map.Entry<Integer, NodeInfo> entry : nodeInfoForToken.entrySet()) {
+            NodeInfo info = entry.getValue();
+            if(info.node != null && info.node.breakpoint)
+                matcher.addTreeNodeBreakpoint(entry.getKey());
+        }
+    }
+
     public static class NodeInfo {
 
         /** Token */
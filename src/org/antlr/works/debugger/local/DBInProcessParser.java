@@ -0,0 +1,270 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.local;
+
+import org.antlr.runtime.ANTLRFileStream;
+import org.antlr.runtime.CharStream;
+import org.antlr.runtime.CommonTokenStream;
+import org.antlr.runtime.TokenSource;
+import org.antlr.runtime.TokenStream;
+import org.antlr.runtime.debug.DebugEventListener;
+import org.antlr.works.debugger.tivo.DBInProcessEventListener;
+import org.antlr.works.utils.StreamWatcherDelegate;
+import org.antlr.works.utils.Utils;
+
+import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/** This class runs the parser generated in debug mode inside the ANTLRWorks JVM instead
+ * of launching a remote parser: the classes are loaded by a disposable class loader and
+ * the parser sends its events directly to a DebugEventListener on a worker thread.
+ * The output of the worker thread is redirected to the output panel of the debugger.
+ */
+public class DBInProcessParser implements Runnable {
+
+    protected URLClassLoader loader;
+    protected Constructor<?> lexerConstructor;
+    protected Constructor<?> parserConstructor;
+    protected Method startRuleMethod;
+    protected String inputFile;
+
+    protected StreamWatcherDelegate output;
+    protected DebugEventListener listener;
+    protected Thread thread;
+
+    public DBInProcessParser(StreamWatcherDelegate output) {
+        this.output = output;
+    }
+
+    /** Load the lexer and parser classes from the class path. Each class name is looked up
+     * using the packages (if any) declared in the grammar.
+     */
+    public void load(String[] classPath, String lexerName, String parserName, Collection<String> packages,
+                     Map<String, byte[]> classes, String startRule, String inputFile) throws Exception
+    {
+        List<URL> urls = new ArrayList<URL>();
+        for(String path : classPath) {
+            if(path != null && path.length() > 0)
+                urls.add(new File(Utils.unquotePath(path)).toURI().toURL());
+        }
+        loader = new ParserClassLoader(urls.toArray(new URL[urls.size()]), classes, getClass().getClassLoader());
+
+        Class<?> lexerClass = loadClass(lexerName, packages);
+        Class<?> parserClass = loadClass(parserName, packages);
+        lexerConstructor = lexerClass.getConstructor(CharStream.class);
+        // Only the parser generated in debug mode has this constructor
+        parserConstructor = parserClass.getConstructor(TokenStream.class, DebugEventListener.class);
+        startRuleMethod = parserClass.getMethod(startRule);
+        this.inputFile = inputFile;
+    }
+
+    protected Class<?> loadClass(String name, Collection<String> packages) throws ClassNotFoundException {
+        for(String p : packages) {
+            try {
+                return loader.loadClass(p+"."+name);
+            } catch (ClassNotFoundException e) {
+                // Try the next package
+            }
+        }
+        return loader.loadClass(name);
+    }
+
+    public void start(DebugEventListener listener) {
+        this.listener = listener;
+        thread = new Thread(this, "In-process parser");
+        thread.setContextClassLoader(loader);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isAlive() {
+        return thread != null && thread.isAlive();
+    }
+
+    public void run() {
+        ThreadOutput.register(output);
+        try {
+            TokenSource lexer = (TokenSource)lexerConstructor.newInstance(new ANTLRFileStream(inputFile, "UTF8"));
+            Object parser = parserConstructor.newInstance(new CommonTokenStream(lexer), listener);
+            startRuleMethod.invoke(parser);
+        } catch(InvocationTargetException e) {
+            if(!(e.getCause() instanceof DBInProcessEventListener.AbortException))
+                failed(e.getCause());
+        } catch(Exception e) {
+            failed(e);
+        } finally {
+            ThreadOutput.unregister();
+            dispose();
+        }
+    }
+
+    /** Print the exception to the output panel and send the terminate event so the
+     * debugger does not wait for the parser forever.
+     */
+    protected void failed(Throwable t) {
+        t.printStackTrace();
+        try {
+            listener.terminate();
+        } catch(DBInProcessEventListener.AbortException e) {
+            // The debugger was stopped in the meantime
+        }
+    }
+
+    /** Drop every reference to the loaded classes so the class loader can be collected */
+    protected synchronized void dispose() {
+        lexerConstructor = null;
+        parserConstructor = null;
+        startRuleMethod = null;
+        listener = null;
+        loader = null;
+    }
+
+    /** Defines the classes compiled in memory before looking them up in the class path */
+    protected static class ParserClassLoader extends URLClassLoader {
+
+        protected Map<String, byte[]> classes;
+
+        public ParserClassLoader(URL[] urls, Map<String, byte[]> classes, ClassLoader parent) {
+            super(urls, parent);
+            this.classes = classes;
+        }
+
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.remove(name);
+            if(bytes != null)
+                return defineClass(name, bytes, 0, bytes.length);
+            return super.findClass(name);
+        }
+    }
+
+    /** This stream is installed as System.out and System.err while at least one parser is running:
+     * the lines printed by a registered thread are sent to its delegate while any other thread
+     * prints to the original stream. The original streams are restored when the last parser ends.
+     */
+    protected static class ThreadOutput extends OutputStream {
+
+        protected static final ThreadLocal<StreamWatcherDelegate> delegate = new ThreadLocal<StreamWatcherDelegate>();
+        protected static final ThreadLocal<ByteArrayOutputStream> line = new ThreadLocal<ByteArrayOutputStream>();
+
+        /** Number of registered threads */
+        protected static int sessions;
+        protected static PrintStream originalOut;
+        protected static PrintStream originalErr;
+        protected static PrintStream installedOut;
+        protected static PrintStream installedErr;
+
+        protected PrintStream original;
+
+        public ThreadOutput(PrintStream original) {
+            this.original = original;
+        }
+
+        public static void register(StreamWatcherDelegate d) {
+            if(d == null) return;
+
+            synchronized(ThreadOutput.class) {
+                if(sessions++ == 0) {
+                    originalOut = System.out;
+                    originalErr = System.err;
+                    installedOut = new PrintStream(new ThreadOutput(originalOut), true);
+                    installedErr = new PrintStream(new ThreadOutput(originalErr), true);
+                    System.setOut(installedOut);
+                    System.setErr(installedErr);
+                }
+            }
+            d.streamWatcherDidStart();
+            delegate.set(d);
+            line.set(new ByteArrayOutputStream());
+        }
+
+        public static void unregister() {
+            if(delegate.get() == null) return;
+
+            try {
+                flushLine();
+            } finally {
+                delegate.remove();
+                line.remove();
+                synchronized(ThreadOutput.class) {
+                    if(--sessions == 0) {
+                        // Leave the streams alone if someone else replaced them in the meantime
+                        if(System.out == installedOut)
+                            System.setOut(originalOut);
+                        if(System.err == installedErr)
+                            System.setErr(originalErr);
+                        originalOut = originalErr = installedOut = installedErr = null;
+                    }
+                }
+            }
+        }
+
+        protected static void flushLine() {
+            ByteArrayOutputStream l = line.get();
+            if(l == null || l.size() == 0) return;
+
+            String text = l.toString();
+            l.reset();
+
+            // Anything printed by the delegate itself goes to the original stream
+            line.set(null);
+            try {
+                delegate.get().streamWatcherDidReceiveString(text);
+            } finally {
+                line.set(l);
+            }
+        }
+
+        public void write(int b) throws IOException {
+            ByteArrayOutputStream l = line.get();
+            if(l == null) {
+                original.write(b);
+            } else {
+                l.write(b);
+                if(b == '\n')
+                    flushLine();
+            }
+        }
+
+        public void flush() throws IOException {
+            original.flush();
+        }
+    }
+
+}
@@ -37,11 +37,13 @@ import org.antlr.stringtemplate.language.DefaultTemplateLexer;
 import org.antlr.works.IDE;
 import org.antlr.works.ate.syntax.generic.ATESyntaxLexer;
 import org.antlr.works.ate.syntax.misc.ATEToken;
+import org.antlr.works.debugger.DebuggerCompiler;
 import org.antlr.works.debugger.DebuggerEngine;
 import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.tivo.DBRecorder;
 import org.antlr.works.dialog.DebuggerInputDialog;
 import org.antlr.works.dialog.DialogTestTemplate;
+import org.antlr.works.generate.BuildCache;
 import org.antlr.works.generate.CodeGenerate;
 import org.antlr.works.grammar.element.ElementBlock;
 import org.antlr.works.grammar.element.ElementGrammarName;
@@ -58,6 +60,8 @@ import javax.swing.*;
 import java.io.File;
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -90,6 +94,7 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
     protected String lastStartRule;
 
     protected Process remoteParserProcess;
+    protected DBInProcessParser inProcessParser;
 
     protected boolean cancelled;
     protected int options;
@@ -217,13 +222,19 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
 
     public void run() {
         resetErrors();
+        inProcessParser = null;
 
         if(prepare()) {
             if(optionBuild()) generateAndCompileGrammar();
             if(!cancelled() && !optionAgain()) askUserForInputText();
             if(!cancelled() && !AWPrefs.TEST_RIG_MODE_CLASS.equals(testTemplateMode)) generateAndCompileGlueCode(optionBuild());
             if(!cancelled()) generateInputText();
-            if(!cancelled()) launchRemoteParser();
+            if(!cancelled()) {
+                if(canRunInProcess())
+                    launchInProcessParser();
+                else
+                    launchRemoteParser();
+            }
         }
 
         if(hasErrors())
@@ -411,9 +422,49 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
     }
 
     protected void compileGrammar() {
+        // The classes are up-to-date if they were compiled from the same generated files and settings
+        String key = getClassesKey(codeGenerator.getGrammarHash());
+        if(key != null && key.equals(CodeGenerate.readHash(getClassesHashFile())))
+            return;
+
         XJUtils.deleteDirectory(outputFileDir);
+        DebuggerCompiler.shared().clearClasses(outputFileDir);
         new File(outputFileDir).mkdirs();
-        compileFiles(grammarGeneratedFiles.toArray(new String[grammarGeneratedFiles.size()]));
+
+        // The same classes may have been compiled by another window or a previous session
+        if(!BuildCache.shared().restore(key, outputFileDir)) {
+            compileFiles(grammarGeneratedFiles.toArray(new String[grammarGeneratedFiles.size()]));
+            if(hasErrors()) return;
+
+            BuildCache.shared().storeDirectory(key, outputFileDir);
+        }
+
+        if(key != null) {
+            try {
+                CodeGenerate.writeHash(getClassesHashFile(), key);
+            } catch (IOException e) {
+                debuggerTab.getConsole().println(e);
+            }
+        }
+    }
+
+    /**
+     * Returns the key of the classes compiled from the generated files: it combines the grammar hash
+     * with everything else that affects the compilation (compiler, class path and Java version).
+     */
+    protected String getClassesKey(String grammarHash) {
+        if(grammarHash == null) return null;
+
+        BuildCache.Key key = new BuildCache.Key();
+        key.add("sources", grammarHash);
+        key.add("compiler", DebuggerEngine.getCompilerSettings());
+        key.add("classpath", DebuggerEngine.getClassPath(""));
+        key.add("java", System.getProperty("java.version"));
+        return key.getHash();
+    }
+
+    protected String getClassesHashFile() {
+        return XJUtils.concatPath(outputFileDir, "."+debuggerTab.getDelegate().getGrammarName()+".md5");
     }
 
     protected void generateAndCompileGlueCode(boolean build) {
@@ -485,7 +536,9 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
             glueCode.setAttribute(ST_ATTR_DEBUG_PORT, AWPrefs.getDebugDefaultLocalPort());
             glueCode.setAttribute(ST_ATTR_GRAMMAR_NAME, debuggerTab.getDelegate().getGrammarName());
 
-            XJUtils.writeStringToFile(glueCode.toString(), fileRemoteParser);
+            String text = glueCode.toString();
+            if(!new File(fileRemoteParser).exists() || !text.equals(Utils.stringFromFile(fileRemoteParser)))
+                XJUtils.writeStringToFile(text, fileRemoteParser);
         } catch(Exception e) {
             debuggerTab.getConsole().println(e);
             reportError("Error while generating the glue-code:\n"+e.toString());
@@ -496,12 +549,25 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
      * Returns a string of import statement based on the package declaration inside any @header block
      */
     private String getCustomImports() {
+        StringBuilder importLines = new StringBuilder();
+        for (String importName : getHeaderPackages()) {
+            importLines.append("import ");
+            importLines.append(importName);
+            importLines.append(".*;\n");
+        }
+        return importLines.toString();
+    }
+
+    /**
+     * Returns the packages declared inside any @header block
+     */
+    private Set<String> getHeaderPackages() {
+        Set<String> packages = new HashSet<String>();
         List<ElementBlock> blocks = debuggerTab.getBlocks();
-        if(blocks == null || blocks.isEmpty()) {
-            return "";
+        if(blocks == null) {
+            return packages;
         }
 
-        Set<String> imports = new HashSet<String>();
         for (ElementBlock block : blocks) {
             if (!block.name.equals(GrammarSyntaxParser.PARSER_HEADER_BLOCK_NAME) && !block.name.equals(GrammarSyntaxParser.LEXER_HEADER_BLOCK_NAME))
             {
@@ -522,22 +588,11 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
                         sb.append(at);
                         j++;
                     }
-                    imports.add(sb.toString());
+                    packages.add(sb.toString());
                 }
             }
         }
-
-        if(imports.isEmpty()) {
-            return "";
-        }
-
-        StringBuilder importLines = new StringBuilder();
-        for (String importName : imports) {
-            importLines.append("import ");
-            importLines.append(importName);
-            importLines.append(".*;\n");
-        }
-        return importLines.toString();
+        return packages;
     }
 
     protected void compileGlueCode() {
@@ -546,9 +601,28 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
             String lexerName = XJUtils.concatPath(codeGenerator.getOutputPath(), (isTreeGrammar ? (getLexerName()+"Lexer.java") : (getLexerName()+".java")));
             String parserName = XJUtils.concatPath(codeGenerator.getOutputPath(), (isTreeGrammar ? (debuggerTab.getDelegate().getTokenVocab()+"Parser.java") :
                     (debuggerTab.getDelegate().getGrammarEngine().getGeneratedClassName(ElementGrammarName.PARSER)+".java")));
-            compileFiles(new String[] { lexerName});
-            compileFiles(new String[] { parserName});
-            compileFiles(new String[] { fileRemoteParser});
+
+            // The files generated from this grammar have already been compiled by compileGrammar()
+            List<String> files = new ArrayList<String>();
+            for(String file : new String[] { lexerName, parserName }) {
+                if(!grammarGeneratedFiles.contains(file))
+                    files.add(file);
+            }
+            files.add(fileRemoteParser);
+
+            // The glue-code depends on the grammar classes and on the content of the files compiled with it
+            BuildCache.Key key = new BuildCache.Key();
+            key.add("classes", CodeGenerate.readHash(getClassesHashFile()));
+            for(String file : files) {
+                key.addFile("file", file);
+            }
+            String glueHashFile = XJUtils.concatPath(outputFileDir, "."+remoteParserClassName+".md5");
+            if(key.getHash().equals(CodeGenerate.readHash(glueHashFile)) && new File(outputFileDir, remoteParserClassName+".class").exists())
+                return;
+
+            compileFiles(files.toArray(new String[files.size()]));
+            if(!hasErrors())
+                CodeGenerate.writeHash(glueHashFile, key.getHash());
         } catch (Exception e) {
             debuggerTab.getConsole().println(e);
             reportError("Error :\n"+e.toString());
@@ -588,9 +662,17 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
         return "";
     }
 
+    /**
+     * Returns true if the files needed to launch the parser exist and were generated and compiled
+     * from the current content of the grammar, its imports and token vocabulary, and the current settings.
+     */
     public boolean isRequiredFilesExisting() {
         if(!prepare()) return false;
 
+        String key = getClassesKey(codeGenerator.computeGrammarHash());
+        if(codeGenerator.isFileModifiedSinceLastGeneration() || key == null || !key.equals(CodeGenerate.readHash(getClassesHashFile())))
+            return false;
+
         if(!new File(fileRemoteParser).exists()) return false;
 
         if(inputMode == 0 && !new File(fileRemoteParserInputTextFile).exists()) return false;
@@ -651,6 +733,45 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
         return true;
     }
 
+    /** Returns true if the parser can be run inside the ANTLRWorks JVM. The remote parser is still
+     * used for tree grammars and custom test rigs because they may need more than a lexer and a parser.
+     */
+    public boolean canRunInProcess() {
+        return AWPrefs.getDebugInProcess()
+                && debuggerTab.getDelegate().getGrammarEngine().getType() != ElementGrammarName.TREEPARSER
+                && AWPrefs.TEST_RIG_MODE_TEXT.equals(testTemplateMode)
+                && "".equals(testTemplateText);
+    }
+
+    public boolean launchInProcessParser() {
+        List<String> classPath = new ArrayList<String>();
+        classPath.add(outputFileDir);
+        if(AWPrefs.getUseCustomClassPath()) {
+            classPath.addAll(Arrays.asList(AWPrefs.getCustomClassPath().split(File.pathSeparator)));
+        }
+        IDE.debugVerbose(debuggerTab.getConsole(), getClass(), "Launch in-process with path: "+classPath);
+
+        try {
+            DBInProcessParser parser = new DBInProcessParser(debuggerTab.getOutputPanel());
+            parser.load(classPath.toArray(new String[classPath.size()]),
+                    getLexerName(),
+                    debuggerTab.getDelegate().getGrammarEngine().getGeneratedClassName(ElementGrammarName.PARSER),
+                    getHeaderPackages(), DebuggerCompiler.shared().getClasses(outputFileDir), startRule,
+                    inputMode == 0 ? fileRemoteParserInputTextFile : inputFile);
+            inProcessParser = parser;
+        } catch (Exception e) {
+            debuggerTab.getConsole().println(e);
+            reportError("Cannot load the parser:\n"+e.toString()+"\nMake sure the grammar has been generated and compiled without errors and try again.");
+            return false;
+        }
+        return true;
+    }
+
+    /** Returns the parser loaded by the last run if it has to be run in-process */
+    public DBInProcessParser getInProcessParser() {
+        return inProcessParser;
+    }
+
     public void streamWatcherDidStart() {
     }
 
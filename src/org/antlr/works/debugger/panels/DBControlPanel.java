@@ -2,6 +2,7 @@ package org.antlr.works.debugger.panels;
 
 import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.events.DBEvent;
+import org.antlr.works.debugger.tivo.DBBreakpointCondition;
 import org.antlr.works.debugger.tivo.DBPlayerContextInfo;
 import org.antlr.works.debugger.tivo.DBRecorder;
 import org.antlr.works.prefs.AWPrefs;
@@ -10,11 +11,14 @@ import org.antlr.works.utils.IconManager;
 import org.antlr.works.utils.NumberSet;
 import org.antlr.works.utils.Toolbar;
 import org.antlr.xjlib.appkit.swing.XJRollOverButton;
+import org.antlr.xjlib.appkit.utils.XJAlert;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 /*
 
@@ -62,6 +66,7 @@ public class DBControlPanel extends JPanel {
     protected JCheckBox breakConsumeButton;
     protected JCheckBox breakLTButton;
     protected JCheckBox breakExceptionButton;
+    protected JButton breakConditionsButton;
 
     protected JLabel infoLabel;
 
@@ -201,6 +206,7 @@ public class DBControlPanel extends JPanel {
         box.addElement(breakConsumeButton = createBreakButton("Consume"));
         box.addElement(breakLTButton = createBreakButton("LT"));
         box.addElement(breakExceptionButton = createBreakButton("Exception"));
+        box.addElement(breakConditionsButton = createBreakConditionsButton());
 
         AWPrefs.getPreferences().bindToPreferences(breakAllButton, AWPrefs.PREF_DEBUG_BREAK_ALL, false);
         AWPrefs.getPreferences().bindToPreferences(breakLocationButton, AWPrefs.PREF_DEBUG_BREAK_LOCATION, false);
@@ -224,12 +230,55 @@ public class DBControlPanel extends JPanel {
         return button;
     }
 
+    public JButton createBreakConditionsButton() {
+        JButton button = new JButton("Conditions...");
+        button.setFocusable(false);
+        button.setToolTipText("Conditional breakpoints");
+        button.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                editBreakConditions();
+            }
+        });
+        return button;
+    }
+
+    public void editBreakConditions() {
+        StringBuilder text = new StringBuilder();
+        for (DBBreakpointCondition c : debuggerTab.getRecorder().getConditionalBreakpoints()) {
+            text.append(c.toString()).append('\n');
+        }
+
+        JTextArea area = new JTextArea(text.toString(), 8, 40);
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(new JLabel("<html>One condition per line, for example:<br>" +
+                "rule expr depth &gt; 40<br>consume 5 hit 100<br>decision 3 alt 2</html>"), BorderLayout.NORTH);
+        panel.add(new JScrollPane(area), BorderLayout.CENTER);
+
+        while(JOptionPane.showConfirmDialog(this, panel, "Conditional Breakpoints",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) == JOptionPane.OK_OPTION)
+        {
+            List<DBBreakpointCondition> conditions = new ArrayList<DBBreakpointCondition>();
+            try {
+                for (String line : area.getText().split("\n")) {
+                    if(line.trim().length() > 0)
+                        conditions.add(DBBreakpointCondition.parse(line));
+                }
+            } catch(IllegalArgumentException e) {
+                XJAlert.display(this, "Conditional Breakpoints", e.getMessage());
+                continue;
+            }
+            debuggerTab.getRecorder().setConditionalBreakpoints(conditions);
+            breakConditionsButton.setText(conditions.isEmpty() ? "Conditions..." : "Conditions ("+conditions.size()+")...");
+            break;
+        }
+    }
+
     public JComponent createInfoLabelPanel() {
         infoLabel = new JLabel();
         return infoLabel;
     }
 
-    public Set getBreakEvent() {
+    public Set<Integer> getBreakEvent() {
         NumberSet set = new NumberSet();
 
         if(breakAllButton.isSelected())
@@ -2,15 +2,20 @@ package org.antlr.works.debugger.panels;
 
 import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.events.DBEvent;
+import org.antlr.works.debugger.tivo.DBEventContextIndex;
+import org.antlr.works.debugger.tivo.DBEventFilter;
+import org.antlr.works.debugger.tivo.DBEventSearchIndex;
 import org.antlr.works.debugger.tivo.DBPlayerContextInfo;
 import org.antlr.works.utils.DetachablePanel;
+import org.antlr.works.utils.Toolbar;
 import org.antlr.xjlib.appkit.swing.XJTable;
 import org.antlr.xjlib.appkit.swing.XJTableView;
 
 import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
 import java.awt.*;
-import java.util.ArrayList;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.util.List;
 /*
 
@@ -52,24 +57,203 @@ public class DBEventsPanel extends DetachablePanel {
     public static final int INFO_COLUMN_MARK = 4;
     public static final int INFO_COLUMN_BACKTRACK = 5;
 
+    /** Only the last rows are measured when resizing the columns */
+    public static final int AUTORESIZE_ROW_LIMIT = 200;
+
+    public static final int[] FILTER_EVENT_TYPES = {
+            DBEvent.ALL, DBEvent.LOCATION, DBEvent.CONSUME_TOKEN, DBEvent.CONSUME_HIDDEN_TOKEN,
+            DBEvent.LT, DBEvent.ENTER_RULE, DBEvent.EXIT_RULE, DBEvent.ENTER_SUBRULE, DBEvent.EXIT_SUBRULE,
+            DBEvent.ENTER_DECISION, DBEvent.EXIT_DECISION, DBEvent.ENTER_ALT, DBEvent.MARK, DBEvent.REWIND,
+            DBEvent.BEGIN_BACKTRACK, DBEvent.END_BACKTRACK, DBEvent.RECOGNITION_EXCEPTION,
+            DBEvent.BEGIN_RESYNC, DBEvent.END_RESYNC, DBEvent.NIL_NODE, DBEvent.ERROR_NODE,
+            DBEvent.CREATE_NODE, DBEvent.BECOME_ROOT, DBEvent.ADD_CHILD, DBEvent.SET_TOKEN_BOUNDARIES,
+            DBEvent.COMMENCE, DBEvent.TERMINATE
+    };
+
+    public static final int SEARCH_ENTER_RULE = 0;
+    public static final int SEARCH_EXIT_RULE = 1;
+    public static final int SEARCH_TOKEN_INDEX = 2;
+    /** The other search kinds are the event types of FILTER_EVENT_TYPES (except ALL) */
+    public static final int SEARCH_EVENT_TYPE = 3;
+
     protected XJTableView infoTableView;
+    protected JComboBox filterTypeCombo;
+    protected JTextField filterRuleField;
+
+    protected DebuggerTab debuggerTab;
+    protected JComboBox searchKindCombo;
+    protected JTextField searchField;
+    protected JLabel searchResultLabel;
 
     protected EventTableDataModel eventTableDataModel;
+    protected DBEventContextIndex contextIndex;
+    protected DBEventFilter filter;
 
     public DBEventsPanel(DebuggerTab debuggerTab) {
         super("Events", debuggerTab);
+        this.debuggerTab = debuggerTab;
 
+        contextIndex = new DBEventContextIndex();
+        filter = new DBEventFilter();
         eventTableDataModel = new EventTableDataModel();
 
         infoTableView = new XJTableView();
         infoTableView.setFocusable(true);
+        infoTableView.setAutoresizeRowLimit(AUTORESIZE_ROW_LIMIT);
         setInfoTableModel(infoTableView.getTable(), eventTableDataModel);
 
+        JPanel bars = new JPanel(new BorderLayout());
+        bars.add(createFilterBar(), BorderLayout.NORTH);
+        bars.add(createSearchBar(), BorderLayout.SOUTH);
+        mainPanel.add(bars, BorderLayout.NORTH);
         mainPanel.add(infoTableView, BorderLayout.CENTER);
 
         infoTableView.autoresizeColumns();
     }
 
+    @SuppressWarnings("unchecked")
+    public Toolbar createFilterBar() {
+        filterTypeCombo = new JComboBox();
+        for(int type : FILTER_EVENT_TYPES) {
+            filterTypeCombo.addItem(DBEvent.getEventName(type));
+        }
+        filterTypeCombo.setFocusable(false);
+        filterTypeCombo.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                applyFilter();
+            }
+        });
+
+        filterRuleField = new JTextField(10);
+        filterRuleField.setToolTipText("Show only the events of this rule");
+        filterRuleField.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                applyFilter();
+            }
+        });
+
+        Toolbar box = Toolbar.createHorizontalToolbar();
+        box.addElement(new JLabel("Show:"));
+        box.addElement(filterTypeCombo);
+        box.addElement(new JLabel("Rule:"));
+        box.addElement(filterRuleField);
+        box.addElement(Box.createHorizontalGlue());
+        return box;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Toolbar createSearchBar() {
+        searchKindCombo = new JComboBox();
+        searchKindCombo.addItem("Enter rule");
+        searchKindCombo.addItem("Exit rule");
+        searchKindCombo.addItem("Token index");
+        for(int i=1; i<FILTER_EVENT_TYPES.length; i++) {
+            searchKindCombo.addItem(DBEvent.getEventName(FILTER_EVENT_TYPES[i]));
+        }
+        searchKindCombo.setFocusable(false);
+
+        searchField = new JTextField(8);
+        searchField.setToolTipText("Rule name, token index or occurrence number");
+        searchField.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                search(0);
+            }
+        });
+
+        JButton previous = new JButton("Previous");
+        previous.setFocusable(false);
+        previous.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                search(-1);
+            }
+        });
+
+        JButton next = new JButton("Next");
+        next.setFocusable(false);
+        next.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                search(1);
+            }
+        });
+
+        searchResultLabel = new JLabel();
+
+        Toolbar box = Toolbar.createHorizontalToolbar();
+        box.addElement(new JLabel("Find:"));
+        box.addElement(searchKindCombo);
+        box.addElement(searchField);
+        box.addElement(previous);
+        box.addElement(next);
+        box.addElement(searchResultLabel);
+        box.addElement(Box.createHorizontalGlue());
+        return box;
+    }
+
+    /** Searches the recorded events using the search index and moves the debugger
+     * to the result.
+     *
+     * @param direction 0 to go to the occurrence typed in the search field (or to the next one
+     * if the field is empty), 1 to go to the next occurrence and -1 to go to the previous one
+     */
+    public void search(int direction) {
+        DBEventSearchIndex index = debuggerTab.getRecorder().getSearchIndex();
+        int current = debuggerTab.getRecorder().getCurrentEventPosition()-1;
+        String text = searchField.getText().trim();
+        int kind = searchKindCombo.getSelectedIndex();
+
+        if(kind == SEARCH_TOKEN_INDEX) {
+            int position = index.getConsumePosition(parseInt(text));
+            searchResultLabel.setText(position == -1 ? "Not found" : "Event "+position);
+            goToPosition(position);
+            return;
+        }
+
+        DBEventSearchIndex.Positions positions;
+        if(kind == SEARCH_ENTER_RULE)
+            positions = index.getEnterRulePositions(text);
+        else if(kind == SEARCH_EXIT_RULE)
+            positions = index.getExitRulePositions(text);
+        else
+            positions = index.getTypePositions(FILTER_EVENT_TYPES[kind-SEARCH_EVENT_TYPE+1]);
+
+        int found;
+        if(direction == 0 && kind >= SEARCH_EVENT_TYPE && text.length() > 0) {
+            // Go to the nth occurrence
+            found = parseInt(text)-1;
+            if(found >= positions.size())
+                found = -1;
+        } else if(direction < 0) {
+            found = positions.indexBefore(current);
+        } else {
+            found = positions.indexAfter(current);
+        }
+
+        if(found < 0) {
+            searchResultLabel.setText(positions.size() == 0 ? "Not found" : "No more ("+positions.size()+")");
+        } else {
+            searchResultLabel.setText((found+1)+" of "+positions.size());
+            goToPosition(positions.get(found));
+        }
+    }
+
+    protected void goToPosition(int position) {
+        if(position >= 0 && !debuggerTab.getRecorder().goToPosition(position))
+            searchResultLabel.setText("Debugger not on a break");
+    }
+
+    private static int parseInt(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch(NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public void applyFilter() {
+        filter.setFilter(FILTER_EVENT_TYPES[filterTypeCombo.getSelectedIndex()], filterRuleField.getText().trim());
+        updateOnBreakEvent();
+    }
+
     public void setInfoTableModel(XJTable table, AbstractTableModel model) {
         table.setModel(model);
         selectLastInfoTableItem();
@@ -80,7 +264,7 @@ public class DBEventsPanel extends DetachablePanel {
     }
 
     public int getNumberOfEvents() {
-        return eventTableDataModel.getRowCount();
+        return eventTableDataModel.getEventCount();
     }
     
     public void clear() {
@@ -97,8 +281,11 @@ public class DBEventsPanel extends DetachablePanel {
         });
     }
 
-    public void addEvent(DBEvent event, DBPlayerContextInfo info) {
-        eventTableDataModel.add(event, info);
+    /** Sets the recorded events and the number of them that have been played. The
+     * events are not copied: the table reads them directly from the recorder.
+     */
+    public void setEvents(List<DBEvent> events, int count) {
+        eventTableDataModel.setEvents(events, count);
     }
 
     public String getEventsAsString() {
@@ -106,11 +293,10 @@ public class DBEventsPanel extends DetachablePanel {
         sb.append(eventTableDataModel.getHeadersAsString());
         sb.append("\n");
 
-        List<EventTableDataModel.EventInfo> events = eventTableDataModel.events;
-        for(int i=0; i<events.size(); i++) {
+        for(int i=0; i<eventTableDataModel.getEventCount(); i++) {
             sb.append(i);
             sb.append(":\t");
-            sb.append(events.get(i).toString());
+            sb.append(eventTableDataModel.getEventAsString(i));
             sb.append("\n");
         }
         return sb.toString();
@@ -118,25 +304,49 @@ public class DBEventsPanel extends DetachablePanel {
 
     public class EventTableDataModel extends AbstractTableModel {
 
-        protected List<EventInfo> events = new ArrayList<EventInfo>();
+        protected List<DBEvent> events;
+        /** Number of events played so far */
+        protected int eventCount;
+        /** Number of rows visible when the filter is enabled */
+        protected int filteredCount;
+
+        public void setEvents(List<DBEvent> events, int count) {
+            contextIndex.setEvents(events);
+            filter.setEvents(events);
+            this.events = events;
+            this.eventCount = count;
+        }
 
-        public void add(DBEvent event, DBPlayerContextInfo info) {
-            events.add(new EventInfo(event, info));
+        public int getEventCount() {
+            return eventCount;
         }
 
         public void clear() {
-            events.clear();
+            eventCount = 0;
+            filteredCount = 0;
             fireTableDataChanged();
             infoTableView.autoresizeColumns();
         }
 
         public void update() {
+            if(filter.isEnabled())
+                filteredCount = filter.update(eventCount);
             fireTableDataChanged();
             infoTableView.autoresizeColumns();
         }
 
+        public int getPosition(int rowIndex) {
+            if(filter.isEnabled())
+                return filter.getPosition(rowIndex);
+            else
+                return rowIndex;
+        }
+
         public int getRowCount() {
-            return events.size();
+            if(filter.isEnabled())
+                return filteredCount;
+            else
+                return eventCount;
         }
 
         public int getColumnCount() {
@@ -168,74 +378,46 @@ public class DBEventsPanel extends DetachablePanel {
         }
 
         public Object getValueAt(int rowIndex, int columnIndex) {
-            EventInfo info = events.get(rowIndex);
+            int position = getPosition(rowIndex);
             switch(columnIndex) {
-                case INFO_COLUMN_COUNT: return String.valueOf(rowIndex);
-                case INFO_COLUMN_EVENT: return info.event;
-                case INFO_COLUMN_SUBRULE: return info.getSubrule();
-                case INFO_COLUMN_DECISION: return info.getDecision();
-                case INFO_COLUMN_MARK: return info.getMark();
-                case INFO_COLUMN_BACKTRACK: return info.getBacktrack();
+                case INFO_COLUMN_COUNT: return String.valueOf(position);
+                case INFO_COLUMN_EVENT: return events.get(position);
+                case INFO_COLUMN_SUBRULE: return getValue(contextIndex.getContextAt(position).getSubrule());
+                case INFO_COLUMN_DECISION: return getValue(contextIndex.getContextAt(position).getDecision());
+                case INFO_COLUMN_MARK: return getValue(contextIndex.getContextAt(position).getMark());
+                case INFO_COLUMN_BACKTRACK: return getValue(contextIndex.getContextAt(position).getBacktrack());
             }
             return null;
         }
 
+        public Object getValue(int value) {
+            return value==-1?null:String.valueOf(value);
+        }
+
         public String getHeadersAsString() {
             return "#\tEvent\tSubrule\tDecision\tMark\tBacktrack";
         }
 
-        public class EventInfo {
-
-            public DBEvent event;
-            public int subrule;
-            public int decision;
-            public int mark;
-            public int backtrack;
-
-            public EventInfo(DBEvent event, DBPlayerContextInfo info) {
-                this.event = event;
-                this.subrule = info.getSubrule();
-                this.decision = info.getDecision();
-                this.mark = info.getMark();
-                this.backtrack = info.getBacktrack();
-            }
-
-            public Object getSubrule() {
-                return subrule==-1?null:String.valueOf(subrule);
-            }
-
-            public Object getDecision() {
-                return decision==-1?null:String.valueOf(decision);
-            }
-
-            public Object getMark() {
-                return mark==-1?null:String.valueOf(mark);
-            }
-
-            public Object getBacktrack() {
-                return backtrack==-1?null:String.valueOf(backtrack);
-            }
-
-            public String getTextForExport(int value) {
-                if(value == -1)
-                    return "-";
-                else
-                    return String.valueOf(value);
-            }
+        public String getTextForExport(int value) {
+            if(value == -1)
+                return "-";
+            else
+                return String.valueOf(value);
+        }
 
-            public String toString() {
-                StringBuilder sb = new StringBuilder();
-                sb.append(event.toString());
-                sb.append("\t");
-                sb.append(getTextForExport(subrule));
-                sb.append("\t");
-                sb.append(getTextForExport(decision));
-                sb.append("\t");
-                sb.append(getTextForExport(mark));
-                sb.append("\t");
-                sb.append(getTextForExport(backtrack));
-                return sb.toString();
-            }
+        public String getEventAsString(int position) {
+            DBPlayerContextInfo info = contextIndex.getContextAt(position);
+            StringBuilder sb = new StringBuilder();
+            sb.append(events.get(position).toString());
+            sb.append("\t");
+            sb.append(getTextForExport(info.getSubrule()));
+            sb.append("\t");
+            sb.append(getTextForExport(info.getDecision()));
+            sb.append("\t");
+            sb.append(getTextForExport(info.getMark()));
+            sb.append("\t");
+            sb.append(getTextForExport(info.getBacktrack()));
+            return sb.toString();
         }
     }
 
@@ -3,6 +3,7 @@ package org.antlr.works.debugger.panels;
 import org.antlr.runtime.Token;
 import org.antlr.works.debugger.input.DBInputProcessor;
 import org.antlr.works.debugger.input.DBInputTextTokenInfo;
+import org.antlr.works.debugger.tivo.DBBreakpointMatcher;
 
 import javax.swing.*;
 /*
@@ -48,6 +49,7 @@ public interface DBInputConcretePanel {
     public boolean isInputTokensBoxVisible();
 
     public boolean isBreakpointAtToken(Token token);
+    public void compileBreakpoints(DBBreakpointMatcher matcher);
 
     public void selectToken(Token token);
     public DBInputTextTokenInfo getTokenInfoForToken(Token token);
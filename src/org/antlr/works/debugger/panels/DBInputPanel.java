@@ -4,6 +4,7 @@ import org.antlr.runtime.Token;
 import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.input.DBInputProcessor;
 import org.antlr.works.debugger.input.DBInputTextTokenInfo;
+import org.antlr.works.debugger.tivo.DBBreakpointMatcher;
 import org.antlr.works.grammar.engine.GrammarEngine;
 import org.antlr.works.utils.DetachablePanel;
 
@@ -105,6 +106,10 @@ public class DBInputPanel extends DetachablePanel {
         return currentPanel.isBreakpointAtToken(token);
     }
 
+    public void compileBreakpoints(DBBreakpointMatcher matcher) {
+        currentPanel.compileBreakpoints(matcher);
+    }
+
     public void stop() {
         currentPanel.stop();
     }
@@ -5,6 +5,7 @@ import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.input.DBInputProcessor;
 import org.antlr.works.debugger.input.DBInputProcessorToken;
 import org.antlr.works.debugger.input.DBInputTextTokenInfo;
+import org.antlr.works.debugger.tivo.DBBreakpointMatcher;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.TextPane;
 import org.antlr.works.utils.TextUtils;
@@ -92,6 +93,10 @@ public class DBInputTokenPanel implements DBInputConcretePanel {
         return processorToken.isBreakpointAtToken(token);
     }
 
+    public void compileBreakpoints(DBBreakpointMatcher matcher) {
+        processorToken.compileBreakpoints(matcher);
+    }
+
     public void selectToken(Token token) {
         processorToken.selectToken(token);
     }
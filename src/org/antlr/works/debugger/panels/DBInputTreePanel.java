@@ -5,6 +5,7 @@ import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.input.DBInputProcessor;
 import org.antlr.works.debugger.input.DBInputProcessorTree;
 import org.antlr.works.debugger.input.DBInputTextTokenInfo;
+import org.antlr.works.debugger.tivo.DBBreakpointMatcher;
 import org.antlr.works.utils.awtree.AWTreePanel;
 import org.antlr.works.utils.awtree.AWTreePanelDelegate;
 
@@ -88,6 +89,10 @@ public class DBInputTreePanel implements DBInputConcretePanel, AWTreePanelDelega
         return processorTree.isBreakpointAtToken(token);
     }
 
+    public void compileBreakpoints(DBBreakpointMatcher matcher) {
+        processorTree.compileBreakpoints(matcher);
+    }
+
     public void selectToken(Token token) {
         /** Not applicable here. Ignore */
     }
@@ -0,0 +1,192 @@
+package org.antlr.works.debugger.panels;
+
+import org.antlr.works.debugger.DebuggerTab;
+import org.antlr.works.debugger.events.DBEvent;
+import org.antlr.works.debugger.tivo.DBDecisionProfiler;
+import org.antlr.works.utils.DetachablePanel;
+import org.antlr.works.utils.Toolbar;
+import org.antlr.xjlib.appkit.swing.XJTable;
+import org.antlr.xjlib.appkit.swing.XJTableView;
+
+import javax.swing.*;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class DBProfilePanel extends DetachablePanel {
+
+    public static final int COLUMN_NAME = 0;
+    public static final int COLUMN_RULE = 1;
+    public static final int COLUMN_INVOCATIONS = 2;
+    public static final int COLUMN_MAX_LOOKAHEAD = 3;
+    public static final int COLUMN_AVG_LOOKAHEAD = 4;
+    public static final int COLUMN_BACKTRACKS = 5;
+    public static final int COLUMN_TIME = 6;
+    public static final int COLUMN_LOCATION = 7;
+
+    protected DebuggerTab debuggerTab;
+    protected XJTableView infoTableView;
+    protected JComboBox sortCombo;
+    protected ProfileTableDataModel profileTableDataModel;
+    protected DBDecisionProfiler profiler;
+
+    public DBProfilePanel(DebuggerTab debuggerTab) {
+        super("Profile", debuggerTab);
+        this.debuggerTab = debuggerTab;
+
+        profiler = new DBDecisionProfiler();
+        profileTableDataModel = new ProfileTableDataModel();
+
+        infoTableView = new XJTableView();
+        setInfoTableModel(infoTableView.getTable(), profileTableDataModel);
+        infoTableView.getTable().getSelectionModel().addListSelectionListener(new ListSelectionListener() {
+            public void valueChanged(ListSelectionEvent e) {
+                if(!e.getValueIsAdjusting())
+                    selectLocation(infoTableView.getTable().getSelectedRow());
+            }
+        });
+
+        mainPanel.add(createSortBar(), BorderLayout.NORTH);
+        mainPanel.add(infoTableView, BorderLayout.CENTER);
+
+        infoTableView.autoresizeColumns();
+    }
+
+    @SuppressWarnings("unchecked")
+    public Toolbar createSortBar() {
+        sortCombo = new JComboBox(new String[] { "Time", "Invocations", "Lookahead", "Backtracks" });
+        sortCombo.setFocusable(false);
+        sortCombo.setToolTipText("The time excludes the pauses of the debugger but includes the transport of the events when the parser runs in a separate process");
+        sortCombo.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                profileTableDataModel.update();
+            }
+        });
+
+        Toolbar box = Toolbar.createHorizontalToolbar();
+        box.addElement(new JLabel("Sort by:"));
+        box.addElement(sortCombo);
+        box.addElement(Box.createHorizontalGlue());
+        return box;
+    }
+
+    public void setInfoTableModel(XJTable table, AbstractTableModel model) {
+        table.setModel(model);
+    }
+
+    public void selectLocation(int row) {
+        if(row < 0 || row >= profileTableDataModel.getRowCount())
+            return;
+
+        debuggerTab.selectGrammarText(profileTableDataModel.getStats(row).location);
+    }
+
+    public void clear() {
+        profileTableDataModel.clear();
+    }
+
+    /** Sets the recorded events and the number of them that have been played */
+    public void setEvents(List<DBEvent> events, int count) {
+        profiler.setEvents(events);
+        profiler.update(count);
+    }
+
+    public void updateOnBreakEvent() {
+        profileTableDataModel.update();
+    }
+
+    public class ProfileTableDataModel extends AbstractTableModel {
+
+        protected List<DBDecisionProfiler.Stats> stats = new ArrayList<DBDecisionProfiler.Stats>();
+
+        public DBDecisionProfiler.Stats getStats(int row) {
+            return stats.get(row);
+        }
+
+        public void clear() {
+            stats.clear();
+            fireTableDataChanged();
+            infoTableView.autoresizeColumns();
+        }
+
+        public void update() {
+            stats = profiler.getStats(sortCombo.getSelectedIndex());
+            fireTableDataChanged();
+            infoTableView.autoresizeColumns();
+        }
+
+        public int getRowCount() {
+            return stats.size();
+        }
+
+        public int getColumnCount() {
+            return 8;
+        }
+
+        public String getColumnName(int column) {
+            switch(column) {
+                case COLUMN_NAME: return "Decision";
+                case COLUMN_RULE: return "Rule";
+                case COLUMN_INVOCATIONS: return "Invocations";
+                case COLUMN_MAX_LOOKAHEAD: return "Max k";
+                case COLUMN_AVG_LOOKAHEAD: return "Avg k";
+                case COLUMN_BACKTRACKS: return "Backtracks";
+                case COLUMN_TIME: return "Time (ms)";
+                case COLUMN_LOCATION: return "Location";
+            }
+            return super.getColumnName(column);
+        }
+
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            DBDecisionProfiler.Stats s = stats.get(rowIndex);
+            switch(columnIndex) {
+                case COLUMN_NAME: return s.isRule() ? "-" : String.valueOf(s.decision);
+                case COLUMN_RULE: return s.rule;
+                case COLUMN_INVOCATIONS: return String.valueOf(s.invocations);
+                case COLUMN_MAX_LOOKAHEAD: return String.valueOf(s.maxLookahead);
+                case COLUMN_AVG_LOOKAHEAD: return String.format("%.2f", s.getAverageLookahead());
+                case COLUMN_BACKTRACKS: return String.valueOf(s.backtracks);
+                case COLUMN_TIME: return String.format("%.3f", s.time/1e6);
+                case COLUMN_LOCATION: return s.location == null ? null : s.location.line+":"+s.location.pos;
+            }
+            return null;
+        }
+    }
+
+}
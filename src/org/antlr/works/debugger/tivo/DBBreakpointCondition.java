@@ -0,0 +1,192 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.tivo;
+
+import org.antlr.works.debugger.events.*;
+
+/** This class is a conditional breakpoint compiled from a textual description like:
+ *
+ *   rule expr depth > 40      enter rule 'expr' when the rule depth is greater than 40
+ *   consume 5 hit 100         100th consume of a token of type 5
+ *   decision 3 alt 2          decision 3 predicted alternative 2
+ *   depth >= 100 hit 1        first event at a rule depth of at least 100
+ *
+ * The condition is only tested against the event type first so most of the events
+ * are rejected with a single integer comparison. The state needed to evaluate the
+ * condition (rule depth, predicted decision, hit count) is maintained by DBBreakpointConditions.
+ */
+
+public class DBBreakpointCondition {
+
+    public static final int OP_NONE = 0;
+    public static final int OP_GT = 1;
+    public static final int OP_GE = 2;
+    public static final int OP_LT = 3;
+    public static final int OP_LE = 4;
+    public static final int OP_EQ = 5;
+
+    /** Type of the event tested by this condition (DBEvent.ALL for any event) */
+    public int eventType = DBEvent.ALL;
+
+    public String ruleName;
+    public int tokenType = -1;
+    public int decision = -1;
+    public int alt = -1;
+
+    public int depthOp = OP_NONE;
+    public int depth;
+
+    /** Break on the nth match only (0 to break on each match) */
+    public int hitCount = 0;
+
+    /** Number of matches since the beginning of the event log */
+    protected int hits;
+
+    protected String text;
+
+    public static DBBreakpointCondition parse(String text) {
+        DBBreakpointCondition c = new DBBreakpointCondition();
+        c.text = text.trim();
+
+        String[] words = c.text.split("\\s+");
+        int index = 0;
+        while(index < words.length) {
+            String word = words[index++].toLowerCase();
+            if(word.equals("rule")) {
+                c.setEventType(DBEvent.ENTER_RULE, word);
+                c.ruleName = nextWord(words, index++, word).intern();
+            } else if(word.equals("consume")) {
+                c.setEventType(DBEvent.CONSUME_TOKEN, word);
+                c.tokenType = nextInt(words, index++, word);
+            } else if(word.equals("decision")) {
+                c.setEventType(DBEvent.ENTER_ALT, word);
+                c.decision = nextInt(words, index++, word);
+            } else if(word.equals("alt")) {
+                if(c.decision == -1)
+                    throw new IllegalArgumentException("'alt' must follow 'decision' in \""+c.text+"\"");
+                c.alt = nextInt(words, index++, word);
+            } else if(word.equals("depth")) {
+                c.depthOp = parseOperator(nextWord(words, index++, word));
+                c.depth = nextInt(words, index++, word);
+            } else if(word.equals("hit")) {
+                c.hitCount = nextInt(words, index++, word);
+                if(c.hitCount <= 0)
+                    throw new IllegalArgumentException("The hit count must be positive in \""+c.text+"\"");
+            } else {
+                throw new IllegalArgumentException("Unknown keyword '"+word+"' in \""+c.text+"\"");
+            }
+        }
+
+        if(c.eventType == DBEvent.ALL && c.depthOp == OP_NONE && c.hitCount == 0)
+            throw new IllegalArgumentException("Empty condition \""+c.text+"\"");
+
+        return c;
+    }
+
+    private void setEventType(int type, String word) {
+        if(eventType != DBEvent.ALL)
+            throw new IllegalArgumentException("Only one of 'rule', 'consume' or 'decision' can be used in \""+text+"\"");
+        eventType = type;
+    }
+
+    private static String nextWord(String[] words, int index, String keyword) {
+        if(index >= words.length)
+            throw new IllegalArgumentException("Missing value after '"+keyword+"'");
+        return words[index];
+    }
+
+    private static int nextInt(String[] words, int index, String keyword) {
+        String word = nextWord(words, index, keyword);
+        try {
+            return Integer.parseInt(word);
+        } catch(NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number after '"+keyword+"' instead of '"+word+"'");
+        }
+    }
+
+    private static int parseOperator(String op) {
+        if(op.equals(">")) return OP_GT;
+        if(op.equals(">=")) return OP_GE;
+        if(op.equals("<")) return OP_LT;
+        if(op.equals("<=")) return OP_LE;
+        if(op.equals("=") || op.equals("==")) return OP_EQ;
+        throw new IllegalArgumentException("Unknown operator '"+op+"' after 'depth'");
+    }
+
+    /** Returns true if the event matches this condition. This method has to be called
+     * for every event in sequence because it counts the hits.
+     *
+     * @param currentDepth The rule depth after the event
+     * @param predictedDecision The decision that has just been predicted or -1
+     */
+    public boolean match(DBEvent event, int type, int currentDepth, int predictedDecision) {
+        if(eventType != DBEvent.ALL && eventType != type)
+            return false;
+
+        switch(eventType) {
+            case DBEvent.ENTER_RULE:
+                if(ruleName != null && ruleName != ((DBEventEnterRule)event).name && !ruleName.equals(((DBEventEnterRule)event).name))
+                    return false;
+                break;
+            case DBEvent.CONSUME_TOKEN:
+                if(((DBEventConsumeToken)event).token.getType() != tokenType)
+                    return false;
+                break;
+            case DBEvent.ENTER_ALT:
+                if(predictedDecision != decision)
+                    return false;
+                if(alt != -1 && ((DBEventEnterAlt)event).alt != alt)
+                    return false;
+                break;
+        }
+
+        switch(depthOp) {
+            case OP_GT: if(currentDepth <= depth) return false; break;
+            case OP_GE: if(currentDepth < depth) return false; break;
+            case OP_LT: if(currentDepth >= depth) return false; break;
+            case OP_LE: if(currentDepth > depth) return false; break;
+            case OP_EQ: if(currentDepth != depth) return false; break;
+        }
+
+        hits++;
+        return hitCount == 0 || hits == hitCount;
+    }
+
+    public void reset() {
+        hits = 0;
+    }
+
+    public String toString() {
+        return text;
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.tivo;
+
+import org.antlr.works.debugger.events.DBEvent;
+import org.antlr.works.debugger.events.DBEventExitDecision;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** This class evaluates the conditional breakpoints over the event log. The state
+ * of the conditions (rule depth, last predicted decision, hit counts) depends on all
+ * the events before a given position: it is kept in sync with the last evaluated position
+ * so scanning forward only advances it by one event at a time. The state is also saved
+ * every CHECKPOINT_INTERVAL events so moving backward only replays the events from the
+ * nearest checkpoint.
+ */
+
+public class DBBreakpointConditions {
+
+    public static final int CHECKPOINT_INTERVAL = 1024;
+
+    protected List<DBBreakpointCondition> conditions = new ArrayList<DBBreakpointCondition>();
+
+    /** Position of the last event applied to the state */
+    protected int position = -1;
+    protected int depth;
+    protected int predictedDecision = -1;
+
+    /** The checkpoint at index i is the state after the event at position (i+1)*CHECKPOINT_INTERVAL-1 */
+    protected List<Checkpoint> checkpoints = new ArrayList<Checkpoint>();
+
+    public void setConditions(List<DBBreakpointCondition> conditions) {
+        this.conditions.clear();
+        this.conditions.addAll(conditions);
+        reset();
+    }
+
+    public List<DBBreakpointCondition> getConditions() {
+        return conditions;
+    }
+
+    public boolean isEmpty() {
+        return conditions.isEmpty();
+    }
+
+    /** Resets the state and the checkpoints (i.e. when the event log is cleared) */
+    public void reset() {
+        checkpoints.clear();
+        resetState();
+    }
+
+    protected void resetState() {
+        position = -1;
+        depth = 0;
+        predictedDecision = -1;
+        for (DBBreakpointCondition c : conditions) {
+            c.reset();
+        }
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /** Returns true if one of the conditions holds on the event at the specified position */
+    public boolean matchAt(List<DBEvent> events, int position) {
+        if(position <= this.position)
+            restoreCheckpoint(position-1);
+
+        while(this.position < position - 1) {
+            step(events);
+        }
+        return step(events);
+    }
+
+    /** Returns the position of the last event before the specified position (included)
+     * on which one of the conditions holds, or -1 if there is none. The events are
+     * replayed block by block, from the block of the position backward.
+     */
+    public int findLastMatch(List<DBEvent> events, int position) {
+        /** Create the checkpoints up to the position */
+        while(this.position < position) {
+            step(events);
+        }
+
+        int end = position;
+        while(true) {
+            restoreCheckpoint(end-1);
+            int start = this.position;
+
+            int match = -1;
+            while(this.position < end) {
+                if(step(events))
+                    match = this.position;
+            }
+            if(match != -1 || start == -1)
+                return match;
+
+            end = start;
+        }
+    }
+
+    /** Applies the next event to the state and saves a checkpoint if needed */
+    protected boolean step(List<DBEvent> events) {
+        boolean match = advance(events.get(++position));
+        if((position+1) % CHECKPOINT_INTERVAL == 0 && (position+1) / CHECKPOINT_INTERVAL == checkpoints.size()+1)
+            checkpoints.add(new Checkpoint());
+        return match;
+    }
+
+    /** Restores the state of the nearest checkpoint before the specified position (included)
+     * or the initial state if there is none.
+     */
+    protected void restoreCheckpoint(int position) {
+        int index = Math.min((position+1) / CHECKPOINT_INTERVAL, checkpoints.size())-1;
+        if(index < 0)
+            resetState();
+        else
+            checkpoints.get(index).restore();
+    }
+
+    protected boolean advance(DBEvent event) {
+        int type = event.getEventType();
+        int decision = predictedDecision;
+        switch(type) {
+            case DBEvent.ENTER_RULE:
+                depth++;
+                break;
+            case DBEvent.EXIT_RULE:
+                depth--;
+                break;
+        }
+        // The alternative predicted by a decision is entered right after the decision exits
+        predictedDecision = type == DBEvent.EXIT_DECISION ? ((DBEventExitDecision)event).decision : -1;
+
+        boolean match = false;
+        for (int i = 0; i < conditions.size(); i++) {
+            // Evaluate all conditions so each one counts its hits
+            if(conditions.get(i).match(event, type, depth, decision))
+                match = true;
+        }
+        return match;
+    }
+
+    protected class Checkpoint {
+
+        public int position;
+        public int depth;
+        public int predictedDecision;
+        public int[] hits;
+
+        public Checkpoint() {
+            position = DBBreakpointConditions.this.position;
+            depth = DBBreakpointConditions.this.depth;
+            predictedDecision = DBBreakpointConditions.this.predictedDecision;
+            hits = new int[conditions.size()];
+            for(int i = 0; i < hits.length; i++) {
+                hits[i] = conditions.get(i).hits;
+            }
+        }
+
+        public void restore() {
+            DBBreakpointConditions.this.position = position;
+            DBBreakpointConditions.this.depth = depth;
+            DBBreakpointConditions.this.predictedDecision = predictedDecision;
+            for(int i = 0; i < hits.length; i++) {
+                conditions.get(i).hits = hits[i];
+            }
+        }
+    }
+
+}
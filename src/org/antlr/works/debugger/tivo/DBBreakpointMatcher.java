@@ -0,0 +1,154 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.tivo;
+
+import org.antlr.runtime.Token;
+import org.antlr.works.debugger.events.DBEvent;
+import org.antlr.works.debugger.events.DBEventConsumeToken;
+import org.antlr.works.debugger.events.DBEventLocation;
+import org.antlr.works.debugger.tree.DBTreeToken;
+import org.antlr.works.utils.IntHashMap;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/** This class contains the breakpoints compiled into lookup tables when the
+ * recorder starts stepping. Matching an event is then only a matter of testing
+ * a few bits, without allocating anything or querying the grammar and input panels.
+ */
+
+public class DBBreakpointMatcher {
+
+    /** Event types on which the recorder breaks */
+    protected BitSet eventTypes = new BitSet();
+    protected boolean allEvents = false;
+
+    /** Breakpoint lines (0-based) for each grammar name */
+    protected Map<String, BitSet> grammarLines = new HashMap<String, BitSet>();
+
+    /** Input breakpoints: token indexes for a token stream and node IDs for a tree stream */
+    protected BitSet tokenIndexes = new BitSet();
+    protected IntHashMap<Boolean> treeNodeIDs = new IntHashMap<Boolean>();
+
+    /** Cache of the lines of the last grammar looked up (events of the same grammar come in sequence) */
+    private boolean lastGrammarValid = false;
+    private String lastGrammarName;
+    private BitSet lastGrammarLines;
+
+    public void setBreakEvents(Set<Integer> events) {
+        eventTypes.clear();
+        for (Integer event : events) {
+            eventTypes.set(event);
+        }
+        allEvents = eventTypes.get(DBEvent.ALL);
+    }
+
+    public void addGrammarBreakpoint(String grammarName, int line) {
+        BitSet lines = grammarLines.get(grammarName);
+        if(lines == null) {
+            lines = new BitSet();
+            grammarLines.put(grammarName, lines);
+        }
+        lines.set(line);
+        lastGrammarValid = false;
+    }
+
+    public void addTokenBreakpoint(int tokenIndex) {
+        if(tokenIndex >= 0)
+            tokenIndexes.set(tokenIndex);
+    }
+
+    public void addTreeNodeBreakpoint(int nodeID) {
+        treeNodeIDs.put(nodeID, Boolean.TRUE);
+    }
+
+    public boolean isBreakOnAllEvents() {
+        return allEvents;
+    }
+
+    public boolean isBreakEvent(int eventType) {
+        return eventTypes.get(eventType);
+    }
+
+    public boolean isBreakpointAtLine(int line, String grammarName) {
+        if(grammarLines.isEmpty() || line < 0)
+            return false;
+
+        if(!lastGrammarValid || (grammarName == null ? lastGrammarName != null : !grammarName.equals(lastGrammarName))) {
+            lastGrammarValid = true;
+            lastGrammarName = grammarName;
+            lastGrammarLines = grammarName == null ? null : grammarLines.get(grammarName);
+        }
+        return lastGrammarLines != null && lastGrammarLines.get(line);
+    }
+
+    public boolean isBreakpointAtToken(Token token) {
+        if(token instanceof DBTreeToken)
+            return !treeNodeIDs.isEmpty() && treeNodeIDs.containsKey(((DBTreeToken)token).ID);
+
+        int index = token.getTokenIndex();
+        return index >= 0 && tokenIndexes.get(index);
+    }
+
+    /** Returns the event type that causes a break on this event or DBEvent.NO_EVENT */
+    public int match(DBEvent event, boolean ignoreBreakpoints) {
+        int type = event.getEventType();
+        if(type == DBEvent.COMMENCE || allEvents)
+            return type;
+
+        if(!ignoreBreakpoints) {
+            // Stop on debugger breakpoints
+            if(type == DBEvent.LOCATION) {
+                if(isBreakpointAtLine(((DBEventLocation)event).line-1, event.getGrammarName()))
+                    return type;
+            }
+
+            // Stop on input text breakpoint
+            if(type == DBEvent.CONSUME_TOKEN) {
+                if(isBreakpointAtToken(((DBEventConsumeToken)event).token))
+                    return type;
+            }
+        }
+
+        if(!eventTypes.get(type))
+            return DBEvent.NO_EVENT;
+
+        if(type == DBEvent.CONSUME_TOKEN) {
+            // Breaks only on consume token from channel 0
+            return ((DBEventConsumeToken)event).token.getChannel() == Token.DEFAULT_CHANNEL ? type : DBEvent.NO_EVENT;
+        } else
+            return type;
+    }
+
+}
@@ -0,0 +1,286 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.tivo;
+
+import org.antlr.runtime.Token;
+import org.antlr.works.debugger.events.*;
+
+import java.util.*;
+
+/** This class aggregates the decision events recorded by DBRecorder into
+ * profiling statistics for each decision and each rule: number of invocations,
+ * lookahead depth, number of backtracks and time spent. The profiler is
+ * incremental: only the events recorded since the last update are scanned.
+ *
+ * The time spent is measured between the reception of the events (see DBEvent.getTime):
+ * it excludes the pauses of the debugger but includes the transport of the events when
+ * the parser runs in a separate process.
+ */
+public class DBDecisionProfiler {
+
+    public static final int SORT_TIME = 0;
+    public static final int SORT_INVOCATIONS = 1;
+    public static final int SORT_LOOKAHEAD = 2;
+    public static final int SORT_BACKTRACKS = 3;
+
+    protected List<DBEvent> events;
+    protected int scanned;
+
+    protected Map<String, Stats> decisionStats = new HashMap<String, Stats>();
+    protected Map<String, Stats> ruleStats = new HashMap<String, Stats>();
+    protected List<Stats> stats = new ArrayList<Stats>();
+
+    protected Stack<Invocation> rules = new Stack<Invocation>();
+    protected Stack<Invocation> decisions = new Stack<Invocation>();
+    protected DBEventLocation lastLocation;
+
+    public synchronized void setEvents(List<DBEvent> events) {
+        if(this.events == events)
+            return;
+
+        this.events = events;
+        reset();
+    }
+
+    public synchronized void reset() {
+        scanned = 0;
+        decisionStats.clear();
+        ruleStats.clear();
+        stats.clear();
+        rules.clear();
+        decisions.clear();
+        lastLocation = null;
+    }
+
+    /** Scans the events up to the specified limit (exclusive). The statistics are
+     * computed again from the beginning when the limit moves backward.
+     */
+    public synchronized void update(int limit) {
+        if(events == null)
+            return;
+
+        if(limit < scanned)
+            reset();
+
+        for(; scanned<limit; scanned++) {
+            profile(events.get(scanned));
+        }
+    }
+
+    /** Profiles an event that is not part of a recorded event log (batch profiling) */
+    public synchronized void add(DBEvent event) {
+        profile(event);
+    }
+
+    /** Returns the statistics of the decisions and rules sorted by the specified criteria */
+    public synchronized List<Stats> getStats(int sort) {
+        List<Stats> sorted = new ArrayList<Stats>(stats);
+        Collections.sort(sorted, getComparator(sort));
+        return sorted;
+    }
+
+    public static Comparator<Stats> getComparator(int sort) {
+        return new StatsComparator(sort);
+    }
+
+    protected void profile(DBEvent event) {
+        switch(event.getEventType()) {
+            case DBEvent.LOCATION:
+                lastLocation = (DBEventLocation)event;
+                if(!rules.isEmpty() && rules.peek().stats.location == null)
+                    rules.peek().stats.location = lastLocation;
+                break;
+
+            case DBEvent.ENTER_RULE: {
+                DBEventEnterRule e = (DBEventEnterRule)event;
+                Stats s = getStats(ruleStats, e.getGrammarName()+":"+e.name, e.getGrammarName(), e.name, -1);
+                s.invocations++;
+                s.active++;
+                rules.push(new Invocation(s, event.getTime()));
+                break;
+            }
+
+            case DBEvent.EXIT_RULE:
+                if(!rules.isEmpty()) {
+                    Invocation i = rules.pop();
+                    // Count the time of recursive invocations only once
+                    if(--i.stats.active == 0)
+                        i.stats.time += event.getTime() - i.time;
+                }
+                break;
+
+            case DBEvent.ENTER_DECISION: {
+                int decision = ((DBEventEnterDecision)event).decision;
+                String rule = rules.isEmpty() ? null : rules.peek().stats.rule;
+                Stats s = getStats(decisionStats, event.getGrammarName()+":"+decision, event.getGrammarName(), rule, decision);
+                if(s.location == null)
+                    s.location = lastLocation;
+                s.invocations++;
+                s.active++;
+                decisions.push(new Invocation(s, event.getTime()));
+                break;
+            }
+
+            case DBEvent.EXIT_DECISION:
+                if(!decisions.isEmpty()) {
+                    Invocation i = decisions.pop();
+                    if(--i.stats.active == 0)
+                        i.stats.time += event.getTime() - i.time;
+                    i.stats.addLookahead(i.depth);
+                    if(!rules.isEmpty())
+                        rules.peek().stats.addLookahead(i.depth);
+                }
+                break;
+
+            case DBEvent.LT: {
+                DBEventLT e = (DBEventLT)event;
+                if(e.index > 0) {
+                    // The lookahead applies to all the decisions being predicted
+                    for(int d=0; d<decisions.size(); d++) {
+                        decisions.get(d).lookahead(e.index, e.token);
+                    }
+                }
+                break;
+            }
+
+            case DBEvent.BEGIN_BACKTRACK:
+                if(!decisions.isEmpty())
+                    decisions.peek().stats.backtracks++;
+                if(!rules.isEmpty())
+                    rules.peek().stats.backtracks++;
+                break;
+        }
+    }
+
+    private Stats getStats(Map<String, Stats> map, String key, String grammarName, String rule, int decision) {
+        Stats s = map.get(key);
+        if(s == null) {
+            s = new Stats(grammarName, rule, decision);
+            map.put(key, s);
+            stats.add(s);
+        }
+        return s;
+    }
+
+    /** Profiling statistics of a decision (or of a rule if decision is -1) */
+    public static class Stats {
+
+        public String grammarName;
+        public String rule;
+        public int decision;
+        /** First location of the decision or the rule in the grammar */
+        public DBEventLocation location;
+
+        public int invocations;
+        public int backtracks;
+        public int maxLookahead;
+        public long totalLookahead;
+        public int lookaheadCount;
+        /** Time spent in nanoseconds */
+        public long time;
+
+        protected int active;
+
+        public Stats(String grammarName, String rule, int decision) {
+            this.grammarName = grammarName;
+            this.rule = rule;
+            this.decision = decision;
+        }
+
+        public boolean isRule() {
+            return decision == -1;
+        }
+
+        public double getAverageLookahead() {
+            return lookaheadCount == 0 ? 0 : (double)totalLookahead/lookaheadCount;
+        }
+
+        protected void addLookahead(int depth) {
+            if(depth > maxLookahead)
+                maxLookahead = depth;
+            totalLookahead += depth;
+            lookaheadCount++;
+        }
+    }
+
+    protected static class Invocation {
+
+        public Stats stats;
+        public long time;
+        /** Lookahead depth: from the first token looked at to the farthest one */
+        public int depth;
+        public int startIndex = -1;
+
+        public Invocation(Stats stats, long time) {
+            this.stats = stats;
+            this.time = time;
+        }
+
+        public void lookahead(int index, Token token) {
+            int tokenIndex = token == null ? -1 : token.getTokenIndex();
+            int d;
+            if(tokenIndex < 0) {
+                // No token index (tree nodes): use the lookahead index
+                d = index;
+            } else {
+                if(startIndex == -1)
+                    startIndex = tokenIndex - index + 1;
+                d = tokenIndex - startIndex + 1;
+            }
+            if(d > depth)
+                depth = d;
+        }
+    }
+
+    protected static class StatsComparator implements Comparator<Stats> {
+
+        protected int sort;
+
+        public StatsComparator(int sort) {
+            this.sort = sort;
+        }
+
+        public int compare(Stats s1, Stats s2) {
+            switch(sort) {
+                case SORT_INVOCATIONS: return compare(s2.invocations, s1.invocations);
+                case SORT_LOOKAHEAD: return compare(s2.maxLookahead, s1.maxLookahead);
+                case SORT_BACKTRACKS: return compare(s2.backtracks, s1.backtracks);
+                default: return compare(s2.time, s1.time);
+            }
+        }
+
+        private static int compare(long v1, long v2) {
+            return v1 < v2 ? -1 : (v1 == v2 ? 0 : 1);
+        }
+    }
+
+}
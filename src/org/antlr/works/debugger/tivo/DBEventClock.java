@@ -0,0 +1,76 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.tivo;
+
+/** This class gives the time at which the recorder receives an event, without
+ * the time the debugger spent paused on a break event. The profiled time of the
+ * rules and decisions then does not include the time spent at a breakpoint or
+ * stepping through the events.
+ */
+
+public class DBEventClock {
+
+    /** Total time of the pauses that have ended */
+    private volatile long pausedTime = 0;
+    private long pauseStart = 0;
+    private boolean paused = false;
+
+    /** Returns the current time (System.nanoTime) minus the time spent paused */
+    public long now() {
+        return nanoTime() - pausedTime;
+    }
+
+    public synchronized void pause() {
+        if(paused)
+            return;
+
+        paused = true;
+        pauseStart = nanoTime();
+    }
+
+    public synchronized void resume() {
+        if(!paused)
+            return;
+
+        paused = false;
+        pausedTime += nanoTime() - pauseStart;
+    }
+
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.tivo;
+
+import org.antlr.works.debugger.events.DBEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** This class computes on demand the context (subrule, decision, mark and backtrack)
+ * of any event recorded by DBRecorder. Instead of keeping a snapshot of the context
+ * for each event, a checkpoint is recorded every CHECKPOINT_INTERVAL events and the
+ * context of a given event is replayed from the nearest checkpoint.
+ */
+public class DBEventContextIndex {
+
+    public static final int CHECKPOINT_INTERVAL = 512;
+
+    protected List<DBEvent> events;
+
+    /** Context before the event at index i*CHECKPOINT_INTERVAL */
+    protected List<DBPlayerContextInfo> checkpoints = new ArrayList<DBPlayerContextInfo>();
+    protected DBPlayerContextInfo scanContext = new DBPlayerContextInfo();
+
+    /** Context of the last requested event. Consecutive rows are usually requested
+     * by the table so keep it to avoid replaying from the checkpoint each time.
+     */
+    protected DBPlayerContextInfo cursorContext = new DBPlayerContextInfo();
+    protected int cursorPosition = -1;
+
+    public synchronized void setEvents(List<DBEvent> events) {
+        if(this.events == events)
+            return;
+
+        this.events = events;
+        reset();
+    }
+
+    public synchronized List<DBEvent> getEvents() {
+        return events;
+    }
+
+    public synchronized void reset() {
+        checkpoints.clear();
+        checkpoints.add(new DBPlayerContextInfo());
+        scanContext.clear();
+        cursorContext.clear();
+        cursorPosition = -1;
+    }
+
+    /** Returns the context right after the event at the specified position
+     * has been played. The returned object is reused by subsequent calls.
+     */
+    public synchronized DBPlayerContextInfo getContextAt(int position) {
+        if(position == cursorPosition)
+            return cursorContext;
+
+        int checkpoint = position / CHECKPOINT_INTERVAL;
+        buildCheckpoints(checkpoint);
+
+        int start;
+        if(cursorPosition >= 0 && cursorPosition < position && cursorPosition / CHECKPOINT_INTERVAL == checkpoint) {
+            start = cursorPosition + 1;
+        } else {
+            cursorContext.setContext(checkpoints.get(checkpoint));
+            start = checkpoint * CHECKPOINT_INTERVAL;
+        }
+
+        for(int i=start; i<=position; i++) {
+            cursorContext.playEvent(events.get(i));
+        }
+        cursorPosition = position;
+        return cursorContext;
+    }
+
+    protected void buildCheckpoints(int checkpoint) {
+        while(checkpoints.size() <= checkpoint) {
+            int start = (checkpoints.size() - 1) * CHECKPOINT_INTERVAL;
+            for(int i=start; i<start+CHECKPOINT_INTERVAL; i++) {
+                scanContext.playEvent(events.get(i));
+            }
+            checkpoints.add(scanContext.copy());
+        }
+    }
+
+}
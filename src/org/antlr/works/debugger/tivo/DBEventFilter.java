@@ -0,0 +1,141 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.tivo;
+
+import org.antlr.works.debugger.events.DBEvent;
+import org.antlr.works.debugger.events.DBEventEnterRule;
+import org.antlr.works.debugger.events.DBEventExitRule;
+import org.antlr.works.utils.Utils;
+
+import java.util.List;
+import java.util.Stack;
+
+/** This class filters the events recorded by DBRecorder by event type and/or by rule.
+ * Only the positions of the matching events are kept: the filter is incremental and
+ * scans each recorded event only once.
+ */
+public class DBEventFilter {
+
+    protected int eventType = DBEvent.ALL;
+    protected String ruleName;
+
+    protected List<DBEvent> events;
+    protected int[] positions = new int[256];
+    protected int count;
+    protected int scanned;
+    protected Stack<String> rules = new Stack<String>();
+
+    public synchronized void setFilter(int eventType, String ruleName) {
+        if(ruleName != null && ruleName.length() == 0)
+            ruleName = null;
+
+        this.eventType = eventType;
+        this.ruleName = ruleName;
+        reset();
+    }
+
+    public synchronized boolean isEnabled() {
+        return eventType != DBEvent.ALL || ruleName != null;
+    }
+
+    public synchronized void setEvents(List<DBEvent> events) {
+        if(this.events == events)
+            return;
+
+        this.events = events;
+        reset();
+    }
+
+    public synchronized void reset() {
+        count = 0;
+        scanned = 0;
+        rules.clear();
+    }
+
+    /** Scans the events up to the specified limit (exclusive) and returns the number
+     * of matching events located before the limit.
+     */
+    public synchronized int update(int limit) {
+        if(events == null)
+            return 0;
+
+        for(; scanned<limit; scanned++) {
+            if(matches(events.get(scanned))) {
+                positions = Utils.ensureCapacity(positions, count+1);
+                positions[count++] = scanned;
+            }
+        }
+
+        if(limit >= scanned)
+            return count;
+
+        // Stepping backward: only count the positions before the limit
+        int low = 0;
+        int high = count;
+        while(low < high) {
+            int middle = (low+high) >>> 1;
+            if(positions[middle] < limit)
+                low = middle+1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    public synchronized int getPosition(int row) {
+        return positions[row];
+    }
+
+    protected boolean matches(DBEvent event) {
+        String rule;
+        switch(event.getEventType()) {
+            case DBEvent.ENTER_RULE:
+                rules.push(((DBEventEnterRule)event).name);
+                rule = rules.peek();
+                break;
+            case DBEvent.EXIT_RULE:
+                rule = ((DBEventExitRule)event).name;
+                if(!rules.isEmpty())
+                    rules.pop();
+                break;
+            default:
+                rule = rules.isEmpty()?null:rules.peek();
+                break;
+        }
+
+        if(eventType != DBEvent.ALL && event.getEventType() != eventType)
+            return false;
+
+        return ruleName == null || ruleName.equals(rule);
+    }
+
+}
@@ -0,0 +1,204 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.tivo;
+
+import org.antlr.runtime.Token;
+import org.antlr.works.debugger.events.*;
+import org.antlr.works.utils.Utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** This class maintains secondary indexes over the events recorded by DBRecorder:
+ * the positions of each event type, the positions where each rule is entered and exited
+ * and the position where each token index is consumed. Like DBEventFilter, the indexes
+ * are incremental and each recorded event is scanned only once.
+ */
+public class DBEventSearchIndex {
+
+    protected List<DBEvent> events;
+    protected int scanned;
+
+    protected Positions[] typePositions = new Positions[DBEvent.ERROR_NODE+1];
+    protected Map<String, Positions> enterRulePositions = new HashMap<String, Positions>();
+    protected Map<String, Positions> exitRulePositions = new HashMap<String, Positions>();
+
+    /** Position+1 of the last consume event of each token index (0 if not consumed) */
+    protected int[] consumePositions = new int[256];
+
+    public synchronized void setEvents(List<DBEvent> events) {
+        if(this.events == events)
+            return;
+
+        this.events = events;
+        reset();
+    }
+
+    public synchronized void reset() {
+        scanned = 0;
+        for(int i=0; i<typePositions.length; i++) {
+            typePositions[i] = new Positions();
+        }
+        enterRulePositions.clear();
+        exitRulePositions.clear();
+        consumePositions = new int[256];
+    }
+
+    /** Indexes the events recorded since the last update */
+    public synchronized void update() {
+        if(events == null)
+            return;
+
+        synchronized(events) {
+            int size = events.size();
+            for(; scanned<size; scanned++) {
+                index(events.get(scanned), scanned);
+            }
+        }
+    }
+
+    protected void index(DBEvent event, int position) {
+        int type = event.getEventType();
+        if(type >= 0 && type < typePositions.length)
+            typePositions[type].add(position);
+
+        switch(type) {
+            case DBEvent.ENTER_RULE:
+                getPositions(enterRulePositions, ((DBEventEnterRule)event).name).add(position);
+                break;
+            case DBEvent.EXIT_RULE:
+                getPositions(exitRulePositions, ((DBEventExitRule)event).name).add(position);
+                break;
+            case DBEvent.CONSUME_TOKEN:
+                indexConsume(((DBEventConsumeToken)event).token, position);
+                break;
+            case DBEvent.CONSUME_HIDDEN_TOKEN:
+                indexConsume(((DBEventConsumeHiddenToken)event).token, position);
+                break;
+        }
+    }
+
+    protected void indexConsume(Token token, int position) {
+        int index = token.getTokenIndex();
+        if(index < 0)
+            return;
+
+        consumePositions = Utils.ensureCapacity(consumePositions, index+1);
+        // Keep the last consume: tokens consumed while backtracking are consumed again afterward
+        consumePositions[index] = position+1;
+    }
+
+    private static Positions getPositions(Map<String, Positions> map, String rule) {
+        Positions positions = map.get(rule);
+        if(positions == null) {
+            positions = new Positions();
+            map.put(rule, positions);
+        }
+        return positions;
+    }
+
+    public synchronized int getIndexedCount() {
+        return scanned;
+    }
+
+    /** Returns the positions of the events of the specified type */
+    public synchronized Positions getTypePositions(int type) {
+        if(type < 0 || type >= typePositions.length)
+            return Positions.EMPTY;
+        return typePositions[type];
+    }
+
+    public synchronized Positions getEnterRulePositions(String rule) {
+        Positions positions = enterRulePositions.get(rule);
+        return positions == null ? Positions.EMPTY : positions;
+    }
+
+    public synchronized Positions getExitRulePositions(String rule) {
+        Positions positions = exitRulePositions.get(rule);
+        return positions == null ? Positions.EMPTY : positions;
+    }
+
+    /** Returns the position of the event consuming the token at the specified index or -1 */
+    public synchronized int getConsumePosition(int tokenIndex) {
+        if(tokenIndex < 0 || tokenIndex >= consumePositions.length)
+            return -1;
+        return consumePositions[tokenIndex]-1;
+    }
+
+    /** Sorted list of event positions */
+    public static class Positions {
+
+        public static final Positions EMPTY = new Positions();
+
+        protected int[] positions = new int[16];
+        protected int count;
+
+        public void add(int position) {
+            positions = Utils.ensureCapacity(positions, count+1);
+            positions[count++] = position;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public int get(int index) {
+            return positions[index];
+        }
+
+        /** Returns the index of the first position strictly after the specified position or -1 */
+        public int indexAfter(int position) {
+            int low = lowerBound(position+1);
+            return low < count ? low : -1;
+        }
+
+        /** Returns the index of the last position strictly before the specified position or -1 */
+        public int indexBefore(int position) {
+            return lowerBound(position)-1;
+        }
+
+        protected int lowerBound(int position) {
+            int low = 0;
+            int high = count;
+            while(low < high) {
+                int middle = (low+high) >>> 1;
+                if(positions[middle] < position)
+                    low = middle+1;
+                else
+                    high = middle;
+            }
+            return low;
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.debugger.tivo;
+
+import org.antlr.runtime.Token;
+import org.antlr.runtime.debug.RemoteDebugEventSocketListener.ProxyTree;
+import org.antlr.runtime.tree.Tree;
+import org.antlr.works.debugger.events.DBEvent;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/** This listener receives the debug events directly from a parser running inside
+ * the same JVM. The tree nodes are real trees instead of the proxy trees built by
+ * the socket listener: they are converted into proxy trees with a unique ID per node
+ * so the rest of the debugger does not need to know how the events were received.
+ */
+public class DBInProcessEventListener extends DBRecorderEventListener {
+
+    protected Map<Object,Integer> nodeIDs = new IdentityHashMap<Object,Integer>();
+    protected volatile boolean aborted;
+
+    public DBInProcessEventListener(DBRecorder recorder) {
+        super(recorder);
+    }
+
+    /** Request the parser to stop: the next event received throws an AbortException
+     * which unwinds the parser's stack.
+     */
+    public void abort() {
+        aborted = true;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    public void event(DBEvent event) {
+        if(aborted)
+            throw new AbortException();
+        super.event(event);
+    }
+
+    public int getNodeID(Object node) {
+        Integer id = nodeIDs.get(node);
+        if(id == null) {
+            id = nodeIDs.size()+1;
+            nodeIDs.put(node, id);
+        }
+        return id;
+    }
+
+    public ProxyTree getProxyTree(Object node) {
+        if(node instanceof ProxyTree)
+            return (ProxyTree)node;
+
+        ProxyTree p = new ProxyTree(getNodeID(node));
+        if(node instanceof Tree) {
+            Tree t = (Tree)node;
+            p.type = t.getType();
+            p.line = t.getLine();
+            p.charPos = t.getCharPositionInLine();
+            p.tokenIndex = t.getTokenStartIndex();
+            p.text = t.getText();
+        } else if(node != null) {
+            p.text = node.toString();
+        }
+        return p;
+    }
+
+    /** AST events */
+
+    public void nilNode(Object t) {
+        super.nilNode(getProxyTree(t));
+    }
+
+    public void errorNode(Object t) {
+        super.errorNode(getProxyTree(t));
+    }
+
+    public void createNode(Object t) {
+        super.createNode(getProxyTree(t));
+    }
+
+    public void createNode(Object node, Token token) {
+        super.createNode(getProxyTree(node), token);
+    }
+
+    public void becomeRoot(Object newRoot, Object oldRoot) {
+        super.becomeRoot(getProxyTree(newRoot), getProxyTree(oldRoot));
+    }
+
+    public void addChild(Object root, Object child) {
+        super.addChild(getProxyTree(root), getProxyTree(child));
+    }
+
+    public void setTokenBoundaries(Object t, int tokenStartIndex, int tokenStopIndex) {
+        super.setTokenBoundaries(getProxyTree(t), tokenStartIndex, tokenStopIndex);
+    }
+
+    /** Tree parsing */
+
+    public void consumeNode(Object t) {
+        super.consumeNode(getProxyTree(t));
+    }
+
+    public void LT(int i, Object t) {
+        super.LT(i, getProxyTree(t));
+    }
+
+    /** Thrown from the parser's thread when the debugger is stopped */
+    public static class AbortException extends RuntimeException {
+        public AbortException() {
+            super("Debugger stopped");
+        }
+    }
+
+}
@@ -102,7 +102,6 @@ public class DBPlayer {
                 debuggerTab.getConsole().println(e);
             }
 
-            debuggerTab.addEvent(event, contextInfo);
             if(i == lastIndex) {
                 // Last event, play the location
                 playLocation();
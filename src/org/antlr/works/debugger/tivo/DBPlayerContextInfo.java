@@ -1,5 +1,7 @@
 package org.antlr.works.debugger.tivo;
 
+import org.antlr.works.debugger.events.*;
+
 import java.util.Stack;
 /*
 
@@ -104,4 +106,57 @@ public class DBPlayerContextInfo {
         mark.clear();
         backtrack.clear();
     }
+
+    /** Update the context using only the given event. This is the same bookkeeping
+     * that DBPlayer does when playing an event but without touching any panel, which
+     * allows to recompute the context of any recorded event.
+     */
+    public void playEvent(DBEvent event) {
+        switch(event.getEventType()) {
+            case DBEvent.ENTER_SUBRULE:
+                enterSubrule(((DBEventEnterSubRule)event).decision);
+                break;
+            case DBEvent.EXIT_SUBRULE:
+                popValue(subrule);
+                break;
+            case DBEvent.ENTER_DECISION:
+                enterDecision(((DBEventEnterDecision)event).decision);
+                break;
+            case DBEvent.EXIT_DECISION:
+                popValue(decision);
+                break;
+            case DBEvent.MARK:
+                mark(((DBEventMark)event).id);
+                break;
+            case DBEvent.REWIND:
+                if(!((DBEventRewind)event).rewindToLastMark())
+                    popValue(mark);
+                break;
+            case DBEvent.BEGIN_BACKTRACK:
+                beginBacktrack(((DBEventBeginBacktrack)event).level);
+                break;
+            case DBEvent.END_BACKTRACK:
+                popValue(backtrack);
+                break;
+        }
+    }
+
+    public void popValue(Stack<Integer> s) {
+        if(!s.isEmpty())
+            s.pop();
+    }
+
+    public void setContext(DBPlayerContextInfo other) {
+        clear();
+        subrule.addAll(other.subrule);
+        decision.addAll(other.decision);
+        mark.addAll(other.mark);
+        backtrack.addAll(other.backtrack);
+    }
+
+    public DBPlayerContextInfo copy() {
+        DBPlayerContextInfo info = new DBPlayerContextInfo();
+        info.setContext(this);
+        return info;
+    }
 }
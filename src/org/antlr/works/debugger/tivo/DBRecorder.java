@@ -36,6 +36,7 @@ import org.antlr.runtime.debug.DebugEventListener;
 import org.antlr.runtime.debug.RemoteDebugEventSocketListener;
 import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.events.*;
+import org.antlr.works.debugger.local.DBInProcessParser;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.Console;
 import org.antlr.works.utils.NumberSet;
@@ -93,6 +94,11 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
     protected List<DBEvent> events;
     protected int position;
     protected NumberSet breakEvents = new NumberSet();
+    protected DBBreakpointMatcher breakpointMatcher = new DBBreakpointMatcher();
+    protected DBBreakpointConditions breakpointConditions = new DBBreakpointConditions();
+    protected DBEventSearchIndex searchIndex = new DBEventSearchIndex();
+    /** Time of the events received, stopped while the recorder is on a break event */
+    protected DBEventClock clock = new DBEventClock();
     protected int stoppedOnEvent = DBEvent.NO_EVENT;
     protected boolean ignoreBreakpoints = false;
     protected StepOver stepOver = new StepOver();
@@ -103,6 +109,7 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
 
     protected DBRecorderEventListener eventListener;
     protected RemoteDebugEventSocketListener listener;
+    protected DBInProcessEventListener inProcessListener;
 
     protected XJDialogProgress progress;
 
@@ -160,6 +167,8 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
         position = -1;
         currentTokenIndex = -1;
         remoteParserStateWarned = false;
+        breakpointConditions.reset();
+        searchIndex.setEvents(events);
     }
 
     public synchronized DBEvent getEvent() {
@@ -195,15 +204,21 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
         return(toIndex);
     }
 
+    /** Returns the search index updated with all the events recorded so far */
+    public DBEventSearchIndex getSearchIndex() {
+        searchIndex.update();
+        return searchIndex;
+    }
+
     public void setPositionToEnd() {
         position = events.size()-1;
     }
 
-    public void setBreakEvents(Set events) {
+    public void setBreakEvents(Set<Integer> events) {
         this.breakEvents.replaceAll(events);
     }
 
-    public Set getBreakEvents() {
+    public Set<Integer> getBreakEvents() {
         return breakEvents;
     }
 
@@ -230,9 +245,27 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
         debuggerTab.queryGrammarBreakpoints();
     }
 
+    /** Compiles the break events and the grammar and input breakpoints into
+     * lookup tables so each recorded event can be matched quickly.
+     */
+    public void compileBreakpoints() {
+        DBBreakpointMatcher matcher = new DBBreakpointMatcher();
+        matcher.setBreakEvents(breakEvents);
+        debuggerTab.compileBreakpoints(matcher);
+        breakpointMatcher = matcher;
+    }
+
+    public synchronized void setConditionalBreakpoints(List<DBBreakpointCondition> conditions) {
+        breakpointConditions.setConditions(conditions);
+    }
+
+    public List<DBBreakpointCondition> getConditionalBreakpoints() {
+        return breakpointConditions.getConditions();
+    }
+
     /** Return true if the debugger hitted a break event */
     public boolean isOnBreakEvent() {
-        int breakEvent = getOnBreakEvent();
+        int breakEvent = position < 0 || position >= events.size() ? DBEvent.NO_EVENT : getOnBreakEvent(events, position);
         if(breakEvent != DBEvent.NO_EVENT) {
             setStoppedOnEvent(breakEvent);
             setStatus(STATUS_BREAK);
@@ -246,7 +279,11 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
         DBEvent event = getEvent();
         if(event == null)
             return DBEvent.NO_EVENT;
+        else
+            return getOnBreakEvent(event);
+    }
 
+    public int getOnBreakEvent(DBEvent event) {
         /** If we are stepping over handle it here */
         if(stepOver.isSteppingOver()) {
             if(stepOver.shouldStop(event)) {
@@ -256,37 +293,39 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
                 return DBEvent.NO_EVENT;
         }
 
-        if(event.getEventType() == DBEvent.COMMENCE)
-            return event.getEventType();
-
-        if(breakEvents.contains(DBEvent.convertToInteger(DBEvent.ALL)))
-            return event.getEventType();
-
-        // Stop on debugger breakpoints
-        if(event.getEventType() == DBEvent.LOCATION && !ignoreBreakpoints())
-            if(debuggerTab.isBreakpointAtLine(((DBEventLocation)event).line-1, event.getGrammarName())) {
-                return event.getEventType();
-            }
-
-        // Stop on input text breakpoint
-        if(event.getEventType() == DBEvent.CONSUME_TOKEN && !ignoreBreakpoints())
-            if(debuggerTab.isBreakpointAtToken(((DBEventConsumeToken)event).token))
-                return event.getEventType();
+        return breakpointMatcher.match(event, ignoreBreakpoints());
+    }
 
-        if(event.getEventType() == DBEvent.CONSUME_TOKEN && breakEvents.contains(DBEvent.convertToInteger(DBEvent.CONSUME_TOKEN))) {
-            // Breaks only on consume token from channel 0
-            return ((DBEventConsumeToken)event).token.getChannel() == Token.DEFAULT_CHANNEL?event.getEventType() :DBEvent.NO_EVENT;
-        } else
-            return breakEvents.contains(DBEvent.convertToInteger(event.getEventType()))?event.getEventType() :DBEvent.NO_EVENT;
+    /** Return the event type that causes the break at the specified position,
+     * including the conditional breakpoints which are only evaluated if there are some.
+     */
+    public int getOnBreakEvent(List<DBEvent> list, int position) {
+        DBEvent event = list.get(position);
+        int breakEvent = getOnBreakEvent(event);
+        if(breakEvent == DBEvent.NO_EVENT && !breakpointConditions.isEmpty()
+                && !stepOver.isSteppingOver() && !ignoreBreakpoints())
+        {
+            if(breakpointConditions.matchAt(list, position))
+                breakEvent = event.getEventType();
+        }
+        return breakEvent;
     }
 
     public synchronized void setStatus(int status) {
         if(this.status != status) {
             this.status = status;
+            if(status == STATUS_BREAK)
+                clock.pause();
+            else
+                clock.resume();
             debuggerTab.recorderStatusDidChange();
         }
     }
 
+    public DBEventClock getClock() {
+        return clock;
+    }
+
     public synchronized int getStatus() {
         return status;
     }
@@ -303,7 +342,7 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
             return e.getEventType() == DBEvent.TERMINATE;
     }
 
-    public void stepBackward(Set breakEvents) {
+    public void stepBackward(Set<Integer> breakEvents) {
         setIgnoreBreakpoints(false);
         stepContinue(breakEvents);
         stepMove(-1);
@@ -312,7 +351,7 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
         playEvents(true);
     }
 
-    public synchronized void stepForward(Set breakEvents) {
+    public synchronized void stepForward(Set<Integer> breakEvents) {
         setIgnoreBreakpoints(false);
         stepContinue(breakEvents);
         if(stepMove(1)) {
@@ -334,9 +373,10 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
         fastForward();
     }
 
-    public void stepContinue(Set breakEvents) {
+    public void stepContinue(Set<Integer> breakEvents) {
         setBreakEvents(breakEvents);
         queryGrammarBreakpoints();
+        compileBreakpoints();
         setStatus(STATUS_RUNNING);
     }
 
@@ -353,17 +393,34 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
             return false;
         }
 
-        DBEvent event;
-        while((event = getEvent()) != null) {
-            if(isOnBreakEvent())
-                break;
-
-            position += direction;
+        /** Scan the event log without going through the synchronized accessors */
+        List<DBEvent> list = events;
+        synchronized(list) {
+            int size = list.size();
+            if(direction < 0 && !breakpointConditions.isEmpty() && !ignoreBreakpoints()) {
+                /** Conditions depend on the events before them: find the previous match in one forward pass */
+                int match = breakpointConditions.findLastMatch(list, position);
+                for(; position >= 0; position += direction) {
+                    int breakEvent = position == match ? list.get(position).getEventType() : getOnBreakEvent(list.get(position));
+                    if(breakEvent != DBEvent.NO_EVENT) {
+                        setStoppedOnEvent(breakEvent);
+                        setStatus(STATUS_BREAK);
+                        return true;
+                    }
+                }
+            }
+            for(; position >= 0 && position < size; position += direction) {
+                int breakEvent = getOnBreakEvent(list, position);
+                if(breakEvent != DBEvent.NO_EVENT) {
+                    setStoppedOnEvent(breakEvent);
+                    setStatus(STATUS_BREAK);
+                    return true;
+                }
+            }
         }
-        if(event == null)
-            position -= direction;
 
-        return event != null;
+        position -= direction;
+        return false;
     }
 
     public void goToStart() {
@@ -381,6 +438,22 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
             threadNotify();
     }
 
+    /** Moves directly to the event at the specified position: the player
+     * only replays the events from the beginning when moving backward.
+     * Returns false if the recorder is not stopped on a break.
+     */
+    public synchronized boolean goToPosition(int position) {
+        if(getStatus() != STATUS_BREAK || position < 0 || position >= events.size())
+            return false;
+
+        boolean backward = position < this.position;
+        this.position = position;
+        setStoppedOnEvent(events.get(position).getEventType());
+        debuggerTab.recorderStatusDidChange();
+        playEvents(backward);
+        return true;
+    }
+
     public void fastForward() {
         stepForward(new NumberSet(DBEvent.TERMINATE));
     }
@@ -392,8 +465,28 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
         new Thread(this).start();
     }
 
+    /** Start the debugger with a parser running in the same JVM: the events are received
+     * directly on the parser's thread, there is no connection to wait for.
+     */
+    public void connect(DBInProcessParser parser) {
+        inProcessListener = new DBInProcessEventListener(this);
+        eventListener = inProcessListener;
+        listener = null;
+        cancelled = false;
+
+        setStatus(STATUS_LAUNCHING);
+
+        debuggerReceivedTerminateEvent = false;
+
+        reset();
+        parser.start(inProcessListener);
+
+        connectionSuccess();
+    }
+
     public void run() {
         eventListener = new DBRecorderEventListener(this);
+        inProcessListener = null;
         cancelled = false;
 
         boolean connected = false;
@@ -487,6 +580,13 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
         if(debuggerTab == null) return;
 
         setStatus(STATUS_STOPPED);
+
+        if(inProcessListener != null) {
+            // Unwind the in-process parser, even if it is waiting on a breakpoint
+            inProcessListener.abort();
+            threadNotify();
+        }
+
         debuggerTab.recorderDidStop();
     }
 
@@ -495,6 +595,9 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
      * is called in the event dispatch thread.
      */
     public void checkRemoteParserHeaders() {
+        // The in-process parser is always the one generated from the grammar
+        if(listener == null) return;
+
         //Tool.VERSION
         //System.out.println(listener.version);
 
@@ -511,7 +614,7 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
      to be paused
      */
     public boolean checkRemoteParserState() {
-        if(remoteParserStateWarned)
+        if(remoteParserStateWarned || listener == null)
             return false;
 
         if(listener.tokenIndexesAreInvalid()) {
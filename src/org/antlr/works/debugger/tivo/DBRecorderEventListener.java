@@ -48,6 +48,7 @@ public class DBRecorderEventListener implements DebugEventListener {
     }
 
     public void event(DBEvent event) {
+        event.setTime(recorder.getClock().now());
         recorder.listenerEvent(event);
     }
 
@@ -3,6 +3,7 @@ package org.antlr.works.debugger.tree;
 import org.antlr.runtime.CommonToken;
 import org.antlr.runtime.Token;
 import org.antlr.works.debugger.DebuggerTab;
+import org.antlr.works.utils.IntHashMap;
 
 import java.util.*;
 /*
@@ -42,7 +43,7 @@ public class DBASTModel {
     public Stack<Rule> rules = new Stack<Rule>();
 
     /** Map of nodes */
-    public Map<Integer, ASTNode> nodesMap = new HashMap<Integer, ASTNode>();
+    public IntHashMap<ASTNode> nodesMap = new IntHashMap<ASTNode>();
 
     public List<DBASTModelListener> listeners = new ArrayList<DBASTModelListener>();
 
@@ -92,7 +93,7 @@ public class DBASTModel {
     /* Methods used by the debugger */
 
     public void pushRule(String name) {
-        rules.push(new Rule(name, new Stack<ASTNode>()));
+        rules.push(new Rule(name, new RootStack()));
     }
 
     public void popRule() {
@@ -108,10 +109,7 @@ public class DBASTModel {
 
     /** Replace a root node by another one */
     public void replaceRoot(ASTNode oldRoot, ASTNode newRoot) {
-        Stack<ASTNode> roots = getRoots();
-        int index = roots.indexOf(oldRoot);
-        roots.remove(index);
-        roots.add(index, newRoot);
+        getRoots().replace(oldRoot, newRoot);
     }
 
     /** Remove a root node */
@@ -189,7 +187,7 @@ public class DBASTModel {
         return nodesMap.get(id);
     }
 
-    protected Stack<ASTNode> getRoots() {
+    protected RootStack getRoots() {
         if(rules.isEmpty())
             return null;
         else
@@ -199,9 +197,9 @@ public class DBASTModel {
     public class Rule {
 
         public String name;
-        public Stack<ASTNode> roots;
+        public RootStack roots;
 
-        public Rule(String name, Stack<ASTNode> roots) {
+        public Rule(String name, RootStack roots) {
             this.name = name;
             this.roots = roots;
         }
@@ -210,11 +208,79 @@ public class DBASTModel {
             return roots.get(index);
         }
 
-        public Stack<ASTNode> getRoots() {
+        public RootStack getRoots() {
             return roots;
         }
     }
 
+    /** Stack of the roots of a rule. Each root knows its position in the stack
+     * so a root can be replaced or removed without searching the stack. A removed
+     * root leaves a hole which is discarded lazily when the stack is read.
+     */
+    public static class RootStack {
+
+        protected List<ASTNode> slots = new ArrayList<ASTNode>();
+        protected int holes = 0;
+
+        public void push(ASTNode node) {
+            node.rootStack = this;
+            node.rootIndex = slots.size();
+            slots.add(node);
+        }
+
+        public void replace(ASTNode oldRoot, ASTNode newRoot) {
+            if(oldRoot.rootStack != this)
+                return;
+
+            int index = oldRoot.rootIndex;
+            oldRoot.rootStack = null;
+            newRoot.rootStack = this;
+            newRoot.rootIndex = index;
+            slots.set(index, newRoot);
+        }
+
+        public void remove(ASTNode node) {
+            if(node.rootStack != this)
+                return;
+
+            node.rootStack = null;
+            if(node.rootIndex == slots.size()-1) {
+                slots.remove(node.rootIndex);
+            } else {
+                slots.set(node.rootIndex, null);
+                holes++;
+            }
+
+            /** Discard the holes when they represent more than half of the stack */
+            if(holes > slots.size()/2)
+                compact();
+        }
+
+        public int size() {
+            return slots.size()-holes;
+        }
+
+        public ASTNode get(int index) {
+            if(holes > 0)
+                compact();
+            return slots.get(index);
+        }
+
+        protected void compact() {
+            int count = 0;
+            for (ASTNode node : slots) {
+                if(node == null)
+                    continue;
+                node.rootIndex = count;
+                slots.set(count++, node);
+            }
+            for(int i=slots.size()-1; i>=count; i--) {
+                slots.remove(i);
+            }
+            holes = 0;
+        }
+    }
+
     public class ASTNode extends DBTreeNode {
 
         public int id;
@@ -222,6 +288,10 @@ public class DBASTModel {
 
         public ASTNode parentNode = null;
 
+        /** Stack of roots containing this node and position of the node in this stack */
+        protected RootStack rootStack = null;
+        protected int rootIndex = -1;
+
         public ASTNode(int id) {
             this.id = id;
             /** Children is defined in DefaultMutableTreeNode */
@@ -169,7 +169,7 @@ public class DBASTPanel extends DetachablePanel implements DBASTModelListener, X
         if(rule == null)
             return;
 
-        Stack<DBASTModel.ASTNode> roots = rule.getRoots();
+        DBASTModel.RootStack roots = rule.getRoots();
         for (int r = 0; r < roots.size(); r++) {
             DBASTModel.ASTNode node = roots.get(r);
             DBTreeNode candidate = node.findNodeWithToken(token);
@@ -174,6 +174,9 @@ public class DBParseTreeModel extends AWTreeModel implements XJNotificationObser
     public void endBacktrack(int level, boolean success) {
         Backtrack b = backtrackStack.pop();
         b.end(success);
+        for (DBTreeNode node : b.nodes) {
+            nodeChanged(node);
+        }
         setLastNode(b.getLastNode());
     }
 
@@ -58,6 +58,7 @@ public class DBParseTreePanel extends DetachablePanel implements DBParseTreeMode
         
         treePanel = new AWTreePanel(new DefaultTreeModel(null));
         treePanel.setDelegate(this);
+        treePanel.setAWTreeModel(model);
 
         mainPanel.add(treePanel, BorderLayout.CENTER);
     }
@@ -75,7 +76,7 @@ public class DBParseTreePanel extends DetachablePanel implements DBParseTreeMode
     }
 
     public void clear() {
-        model.clear();
+        /** The tree panel clears the model as well */
         treePanel.clear();
     }
 
@@ -100,7 +101,11 @@ public class DBParseTreePanel extends DetachablePanel implements DBParseTreeMode
     }
 
     public void modelChanged(DBParseTreeModel model) {
-        treePanel.setRoot(model.getRootRule());
+        /** Only the nodes added since the last break are laid out
+         * unless the root changed (i.e. the model has been cleared)
+         */
+        if(treePanel.getRoot() != model.getRootRule())
+            treePanel.setRoot(model.getRootRule());
         updateParseTree();
     }
 
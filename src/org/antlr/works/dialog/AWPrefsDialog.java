@@ -237,8 +237,10 @@ public class AWPrefsDialog extends XJPanel {
         compilerRadioButtonGroup.add(jikesRadio);
         compilerRadioButtonGroup.add(integratedRadio);
         compilerRadioButtonGroup.add(javacRadio);
+        compilerRadioButtonGroup.add(memoryRadio);
 
         integratedRadio.setActionCommand("integrated");
+        memoryRadio.setActionCommand("memory");
         javacRadio.setActionCommand("javac");
         jikesRadio.setActionCommand("jikes");
 
@@ -264,6 +266,7 @@ public class AWPrefsDialog extends XJPanel {
 
         getPreferences().bindToPreferences(detachablePanelChildrenButton, AWPrefs.PREF_DETACHABLE_CHILDREN, AWPrefs.DEFAULT_DETACHABLE_CHILDREN);
         getPreferences().bindToPreferences(askGenButton, AWPrefs.PREF_DEBUGGER_ASK_GEN, AWPrefs.DEFAULT_DEBUGGER_ASK_GEN);
+        getPreferences().bindToPreferences(inProcessButton, AWPrefs.PREF_DEBUG_IN_PROCESS, AWPrefs.DEFAULT_DEBUG_IN_PROCESS);
     }
 
     public void prepareAdvancedTab() {
@@ -503,6 +506,7 @@ public class AWPrefsDialog extends XJPanel {
         tabCompiler = new JPanel();
         jikesRadio = new JRadioButton();
         integratedRadio = new JRadioButton();
+        memoryRadio = new JRadioButton();
         javacRadio = new JRadioButton();
         javacCustomPathButton = new JCheckBox();
         javacPathField = new JTextField();
@@ -534,6 +538,7 @@ public class AWPrefsDialog extends XJPanel {
         label36 = new JLabel();
         detachablePanelChildrenButton = new JCheckBox();
         askGenButton = new JCheckBox();
+        inProcessButton = new JCheckBox();
         panel1 = new JPanel();
         label8 = new JLabel();
         checkGrammarSuccessButton = new JCheckBox();
@@ -1055,6 +1060,8 @@ public class AWPrefsDialog extends XJPanel {
         						FormFactory.LINE_GAP_ROWSPEC,
         						FormFactory.DEFAULT_ROWSPEC,
         						FormFactory.LINE_GAP_ROWSPEC,
+        						FormFactory.DEFAULT_ROWSPEC,
+        						FormFactory.LINE_GAP_ROWSPEC,
         						new RowSpec(Sizes.dluY(10)),
         						FormFactory.LINE_GAP_ROWSPEC,
         						FormFactory.DEFAULT_ROWSPEC,
@@ -1073,6 +1080,11 @@ public class AWPrefsDialog extends XJPanel {
         				integratedRadio.setActionCommand("integrated");
         				tabCompiler.add(integratedRadio, cc.xywh(3, 11, 3, 1));
 
+        				//---- memoryRadio ----
+        				memoryRadio.setText("javax.tools (in memory)");
+        				memoryRadio.setActionCommand("memory");
+        				tabCompiler.add(memoryRadio, cc.xywh(3, 13, 3, 1));
+
         				//---- javacRadio ----
         				javacRadio.setText("javac");
         				javacRadio.setSelected(true);
@@ -1099,20 +1111,20 @@ public class AWPrefsDialog extends XJPanel {
 
         				//---- label9 ----
         				label9.setText("Classpath:");
-        				tabCompiler.add(label9, cc.xy(3, 15));
+        				tabCompiler.add(label9, cc.xy(3, 17));
 
         				//---- classpathSystemButton ----
         				classpathSystemButton.setText("System");
-        				tabCompiler.add(classpathSystemButton, cc.xy(4, 15));
+        				tabCompiler.add(classpathSystemButton, cc.xy(4, 17));
 
         				//---- classpathCustomButton ----
         				classpathCustomButton.setText("Custom:");
-        				tabCompiler.add(classpathCustomButton, cc.xy(4, 17));
-        				tabCompiler.add(customClasspathField, cc.xy(5, 17));
+        				tabCompiler.add(classpathCustomButton, cc.xy(4, 19));
+        				tabCompiler.add(customClasspathField, cc.xy(5, 19));
 
         				//---- browseCustomClassPathButton ----
         				browseCustomClassPathButton.setText("Browse...");
-        				tabCompiler.add(browseCustomClassPathButton, cc.xy(6, 17));
+        				tabCompiler.add(browseCustomClassPathButton, cc.xy(6, 19));
         			}
         			tabbedPane1.addTab("Compiler", tabCompiler);
 
@@ -1158,6 +1170,8 @@ public class AWPrefsDialog extends XJPanel {
         						FormFactory.LINE_GAP_ROWSPEC,
         						FormFactory.DEFAULT_ROWSPEC,
         						FormFactory.LINE_GAP_ROWSPEC,
+        						FormFactory.DEFAULT_ROWSPEC,
+        						FormFactory.LINE_GAP_ROWSPEC,
         						FormFactory.DEFAULT_ROWSPEC
         					}));
 
@@ -1267,6 +1281,10 @@ public class AWPrefsDialog extends XJPanel {
         				//---- askGenButton ----
         				askGenButton.setText("Ask before generating and compiling");
         				tabDebugger.add(askGenButton, cc.xywh(5, 21, 5, 1));
+
+        				//---- inProcessButton ----
+        				inProcessButton.setText("Run the parser inside ANTLRWorks when possible");
+        				tabDebugger.add(inProcessButton, cc.xywh(5, 23, 5, 1));
         			}
         			tabbedPane1.addTab("Debugger", tabDebugger);
 
@@ -1542,6 +1560,7 @@ public class AWPrefsDialog extends XJPanel {
     private JPanel tabCompiler;
     private JRadioButton jikesRadio;
     private JRadioButton integratedRadio;
+    private JRadioButton memoryRadio;
     private JRadioButton javacRadio;
     private JCheckBox javacCustomPathButton;
     private JTextField javacPathField;
@@ -1573,6 +1592,7 @@ public class AWPrefsDialog extends XJPanel {
     private JLabel label36;
     private JCheckBox detachablePanelChildrenButton;
     private JCheckBox askGenButton;
+    private JCheckBox inProcessButton;
     private JPanel panel1;
     private JLabel label8;
     private JCheckBox checkGrammarSuccessButton;
@@ -0,0 +1,306 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.generate;
+
+import org.antlr.works.stats.StatisticsManager;
+import org.antlr.works.utils.Utils;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Content-addressed cache of build artifacts (generated sources, compiled classes) shared
+ * by all the windows and sessions. An entry is a directory named after the hash of everything
+ * that was used to produce the artifacts; it is created atomically so that a partially written
+ * entry is never visible.
+ */
+public class BuildCache {
+
+    public static final String CACHE_DIR = "cache";
+    public static final int MAX_ENTRIES = 64;
+
+    private static BuildCache shared;
+
+    /** Digest of the content of the files hashed by the keys, by absolute path */
+    private static final Map<String, FileDigest> fileDigests = new HashMap<String, FileDigest>();
+
+    private final File root;
+    private final int maxEntries;
+
+    public static synchronized BuildCache shared() {
+        if(shared == null) {
+            shared = new BuildCache(new File(StatisticsManager.getAbsoluteFileName(CACHE_DIR)), MAX_ENTRIES);
+        }
+        return shared;
+    }
+
+    public BuildCache(File root, int maxEntries) {
+        this.root = root;
+        this.maxEntries = maxEntries;
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    public boolean contains(String key) {
+        return key != null && getEntry(key).isDirectory();
+    }
+
+    /** Copies the files of the entry into the directory, keeping their relative path. Files already
+     * having the same content are not written again so their timestamp is preserved.
+     * Returns false if the entry doesn't exist or cannot be restored.
+     */
+    public boolean restore(String key, String dir) {
+        if(!contains(key)) return false;
+
+        File entry = getEntry(key);
+        try {
+            List<String> names = new ArrayList<String>();
+            listFiles(entry, "", names);
+            for(String name : names) {
+                copyIfChanged(new File(entry, name), new File(dir, name));
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        entry.setLastModified(System.currentTimeMillis());
+        return true;
+    }
+
+    /** Stores the files (absolute paths located inside the base directory) under the key */
+    public boolean store(String key, String baseDir, Collection<String> files) {
+        if(key == null) return false;
+        if(contains(key)) return true;
+
+        String base = new File(baseDir).getAbsolutePath()+File.separator;
+        File tmp = new File(root, key+".tmp"+System.nanoTime());
+        try {
+            for(String file : files) {
+                String path = new File(file).getAbsolutePath();
+                if(!path.startsWith(base)) continue;
+                copy(new File(path), new File(tmp, path.substring(base.length())));
+            }
+        } catch (IOException e) {
+            XJUtils.deleteDirectory(tmp.getAbsolutePath());
+            return false;
+        }
+
+        // Another window may have stored the same entry in the meantime
+        if(!tmp.renameTo(getEntry(key))) {
+            XJUtils.deleteDirectory(tmp.getAbsolutePath());
+            return contains(key);
+        }
+
+        prune();
+        return true;
+    }
+
+    /** Stores every file of the directory (except the hidden stamp files) under the key */
+    public boolean storeDirectory(String key, String dir) {
+        List<String> names = new ArrayList<String>();
+        listFiles(new File(dir), "", names);
+        List<String> files = new ArrayList<String>();
+        for(String name : names) {
+            if(!new File(name).getName().startsWith("."))
+                files.add(XJUtils.concatPath(dir, name));
+        }
+        return store(key, dir, files);
+    }
+
+    /** Removes the least recently used entries above the maximum */
+    public void prune() {
+        File[] entries = root.listFiles();
+        if(entries == null || entries.length <= maxEntries) return;
+
+        Arrays.sort(entries, new Comparator<File>() {
+            public int compare(File a, File b) {
+                long d = a.lastModified() - b.lastModified();
+                return d < 0 ? -1 : (d > 0 ? 1 : 0);
+            }
+        });
+        for(int i = 0; i < entries.length - maxEntries; i++) {
+            XJUtils.deleteDirectory(entries[i].getAbsolutePath());
+        }
+    }
+
+    public void clear() {
+        XJUtils.deleteDirectory(root.getAbsolutePath());
+    }
+
+    private File getEntry(String key) {
+        return new File(root, key);
+    }
+
+    private static void listFiles(File dir, String prefix, List<String> names) {
+        File[] files = dir.listFiles();
+        if(files == null) return;
+        for(File file : files) {
+            if(file.isDirectory())
+                listFiles(file, prefix+file.getName()+File.separator, names);
+            else
+                names.add(prefix+file.getName());
+        }
+    }
+
+    private static void copyIfChanged(File source, File target) throws IOException {
+        byte[] bytes = readBytes(source);
+        if(target.exists() && target.length() == bytes.length && Arrays.equals(bytes, readBytes(target)))
+            return;
+        writeBytes(bytes, target);
+    }
+
+    private static void copy(File source, File target) throws IOException {
+        writeBytes(readBytes(source), target);
+    }
+
+    /** Returns the digest of the content of the file. The digest is computed again only if the
+     * timestamp or the length of the file changed since it was last computed.
+     */
+    public static byte[] getFileDigest(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        synchronized(fileDigests) {
+            FileDigest d = fileDigests.get(path);
+            if(d != null && d.lastModified == lastModified && d.length == length)
+                return d.digest;
+        }
+
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("MD5").digest(readBytes(file));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        synchronized(fileDigests) {
+            fileDigests.put(path, new FileDigest(lastModified, length, digest));
+        }
+        return digest;
+    }
+
+    private static byte[] readBytes(File file) throws IOException {
+        byte[] bytes = new byte[(int)file.length()];
+        DataInputStream is = new DataInputStream(new FileInputStream(file));
+        try {
+            is.readFully(bytes);
+        } finally {
+            is.close();
+        }
+        return bytes;
+    }
+
+    private static void writeBytes(byte[] bytes, File file) throws IOException {
+        file.getParentFile().mkdirs();
+        OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(bytes);
+        } finally {
+            os.close();
+        }
+    }
+
+    /**
+     * Builds a cache key from labeled values and file contents. The labels keep two different
+     * sets of inputs from producing the same sequence of bytes.
+     */
+    public static class Key {
+
+        private final MessageDigest md;
+
+        public Key() {
+            try {
+                md = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public Key add(String label, String value) {
+            update(label);
+            update(value == null ? "" : value);
+            return this;
+        }
+
+        public Key add(String label, String[] values) {
+            update(label);
+            for(String value : values) {
+                update(value);
+            }
+            return this;
+        }
+
+        /** Adds the digest of the content of the file, or nothing but the label if it doesn't exist */
+        public Key addFile(String label, String file) throws IOException {
+            update(label);
+            if(file != null && new File(file).exists())
+                md.update(getFileDigest(new File(file)));
+            md.update((byte)0);
+            return this;
+        }
+
+        /** Returns the hash of everything added so far */
+        public String getHash() {
+            try {
+                return Utils.toHexString(((MessageDigest)md.clone()).digest());
+            } catch (CloneNotSupportedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private void update(String s) {
+            try {
+                md.update(s.getBytes("UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                throw new RuntimeException(e);
+            }
+            md.update((byte)0);
+        }
+    }
+
+    private static class FileDigest {
+
+        public final long lastModified;
+        public final long length;
+        public final byte[] digest;
+
+        public FileDigest(long lastModified, long length, byte[] digest) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.digest = digest;
+        }
+    }
+
+}
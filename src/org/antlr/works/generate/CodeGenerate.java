@@ -32,11 +32,10 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package org.antlr.works.generate;
 
 import org.antlr.Tool;
-import org.antlr.tool.ErrorManager;
 import org.antlr.works.components.GrammarWindow;
+import org.antlr.works.grammar.element.ElementImport;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.Console;
-import org.antlr.works.utils.ErrorListener;
 import org.antlr.works.utils.Utils;
 import org.antlr.xjlib.appkit.utils.XJAlert;
 import org.antlr.xjlib.appkit.utils.XJDialogProgress;
@@ -45,18 +44,23 @@ import org.antlr.xjlib.foundation.XJUtils;
 import javax.swing.*;
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class CodeGenerate implements Runnable {
 
+    private static String antlrVersion;
+
     private boolean debug = true;
 
     protected GrammarWindow window;
     protected CodeGenerateDelegate delegate;
 
-    protected long dateOfModificationOnDisk = 0;
     protected String lastError;
+    protected String grammarHash;
+    protected boolean lastGenerationSkipped;
 
     public CodeGenerate(GrammarWindow window, CodeGenerateDelegate delegate) {
         this.window = window;
@@ -88,29 +92,156 @@ public class CodeGenerate implements Runnable {
         return lastError;
     }
 
-    public boolean generate() {
-        ErrorListener el = ErrorListener.getThreadInstance();
-        ErrorManager.setErrorListener(el);
-
+    protected String[] getParams() {
         String[] params;
         if(debug)
             params = new String[] { "-debug", "-o", getOutputPath(), "-lib", window.getFileFolder(), window.getFilePath() };
         else
             params = new String[] { "-o", getOutputPath(), "-lib", window.getFileFolder(), window.getFilePath() };
+        return Utils.concat(params, AWPrefs.getANTLR3Options());
+    }
+
+    public boolean generate() {
+        String[] params = getParams();
 
         new File(getOutputPath()).mkdirs();
 
-        Tool antlr = new Tool(Utils.concat(params, AWPrefs.getANTLR3Options()));
-        antlr.process();
+        lastError = null;
+        lastGenerationSkipped = false;
+        grammarHash = computeGrammarHash(params);
+
+        // Nothing to do if the files in the output path were generated from the same grammar
+        if(isGeneratedFor(grammarHash)) {
+            lastGenerationSkipped = true;
+            return true;
+        }
+
+        // The same grammar may have been generated by another window or a previous session
+        if(!BuildCache.shared().restore(grammarHash, getOutputPath())) {
+            String[] error = new String[1];
+            Map<String, String> sources = CodeGenerateTool.run(params, error);
+            lastError = error[0];
+            if(sources == null) {
+                return false;
+            }
+
+            try {
+                CodeGenerateTool.writeOutputs(sources);
+            } catch (IOException e) {
+                lastError = e.toString();
+                return false;
+            }
+            BuildCache.shared().store(grammarHash, getOutputPath(), sources.keySet());
+        }
+
+        if(grammarHash != null) {
+            try {
+                writeHash(getHashFile(), grammarHash);
+            } catch (IOException e) {
+                lastError = e.toString();
+                return false;
+            }
+        }
+        return true;
+    }
 
-        boolean success = !el.hasErrors();
-        if(success) {
-            dateOfModificationOnDisk = window.getDocument().getDateOfModificationOnDisk();
+    /** Returns true if the files in the output path were generated from the grammar having this hash */
+    protected boolean isGeneratedFor(String hash) {
+        return hash != null && hash.equals(readHash(getHashFile())) && isGeneratedFilesExisting();
+    }
+
+    /** Returns true if the last call to generate() did not have to write any file because
+     * they were already generated from the same grammar
+     */
+    public boolean isLastGenerationSkipped() {
+        return lastGenerationSkipped;
+    }
+
+    /** Returns the hash of the grammar computed by the last call to generate() */
+    public String getGrammarHash() {
+        return grammarHash;
+    }
+
+    /** Returns the hash of the grammar in its current state */
+    public String computeGrammarHash() {
+        return computeGrammarHash(getParams());
+    }
+
+    /** The hash combines the ANTLR version and parameters with the content of the grammar,
+     * its imported grammars and its token vocabulary. Returns null if a file cannot be read.
+     */
+    protected String computeGrammarHash(String[] params) {
+        try {
+            List<String> files = new ArrayList<String>();
+            files.add(window.getFilePath());
+            for(ElementImport i : window.getGrammarEngine().getImports()) {
+                files.add(XJUtils.concatPath(window.getFileFolder(), i.getName()+".g"));
+            }
+            String tokenVocab = window.getGrammarEngine().getTokenVocab();
+            if(tokenVocab != null) {
+                files.add(window.getTokenVocabFile(tokenVocab+".tokens"));
+            }
+            return computeGrammarHash(params, files);
+        } catch (Exception e) {
+            window.getConsoleTab().println(e);
+            return null;
+        }
+    }
+
+    /** Returns the hash of the ANTLR version, the parameters and the content of the files (null entries
+     * and missing files are hashed as absent)
+     */
+    public static String computeGrammarHash(String[] params, List<String> files) throws IOException {
+        BuildCache.Key key = new BuildCache.Key();
+        key.add("antlr", getAntlrVersion());
+        key.add("params", params);
+        for(String file : files) {
+            key.addFile("file", file);
+        }
+        return key.getHash();
+    }
+
+    /** Returns the version of ANTLR. Tool reads it from the manifest of its package when it is
+     * created: it is read only once instead of creating a Tool for each hash.
+     */
+    public static synchronized String getAntlrVersion() {
+        if(antlrVersion == null)
+            antlrVersion = new Tool().VERSION;
+        return antlrVersion;
+    }
+
+    protected String getHashFile() {
+        return getHashFile(getOutputPath(), getGrammarName());
+    }
+
+    /** Returns the file recording the hash of the grammar the files in the output path were generated from */
+    public static String getHashFile(String outputPath, String grammarName) {
+        return XJUtils.concatPath(outputPath, "."+grammarName+".md5");
+    }
+
+    public static String readHash(String file) {
+        try {
+            if(new File(file).exists())
+                return Utils.stringFromFile(file).trim();
+        } catch (IOException e) {
+            // Consider the files as not generated
+        }
+        return null;
+    }
+
+    public static void writeHash(String file, String hash) throws IOException {
+        XJUtils.writeStringToFile(hash, file);
+    }
+
+    protected boolean isGeneratedFilesExisting() {
+        try {
+            for(String file : getGeneratedFileNames()) {
+                if(!new File(file).exists()) return false;
+            }
+        } catch (Exception e) {
+            return false;
         }
-        lastError = el.getFirstErrorMessage();
-        el.clear();
-        ErrorManager.removeErrorListener();
-        return success;
+        return true;
     }
 
     public List<String> getGeneratedFileNames() throws Exception {
@@ -137,8 +268,11 @@ public class CodeGenerate implements Runnable {
         return false;
     }
 
+    /** Returns true if the generated files don't correspond to the current content of the grammar,
+     * its imported grammars, its token vocabulary or the ANTLR options
+     */
     public boolean isFileModifiedSinceLastGeneration() {
-        return dateOfModificationOnDisk != window.getDocument().getDateOfModificationOnDisk();
+        return !isGeneratedFor(computeGrammarHash());
     }
 
     public void generateInThread(Container parent) {
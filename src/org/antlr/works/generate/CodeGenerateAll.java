@@ -0,0 +1,428 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.generate;
+
+import org.antlr.Tool;
+import org.antlr.tool.GrammarSpelunker;
+import org.antlr.works.utils.StreamWatcher;
+import org.antlr.works.utils.StreamWatcherDelegate;
+import org.antlr.works.utils.Utils;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.CodeSource;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Generates all the grammars of a project (for example a lexer, a parser and several tree grammars).
+ * The dependencies between the grammars are read from their tokenVocab option and import statements:
+ * a grammar is generated only after the grammars it depends on, and the independent grammars are
+ * generated in parallel. ANTLR keeps its error state in static fields so each grammar is generated
+ * in its own worker JVM (see CodeGenerateTool.main) whose output is collected in the grammar's result.
+ */
+public class CodeGenerateAll {
+
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_GENERATED = 1;
+    public static final int STATUS_CACHED = 2;
+    public static final int STATUS_FAILED = 3;
+    public static final int STATUS_SKIPPED = 4;
+
+    protected String outputPath;
+    protected String[] options = new String[0];
+    protected boolean debug;
+    protected int workers = Runtime.getRuntime().availableProcessors();
+    protected BuildCache cache = BuildCache.shared();
+
+    protected List<Result> results = new ArrayList<Result>();
+    protected Set<Process> processes = new HashSet<Process>();
+    protected boolean cancelled;
+    protected Listener listener;
+
+    public CodeGenerateAll(List<String> grammarFiles, String outputPath) {
+        this.outputPath = outputPath;
+        for(String file : grammarFiles) {
+            results.add(new Result(new File(file).getAbsolutePath()));
+        }
+        readDependencies();
+    }
+
+    public void setOptions(String[] options) {
+        this.options = options;
+    }
+
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    public void setCache(BuildCache cache) {
+        this.cache = cache;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /** Returns the grammar files (*.g) of the directory */
+    public static List<String> listGrammarFiles(String directory) {
+        List<String> files = new ArrayList<String>();
+        File[] children = new File(directory).listFiles();
+        if(children != null) {
+            for(File f : children) {
+                if(f.isFile() && f.getName().endsWith(".g"))
+                    files.add(f.getAbsolutePath());
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /** Returns the results in an order where each grammar comes after the grammars it depends on.
+     * The grammars which are part of a dependency cycle are at the end.
+     */
+    public List<Result> getDependencyOrder() {
+        List<Result> order = new ArrayList<Result>();
+        Set<Result> remaining = new LinkedHashSet<Result>(results);
+        boolean changed = true;
+        while(changed) {
+            changed = false;
+            for(Iterator<Result> it = remaining.iterator(); it.hasNext(); ) {
+                Result r = it.next();
+                if(order.containsAll(r.dependencies)) {
+                    order.add(r);
+                    it.remove();
+                    changed = true;
+                }
+            }
+        }
+        order.addAll(remaining);
+        return order;
+    }
+
+    public synchronized void cancel() {
+        cancelled = true;
+        for(Process p : processes) {
+            p.destroy();
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Generates all the grammars and returns true if all of them were generated successfully */
+    public boolean generate() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        CompletionService<Result> completion = new ExecutorCompletionService<Result>(executor);
+        Set<Result> pending = new LinkedHashSet<Result>();
+        for(Result r : results) {
+            if(r.status == STATUS_PENDING)
+                pending.add(r);
+        }
+
+        int running = 0;
+        try {
+            while(true) {
+                running += submitReadyGrammars(pending, completion);
+                if(running == 0) break;
+
+                Result r = completion.take().get();
+                running--;
+                if(listener != null)
+                    listener.grammarGenerated(r);
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for(Result r : pending) {
+            r.status = isCancelled() ? STATUS_SKIPPED : STATUS_FAILED;
+            r.errors.add(isCancelled() ? "Cancelled" : "Cyclic dependency between the grammars");
+        }
+
+        boolean success = true;
+        for(Result r : results) {
+            success &= r.status == STATUS_GENERATED || r.status == STATUS_CACHED;
+        }
+        return success;
+    }
+
+    /** Submits the pending grammars whose dependencies are all generated and returns the number
+     * of grammars submitted. The grammars depending on a grammar that failed are skipped.
+     */
+    private int submitReadyGrammars(Set<Result> pending, CompletionService<Result> completion) {
+        int count = 0;
+        boolean changed = true;
+        while(changed && !isCancelled()) {
+            changed = false;
+            for(Iterator<Result> it = pending.iterator(); it.hasNext(); ) {
+                final Result r = it.next();
+                Result failed = null;
+                boolean ready = true;
+                for(Result d : r.dependencies) {
+                    if(d.status == STATUS_PENDING)
+                        ready = false;
+                    else if(d.status == STATUS_FAILED || d.status == STATUS_SKIPPED)
+                        failed = d;
+                }
+                if(!ready) continue;
+
+                it.remove();
+                changed = true;
+                if(failed != null) {
+                    r.status = STATUS_SKIPPED;
+                    r.errors.add("Not generated because "+failed.getFileName()+" was not generated");
+                } else {
+                    completion.submit(new Callable<Result>() {
+                        public Result call() throws Exception {
+                            generate(r);
+                            return r;
+                        }
+                    });
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void readDependencies() {
+        Map<String, Result> grammars = new HashMap<String, Result>();
+        for(Result r : results) {
+            try {
+                GrammarSpelunker spelunker = new GrammarSpelunker(XJUtils.getPathByDeletingLastComponent(r.file),
+                        XJUtils.getLastPathComponent(r.file));
+                spelunker.parse();
+                r.grammarName = spelunker.getGrammarName();
+                r.tokenVocab = spelunker.getTokenVocab();
+                r.imports = spelunker.getImportedGrammars();
+                grammars.put(r.grammarName, r);
+            } catch (Exception e) {
+                r.status = STATUS_FAILED;
+                r.errors.add("Cannot read the grammar: "+e.toString());
+            }
+        }
+
+        for(Result r : results) {
+            List<String> names = new ArrayList<String>();
+            if(r.tokenVocab != null) names.add(r.tokenVocab);
+            if(r.imports != null) names.addAll(r.imports);
+            for(String name : names) {
+                Result d = grammars.get(name);
+                if(d != null && d != r && !r.dependencies.contains(d))
+                    r.dependencies.add(d);
+            }
+        }
+    }
+
+    private String[] getParams(Result r) {
+        String[] params;
+        if(debug)
+            params = new String[] { "-debug", "-o", outputPath, "-lib", r.getFolder(), r.file };
+        else
+            params = new String[] { "-o", outputPath, "-lib", r.getFolder(), r.file };
+        return Utils.concat(params, options);
+    }
+
+    /** Same files as CodeGenerate.computeGrammarHash() so a window of the grammar sees its files as
+     * generated.
+     */
+    private String computeGrammarHash(Result r, String[] params) throws IOException {
+        List<String> files = new ArrayList<String>();
+        files.add(r.file);
+        if(r.imports != null) {
+            for(String name : r.imports) {
+                files.add(XJUtils.concatPath(r.getFolder(), name+".g"));
+            }
+        }
+        if(r.tokenVocab != null) {
+            String file = XJUtils.concatPath(r.getFolder(), r.tokenVocab+".tokens");
+            if(!new File(file).exists())
+                file = XJUtils.concatPath(outputPath, r.tokenVocab+".tokens");
+            files.add(new File(file).exists() ? file : null);
+        }
+        return CodeGenerate.computeGrammarHash(params, files);
+    }
+
+    private void generate(Result r) {
+        long start = System.currentTimeMillis();
+        try {
+            new File(outputPath).mkdirs();
+            String[] params = getParams(r);
+            String hash = computeGrammarHash(r, params);
+            if(cache.restore(hash, outputPath)) {
+                r.status = STATUS_CACHED;
+            } else if(runWorker(r, params)) {
+                r.status = STATUS_GENERATED;
+                cache.store(hash, outputPath, r.outputs);
+            } else {
+                r.status = STATUS_FAILED;
+            }
+            if(r.status != STATUS_FAILED)
+                CodeGenerate.writeHash(CodeGenerate.getHashFile(outputPath, r.grammarName), hash);
+        } catch (Exception e) {
+            r.status = STATUS_FAILED;
+            r.errors.add(e.toString());
+        }
+        r.time = System.currentTimeMillis()-start;
+    }
+
+    private boolean runWorker(final Result r, String[] params) throws IOException, InterruptedException {
+        List<String> args = new ArrayList<String>();
+        args.add("java");
+        args.add("-cp");
+        args.add(getWorkerClassPath());
+        args.add(CodeGenerateTool.class.getName());
+        args.addAll(Arrays.asList(params));
+
+        Process p;
+        synchronized(this) {
+            if(cancelled) return false;
+            p = new ProcessBuilder(args).start();
+            processes.add(p);
+        }
+
+        StreamWatcherDelegate delegate = new StreamWatcherDelegate() {
+            public void streamWatcherDidStart() {
+            }
+
+            public void streamWatcherDidReceiveString(String string) {
+                synchronized(r) {
+                    if(string.startsWith(CodeGenerateTool.OUTPUT_PREFIX))
+                        r.outputs.add(string.substring(CodeGenerateTool.OUTPUT_PREFIX.length()).trim());
+                    else if(string.trim().length() > 0)
+                        r.errors.add(string.trim());
+                }
+            }
+
+            public void streamWatcherException(Exception e) {
+                synchronized(r) {
+                    r.errors.add(e.toString());
+                }
+            }
+        };
+        StreamWatcher error = new StreamWatcher(p.getErrorStream(), null, delegate);
+        StreamWatcher output = new StreamWatcher(p.getInputStream(), null, delegate);
+        error.start();
+        output.start();
+
+        int result = p.waitFor();
+        error.join();
+        output.join();
+        synchronized(this) {
+            processes.remove(p);
+        }
+        return result == 0;
+    }
+
+    /** The worker JVM needs ANTLRWorks (for CodeGenerateTool), ANTLR and StringTemplate */
+    private static String getWorkerClassPath() {
+        Set<String> paths = new LinkedHashSet<String>();
+        for(Class<?> c : new Class<?>[] { CodeGenerateTool.class, Tool.class, org.antlr.runtime.Token.class,
+                org.stringtemplate.v4.ST.class, org.antlr.stringtemplate.StringTemplate.class }) {
+            CodeSource source = c.getProtectionDomain().getCodeSource();
+            if(source != null && source.getLocation() != null) {
+                try {
+                    paths.add(new File(source.getLocation().toURI()).getAbsolutePath());
+                } catch (Exception e) {
+                    paths.add(source.getLocation().getPath());
+                }
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for(String path : paths) {
+            if(sb.length() > 0) sb.append(File.pathSeparatorChar);
+            sb.append(path);
+        }
+        return sb.toString();
+    }
+
+    public interface Listener {
+        /** Called each time a grammar has been generated (successfully or not) */
+        void grammarGenerated(Result result);
+    }
+
+    public static class Result {
+
+        public String file;
+        public String grammarName;
+        public String tokenVocab;
+        public List<String> imports;
+        public List<Result> dependencies = new ArrayList<Result>();
+
+        /** Remains pending while the grammar is being generated */
+        public volatile int status = STATUS_PENDING;
+        /** Time in milliseconds to generate the grammar */
+        public long time;
+        public List<String> errors = new ArrayList<String>();
+        public List<String> outputs = new ArrayList<String>();
+
+        public Result(String file) {
+            this.file = file;
+        }
+
+        public String getFileName() {
+            return XJUtils.getLastPathComponent(file);
+        }
+
+        public String getFolder() {
+            return XJUtils.getPathByDeletingLastComponent(file);
+        }
+
+        public String getStatusDescription() {
+            switch(status) {
+                case STATUS_GENERATED: return "generated";
+                case STATUS_CACHED: return "restored from the cache";
+                case STATUS_FAILED: return "failed";
+                case STATUS_SKIPPED: return "skipped";
+                default: return "pending";
+            }
+        }
+
+        public String toString() {
+            return getFileName()+": "+getStatusDescription()+" in "+time+" ms";
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.generate;
+
+import org.antlr.Tool;
+import org.antlr.tool.ErrorManager;
+import org.antlr.tool.Grammar;
+import org.antlr.works.utils.ErrorListener;
+import org.antlr.works.utils.Utils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** This class runs ANTLR inside the ANTLRWorks JVM and keeps the generated files in memory
+ * instead of writing them directly into the output directory. The files are written with
+ * writeOutputs() and only if their content has changed, so the timestamp of an unchanged
+ * file is preserved.
+ */
+public class CodeGenerateTool extends Tool {
+
+    public static final String OUTPUT_PREFIX = "output: ";
+
+    /** Generated files (absolute path to content) in the order ANTLR produced them */
+    protected Map<String, String> outputs = new LinkedHashMap<String, String>();
+
+    public CodeGenerateTool(String[] args) {
+        super(args);
+    }
+
+    /** Run ANTLR with the specified parameters and returns the generated files or null if
+     * an error occurred. The first error is available in lastError[0].
+     */
+    public static Map<String, String> run(String[] params, String[] lastError) {
+        List<String> errors = new ArrayList<String>();
+        Map<String, String> outputs = run(params, errors);
+        lastError[0] = errors.isEmpty() ? null : errors.get(0);
+        return outputs;
+    }
+
+    /** Run ANTLR with the specified parameters and returns the generated files or null if
+     * an error occurred. All the error messages are added to the errors list.
+     */
+    public static Map<String, String> run(String[] params, List<String> errors) {
+        ErrorListener el = ErrorListener.getThreadInstance();
+        ErrorManager.setErrorListener(el);
+        try {
+            CodeGenerateTool antlr = new CodeGenerateTool(params);
+            antlr.process();
+
+            for(Object error : el.errors) {
+                errors.add(error.toString());
+            }
+            return el.hasErrors() ? null : antlr.getOutputs();
+        } finally {
+            el.clear();
+            ErrorManager.removeErrorListener();
+        }
+    }
+
+    /** Entry point of the worker JVMs launched by CodeGenerateAll: generates the grammar with the
+     * ANTLR parameters and writes the files that changed. Each generated file is printed on the
+     * standard output after OUTPUT_PREFIX and the errors are printed on the standard error.
+     */
+    public static void main(String[] args) {
+        ErrorListener.getThreadInstance().setPrintToConsole(false);
+
+        List<String> errors = new ArrayList<String>();
+        Map<String, String> outputs = run(args, errors);
+        for(String error : errors) {
+            System.err.println(error);
+        }
+        if(outputs == null) {
+            System.exit(1);
+        }
+
+        try {
+            writeOutputs(outputs);
+        } catch (IOException e) {
+            System.err.println("Error while writing the generated files: "+e);
+            System.exit(1);
+        }
+        for(String file : outputs.keySet()) {
+            System.out.println(OUTPUT_PREFIX+file);
+        }
+    }
+
+    @Override
+    public Writer getOutputFile(Grammar g, String fileName) throws IOException {
+        final String path = new File(getOutputDirectory(g.getFileName()), fileName).getAbsolutePath();
+        return new StringWriter() {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                outputs.put(path, toString());
+            }
+        };
+    }
+
+    public Map<String, String> getOutputs() {
+        return outputs;
+    }
+
+    /** Write the files whose content differs from the file on the disk. Returns the number of files written. */
+    public static int writeOutputs(Map<String, String> outputs) throws IOException {
+        int count = 0;
+        for(Map.Entry<String, String> entry : outputs.entrySet()) {
+            File file = new File(entry.getKey());
+            if(file.exists() && Utils.stringFromFile(file.getAbsolutePath()).equals(entry.getValue()))
+                continue;
+
+            file.getParentFile().mkdirs();
+            Writer w = new FileWriter(file);
+            try {
+                w.write(entry.getValue());
+            } finally {
+                w.close();
+            }
+            count++;
+        }
+        return count;
+    }
+
+}
@@ -254,6 +254,7 @@ public abstract class GrammarDOTTab extends GrammarWindowTab implements Runnable
         public JPopupMenu getContextualMenu(GElement element) {
             ContextualMenuFactory factory = window.createContextualMenuFactory();
             factory.addItem(GrammarWindowMenu.MI_EXPORT_AS_EPS);
+            factory.addItem(GrammarWindowMenu.MI_EXPORT_AS_SVG);
             factory.addItem(GrammarWindowMenu.MI_EXPORT_AS_IMAGE);
             factory.addItem(GrammarWindowMenu.MI_EXPORT_AS_DOT);
             return factory.menu;
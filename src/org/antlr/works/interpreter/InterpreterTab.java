@@ -393,6 +393,7 @@ public class InterpreterTab extends GrammarWindowTab implements Runnable, AWTree
     public JPopupMenu awTreeGetContextualMenu() {
         ContextualMenuFactory factory = window.createContextualMenuFactory();
         factory.addItem(GrammarWindowMenu.MI_EXPORT_AS_EPS);
+        factory.addItem(GrammarWindowMenu.MI_EXPORT_AS_SVG);
         factory.addItem(GrammarWindowMenu.MI_EXPORT_AS_IMAGE);
         return factory.menu;
     }
@@ -33,25 +33,35 @@ package org.antlr.works.menu;
 
 import org.antlr.works.components.GrammarWindow;
 import org.antlr.works.editor.GrammarWindowTab;
-import org.antlr.works.grammar.element.ElementRule;
 import org.antlr.works.stats.StatisticsAW;
-import org.antlr.works.visualization.SDGenerator;
+import org.antlr.works.utils.Console;
+import org.antlr.works.visualization.SDBatchExporter;
 import org.antlr.works.visualization.SyntaxDiagramTab;
 import org.antlr.works.visualization.graphics.GContext;
+import org.antlr.works.visualization.graphics.GContextListener;
 import org.antlr.works.visualization.graphics.GEngine;
 import org.antlr.works.visualization.graphics.GEnginePS;
+import org.antlr.works.visualization.graphics.GEngineSVG;
 import org.antlr.works.visualization.graphics.graph.GGraphAbstract;
+import org.antlr.works.visualization.graphics.shape.GNode;
 import org.antlr.xjlib.appkit.gview.GView;
+import org.antlr.xjlib.appkit.swing.XJGraphics2DPS;
 import org.antlr.xjlib.appkit.utils.XJAlert;
+import org.antlr.xjlib.appkit.utils.XJDialogProgress;
+import org.antlr.xjlib.appkit.utils.XJDialogProgressDelegate;
 import org.antlr.xjlib.appkit.utils.XJFileChooser;
 import org.antlr.xjlib.foundation.XJUtils;
 
 import javax.imageio.ImageIO;
+import javax.swing.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class ExportMenu {
@@ -102,6 +112,22 @@ public class ExportMenu {
         exportAllRules(false);
     }
 
+    public void exportAllRulesAsSVG() {
+        if(!XJFileChooser.shared().displayChooseDirectory(window.getJavaContainer())) {
+            return;
+        }
+
+        exportAllRules(XJFileChooser.shared().getSelectedFilePath(), Collections.singletonList("svg"));
+    }
+
+    public void exportAllRulesInAllFormats() {
+        if(!XJFileChooser.shared().displayChooseDirectory(window.getJavaContainer())) {
+            return;
+        }
+
+        exportAllRules(XJFileChooser.shared().getSelectedFilePath(), SDBatchExporter.parseFormats(SDBatchExporter.ALL_FORMATS));
+    }
+
     public void exportAllRules(boolean asImage) {
         List<String> extensions = null;
         if(asImage) {
@@ -112,20 +138,80 @@ public class ExportMenu {
         }
 
         String directory = XJFileChooser.shared().getSelectedFilePath();
-        String extension = XJFileChooser.shared().getSelectedFileExtension();
+        String extension = asImage ? XJFileChooser.shared().getSelectedFileExtension() : "eps";
+        exportAllRules(directory, Collections.singletonList(extension));
+    }
 
-        SDGenerator sd = new SDGenerator(window.getGrammarEngine());
-        for(ElementRule rule : window.getRules()) {
-            try {
-                if(asImage) {
-                    sd.renderRuleToBitmapFile(rule.name, extension, XJUtils.concatPath(directory, rule.name+"."+extension));
-                } else {
-                    sd.renderRuleToEPSFile(rule.name, XJUtils.concatPath(directory, rule.name+".eps"));
+    /**
+     * Exports all the rules in the background using the batch exporter: the rules are rendered in parallel
+     * and an index file listing the outputs is written in the directory.
+     */
+    public void exportAllRules(final String directory, List<String> formats) {
+        final SDBatchExporter exporter = new SDBatchExporter(window.getGrammarEngine());
+        exporter.setFormats(formats);
+        try {
+            exporter.prepare();
+        } catch (Exception e) {
+            XJAlert.display(window.getJavaContainer(), "Error", "Images cannot be saved because:\n"+e);
+            return;
+        }
+
+        final XJDialogProgress progress = new XJDialogProgress(window.getJavaContainer());
+        progress.setInfo("Exporting "+window.getRules().size()+" rules...");
+        progress.setCancellable(true);
+        progress.setProgressMax(window.getRules().size());
+        progress.setDelegate(new XJDialogProgressDelegate() {
+            public void dialogDidCancel() {
+                exporter.cancel();
+            }
+        });
+        exporter.setListener(new SDBatchExporter.Listener() {
+            public void ruleExported(String rule, final int exported, int total) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        progress.setProgress(exported);
+                    }
+                });
+            }
+        });
+        progress.display();
+
+        new Thread(new Runnable() {
+            public void run() {
+                List<SDBatchExporter.Output> outputs = null;
+                Exception error = null;
+                try {
+                    outputs = exporter.export(directory);
+                } catch (Exception e) {
+                    error = e;
                 }
-            } catch (Exception e) {
-                XJAlert.display(window.getJavaContainer(), "Error", "Images cannot be saved because:\n"+e);
+                final List<SDBatchExporter.Output> result = outputs;
+                final Exception exception = error;
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        progress.close();
+                        exportAllRulesDidComplete(result, exception);
+                    }
+                });
             }
+        }).start();
+    }
+
+    private void exportAllRulesDidComplete(List<SDBatchExporter.Output> outputs, Exception exception) {
+        if(exception != null) {
+            XJAlert.display(window.getJavaContainer(), "Error", "Images cannot be saved because:\n"+exception);
+            return;
         }
+
+        boolean success = true;
+        for(SDBatchExporter.Output output : outputs) {
+            if(output.error != null) {
+                window.getConsoleTab().println(output.toString(), Console.LEVEL_ERROR);
+                success = false;
+            }
+        }
+        if(!success)
+            XJAlert.display(window.getJavaContainer(), "Error", "Some rules could not be exported.\nConsult the console for more information.");
     }
 
     public void exportRuleAsImage() {
@@ -196,24 +282,181 @@ public class ExportMenu {
         if(file == null)
             return;
 
-        try {
-            GEnginePS engine = new GEnginePS();
+        final GGraphAbstract exportedGraph = graph;
+        exportEPSInBackground(file, new EPSDrawer() {
+            public XJGraphics2DPS draw(final XJGraphics2DPS.ProgressListener listener) {
+                final int total = exportedGraph.getNodeCount();
+                GEnginePS engine = new GEnginePS();
+
+                GContext context = exportedGraph.getContext();
+                // The context is shared with the view which renders its tiles in the background
+                synchronized(context) {
+                    GEngine oldEngine = context.engine;
+                    context.setEngine(engine);
+                    context.setListener(new GContextListener() {
+                        private int drawn = 0;
+
+                        public void contextDidDrawNode(GNode node) {
+                            listener.writeProgress(++drawn, total);
+                        }
+                    });
+                    try {
+                        exportedGraph.draw();
+                    } catch(RuntimeException e) {
+                        engine.close();
+                        throw e;
+                    } finally {
+                        context.setListener(null);
+                        context.setEngine(oldEngine);
+                    }
+                }
+                return (XJGraphics2DPS)engine.getG2D();
+            }
+        });
+    }
 
-            GContext context = graph.getContext();
-            GEngine oldEngine = context.engine;
-            context.setEngine(engine);
-            graph.draw();
-            context.setEngine(oldEngine);
+    protected void exportGViewAsEPS(GView view) {
+        if(!XJFileChooser.shared().displaySaveDialog(window.getJavaContainer(), "eps", "EPS file", false))
+            return;
+
+        String file = XJFileChooser.shared().getSelectedFilePath();
+        if(file == null)
+            return;
+
+        final GView exportedView = view;
+        exportEPSInBackground(file, new EPSDrawer() {
+            public XJGraphics2DPS draw(XJGraphics2DPS.ProgressListener listener) {
+                // The element tree is locked while it is drawn
+                return exportedView.createEPS();
+            }
+        });
+    }
+
+    private interface EPSDrawer {
+        /** Draws the document (in the background thread) and reports the progress of the drawing */
+        XJGraphics2DPS draw(XJGraphics2DPS.ProgressListener listener);
+    }
+
+    /**
+     * Draws and writes the EPS file in the background. The PostScript is streamed to the file
+     * and the progress of the drawing and of the writing is displayed.
+     */
+    private void exportEPSInBackground(final String file, final EPSDrawer drawer) {
+        final XJDialogProgress progress = new XJDialogProgress(window.getJavaContainer());
+        progress.setInfo("Drawing the EPS file...");
+        progress.setCancellable(false);
+        progress.setIndeterminate(true);
+        progress.display();
+
+        new Thread(new Runnable() {
+            public void run() {
+                Exception error = null;
+                XJGraphics2DPS g2d = null;
+                try {
+                    g2d = drawer.draw(createProgressListener(progress, "Drawing the EPS file..."));
+                    g2d.writePSToFile(file, createProgressListener(progress, "Writing the EPS file..."));
+                } catch (Exception e) {
+                    error = e;
+                } finally {
+                    if(g2d != null)
+                        g2d.close();
+                }
+                final Exception exception = error;
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        progress.close();
+                        if(exception != null) {
+                            window.consoleTab.println(exception);
+                            XJAlert.display(window.getJavaContainer(), "Error", "Cannot export to EPS file: "+file+"\nError: "+exception);
+                        }
+                    }
+                });
+            }
+        }).start();
+    }
+
+    /** Returns a listener displaying the progress (called from the background thread) in percent */
+    private static XJGraphics2DPS.ProgressListener createProgressListener(final XJDialogProgress progress, final String info) {
+        return new XJGraphics2DPS.ProgressListener() {
+            private int lastPercent = -1;
+
+            public void writeProgress(long done, long total) {
+                final int percent = total == 0 ? 100 : (int)(done*100/total);
+                if(percent == lastPercent)
+                    return;
+                lastPercent = percent;
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        progress.setInfo(info);
+                        progress.setIndeterminate(false);
+                        progress.setProgressMax(100);
+                        progress.setProgress(percent);
+                    }
+                });
+            }
+        };
+    }
+
+    public void exportAsSVG() {
+        StatisticsAW.shared().recordEvent(StatisticsAW.EVENT_EXPORT_AS_SVG);
+
+        GrammarWindowTab tab = window.getSelectedTab();
+        if(!tab.canExportToEPS())
+            return;
+
+        if(tab instanceof SyntaxDiagramTab)
+            exportRuleAsSVG();
+        else
+            exportGViewAsSVG(tab.getExportableGView());
+    }
+
+    protected void exportRuleAsSVG() {
+        if(window.editorRules.getEnclosingRuleAtPosition(window.getCaretPosition()) == null) {
+            XJAlert.display(window.getJavaContainer(), "Export Rule to SVG", "There is no rule at cursor position.");
+            return;
+        }
 
-            XJUtils.writeStringToFile(engine.getPSText(), file);
+        GGraphAbstract graph = window.syntaxDiagramTab.getCurrentGraph();
+
+        if(graph == null) {
+            XJAlert.display(window.getJavaContainer(), "Export Rule to SVG", "There is no graphical visualization.");
+            return;
+        }
+
+        if(!XJFileChooser.shared().displaySaveDialog(window.getJavaContainer(), "svg", "SVG file", false))
+            return;
+
+        String file = XJFileChooser.shared().getSelectedFilePath();
+        if(file == null)
+            return;
+
+        try {
+            GContext context = graph.getContext();
+            synchronized(context) {
+                GEngine oldEngine = context.engine;
+                int oldOffsetX = context.offsetX;
+                int oldOffsetY = context.offsetY;
+                GEngineSVG engine = new GEngineSVG(new FileOutputStream(file), (int)(graph.getWidth()+1), (int)(graph.getHeight()+1));
+                context.setEngine(engine);
+                context.offsetX = 0;
+                context.offsetY = 0;
+                try {
+                    graph.draw();
+                } finally {
+                    context.setEngine(oldEngine);
+                    context.offsetX = oldOffsetX;
+                    context.offsetY = oldOffsetY;
+                    engine.close();
+                }
+            }
         } catch (Exception e) {
             window.consoleTab.println(e);
-            XJAlert.display(window.getJavaContainer(), "Error", "Cannot export to EPS file: "+file+"\nError: "+e);
+            XJAlert.display(window.getJavaContainer(), "Error", "Cannot export to SVG file: "+file+"\nError: "+e);
         }
     }
 
-    protected void exportGViewAsEPS(GView view) {
-        if(!XJFileChooser.shared().displaySaveDialog(window.getJavaContainer(), "eps", "EPS file", false))
+    protected void exportGViewAsSVG(GView view) {
+        if(!XJFileChooser.shared().displaySaveDialog(window.getJavaContainer(), "svg", "SVG file", false))
             return;
 
         String file = XJFileChooser.shared().getSelectedFilePath();
@@ -221,10 +464,15 @@ public class ExportMenu {
             return;
 
         try {
-            XJUtils.writeStringToFile(view.getEPS(), file);
+            OutputStream out = new FileOutputStream(file);
+            try {
+                view.writeSVG(out);
+            } finally {
+                out.close();
+            }
         } catch (Exception e) {
             window.consoleTab.println(e);
-            XJAlert.display(window.getJavaContainer(), "Error", "Cannot export to EPS file: "+file+"\nError: "+e);
+            XJAlert.display(window.getJavaContainer(), "Error", "Cannot export to SVG file: "+file+"\nError: "+e);
         }
     }
 
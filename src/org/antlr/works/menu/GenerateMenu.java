@@ -34,16 +34,22 @@ package org.antlr.works.menu;
 import org.antlr.works.components.GrammarWindow;
 import org.antlr.works.generate.CodeDisplay;
 import org.antlr.works.generate.CodeGenerate;
+import org.antlr.works.generate.CodeGenerateAll;
 import org.antlr.works.generate.CodeGenerateDelegate;
 import org.antlr.works.grammar.CheckGrammar;
 import org.antlr.works.grammar.CheckGrammarDelegate;
 import org.antlr.works.grammar.antlr.GrammarResult;
 import org.antlr.works.grammar.element.ElementGrammarName;
 import org.antlr.works.grammar.element.ElementRule;
+import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.stats.StatisticsAW;
+import org.antlr.works.utils.Console;
 import org.antlr.xjlib.appkit.utils.XJAlert;
+import org.antlr.xjlib.appkit.utils.XJDialogProgress;
+import org.antlr.xjlib.appkit.utils.XJDialogProgressDelegate;
 import org.antlr.xjlib.foundation.XJUtils;
 
+import javax.swing.*;
 import java.io.File;
 
 public class GenerateMenu implements CodeGenerateDelegate, CheckGrammarDelegate {
@@ -64,6 +70,7 @@ public class GenerateMenu implements CodeGenerateDelegate, CheckGrammarDelegate
 
     public void awake() {
         codeGenerate = new CodeGenerate(window, this);
+        codeGenerate.setDebug(false);
     }
 
     public void close() {
@@ -75,6 +82,78 @@ public class GenerateMenu implements CodeGenerateDelegate, CheckGrammarDelegate
         generateCodeProcess();
     }
 
+    /** Generates all the grammars located in the folder of the grammar */
+    public void generateAll() {
+        if(!window.ensureDocumentSaved())
+            return;
+
+        final CodeGenerateAll all = new CodeGenerateAll(CodeGenerateAll.listGrammarFiles(window.getFileFolder()), window.getOutputPath());
+        all.setOptions(AWPrefs.getANTLR3Options());
+
+        final XJDialogProgress progress = new XJDialogProgress(window.getJavaContainer());
+        progress.setInfo("Generating "+all.getResults().size()+" grammars...");
+        progress.setCancellable(true);
+        progress.setProgressMax(all.getResults().size());
+        progress.setDelegate(new XJDialogProgressDelegate() {
+            public void dialogDidCancel() {
+                all.cancel();
+            }
+        });
+        all.setListener(new CodeGenerateAll.Listener() {
+            private int count = 0;
+
+            public void grammarGenerated(CodeGenerateAll.Result result) {
+                final int generated = ++count;
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        progress.setProgress(generated);
+                    }
+                });
+            }
+        });
+        progress.display();
+
+        new Thread(new Runnable() {
+            public void run() {
+                long start = System.currentTimeMillis();
+                boolean success = false;
+                try {
+                    success = all.generate();
+                } catch (InterruptedException e) {
+                    window.getConsoleTab().println(e);
+                }
+                final boolean allGenerated = success;
+                final long time = System.currentTimeMillis()-start;
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        progress.close();
+                        generateAllDidComplete(all, allGenerated, time);
+                    }
+                });
+            }
+        }).start();
+    }
+
+    private void generateAllDidComplete(CodeGenerateAll all, boolean success, long time) {
+        window.getConsoleTab().setMode(Console.MODE_VERBOSE);
+        for(CodeGenerateAll.Result r : all.getDependencyOrder()) {
+            window.getConsoleTab().println(r.toString(), r.errors.isEmpty() ? Console.LEVEL_NORMAL : Console.LEVEL_ERROR);
+            for(String error : r.errors) {
+                window.getConsoleTab().println("  "+error, Console.LEVEL_ERROR);
+            }
+        }
+        window.getConsoleTab().println("Generated "+all.getResults().size()+" grammars in "+time+" ms");
+
+        if(!success) {
+            XJAlert.display(window.getJavaContainer(), "Error", "Some grammars could not be generated.\nConsult the console for more information.");
+        } else if(AWPrefs.isAlertGenerateCodeSuccess()) {
+            XJAlert alert = XJAlert.createInstance();
+            alert.setDisplayDoNotShowAgainButton(true);
+            alert.showSimple(window.getJavaContainer(), "Success", "The grammars have been successfully generated in path:\n"+window.getOutputPath());
+            AWPrefs.setAlertGenerateCodeSuccess(!alert.isDoNotShowAgain());
+        }
+    }
+
     public void showGeneratedCode(int type) {
         StatisticsAW.shared().recordEvent(type==ElementGrammarName.LEXER?StatisticsAW.EVENT_SHOW_LEXER_GENERATED_CODE:StatisticsAW.EVENT_SHOW_PARSER_GENERATED_CODE);
 
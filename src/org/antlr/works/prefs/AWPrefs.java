@@ -184,6 +184,7 @@ public class AWPrefs {
     public static final String COMPILER_JAVAC = "javac";
     public static final String COMPILER_JIKES = "jikes";
     public static final String COMPILER_INTEGRATED = "integrated";
+    public static final String COMPILER_MEMORY = "memory";
 
     // Updates
     public static final String PREF_UPDATE_TYPE = "PREF_UPDATE_TYPE";
@@ -227,6 +228,9 @@ public class AWPrefs {
     public static final String PREF_DEBUGGER_ASK_GEN = "PREF_DEBUGGER_ASK_GEN";
     public static final boolean DEFAULT_DEBUGGER_ASK_GEN = false;
 
+    public static final String PREF_DEBUG_IN_PROCESS = "PREF_DEBUG_IN_PROCESS";
+    public static final boolean DEFAULT_DEBUG_IN_PROCESS = false;
+
     // Avanced
 
     public static final String PREF_ALERT_CHECK_GRAMMAR_SUCCESS = "PREF_ALERT_CHECK_GRAMMAR_SUCCESS";
@@ -538,6 +542,10 @@ public class AWPrefs {
         return getPreferences().getBoolean(PREF_DEBUGGER_ASK_GEN, DEFAULT_DEBUGGER_ASK_GEN);
     }
 
+    public static boolean getDebugInProcess() {
+        return getPreferences().getBoolean(PREF_DEBUG_IN_PROCESS, DEFAULT_DEBUG_IN_PROCESS);
+    }
+
     public static XJPreferences getPreferences() {
         return XJApplication.shared().getPreferences();
     }
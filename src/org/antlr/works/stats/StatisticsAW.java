@@ -49,6 +49,7 @@ public class StatisticsAW {
     public static final int EVENT_EXPORT_AS_EPS = 1;
     public static final int EVENT_EXPORT_AS_DOT = 2;
     public static final int EVENT_EXPORT_EVENTS_AS_TEXT = 3;
+    public static final int EVENT_EXPORT_AS_SVG = 4;
 
     /* Menu Find */
     public static final int EVENT_FIND_DIALOG = 10;
@@ -139,6 +140,7 @@ public class StatisticsAW {
         register(EVENT_EXPORT_AS_BITMAP, "Export as bitmap");
         register(EVENT_EXPORT_AS_EPS, "Export as EPS");
         register(EVENT_EXPORT_AS_DOT, "Export as DOT");
+        register(EVENT_EXPORT_AS_SVG, "Export as SVG");
         register(EVENT_EXPORT_EVENTS_AS_TEXT, "Export events as text");
 
         register(EVENT_FIND_DIALOG, "Find dialog");
@@ -0,0 +1,168 @@
+package org.antlr.works.utils;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/** Hash map with primitive int keys. The keys are stored in an open-addressing
+ * table (linear probing) so no Integer is allocated when putting or getting a value.
+ */
+
+public class IntHashMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int threshold;
+
+    public IntHashMap() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int mask = keys.length-1;
+        for(int index = hash(key) & mask; values[index] != null; index = (index+1) & mask) {
+            if(keys[index] == key)
+                return (V)values[index];
+        }
+        return null;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /** Associates the value (which cannot be null) with the key and returns the previous value */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        int mask = keys.length-1;
+        int index = hash(key) & mask;
+        for(; values[index] != null; index = (index+1) & mask) {
+            if(keys[index] == key) {
+                V old = (V)values[index];
+                values[index] = value;
+                return old;
+            }
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        if(++size > threshold)
+            rehash(keys.length*2);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int mask = keys.length-1;
+        int index = hash(key) & mask;
+        while(values[index] != null && keys[index] != key) {
+            index = (index+1) & mask;
+        }
+        if(values[index] == null)
+            return null;
+
+        V old = (V)values[index];
+        values[index] = null;
+        size--;
+
+        /** Move back the following entries of the cluster so the lookup
+         * of these entries does not stop at the hole left by the removal
+         */
+        int hole = index;
+        for(index = (index+1) & mask; values[index] != null; index = (index+1) & mask) {
+            int home = hash(keys[index]) & mask;
+            if((index > hole && (home <= hole || home > index)) || (index < hole && home <= hole && home > index)) {
+                keys[hole] = keys[index];
+                values[hole] = values[index];
+                values[index] = null;
+                hole = index;
+            }
+        }
+        return old;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if(size == 0)
+            return;
+
+        if(keys.length > DEFAULT_CAPACITY) {
+            allocate(DEFAULT_CAPACITY);
+        } else {
+            for(int i=0; i<values.length; i++) {
+                values[i] = null;
+            }
+        }
+        size = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        threshold = capacity/2;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+
+        int mask = capacity-1;
+        for(int i=0; i<oldKeys.length; i++) {
+            if(oldValues[i] == null)
+                continue;
+
+            int index = hash(oldKeys[i]) & mask;
+            while(values[index] != null) {
+                index = (index+1) & mask;
+            }
+            keys[index] = oldKeys[i];
+            values[index] = oldValues[i];
+        }
+    }
+
+    private static int hash(int key) {
+        /** The node IDs are often identity hash codes: spread their bits */
+        int h = key*0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -33,7 +33,7 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 */
 
-public class NumberSet extends HashSet {
+public class NumberSet extends HashSet<Integer> {
 
     public NumberSet() {
         super();
@@ -52,7 +52,7 @@ public class NumberSet extends HashSet {
         return contains(new Integer(value));
     }
 
-    public void replaceAll(Set s) {
+    public void replaceAll(Set<Integer> s) {
         clear();
         addAll(s);
     }
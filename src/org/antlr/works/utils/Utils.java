@@ -58,6 +58,15 @@ public class Utils {
         }
     }
 
+    public static String toHexString(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for(byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
     public static String toString(String[] object) {
         StringBuilder sb = new StringBuilder();
         for(int i=0; i<object.length; i++) {
@@ -151,6 +160,18 @@ public class Utils {
         return "\n";
     }
 
+    /** Returns the array if it can hold the specified number of elements or a larger
+     * copy of it (at least twice as large) otherwise.
+     */
+    public static int[] ensureCapacity(int[] array, int capacity) {
+        if(capacity <= array.length)
+            return array;
+
+        int[] n = new int[Math.max(capacity, array.length*2)];
+        System.arraycopy(array, 0, n, 0, array.length);
+        return n;
+    }
+
     public static String[] concat(String[] a, String[] b) {
         String[] n = new String[a.length+b.length];
         System.arraycopy(a, 0, n, 0, a.length);
@@ -9,12 +9,13 @@ import org.antlr.xjlib.appkit.gview.object.GElement;
 import org.antlr.xjlib.appkit.gview.object.GElementRect;
 import org.antlr.xjlib.appkit.gview.object.GLink;
 import org.antlr.xjlib.appkit.gview.shape.SLinkElbow;
+import org.antlr.xjlib.appkit.swing.XJFontMetricsCache;
 
 import javax.swing.*;
 import javax.swing.tree.TreeNode;
 import java.awt.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.List;
 
 /*
 
@@ -73,10 +74,22 @@ public class AWTreeGraphView extends GView {
 
     protected boolean dirty = true;
 
+    /** Region (in model coordinates) affected by the last incremental rebuild.
+     * A null region with fullRepaint set means the whole view must be repainted.
+     */
+    protected Rectangle dirtyRegion;
+    protected boolean fullRepaint = true;
+
+    protected AWTreeLayout layout = new AWTreeLayout(HORIZONTAL_GAP, VERTICAL_GAP);
+
     public AWTreeGraphView(AWTreePanel panel) {
         this.panel = panel;
         setPreferredSize(new Dimension(0, 0));
         setFocusable(true);
+        /** The nodes already match a point by skipping the subtrees
+         * whose bounds do not contain it.
+         */
+        setSpatialIndexEnabled(false);
     }
 
     public void addDefaultEventManager() {
@@ -91,6 +104,25 @@ public class AWTreeGraphView extends GView {
         this.root = root;
     }
 
+    /** Collapses the subtrees deeper than the specified depth (0 means no limit) */
+    public void setMaximumDepth(int depth) {
+        if(depth == layout.getMaximumDepth())
+            return;
+
+        layout.setMaximumDepth(depth);
+
+        GElementNode rootNodeElement = getGElementForNode(root);
+        if(rootNodeElement != null) {
+            layoutTree(rootNodeElement);
+            autoAdjustSize();
+        }
+        repaint();
+    }
+
+    public int getMaximumDepth() {
+        return layout.getMaximumDepth();
+    }
+
     public void clear() {
         if(model != null)
             model.clear();
@@ -106,8 +138,15 @@ public class AWTreeGraphView extends GView {
          */
         rebuild();
 
-        /** Repaint the tree */
-        repaint();
+        /** Repaint the tree (only the affected region if possible) */
+        if(fullRepaint || dirtyRegion == null) {
+            repaint();
+        } else {
+            repaint((int)(dirtyRegion.x*zoom)-1, (int)(dirtyRegion.y*zoom)-1,
+                    (int)(dirtyRegion.width*zoom)+2, (int)(dirtyRegion.height*zoom)+2);
+        }
+        dirtyRegion = null;
+        fullRepaint = false;
     }
 
     public void rebuild() {
@@ -150,14 +189,18 @@ public class AWTreeGraphView extends GView {
 
     public void rebuildNoModel() {
         clearMaps();
+        fullRepaint = true;
 
-        GElement element = buildGraph(null);
-        element.move(MARGIN, MARGIN);
+        GElementNode element = buildGraph(null);
+        layoutTree(element);
 
         setSizeMargin(MARGIN);
         setRootElement(element);
     }
 
+    /** Creates the elements of the subtree of the specified node (the root if null).
+     * The tree is traversed without recursion because parse trees can be very deep.
+     */
     public GElementNode buildGraph(TreeNode node) {
         if(node == null)
             node = root;
@@ -166,49 +209,145 @@ public class AWTreeGraphView extends GView {
         if(nodeElement == null)
             nodeElement = createGElement(node);
 
-        /** Add all the children of the node */
-        for(int index=0; index<node.getChildCount(); index++) {
-            TreeNode child = node.getChildAt(index);
-
-            /** Then add it to the parent node */
-            addChildElement(nodeElement, createGElement(child));
+        Stack<TreeNode> stack = new Stack<TreeNode>();
+        stack.push(node);
+        while(!stack.isEmpty()) {
+            TreeNode parent = stack.pop();
+            GElementNode parentElement = getGElementForNode(parent);
 
-            /** Recursively build the children of the child */
-            buildGraph(child);
+            /** Add all the children of the node */
+            for(int index=0; index<parent.getChildCount(); index++) {
+                TreeNode child = parent.getChildAt(index);
+                addChildElement(parentElement, createGElement(child));
+                stack.push(child);
+            }
         }
 
-        /** Adjust the parent element position after adding all its children */
-        adjustElementPositionRelativeToItsChildren(node, false);
-
         return nodeElement;
     }
 
-    /** This method rebuild the tree incrementally using the information provided
-     * by the tree model. This method is faster than rebuildNoModel() for large tree.
-     *
-     * Note: actually it is slower because of the adjustElement...() method which is called too often
+    /** This method rebuild the tree incrementally using the change set provided
+     * by the tree model: only the elements of the nodes added since the last rebuild
+     * are created and placed. The ancestors affected by the new nodes are adjusted
+     * only once per rebuild: they form a path from the root (the pending path) which
+     * is flushed from the deepest element up. The whole tree is laid out again only
+     * if a node is added somewhere else than on the right edge of the tree.
      */
     public void rebuildWithModel() {
-        for(int n=0; n<model.getNewNodesCount(); n++) {
-            TreeNode parent = model.getNewNodeParentAtIndex(n);
-            TreeNode child = model.getNewNodeAtIndex(n);
+        GElementNode rootNodeElement = getGElementForNode(root);
+        if(model.isStructureChanged() || rootNodeElement == null) {
+            rebuildNoModel();
+            model.clearChanges();
+            return;
+        }
 
-            GElementNode parentElement = getGElementForNode(parent);
-            if(parentElement == null) {
-                parentElement = createGElement(root);
-                parentElement.move(MARGIN, MARGIN);
-                setSizeMargin(MARGIN);
-                setRootElement(parentElement);
+        List<GElementNode> pendingPath = new ArrayList<GElementNode>();
+        Set<GElementNode> pendingElements = new HashSet<GElementNode>();
+        boolean incremental = true;
+
+        for(int n=0; n<model.getNewNodesCount(); n++) {
+            GElementNode parentElement = getGElementForNode(model.getNewNodeParentAtIndex(n));
+            if(parentElement == null)
+                continue;
+
+            if(incremental) {
+                if(pendingElements.contains(parentElement)) {
+                    /** Adjust the elements below the parent: no more node will be added below them */
+                    incremental = flushPendingPath(pendingPath, pendingElements, parentElement);
+                } else {
+                    /** Collect the ancestors of the parent up to the first pending element */
+                    List<GElementNode> chain = new ArrayList<GElementNode>();
+                    GElementNode element = parentElement;
+                    while(element != null && !pendingElements.contains(element)) {
+                        chain.add(element);
+                        element = element.getParentNode();
+                    }
+                    incremental = flushPendingPath(pendingPath, pendingElements, element);
+                    for(int index=chain.size()-1; index>=0; index--) {
+                        pendingPath.add(chain.get(index));
+                        pendingElements.add(chain.get(index));
+                    }
+                }
             }
 
-            GElementNode childElement = createGElement(child);
+            GElementNode childElement = createGElement(model.getNewNodeAtIndex(n));
             addChildElement(parentElement, childElement);
-            adjustElementPositionRelativeToItsChildren(parent, true);
+
+            if(incremental) {
+                incremental = layout.append(parentElement, childElement);
+                /** Repaint the new element including the link to its parent */
+                if(childElement.laidOut)
+                    addDirtyRect(childElement.getLeft(), childElement.getTop()-VERTICAL_GAP,
+                            childElement.getWidth(), childElement.getHeight()+VERTICAL_GAP);
+            }
+        }
+
+        if(incremental)
+            incremental = flushPendingPath(pendingPath, pendingElements, null);
+
+        if(!incremental) {
+            /** Lay out the whole tree: the new elements (at least) have to be repainted */
+            fullRepaint = true;
+            layoutTree(rootNodeElement);
+        }
+
+        /** Apply the color of the nodes that changed (i.e. backtracking) */
+        for(TreeNode node : model.getChangedNodes()) {
+            repaintNode(node);
+            GElementNode element = getGElementForNode(node);
+            if(element != null)
+                addDirtyRect(element.getLeft(), element.getTop(), element.getWidth(), element.getHeight());
         }
 
         autoAdjustSize();
 
-        model.clearNewNodes();
+        model.clearChanges();
+    }
+
+    /** Adjusts the pending elements from the deepest one up to (but excluding) the specified
+     * element (the whole path if null). Returns false if the tree must be laid out again.
+     */
+    protected boolean flushPendingPath(List<GElementNode> pendingPath, Set<GElementNode> pendingElements,
+                                       GElementNode element)
+    {
+        while(!pendingPath.isEmpty()) {
+            GElementNode last = pendingPath.get(pendingPath.size()-1);
+            if(last == element)
+                break;
+
+            pendingPath.remove(pendingPath.size()-1);
+            pendingElements.remove(last);
+
+            double oldLeft = last.getLeft();
+            double oldRight = last.getRight();
+            int result = layout.adjust(last);
+            if(result == AWTreeLayout.INVALID)
+                return false;
+
+            if(result == AWTreeLayout.SUBTREE_MOVED)
+                fullRepaint = true;
+            else if(last.laidOut) {
+                /** Repaint the element and the links to its children */
+                double left = Math.min(oldLeft, last.subtreeLeft);
+                double right = Math.max(oldRight, last.subtreeRight);
+                addDirtyRect(left, last.getTop(), right-left, last.getHeight()+VERTICAL_GAP);
+            }
+        }
+        return true;
+    }
+
+    /** Lays out the tree. If an existing element moved, the whole view must be repainted. */
+    protected void layoutTree(GElementNode rootNodeElement) {
+        if(layout.layout(rootNodeElement, MARGIN, MARGIN))
+            fullRepaint = true;
+    }
+
+    protected void addDirtyRect(double x, double y, double width, double height) {
+        Rectangle r = new Rectangle((int)x, (int)y, (int)Math.ceil(width)+1, (int)Math.ceil(height)+1);
+        if(dirtyRegion == null)
+            dirtyRegion = r;
+        else
+            dirtyRegion.add(r);
     }
 
     public void paintComponent(Graphics g) {
@@ -223,18 +362,6 @@ public class AWTreeGraphView extends GView {
     }
 
     public void addChildElement(GElementNode parent, GElementNode child) {
-        /** Get the far right position of the last child */
-        double x = parent.getLastChildRightSpan();
-
-        /** Add a gap if there is already a child otherwise use the parent left coordinate */
-        if(x > 0)
-            x += HORIZONTAL_GAP;
-        else
-            x = parent.getLeft();
-
-        /** Set the child position */
-        child.setPositionOfUpperLeftCorner(x, parent.getBottom()+VERTICAL_GAP);
-
         /** Create the link from the parent to this child */
         GLink link = new GLink(parent, GLink.ANCHOR_BOTTOM,
                 child, GLink.ANCHOR_TOP,
@@ -246,51 +373,11 @@ public class AWTreeGraphView extends GView {
         l.setOutOffsetLength(10);
         l.getArrow().setLength(6);
 
-        /** Add the link and the child */
-        parent.addElement(link);
-        parent.addElement(child);
-    }
-
-    /** This method recursively adjusts a node position relative to its children */
-
-    public void adjustElementPositionRelativeToItsChildren(TreeNode node, boolean recursive) {
-        GElementNode element = getGElementForNode(node);
-        if(element == null)
-            return;
-
-        double elementWidth = element.getWidth();
-        double childrenWidth = element.getLastChildRightSpan()-element.getFirstChildLeftSpan();
-
-        /** Nothing to adjust if there is no children */
-        if(childrenWidth == 0)
-            return;
-
-        /** x and y are the coordinates of the upper-left corner of the frame enclosing
-         * the element and all its children.
-         */
-        double x = Math.min(element.getLeft(), element.getFirstChildLeftSpan());
-        double y = element.getTop();
-        double spanWidth = Math.max(elementWidth, childrenWidth);
-
-        /** First move the children if needed. To move all the children at once, we move
-         * the element itself (which will cause all the children to be moved recursively).
-         * The element position is set after this operation.
+        /** Add the link and the child. The position of the child is set
+         * by the layout once all the new elements have been added.
          */
-        double childrenOffset = spanWidth*0.5-childrenWidth*0.5;
-
-        /** Compute the offset to move the children given their current position */
-        double offset = x+childrenOffset-element.getFirstChildLeftSpan();
-        element.move(offset, 0);
-
-        /** Set the element position */
-        element.setPositionOfUpperLeftCorner(x+spanWidth*0.5-elementWidth*0.5, y);
-
-        /** Set the span (children width) of the element */
-        element.setSpanWidth(spanWidth);
-
-        /** Recursively adjust the parent node */
-        if(recursive)
-            adjustElementPositionRelativeToItsChildren(node.getParent(), recursive);
+        parent.addElement(link);
+        parent.addChildNode(child);
     }
 
     public String getNodeLabel(TreeNode node) {
@@ -317,7 +404,7 @@ public class AWTreeGraphView extends GView {
         Color nodeColor = getNodeColor(node);
         String nodeLabel = getNodeLabel(node);
 
-        double width = (nodeLabel==null?0:fontMetrics.stringWidth(nodeLabel))+16;
+        double width = (nodeLabel==null?0:XJFontMetricsCache.getStringWidth(fontMetrics, nodeLabel))+16;
         double height = fontMetrics.getHeight()+8;
 
         GElementNode element = new GElementNode();
@@ -387,104 +474,215 @@ public class AWTreeGraphView extends GView {
 
     public static class GElementNode extends GElementRect {
 
+        public static final int COLLAPSED_MARKER_OFFSET = 6;
+
         public boolean highlighted = false;
-        public double spanWidth = 0;
+
+        /** Tree structure of the nodes. Note that the elements list contains
+         * the links as well as the child nodes.
+         */
+        protected GElementNode parentNode;
+        protected List<GElementNode> childNodes;
+
+        /** Layout information (see AWTreeLayout) */
+        protected int depth;
+        protected int number;
+        protected boolean collapsed;
+        protected boolean laidOut;
+        protected double prelim;
+        protected double mod;
+        protected double shift;
+        protected double change;
+        protected double modSum;
+        protected GElementNode thread;
+        protected GElementNode ancestor;
+        protected GElementNode defaultAncestor;
+
+        /** Bounds of the node and all its visible descendants */
+        protected double subtreeLeft;
+        protected double subtreeRight;
+        protected double subtreeBottom;
 
         public void setHighlighted(boolean flag) {
             this.highlighted = flag;
         }
 
-        @Override
-        public void draw(Graphics2D g) {
-            if(highlighted && isVisibleInClip(g)) {
-                Rectangle r = getFrame().rectangle();
-                g.setColor(HIGHLIGHTED_COLOR);
-                g.fillRect(r.x, r.y, r.width, r.height);
-            }
+        public void addChildNode(GElementNode child) {
+            if(childNodes == null)
+                childNodes = new ArrayList<GElementNode>();
+            childNodes.add(child);
+            child.parentNode = this;
+            addElement(child);
+        }
 
-            super.draw(g);
+        public GElementNode getParentNode() {
+            return parentNode;
+        }
+
+        public int getChildCount() {
+            return childNodes == null ? 0 : childNodes.size();
         }
 
-        /** Methods to retrieve the span width of the node. The span width
-         * is the maximum width of the node and its children.
+        public GElementNode getChildAt(int index) {
+            return childNodes.get(index);
+        }
+
+        /** Returns true if the children of this node are hidden because
+         * the node is at the maximum depth of the layout
          */
-        public void setSpanWidth(double width) {
-            spanWidth = width;
+        public boolean isCollapsed() {
+            return collapsed;
         }
 
-        public double getLeftSpan() {
-            if(spanWidth <= getWidth())
-                return getLeft();
-            else
-                return getLeft()-(spanWidth-getWidth())*0.5;
+        public void setSubtreeBounds(double left, double right, double bottom) {
+            subtreeLeft = left;
+            subtreeRight = right;
+            subtreeBottom = bottom;
+        }
+
+        public void includeSubtreeBounds(GElementNode child) {
+            subtreeLeft = Math.min(subtreeLeft, child.subtreeLeft);
+            subtreeRight = Math.max(subtreeRight, child.subtreeRight);
+            subtreeBottom = Math.max(subtreeBottom, child.subtreeBottom);
+        }
+
+        public boolean isSubtreeVisibleInClip(Rectangle clip) {
+            if(!laidOut)
+                return true;
+
+            return clip.x <= subtreeRight && clip.x+clip.width >= subtreeLeft
+                    && clip.y <= subtreeBottom && clip.y+clip.height >= getTop();
         }
 
-        public double getRightSpan() {
-            if(spanWidth <= getWidth())
-                return getRight();
+        @Override
+        public Rect bounds() {
+            if(laidOut)
+                return new Rect(subtreeLeft, getTop(), subtreeRight-subtreeLeft, subtreeBottom-getTop());
             else
-                return getRight()+(spanWidth-getWidth())*0.5;
+                return super.bounds();
+        }
+
+        @Override
+        public void setPanel(GView view) {
+            Stack<GElementNode> stack = new Stack<GElementNode>();
+            stack.push(this);
+            while(!stack.isEmpty()) {
+                GElementNode node = stack.pop();
+                node.view = view;
+                for (GElement element : node.elements) {
+                    if(element instanceof GElementNode)
+                        stack.push((GElementNode)element);
+                    else
+                        element.setPanel(view);
+                }
+            }
         }
 
-        /** Return the last children right coordinate of this node. Note that links are
-         * also in the list of children so we must skip them.
+        /** Draws the tree without recursion. Only the subtrees intersecting
+         * the clip are visited so the cost depends on the visible area and
+         * not on the size of the tree.
          */
-        public double getLastChildRightSpan() {
-            if(elements == null)
-                return 0;
-
-            for (int i = elements.size()-1; i >= 0; i--) {
-                GElement element = (GElement) elements.get(i);
-                if(element instanceof GElementNode) {
-                    GElementNode n = (GElementNode)element;
-                    return n.getRightSpan();
+        @Override
+        public void drawRecursive(Graphics2D g) {
+            Rectangle clip = g.getClipBounds();
+
+            Stack<GElementNode> stack = new Stack<GElementNode>();
+            stack.push(this);
+            while(!stack.isEmpty()) {
+                GElementNode node = stack.pop();
+                if(clip != null && !node.isSubtreeVisibleInClip(clip))
+                    continue;
+
+                node.draw(g);
+
+                if(node.collapsed)
+                    continue;
+
+                for (GElement element : node.elements) {
+                    if(element instanceof GElementNode)
+                        stack.push((GElementNode)element);
+                    else if(clip == null || isLinkVisibleInClip(element, clip))
+                        element.draw(g);
                 }
             }
+        }
+
+        protected static boolean isLinkVisibleInClip(GElement element, Rectangle clip) {
+            if(!(element instanceof GLink))
+                return true;
 
-            return 0;
+            GLink link = (GLink)element;
+            GElementNode source = (GElementNode)link.source;
+            GElementNode target = (GElementNode)link.target;
+            if(!source.laidOut || !target.laidOut)
+                return true;
+
+            double x1 = Math.min(source.getPositionX(), target.getPositionX());
+            double x2 = Math.max(source.getPositionX(), target.getPositionX());
+            return clip.x <= x2+1 && clip.x+clip.width >= x1-1
+                    && clip.y <= target.getTop() && clip.y+clip.height >= source.getBottom();
         }
 
-        /** Return the first children left coordinate of this node. Note that links are
-         * also in the list of children so we must skip them.
-         */
-        public double getFirstChildLeftSpan() {
-            if(elements == null)
-                return 0;
-
-            for (GElement element : elements) {
-                if (element instanceof GElementNode) {
-                    GElementNode n = (GElementNode) element;
-                    return n.getLeftSpan();
+        @Override
+        public GElement match(Point p) {
+            Stack<GElementNode> stack = new Stack<GElementNode>();
+            stack.push(this);
+            while(!stack.isEmpty()) {
+                GElementNode node = stack.pop();
+                if(node.laidOut && (p.x < node.subtreeLeft || p.x > node.subtreeRight
+                        || p.y < node.getTop() || p.y > node.subtreeBottom))
+                    continue;
+
+                if(node.isInside(p))
+                    return node;
+
+                if(!node.collapsed) {
+                    for(int index=0; index<node.getChildCount(); index++) {
+                        stack.push(node.getChildAt(index));
+                    }
                 }
             }
+            return null;
+        }
 
-            return 0;
+        @Override
+        public void draw(Graphics2D g) {
+            if(highlighted && isVisibleInClip(g)) {
+                Rectangle r = getFrame().rectangle();
+                g.setColor(HIGHLIGHTED_COLOR);
+                g.fillRect(r.x, r.y, r.width, r.height);
+            }
+
+            super.draw(g);
+
+            if(collapsed) {
+                /** Draw an ellipsis below the node to indicate its hidden children */
+                int x = (int)getPositionX();
+                int y = (int)getBottom()+COLLAPSED_MARKER_OFFSET;
+                g.setColor(color);
+                for(int i=-1; i<=1; i++) {
+                    g.fillOval(x+i*5-1, y, 3, 3);
+                }
+            }
         }
 
         /** Methods used to retrieve the coordinate of the frame. Note that
-         * a GElementRect position is always centered so we need to use getFrame()
-         * to get the frame rectangle from which we can get the coordinate we want. */
+         * a GElementRect position is always centered. */
 
         public double getLeft() {
-            return getFrame().r.x;
+            return getPositionX()-getWidth()*0.5;
         }
 
         public double getTop() {
-            return getFrame().r.y;
+            return getPositionY()-getHeight()*0.5;
         }
 
         public double getRight() {
-            Rect r = getFrame();
-            return r.r.x+r.r.width;
+            return getPositionX()+getWidth()*0.5;
         }
 
         public double getBottom() {
-            Rect r = getFrame();
-            return r.r.y+r.r.height;
-        }
-
-        public void setTop(double top) {
-            position.y = top+getHeight()*0.5;
+            return getPositionY()+getHeight()*0.5;
         }
     }
 }
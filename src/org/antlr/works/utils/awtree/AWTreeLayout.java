@@ -0,0 +1,444 @@
+package org.antlr.works.utils.awtree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/** This class computes a tidy layout of a tree of GElementNode in linear time
+ * (Walker's algorithm as improved by Buchheim, Junger and Leipert). The subtrees
+ * are packed as close as possible to each other while keeping each parent centered
+ * above its children.
+ *
+ * The layout is implemented without recursion so very deep trees (like the parse tree
+ * of a large input) can be laid out without overflowing the stack. Subtrees deeper than
+ * the maximum depth (if any) are collapsed: they are not laid out and their root is
+ * marked as collapsed.
+ *
+ * A parse tree grows along its right edge while the debugger steps: the nodes added
+ * below the rightmost nodes can be placed incrementally (see append and adjust) without
+ * laying out the whole tree again.
+ */
+
+public class AWTreeLayout {
+
+    /** Result of adjust */
+    public static final int ADJUSTED = 0;
+    public static final int SUBTREE_MOVED = 1;
+    public static final int INVALID = 2;
+
+    protected double horizontalGap;
+    protected double verticalGap;
+    protected int maximumDepth = 0;
+
+    /** Nodes in pre-order (parents before their children, children from right to left) */
+    protected List<AWTreeGraphView.GElementNode> nodes = new ArrayList<AWTreeGraphView.GElementNode>();
+
+    /** Right edge of the rightmost visible node at each depth */
+    protected List<Double> rightContour = new ArrayList<Double>();
+
+    public AWTreeLayout(double horizontalGap, double verticalGap) {
+        this.horizontalGap = horizontalGap;
+        this.verticalGap = verticalGap;
+    }
+
+    /** Sets the depth beyond which the subtrees are collapsed (0 means no limit) */
+    public void setMaximumDepth(int depth) {
+        this.maximumDepth = depth;
+    }
+
+    public int getMaximumDepth() {
+        return maximumDepth;
+    }
+
+    /** Lays out the tree so that its upper-left corner is located at (x, y). Returns
+     * true if an element that was already laid out has been moved.
+     */
+    public boolean layout(AWTreeGraphView.GElementNode root, double x, double y) {
+        collectNodes(root);
+
+        /** The reverse pre-order is a post-order visiting the children from left to right */
+        for(int i=nodes.size()-1; i>=0; i--) {
+            firstWalk(nodes.get(i));
+        }
+
+        boolean moved = secondWalk(x, y);
+
+        nodes.clear();
+        return moved;
+    }
+
+    protected void collectNodes(AWTreeGraphView.GElementNode root) {
+        nodes.clear();
+
+        Stack<AWTreeGraphView.GElementNode> stack = new Stack<AWTreeGraphView.GElementNode>();
+        root.depth = 0;
+        root.number = 0;
+        stack.push(root);
+        while(!stack.isEmpty()) {
+            AWTreeGraphView.GElementNode node = stack.pop();
+            node.prelim = 0;
+            node.mod = 0;
+            node.shift = 0;
+            node.change = 0;
+            node.thread = null;
+            node.ancestor = node;
+            node.defaultAncestor = null;
+            node.collapsed = maximumDepth > 0 && node.depth >= maximumDepth && node.getChildCount() > 0;
+            nodes.add(node);
+
+            if(node.collapsed) {
+                hideSubtree(node);
+                continue;
+            }
+
+            for(int index=0; index<node.getChildCount(); index++) {
+                AWTreeGraphView.GElementNode child = node.getChildAt(index);
+                child.depth = node.depth+1;
+                child.number = index;
+                stack.push(child);
+            }
+        }
+    }
+
+    /** Marks the descendants of a collapsed node as not laid out so a node appended
+     * later below them stays hidden.
+     */
+    protected void hideSubtree(AWTreeGraphView.GElementNode node) {
+        Stack<AWTreeGraphView.GElementNode> stack = new Stack<AWTreeGraphView.GElementNode>();
+        stack.push(node);
+        while(!stack.isEmpty()) {
+            AWTreeGraphView.GElementNode parent = stack.pop();
+            for(int index=0; index<parent.getChildCount(); index++) {
+                AWTreeGraphView.GElementNode child = parent.getChildAt(index);
+                child.depth = parent.depth+1;
+                child.number = index;
+                child.collapsed = false;
+                child.laidOut = false;
+                stack.push(child);
+            }
+        }
+    }
+
+    protected void firstWalk(AWTreeGraphView.GElementNode v) {
+        AWTreeGraphView.GElementNode w = getLeftSibling(v);
+        int count = getLayoutChildCount(v);
+        if(count == 0) {
+            v.prelim = w == null ? 0 : w.prelim+getDistance(w, v);
+        } else {
+            executeShifts(v);
+
+            double mid = (v.getChildAt(0).prelim+v.getChildAt(count-1).prelim)*0.5;
+            if(w == null) {
+                v.prelim = mid;
+            } else {
+                v.prelim = w.prelim+getDistance(w, v);
+                v.mod = v.prelim-mid;
+            }
+        }
+
+        /** Separate the subtree of v from the subtrees of its left siblings */
+        AWTreeGraphView.GElementNode parent = v.getParentNode();
+        if(parent != null) {
+            if(v.number == 0)
+                parent.defaultAncestor = v;
+            parent.defaultAncestor = apportion(v, parent.defaultAncestor);
+        }
+    }
+
+    protected AWTreeGraphView.GElementNode apportion(AWTreeGraphView.GElementNode v,
+                                                    AWTreeGraphView.GElementNode defaultAncestor)
+    {
+        AWTreeGraphView.GElementNode w = getLeftSibling(v);
+        if(w == null)
+            return defaultAncestor;
+
+        /** i = inside, o = outside, p = right subtree, m = left subtree */
+        AWTreeGraphView.GElementNode vip = v;
+        AWTreeGraphView.GElementNode vop = v;
+        AWTreeGraphView.GElementNode vim = w;
+        AWTreeGraphView.GElementNode vom = v.getParentNode().getChildAt(0);
+
+        double sip = vip.mod;
+        double sop = vop.mod;
+        double sim = vim.mod;
+        double som = vom.mod;
+
+        AWTreeGraphView.GElementNode nr = getNextRight(vim);
+        AWTreeGraphView.GElementNode nl = getNextLeft(vip);
+        while(nr != null && nl != null) {
+            vim = nr;
+            vip = nl;
+            vom = getNextLeft(vom);
+            vop = getNextRight(vop);
+            vop.ancestor = v;
+
+            double shift = (vim.prelim+sim)-(vip.prelim+sip)+getDistance(vim, vip);
+            if(shift > 0) {
+                moveSubtree(getAncestor(vim, v, defaultAncestor), v, shift);
+                sip += shift;
+                sop += shift;
+            }
+
+            sim += vim.mod;
+            sip += vip.mod;
+            som += vom.mod;
+            sop += vop.mod;
+
+            nr = getNextRight(vim);
+            nl = getNextLeft(vip);
+        }
+
+        if(nr != null && getNextRight(vop) == null) {
+            vop.thread = nr;
+            vop.mod += sim-sop;
+        }
+
+        if(nl != null && getNextLeft(vom) == null) {
+            vom.thread = nl;
+            vom.mod += sip-som;
+            defaultAncestor = v;
+        }
+
+        return defaultAncestor;
+    }
+
+    protected void moveSubtree(AWTreeGraphView.GElementNode wm, AWTreeGraphView.GElementNode wp, double shift) {
+        double subtrees = wp.number-wm.number;
+        wp.change -= shift/subtrees;
+        wp.shift += shift;
+        wm.change += shift/subtrees;
+        wp.prelim += shift;
+        wp.mod += shift;
+    }
+
+    protected void executeShifts(AWTreeGraphView.GElementNode v) {
+        double shift = 0;
+        double change = 0;
+        for(int index=getLayoutChildCount(v)-1; index>=0; index--) {
+            AWTreeGraphView.GElementNode w = v.getChildAt(index);
+            w.prelim += shift;
+            w.mod += shift;
+            change += w.change;
+            shift += w.shift+change;
+        }
+    }
+
+    /** Computes the final position of each node. The nodes are visited in pre-order
+     * so the sum of the modifiers of the ancestors is known when a node is visited.
+     */
+    protected boolean secondWalk(double x, double y) {
+        double minLeft = Double.MAX_VALUE;
+        for (AWTreeGraphView.GElementNode node : nodes) {
+            AWTreeGraphView.GElementNode parent = node.getParentNode();
+            double m = node.depth == 0 || parent == null ? 0 : parent.modSum;
+            node.modSum = m+node.mod;
+            node.prelim += m;
+            minLeft = Math.min(minLeft, node.prelim-node.getWidth()*0.5);
+        }
+
+        boolean moved = false;
+        rightContour.clear();
+        for (AWTreeGraphView.GElementNode node : nodes) {
+            AWTreeGraphView.GElementNode parent = node.getParentNode();
+
+            double left = node.prelim-node.getWidth()*0.5-minLeft+x;
+            double top = node.depth == 0 || parent == null ? y : parent.getBottom()+verticalGap;
+            if(!node.laidOut || left != node.getLeft() || top != node.getTop()) {
+                moved |= node.laidOut;
+                node.setPositionOfUpperLeftCorner(left, top);
+                node.laidOut = true;
+            }
+            node.setSubtreeBounds(node.getLeft(), node.getRight(), node.getBottom()+(node.collapsed?verticalGap:0));
+            updateRightContour(node);
+        }
+
+        /** Accumulate the bounds of each subtree from the bottom up */
+        for(int i=nodes.size()-1; i>0; i--) {
+            AWTreeGraphView.GElementNode node = nodes.get(i);
+            if(node.depth > 0)
+                node.getParentNode().includeSubtreeBounds(node);
+        }
+
+        return moved;
+    }
+
+    /** Places a node that has just been added as the last child of its parent. The node
+     * is placed to the right of every node at its depth (or centered below its parent if
+     * it is the first child). Returns false if the parent is not the rightmost node at its
+     * depth: the tree must then be laid out again completely.
+     */
+    public boolean append(AWTreeGraphView.GElementNode parent, AWTreeGraphView.GElementNode child) {
+        child.depth = parent.depth+1;
+        child.number = parent.getChildCount()-1;
+        child.collapsed = false;
+        child.laidOut = false;
+
+        if(!parent.laidOut)
+            return true;
+
+        if(parent.collapsed || maximumDepth > 0 && parent.depth >= maximumDepth) {
+            /** The child is hidden: the parent becomes (or stays) collapsed */
+            if(!parent.collapsed) {
+                parent.collapsed = true;
+                parent.subtreeBottom = Math.max(parent.subtreeBottom, parent.getBottom()+verticalGap);
+            }
+            return true;
+        }
+
+        if(parent.getRight() < getRightContour(parent.depth)-0.001)
+            return false;
+
+        double left;
+        if(child.number == 0)
+            left = parent.getPositionX()-child.getWidth()*0.5;
+        else
+            left = parent.getLeft();
+        if(child.depth < rightContour.size())
+            left = Math.max(left, rightContour.get(child.depth)+horizontalGap);
+
+        child.setPositionOfUpperLeftCorner(left, parent.getBottom()+verticalGap);
+        child.laidOut = true;
+        child.setSubtreeBounds(child.getLeft(), child.getRight(), child.getBottom());
+        parent.includeSubtreeBounds(child);
+        updateRightContour(child);
+        return true;
+    }
+
+    /** Centers a node above its children once all the nodes of an incremental update
+     * have been appended below it. The nodes must be adjusted from the deepest up
+     * so the bounds of the subtrees propagate to the root. If the children are on the
+     * left of the node, they are shifted to the right (SUBTREE_MOVED is then returned
+     * because elements already displayed moved). Returns INVALID if the node is not on
+     * the right edge of the tree.
+     */
+    public int adjust(AWTreeGraphView.GElementNode node) {
+        if(!node.laidOut)
+            return ADJUSTED;
+
+        AWTreeGraphView.GElementNode parent = node.getParentNode();
+        if(parent != null && parent.getChildAt(parent.getChildCount()-1) != node)
+            return INVALID;
+
+        int result = ADJUSTED;
+        int count = getLayoutChildCount(node);
+        if(count > 0) {
+            double mid = (node.getChildAt(0).getPositionX()+node.getChildAt(count-1).getPositionX())*0.5;
+            double offset = node.getPositionX()-mid;
+            if(offset > 0) {
+                shiftDescendants(node, offset);
+                result = SUBTREE_MOVED;
+            } else if(offset < 0) {
+                node.setPosition(mid, node.getPositionY());
+                node.subtreeRight = Math.max(node.subtreeRight, node.getRight());
+                updateRightContour(node);
+            }
+        }
+
+        if(parent != null)
+            parent.includeSubtreeBounds(node);
+
+        return result;
+    }
+
+    /** Shifts all the visible descendants of a node to the right */
+    protected void shiftDescendants(AWTreeGraphView.GElementNode node, double offset) {
+        double left = node.getLeft();
+        double right = node.getRight();
+
+        Stack<AWTreeGraphView.GElementNode> stack = new Stack<AWTreeGraphView.GElementNode>();
+        stack.push(node);
+        while(!stack.isEmpty()) {
+            AWTreeGraphView.GElementNode parent = stack.pop();
+            for(int index=0; index<getLayoutChildCount(parent); index++) {
+                AWTreeGraphView.GElementNode child = parent.getChildAt(index);
+                child.setPosition(child.getPositionX()+offset, child.getPositionY());
+                child.subtreeLeft += offset;
+                child.subtreeRight += offset;
+                left = Math.min(left, child.getLeft());
+                right = Math.max(right, child.getRight());
+                updateRightContour(child);
+                stack.push(child);
+            }
+        }
+
+        node.setSubtreeBounds(left, right, node.subtreeBottom);
+    }
+
+    protected double getRightContour(int depth) {
+        return depth < rightContour.size() ? rightContour.get(depth) : -Double.MAX_VALUE;
+    }
+
+    protected void updateRightContour(AWTreeGraphView.GElementNode node) {
+        while(rightContour.size() <= node.depth)
+            rightContour.add(-Double.MAX_VALUE);
+        if(node.getRight() > rightContour.get(node.depth))
+            rightContour.set(node.depth, node.getRight());
+    }
+
+    protected int getLayoutChildCount(AWTreeGraphView.GElementNode v) {
+        return v.collapsed ? 0 : v.getChildCount();
+    }
+
+    protected AWTreeGraphView.GElementNode getLeftSibling(AWTreeGraphView.GElementNode v) {
+        if(v.depth == 0 || v.number == 0)
+            return null;
+        else
+            return v.getParentNode().getChildAt(v.number-1);
+    }
+
+    protected AWTreeGraphView.GElementNode getNextLeft(AWTreeGraphView.GElementNode v) {
+        return getLayoutChildCount(v) > 0 ? v.getChildAt(0) : v.thread;
+    }
+
+    protected AWTreeGraphView.GElementNode getNextRight(AWTreeGraphView.GElementNode v) {
+        int count = getLayoutChildCount(v);
+        return count > 0 ? v.getChildAt(count-1) : v.thread;
+    }
+
+    protected AWTreeGraphView.GElementNode getAncestor(AWTreeGraphView.GElementNode vim,
+                                                      AWTreeGraphView.GElementNode v,
+                                                      AWTreeGraphView.GElementNode defaultAncestor)
+    {
+        if(vim.ancestor.getParentNode() == v.getParentNode())
+            return vim.ancestor;
+        else
+            return defaultAncestor;
+    }
+
+    /** Minimum horizontal distance between the centers of two adjacent nodes */
+    protected double getDistance(AWTreeGraphView.GElementNode a, AWTreeGraphView.GElementNode b) {
+        return (a.getWidth()+b.getWidth())*0.5+horizontalGap;
+    }
+
+}
@@ -35,13 +35,23 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 public class AWTreeModel {
 
+    /** Change set since the last time the changes were cleared (usually at each break) */
     public List<AWTreeNode[]> newNodes = new ArrayList<AWTreeNode[]>();
+    public List<AWTreeNode> changedNodes = new ArrayList<AWTreeNode>();
+
+    /** True if the tree must be rebuilt completely (i.e. the model has been cleared) */
+    public boolean structureChanged = true;
 
     public void addNode(AWTreeNode parent, AWTreeNode node) {
         parent.add(node);
         newNodes.add(new AWTreeNode[] { parent, node });
     }
 
+    /** Records a node whose appearance (i.e. color) changed */
+    public void nodeChanged(AWTreeNode node) {
+        changedNodes.add(node);
+    }
+
     public int getNewNodesCount() {
         return newNodes.size();
     }
@@ -54,11 +64,27 @@ public class AWTreeModel {
         return (newNodes.get(n))[1];
     }
 
+    public List<AWTreeNode> getChangedNodes() {
+        return changedNodes;
+    }
+
+    public boolean isStructureChanged() {
+        return structureChanged;
+    }
+
     public void clearNewNodes() {
         newNodes.clear();
     }
 
+    public void clearChanges() {
+        clearNewNodes();
+        changedNodes.clear();
+        structureChanged = false;
+    }
+
     public void clear() {
         clearNewNodes();
+        changedNodes.clear();
+        structureChanged = true;
     }
 }
@@ -50,6 +50,9 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 public class AWTreePanel extends JPanel {
 
+    protected static final String DEPTH_ALL = "All";
+    protected static final String[] DEPTH_LIMITS = { DEPTH_ALL, "5", "10", "20", "50", "100" };
+
     protected Component listViewComponent;
     protected Component graphViewComponent;
 
@@ -179,6 +182,8 @@ public class AWTreePanel extends JPanel {
         Toolbar box = Toolbar.createHorizontalToolbar();
         box.addElement(new JLabel("Zoom"));
         box.addElement(createZoomSlider());
+        box.addElement(new JLabel("Depth"));
+        box.addElement(createDepthComboBox());
         box.add(Box.createHorizontalGlue());
         box.addElement(createDisplayAsListButton());
         //if(XJSystem.isMacOS())
@@ -221,6 +226,23 @@ public class AWTreePanel extends JPanel {
         return slider;
     }
 
+    @SuppressWarnings("unchecked")
+    public JComboBox createDepthComboBox() {
+        JComboBox combo = new JComboBox(DEPTH_LIMITS);
+        combo.setFocusable(false);
+        combo.setToolTipText("Collapse the subtrees deeper than this depth");
+        combo.setMaximumSize(combo.getPreferredSize());
+
+        combo.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent event) {
+                JComboBox combo = (JComboBox)event.getSource();
+                String depth = (String)combo.getSelectedItem();
+                treeGraphView.setMaximumDepth(depth.equals(DEPTH_ALL) ? 0 : Integer.parseInt(depth));
+            }
+        });
+        return combo;
+    }
+
     public void setRootVisible(boolean flag) {
         tree.setRootVisible(flag);
     }
@@ -0,0 +1,126 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+
+package org.antlr.works.visualization;
+
+import org.antlr.works.visualization.graphics.graph.GGraph;
+import org.antlr.works.visualization.graphics.graph.GGraphAbstract;
+import org.antlr.works.visualization.graphics.shape.GNode;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** This class caches the graphs of the syntax diagram within a memory budget. The memory used
+ * by a graph is estimated from its number of nodes and links; the least recently used graphs
+ * are evicted first when the budget is exceeded.
+ *
+ */
+
+public class GraphCache {
+
+    /** Estimated memory used by a node (GNode, FAState, dimensions and literals) and a link */
+    public static final int NODE_SIZE = 600;
+    public static final int LINK_SIZE = 400;
+    public static final int GRAPH_SIZE = 500;
+
+    private final long maxSize;
+    private long size = 0;
+
+    private final Map<String,Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    public GraphCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public synchronized List<GGraphAbstract> get(String key) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.graphs;
+    }
+
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    public synchronized void put(String key, List<GGraphAbstract> graphs) {
+        Entry entry = new Entry(graphs);
+        Entry old = entries.put(key, entry);
+        if(old != null)
+            size -= old.size;
+        size += entry.size;
+
+        // Evict the least recently used graphs but never the one just added
+        for(Iterator<Entry> iterator = entries.values().iterator(); size > maxSize && entries.size() > 1;) {
+            Entry e = iterator.next();
+            iterator.remove();
+            size -= e.size;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getCount() {
+        return entries.size();
+    }
+
+    public static long estimateSize(List<GGraphAbstract> graphs) {
+        long size = 0;
+        for (GGraphAbstract graph : graphs) {
+            size += GRAPH_SIZE;
+            if(graph instanceof GGraph && ((GGraph)graph).nodes != null) {
+                for (GNode node : ((GGraph) graph).nodes) {
+                    size += NODE_SIZE + LINK_SIZE * node.links.size();
+                }
+            }
+        }
+        return size;
+    }
+
+    private static class Entry {
+
+        public List<GGraphAbstract> graphs;
+        public long size;
+
+        public Entry(List<GGraphAbstract> graphs) {
+            this.graphs = graphs;
+            this.size = estimateSize(graphs);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.visualization;
+
+import org.antlr.tool.Grammar;
+import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
+import org.antlr.works.grammar.engine.GrammarEngine;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import javax.imageio.ImageIO;
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Exports the syntax diagram of every rule of a grammar into one or more formats (eps, svg or any
+ * bitmap format known to ImageIO). The grammar is analyzed once and the rules are then rendered
+ * in parallel, each worker thread using its own SDGenerator (and thus its own GContext).
+ * An index file listing all the outputs is written in the output directory.
+ */
+public class SDBatchExporter {
+
+    public static final String INDEX_FILE = "index.html";
+
+    /** Formats used when exporting the rules in all formats */
+    public static final String ALL_FORMATS = "png,svg,eps";
+
+    public interface Listener {
+        void ruleExported(String rule, int exported, int total);
+    }
+
+    protected final GrammarEngine engine;
+    protected List<String> formats = new ArrayList<String>();
+    protected int threads = Runtime.getRuntime().availableProcessors();
+    protected Listener listener;
+    protected volatile boolean cancelled;
+
+    protected Grammar parserGrammar;
+    protected Grammar lexerGrammar;
+
+    public SDBatchExporter(GrammarEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Parses a comma-separated list of formats (e.g. "png,eps")
+     */
+    public static List<String> parseFormats(String formats) {
+        List<String> list = new ArrayList<String>();
+        for(String format : formats.split(",")) {
+            format = format.trim().toLowerCase();
+            if(format.length() > 0 && !list.contains(format))
+                list.add(format);
+        }
+        return list;
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        return format.equals("eps") || format.equals("svg") || ImageIO.getImageWritersByFormatName(format).hasNext();
+    }
+
+    public void setFormats(List<String> formats) {
+        this.formats.clear();
+        this.formats.addAll(formats);
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Creates the ANTLR grammars. This is done once before the rules are rendered by the
+     * worker threads, which only read the NFA of the grammars.
+     */
+    public void prepare() throws Exception {
+        ANTLRGrammarEngine antlrEngine = engine.getANTLRGrammarEngine();
+        antlrEngine.createGrammars();
+        parserGrammar = antlrEngine.getParserGrammar();
+        lexerGrammar = antlrEngine.getLexerGrammar();
+    }
+
+    /**
+     * Renders all the rules into the output directory and writes the index file. Returns
+     * the outputs in the order of the rules in the grammar.
+     */
+    public List<Output> export(final String outputDirectory) throws Exception {
+        for(String format : formats) {
+            if(!isSupportedFormat(format))
+                throw new IllegalArgumentException("Unsupported syntax diagram format: "+format);
+        }
+
+        if(parserGrammar == null && lexerGrammar == null)
+            prepare();
+        new File(outputDirectory).mkdirs();
+
+        final List<String> rules = engine.getRuleNames();
+        final int[] exported = new int[] { 0 };
+
+        final ThreadLocal<SDGenerator> generators = new ThreadLocal<SDGenerator>() {
+            @Override
+            protected SDGenerator initialValue() {
+                SDGenerator gen = new SDGenerator(engine);
+                gen.setGrammars(parserGrammar, lexerGrammar);
+                return gen;
+            }
+        };
+
+        List<Future<List<Output>>> futures = new ArrayList<Future<List<Output>>>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, rules.size())));
+        try {
+            for(final String rule : rules) {
+                futures.add(executor.submit(new Callable<List<Output>>() {
+                    public List<Output> call() {
+                        if(cancelled)
+                            return Collections.emptyList();
+
+                        List<Output> outputs = exportRule(generators.get(), rule, outputDirectory);
+                        int count;
+                        synchronized(exported) {
+                            count = ++exported[0];
+                        }
+                        if(listener != null)
+                            listener.ruleExported(rule, count, rules.size());
+                        return outputs;
+                    }
+                }));
+            }
+
+            List<Output> outputs = new ArrayList<Output>();
+            for(Future<List<Output>> future : futures) {
+                outputs.addAll(future.get());
+            }
+            writeIndex(outputs, outputDirectory);
+            return outputs;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    protected List<Output> exportRule(SDGenerator gen, String rule, String outputDirectory) {
+        List<Output> outputs = new ArrayList<Output>();
+        for(String format : formats) {
+            Output output = new Output(rule, format, rule+"."+format);
+            String file = XJUtils.concatPath(outputDirectory, output.file);
+            try {
+                if(format.equals("eps")) {
+                    gen.renderRuleToEPSFile(rule, file);
+                } else if(format.equals("svg")) {
+                    gen.renderRuleToSVGFile(rule, file);
+                } else {
+                    gen.renderRuleToBitmapFile(rule, format, file);
+                }
+            } catch(Exception e) {
+                output.error = e.toString();
+            }
+            outputs.add(output);
+        }
+        return outputs;
+    }
+
+    protected void writeIndex(List<Output> outputs, String outputDirectory) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<html>\n<head><title>").append(engine.getGrammarName()).append("</title></head>\n<body>\n");
+        sb.append("<h1>").append(engine.getGrammarName()).append("</h1>\n");
+        String rule = null;
+        for(Output output : outputs) {
+            if(!output.rule.equals(rule)) {
+                rule = output.rule;
+                sb.append("<h2><a name=\"").append(rule).append("\">").append(rule).append("</a></h2>\n");
+            }
+            if(output.error != null) {
+                sb.append("<p>").append(output.format).append(": ").append(escape(output.error)).append("</p>\n");
+            } else if(output.isImage()) {
+                sb.append("<p><img src=\"").append(output.file).append("\" alt=\"").append(rule).append("\"/></p>\n");
+            } else {
+                sb.append("<p><a href=\"").append(output.file).append("\">").append(output.file).append("</a></p>\n");
+            }
+        }
+        sb.append("</body>\n</html>\n");
+        XJUtils.writeStringToFile(sb.toString(), XJUtils.concatPath(outputDirectory, INDEX_FILE));
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    public static class Output {
+
+        public final String rule;
+        public final String format;
+        /** Name of the file relative to the output directory */
+        public final String file;
+        public String error;
+
+        public Output(String rule, String format, String file) {
+            this.rule = rule;
+            this.format = format;
+            this.file = file;
+        }
+
+        /** Returns true if the output can be displayed by a browser */
+        public boolean isImage() {
+            return !format.equals("eps");
+        }
+
+        public String toString() {
+            return error == null ? file : file+": "+error;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.antlr.works.visualization;
 
+import org.antlr.tool.Grammar;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.works.grammar.engine.GrammarEngine;
 import org.antlr.works.grammar.syntax.GrammarSyntaxEngine;
@@ -8,12 +9,12 @@ import org.antlr.works.visualization.graphics.*;
 import org.antlr.works.visualization.graphics.graph.GGraph;
 import org.antlr.works.visualization.serializable.SEncoder;
 import org.antlr.works.visualization.skin.syntaxdiagram.SDSkin;
-import org.antlr.xjlib.foundation.XJUtils;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileOutputStream;
 
 /*
 
@@ -51,6 +52,11 @@ public class SDGenerator implements GContextProvider {
     public GrammarEngine engine;
     public GContext context;
 
+    /** Grammars created once by the caller (see setGrammars) */
+    private boolean useGrammars;
+    private Grammar parserGrammar;
+    private Grammar lexerGrammar;
+
     public SDGenerator(GrammarEngine engine) {
         this.engine = engine;
 
@@ -59,6 +65,16 @@ public class SDGenerator implements GContextProvider {
         context.setProvider(this);
     }
 
+    /**
+     * Renders the rules using these grammars instead of asking the engine to create them each time:
+     * the grammars are then only read, which allows several generators to run in parallel.
+     */
+    public void setGrammars(Grammar parserGrammar, Grammar lexerGrammar) {
+        this.useGrammars = true;
+        this.parserGrammar = parserGrammar;
+        this.lexerGrammar = lexerGrammar;
+    }
+
     public void serializeRule(String name, SEncoder encoder) throws Exception {
         GGraph graph = createGraph(name);
         encoder.write(graph);
@@ -68,8 +84,23 @@ public class SDGenerator implements GContextProvider {
         GGraph graph = createGraph(ruleName);
         GEnginePS engine = new GEnginePS();
         context.setEngine(engine);
-        graph.draw();
-        XJUtils.writeStringToFile(engine.getPSText(), file);
+        try {
+            graph.draw();
+            engine.writePSToFile(file, null);
+        } finally {
+            engine.close();
+        }
+    }
+
+    public void renderRuleToSVGFile(String ruleName, String file) throws Exception {
+        GGraph graph = createGraph(ruleName);
+        GEngineSVG engine = new GEngineSVG(new FileOutputStream(file), (int)(graph.getWidth()+1), (int)(graph.getHeight()+1));
+        context.setEngine(engine);
+        try {
+            graph.draw();
+        } finally {
+            engine.close();
+        }
     }
 
     public void renderRuleToBitmapFile(String ruleName, String imageFormat, String file) throws Exception {
@@ -96,7 +127,13 @@ public class SDGenerator implements GContextProvider {
     }
 
     private GGraph createGraph(String ruleName) throws Exception {
-        GGraph graph = new GFactory().buildGraphsForRule(engine.getANTLRGrammarEngine(), ruleName);
+        GGraph graph;
+        if(useGrammars)
+            graph = new GFactory().buildGraphsForRule(ATEToken.isLexerName(ruleName) ? lexerGrammar : parserGrammar, ruleName);
+        else
+            graph = new GFactory().buildGraphsForRule(engine.getANTLRGrammarEngine(), ruleName);
+        if(graph == null)
+            throw new Exception("Rule \""+ruleName+"\" has no syntax diagram");
         graph.setContext(context);
         graph.render(0,0);
         return graph;
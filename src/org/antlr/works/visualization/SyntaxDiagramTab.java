@@ -35,6 +35,7 @@ import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.works.components.GrammarWindow;
 import org.antlr.works.editor.GrammarWindowTab;
 import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
+import org.antlr.works.grammar.element.ElementReference;
 import org.antlr.works.grammar.element.ElementRule;
 import org.antlr.works.grammar.syntax.GrammarSyntaxEngine;
 import org.antlr.works.prefs.AWPrefs;
@@ -51,9 +52,15 @@ import org.antlr.xjlib.appkit.utils.XJFileChooser;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
 
 public class SyntaxDiagramTab extends GrammarWindowTab implements GContextProvider {
 
+    /** Number of rules before and after the current rule whose graphs are prefetched */
+    public static final int PREFETCH_NEIGHBOUR_RULES = 3;
+    public static final int PREFETCH_MAX_RULES = 20;
+
     protected VisualDrawing drawing;
 
     protected GContext context;
@@ -125,8 +132,42 @@ public class SyntaxDiagramTab extends GrammarWindowTab implements GContextProvid
     }
 
     public void setRule(ElementRule rule, boolean immediate) {
-        if(isEnabled())
+        if(isEnabled()) {
+            drawing.setPrefetchRules(getRulesToPrefetch(rule));
             drawing.setRule(rule, immediate);
+        }
+    }
+
+    /**
+     * Returns the rules the user is likely to visit next: the rules referenced by the rule
+     * and then the rules around it.
+     */
+    public List<ElementRule> getRulesToPrefetch(ElementRule rule) {
+        List<ElementRule> rules = new ArrayList<ElementRule>();
+
+        List<ElementReference> refs = rule.getReferences();
+        if(refs != null) {
+            for (ElementReference ref : refs) {
+                addRuleToPrefetch(rules, rule, window.getGrammarEngine().getRuleWithName(ref.getName()));
+            }
+        }
+
+        List<ElementRule> allRules = window.getRules();
+        int index = allRules == null ? -1 : allRules.indexOf(rule);
+        if(index != -1) {
+            for(int distance = 1; distance <= PREFETCH_NEIGHBOUR_RULES; distance++) {
+                if(index - distance >= 0)
+                    addRuleToPrefetch(rules, rule, allRules.get(index - distance));
+                if(index + distance < allRules.size())
+                    addRuleToPrefetch(rules, rule, allRules.get(index + distance));
+            }
+        }
+        return rules;
+    }
+
+    private void addRuleToPrefetch(List<ElementRule> rules, ElementRule rule, ElementRule r) {
+        if(r != null && r != rule && rules.size() < PREFETCH_MAX_RULES && !rules.contains(r))
+            rules.add(r);
     }
 
     public void setPlaceholder(String placeholder) {
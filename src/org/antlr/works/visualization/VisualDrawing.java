@@ -38,11 +38,14 @@ import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.Console;
 import org.antlr.works.utils.ErrorListener;
 import org.antlr.works.visualization.graphics.GFactory;
+import org.antlr.works.visualization.graphics.graph.GGraphAbstract;
 
 import javax.swing.*;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 public class VisualDrawing extends ATEThread {
 
@@ -52,12 +55,24 @@ public class VisualDrawing extends ATEThread {
 
     protected String text;
     protected ElementRule rule;
+    protected List<ElementRule> prefetchRules;
 
     protected String threadText;
     protected ElementRule threadRule;
     protected ElementRule threadLastProcessedRule;
+    protected List<GGraphAbstract> threadLastProcessedGraphs;
+    protected LinkedList<ElementRule> threadPrefetchRules = new LinkedList<ElementRule>();
+    /** True while the graphs of a rule to prefetch are being built */
+    protected boolean prefetching = false;
 
-    protected Map<ElementRule,List> cacheGraphs = new HashMap<ElementRule, List>();
+    /** Graphs of the rules without error, keyed by the structure of their NFA so they survive
+     * the edition of the other rules of the grammar.
+     */
+    protected static final long MAX_CACHED_GRAPHS_SIZE = 16*1024*1024;
+    protected GraphCache cacheGraphs = new GraphCache(MAX_CACHED_GRAPHS_SIZE);
+
+    /** Graphs of the rules with errors: they depend on the result of the analysis of the whole grammar */
+    protected Map<ElementRule,List<GGraphAbstract>> cacheErrorGraphs = new HashMap<ElementRule, List<GGraphAbstract>>();
 
     public VisualDrawing(SyntaxDiagramTab syntaxDiagramTab) {
         this.syntaxDiagramTab = syntaxDiagramTab;
@@ -77,23 +92,38 @@ public class VisualDrawing extends ATEThread {
 
     public synchronized void setText(String text) {
         this.text = text;
+        cancelPrefetch();
         awakeThread(500);
     }
 
     public synchronized void setRule(ElementRule rule, boolean immediate) {
         this.rule = rule;
+        cancelPrefetch();
         awakeThread(immediate?0:500);
     }
 
+    /**
+     * Sets the rules whose graphs are built in the background, with a low priority, once the
+     * current rule has been displayed.
+     */
+    public synchronized void setPrefetchRules(List<ElementRule> rules) {
+        this.prefetchRules = rules;
+    }
+
+    /**
+     * Flushes the graphs that depend on the state of the whole grammar. The graphs of the rules
+     * without error are kept: they are looked up again by the structure of their NFA.
+     */
     public synchronized void clearCacheGraphs() {
-        cacheGraphs.clear();
+        cacheErrorGraphs.clear();
+        threadLastProcessedGraphs = null;
     }
 
     /**
      * Tries to refresh the current graph in cache. If the graphs are not in cache, return false.
      */
     public synchronized boolean refresh() {
-        final List graphs = cacheGraphs.get(threadLastProcessedRule);
+        final List<GGraphAbstract> graphs = threadLastProcessedGraphs;
         if(graphs == null || graphs.isEmpty()) {
             return false;
         } else {
@@ -111,7 +141,7 @@ public class VisualDrawing extends ATEThread {
         }
     }
 
-    private void refreshVisualPanel(List graphs) {
+    private void refreshVisualPanel(List<GGraphAbstract> graphs) {
         syntaxDiagramTab.panel.setRule(threadLastProcessedRule);
         syntaxDiagramTab.panel.setGraphs(graphs);
         syntaxDiagramTab.panel.update();
@@ -127,6 +157,12 @@ public class VisualDrawing extends ATEThread {
 
         text = null;
         rule = null;
+
+        if(prefetchRules != null) {
+            threadPrefetchRules.clear();
+            threadPrefetchRules.addAll(prefetchRules);
+            prefetchRules = null;
+        }
     }
 
     private void threadProcessText() {
@@ -140,7 +176,7 @@ public class VisualDrawing extends ATEThread {
         } catch (Exception e) {
             // ignore
         } finally {
-            // Flush all caches in cache because the grammar has changed
+            // Flush the graphs that depend on the whole grammar because it has changed
             clearCacheGraphs();
         }
     }
@@ -175,21 +211,106 @@ public class VisualDrawing extends ATEThread {
 
         // Try to get the optimized graph from cache first. If the grammar didn't change (i.e. user
         // only moving cursor in the text zone), the speed-up can be important.
-        createGraphsForRule(threadRule);
+        List<GGraphAbstract> graphs = createGraphsForRule(threadRule);
 
-        threadLastProcessedRule = threadRule;
+        synchronized(this) {
+            threadLastProcessedRule = threadRule;
+            threadLastProcessedGraphs = graphs;
+        }
 
         refresh();
     }
 
-    protected synchronized void createGraphsForRule(ElementRule rule) throws Exception {
-        List graphs = cacheGraphs.get(rule);
-        if(graphs == null) {
+    /**
+     * Returns the graphs of the rule, building them if they are not in cache. The graphs are
+     * built while holding the factory lock only, so the text and rule can still be set meanwhile.
+     */
+    protected List<GGraphAbstract> createGraphsForRule(ElementRule rule) throws Exception {
+        synchronized(factory) {
             factory.setOptimize(!AWPrefs.getDebugDontOptimizeNFA());
             factory.setConsole(syntaxDiagramTab.getConsole());
-            graphs = factory.buildGraphsForRule(syntaxDiagramTab.getEngineGrammar(), rule.name, rule.errors);
-            if(graphs != null)
-                cacheGraphs.put(rule, graphs);
+
+            if(rule.errors != null && !rule.errors.isEmpty()) {
+                List<GGraphAbstract> graphs;
+                synchronized(this) {
+                    graphs = cacheErrorGraphs.get(rule);
+                }
+                if(graphs == null) {
+                    graphs = factory.buildGraphsForRule(syntaxDiagramTab.getEngineGrammar(), rule.name, rule.errors);
+                    if(graphs != null) {
+                        synchronized(this) {
+                            cacheErrorGraphs.put(rule, graphs);
+                        }
+                    }
+                }
+                return graphs;
+            }
+
+            String key = factory.getGraphKey(syntaxDiagramTab.getEngineGrammar(), rule.name);
+            List<GGraphAbstract> graphs = key == null ? null : cacheGraphs.get(key);
+            if(graphs == null) {
+                graphs = factory.buildGraphsForRule(syntaxDiagramTab.getEngineGrammar(), rule.name, rule.errors);
+                if(graphs != null && key != null)
+                    cacheGraphs.put(key, graphs);
+            }
+            return graphs;
+        }
+    }
+
+    /** Abandons the graph of the rule being prefetched so the new text or rule is processed without delay */
+    private synchronized void cancelPrefetch() {
+        if(prefetching)
+            factory.setCancelled(true);
+    }
+
+    private synchronized boolean beginPrefetch() {
+        if(threadShouldProcess())
+            return false;
+
+        prefetching = true;
+        return true;
+    }
+
+    private synchronized void endPrefetch() {
+        prefetching = false;
+        factory.setCancelled(false);
+    }
+
+    /**
+     * Builds the graphs of the rules to prefetch, one at a time and with the lowest priority.
+     * Stops as soon as a new text or rule has to be processed, abandoning the graph being
+     * built: it will be built again when the thread runs again.
+     */
+    private void threadPrefetchRules() {
+        if(threadPrefetchRules.isEmpty() || !syntaxDiagramTab.getEngineGrammar().hasGrammar())
+            return;
+
+        Thread thread = Thread.currentThread();
+        int priority = thread.getPriority();
+        thread.setPriority(Thread.MIN_PRIORITY);
+        try {
+            while(!threadPrefetchRules.isEmpty() && !cancel()) {
+                ElementRule r = threadPrefetchRules.getFirst();
+                // The graphs of the rules with errors depend on the analysis of the rule
+                if(r.hasErrors()) {
+                    threadPrefetchRules.removeFirst();
+                    continue;
+                }
+                if(!beginPrefetch())
+                    break;
+                try {
+                    createGraphsForRule(r);
+                    threadPrefetchRules.removeFirst();
+                } catch (CancellationException e) {
+                    break;
+                } catch (Exception e) {
+                    threadPrefetchRules.removeFirst();
+                } finally {
+                    endPrefetch();
+                }
+            }
+        } finally {
+            thread.setPriority(priority);
         }
     }
 
@@ -209,6 +330,8 @@ public class VisualDrawing extends ATEThread {
             // Process any rule
             threadProcessRule();
         }
+
+        threadPrefetchRules();
     }
 
 }
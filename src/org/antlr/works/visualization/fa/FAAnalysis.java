@@ -43,7 +43,7 @@ import java.util.*;
 
 public class FAAnalysis {
 
-    private Set processedStates = new HashSet();
+    private Set<Object> processedStates = new HashSet<Object>();
     private Map stateIncomingTransitionCount = new HashMap();
 
     public FAAnalysis() {
@@ -60,7 +60,18 @@ public class FAAnalysis {
 
     public void analyze(FAState state) {
         reset();
-        recursiveAnalysis(state);
+        LinkedList<FAState> pending = new LinkedList<FAState>();
+        processedStates.add(state);
+        pending.add(state);
+        while(!pending.isEmpty()) {
+            FAState s = pending.removeFirst();
+            for(int t=0; t<s.getNumberOfTransitions(); t++) {
+                FATransition transition = s.transition(t);
+                addIncomingTransitionToState(transition.target);
+                if(processedStates.add(transition.target))
+                    pending.add(transition.target);
+            }
+        }
     }
 
     /** Compute for an GUI Editor NFA
@@ -69,30 +80,17 @@ public class FAAnalysis {
 
     public void analyze(NFAState state) {
         reset();
-        recursiveAnalysis(state);
-    }
-
-    public void recursiveAnalysis(NFAState state) {
-        if(processedStates.contains(state))
-            return;
-        processedStates.add(state);
-
-        for(int t=0; t<state.getNumberOfTransitions(); t++) {
-            Transition transition = state.transition(t);
-            addIncomingTransitionToState((NFAState)transition.target);
-            recursiveAnalysis((NFAState)transition.target);
-        }
-    }
-
-    public void recursiveAnalysis(FAState state) {
-        if(processedStates.contains(state))
-            return;
+        LinkedList<NFAState> pending = new LinkedList<NFAState>();
         processedStates.add(state);
-
-        for(int t=0; t<state.getNumberOfTransitions(); t++) {
-            FATransition transition = state.transition(t);
-            addIncomingTransitionToState(transition.target);
-            recursiveAnalysis(transition.target);
+        pending.add(state);
+        while(!pending.isEmpty()) {
+            NFAState s = pending.removeFirst();
+            for(int t=0; t<s.getNumberOfTransitions(); t++) {
+                Transition transition = s.transition(t);
+                addIncomingTransitionToState(transition.target);
+                if(processedStates.add(transition.target))
+                    pending.add((NFAState)transition.target);
+            }
         }
     }
 
@@ -38,6 +38,8 @@ import org.antlr.analysis.Transition;
 import org.antlr.tool.Grammar;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /** This class builds an "GUI" NFA from an "ANTLR" NFA by removing redundant epsilon transition(s).
  *
@@ -48,15 +50,30 @@ public class FAFactory {
     protected Grammar g;
     protected boolean optimize;
     protected FAAnalysis analysis = new FAAnalysis();
-    protected Map<NFAState,FAState> processedStates = new HashMap<NFAState, FAState>();
     protected Map<Integer,FAState> skippedStatesMap = new HashMap<Integer, FAState>();
 
+    /** The GUI state of each processed ANTLR state and a marker for each ANTLR state that is
+     * on the current path, both indexed by state number. They replace the copies of the current
+     * path made for each transition and are reset after each build by walking the list of
+     * processed states.
+     */
+    protected FAState[] processedStates = new FAState[0];
+    protected boolean[] onPath = new boolean[0];
+    protected List<NFAState> processedList = new ArrayList<NFAState>();
+
     protected int newStateNumber = State.INVALID_STATE_NUMBER-1;
 
+    /** Flag set from another thread to abandon the build with a CancellationException */
+    protected AtomicBoolean cancelFlag;
+
     public FAFactory(Grammar g) {
         this.g = g;
     }
 
+    public void setCancelFlag(AtomicBoolean flag) {
+        this.cancelFlag = flag;
+    }
+
     public FAState buildNFA(NFAState state, boolean optimize) {
         this.optimize = optimize;
         return build(state);
@@ -67,95 +84,172 @@ public class FAFactory {
     }
 
     public FAState build(NFAState state) {
-        processedStates.clear();
-
         // First compute the incoming transition for each state. This will be used later to
         // know if a state can be simplified or not.
         analysis.analyze(state);
-        return buildRecursiveState(state, new HashSet<NFAState>());
+
+        ensureCapacity(g == null ? 0 : g.composite.stateCounter);
+        try {
+            return buildStates(state);
+        } finally {
+            for (NFAState s : processedList) {
+                processedStates[s.stateNumber] = null;
+                onPath[s.stateNumber] = false;
+            }
+            processedList.clear();
+        }
+    }
+
+    /** Builds the GUI NFA using an explicit stack of frames instead of the recursion, so the
+     * depth of the rule is not limited by the size of the thread stack.
+     */
+    private FAState buildStates(NFAState state) {
+        LinkedList<Frame> stack = new LinkedList<Frame>();
+
+        FAState root = enterState(state, stack);
+        if(root == null)
+            root = stack.getFirst().js;
+
+        FAState result = null;
+        while(!stack.isEmpty()) {
+            if(cancelFlag != null && cancelFlag.get())
+                throw new CancellationException();
+
+            Frame frame = stack.getFirst();
+            if(frame.waiting) {
+                // The state this frame was waiting for has been built
+                frame.waiting = false;
+                frame.complete(result);
+                if(frame.kind == Frame.TARGET) {
+                    stack.removeFirst();
+                    continue;
+                }
+            }
+
+            if(frame.t < frame.state.getNumberOfTransitions()) {
+                if(frame.kind == Frame.STATE)
+                    nextTransition(frame, stack);
+                else
+                    nextSkippedTransition(frame, stack);
+            } else {
+                stack.removeFirst();
+                if(frame.kind == Frame.STATE) {
+                    onPath[frame.state.stateNumber] = false;
+                    result = frame.js;
+                }
+            }
+        }
+        return root;
     }
 
-    public FAState buildRecursiveState(NFAState state, Set<NFAState> currentPath) {
-        if(processedStates.get(state) != null) {
-            FAState js = processedStates.get(state);
-            if(currentPath.contains(state)) {
-                // Set this temporary flag to indicate to the parent method that
+    /** Returns the GUI state of the ANTLR state if it is already processed or if it is an
+     * accepted state. Otherwise pushes a frame to build it and returns null.
+     */
+    private FAState enterState(NFAState state, LinkedList<Frame> stack) {
+        ensureCapacity(state.stateNumber+1);
+        FAState js = processedStates[state.stateNumber];
+        if(js != null) {
+            if(onPath[state.stateNumber]) {
+                // Set this temporary flag to indicate to the parent frame that
                 // the transition to be created has to be flagged as "loop".
                 js.loop = true;
             }
             return js;
         }
 
-        FAState js = new FAState(state);
-        processedStates.put(state, js);
-        currentPath.add(state);
+        js = new FAState(state);
+        processedStates[state.stateNumber] = js;
+        processedList.add(state);
 
         if(state.isAcceptState()) {
             // Stop as soon as we reach an accepted state
             return js;
         }
 
-        for(int t=0; t<state.getNumberOfTransitions(); t++) {
-            FAState parentState = js;
+        onPath[state.stateNumber] = true;
+        stack.addFirst(Frame.state(state, js));
+        return null;
+    }
 
-            Transition transition = state.transition(t);
-            NFAState target = (NFAState)transition.target;
-            if(targetStateIsInAnotherRule(transition)) {
-                target = targetStateOfTransition(transition);
-                parentState = createRuleReferenceState(parentState, transition, null);
-            }
+    private void nextTransition(Frame frame, LinkedList<Frame> stack) {
+        FAState parentState = frame.js;
 
-            if(transition.isEpsilon()) {
-                buildRecursiveSkipState(parentState, target, new HashSet<NFAState>(currentPath), new ArrayList<Integer>());
-            } else {
-                FAState targetState = buildRecursiveState(target, new HashSet<NFAState>(currentPath));
-                if(targetState.loop) {
-                    // Handle "loop" transition by creating a "normal" transition and assigning a flag
-                    // to this transition so when drawing it, we can draw the arrow at the right place
-                    // (in the reverse direction)
-                    targetState.addTransition(new FATransition(transition.label.toString(g), parentState), true);
-                    targetState.loop = false;
-                } else
-                    parentState.addTransition(new FATransition(transition.label.toString(g), targetState));
-            }
+        Transition transition = frame.state.transition(frame.t++);
+        NFAState target = (NFAState)transition.target;
+        if(targetStateIsInAnotherRule(transition)) {
+            target = targetStateOfTransition(transition);
+            parentState = createRuleReferenceState(parentState, transition, null);
+        }
+
+        if(transition.isEpsilon()) {
+            enterSkipState(parentState, target, new ArrayList<Integer>(), stack);
+        } else {
+            frame.parentState = parentState;
+            frame.label = transition.label.toString(g);
+            FAState targetState = enterState(target, stack);
+            if(targetState == null)
+                frame.waiting = true;
+            else
+                frame.complete(targetState);
         }
-        return js;
     }
 
     /** This method is used to skip redundant state following epsilon transition.
      *
      */
 
-    public void buildRecursiveSkipState(FAState parentState, NFAState state, Set<NFAState> currentPath, List<Integer> skippedStates) {
+    private void enterSkipState(FAState parentState, NFAState state, List<Integer> skippedStates, LinkedList<Frame> stack) {
         if(canBeSkipped(state)) {
-            // If the state can be skipped, apply recursively the same method for each transition(s)
-            // providing the parent state.
+            // If the state can be skipped, follow each transition(s) providing the parent state.
 
             // Record each skipped state. They will be added later to the transition that replace them
             Integer skippedState = state.stateNumber;
             skippedStates.add(skippedState);
             skippedStatesMap.put(skippedState, parentState);
 
-            for(int t=0; t<state.getNumberOfTransitions(); t++) {
-                Transition transition = state.transition(t);
-                if(targetStateIsInAnotherRule(transition)) {
-                    NFAState target = targetStateOfTransition(transition);
-                    FAState ruleRefState = createRuleReferenceState(parentState, transition, skippedStates);
-                    buildRecursiveSkipState(ruleRefState, target, currentPath, new ArrayList<Integer>(skippedStates));
-                } else
-                    buildRecursiveSkipState(parentState, (NFAState)transition.target, currentPath, new ArrayList<Integer>(skippedStates));
-            }
+            stack.addFirst(Frame.skip(state, parentState, skippedStates));
         } else {
-            // The state cannot be skipped. Build the remaining of the NFA...
-            FAState targetState = buildRecursiveState(state, currentPath);
-            // and then create the transition from the parentState to this current state
-            // (this is the simplification ;-))
-            if(targetState.loop) {
-                // See comment above (in the previous method)
-                targetState.addTransition(new FATransition(parentState, skippedStates), true);
-                targetState.loop = false;
-            } else
-                parentState.addTransition(new FATransition(targetState, skippedStates));
+            // The state cannot be skipped. Build the remaining of the NFA and then create the
+            // transition from the parentState to this current state (this is the simplification ;-))
+            Frame frame = Frame.target(parentState, skippedStates);
+            stack.addFirst(frame);
+            FAState targetState = enterState(state, stack);
+            if(targetState == null) {
+                frame.waiting = true;
+            } else {
+                stack.removeFirst();
+                frame.complete(targetState);
+            }
+        }
+    }
+
+    private void nextSkippedTransition(Frame frame, LinkedList<Frame> stack) {
+        NFAState state = frame.state;
+        Transition transition = state.transition(frame.t++);
+
+        // Each transition gets its own copy of the skipped states, unless it is the only one
+        // and the states are not referenced by any other transition
+        List<Integer> skippedStates = frame.skippedStates;
+        if(state.getNumberOfTransitions() > 1 || targetStateIsInAnotherRule(transition))
+            skippedStates = new ArrayList<Integer>(skippedStates);
+
+        if(targetStateIsInAnotherRule(transition)) {
+            NFAState target = targetStateOfTransition(transition);
+            FAState ruleRefState = createRuleReferenceState(frame.parentState, transition, frame.skippedStates);
+            enterSkipState(ruleRefState, target, skippedStates, stack);
+        } else
+            enterSkipState(frame.parentState, (NFAState)transition.target, skippedStates, stack);
+    }
+
+    private void ensureCapacity(int size) {
+        if(processedStates.length < size) {
+            FAState[] states = new FAState[Math.max(size, processedStates.length*2)];
+            System.arraycopy(processedStates, 0, states, 0, processedStates.length);
+            processedStates = states;
+
+            boolean[] path = new boolean[states.length];
+            System.arraycopy(onPath, 0, path, 0, onPath.length);
+            onPath = path;
         }
     }
 
@@ -272,4 +366,66 @@ public class FAFactory {
         }
         return state;
     }
+
+    /** A frame of the explicit stack used to build the GUI NFA. A STATE frame follows the
+     * transitions of a state being built, a SKIP frame the transitions of a skipped state and
+     * a TARGET frame waits for a state to be built to create the transition to it.
+     */
+    private static class Frame {
+
+        public static final int STATE = 0;
+        public static final int SKIP = 1;
+        public static final int TARGET = 2;
+
+        public int kind;
+        public NFAState state;
+        public FAState js;
+        public int t = 0;
+
+        public FAState parentState;
+        public String label;
+        public List<Integer> skippedStates;
+        public boolean waiting = false;
+
+        public static Frame state(NFAState state, FAState js) {
+            Frame frame = new Frame();
+            frame.kind = STATE;
+            frame.state = state;
+            frame.js = js;
+            return frame;
+        }
+
+        public static Frame skip(NFAState state, FAState parentState, List<Integer> skippedStates) {
+            Frame frame = new Frame();
+            frame.kind = SKIP;
+            frame.state = state;
+            frame.parentState = parentState;
+            frame.skippedStates = skippedStates;
+            return frame;
+        }
+
+        public static Frame target(FAState parentState, List<Integer> skippedStates) {
+            Frame frame = new Frame();
+            frame.kind = TARGET;
+            frame.parentState = parentState;
+            frame.skippedStates = skippedStates;
+            return frame;
+        }
+
+        /** Creates the transition from the parent state to the target state */
+        public void complete(FAState targetState) {
+            FATransition transition;
+            if(targetState.loop) {
+                // Handle "loop" transition by creating a "normal" transition and assigning a flag
+                // to this transition so when drawing it, we can draw the arrow at the right place
+                // (in the reverse direction)
+                transition = kind == TARGET ? new FATransition(parentState, skippedStates) : new FATransition(label, parentState);
+                targetState.addTransition(transition, true);
+                targetState.loop = false;
+            } else {
+                transition = kind == TARGET ? new FATransition(targetState, skippedStates) : new FATransition(label, targetState);
+                parentState.addTransition(transition);
+            }
+        }
+    }
 }
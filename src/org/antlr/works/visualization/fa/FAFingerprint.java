@@ -0,0 +1,144 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+
+package org.antlr.works.visualization.fa;
+
+import org.antlr.analysis.NFAState;
+import org.antlr.analysis.RuleClosureTransition;
+import org.antlr.analysis.State;
+import org.antlr.analysis.Transition;
+import org.antlr.tool.Grammar;
+import org.antlr.works.utils.Utils;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/** This class computes a hash of the structure of the NFA of a rule: its states, as numbered
+ * in the order they are reached from the start state, and its transitions. Referenced rules
+ * contribute only their name. Because ANTLR numbers the states of the whole grammar, editing
+ * one rule shifts the state numbers of the others but leaves their hash unchanged.
+ *
+ */
+
+public class FAFingerprint {
+
+    protected Grammar g;
+    protected Map<NFAState,Integer> indexes = new HashMap<NFAState, Integer>();
+    protected Map<NFAState,Integer> incoming = new HashMap<NFAState, Integer>();
+
+    public FAFingerprint(Grammar g) {
+        this.g = g;
+    }
+
+    public String compute(NFAState startState) {
+        indexes.clear();
+        incoming.clear();
+
+        List<NFAState> states = new ArrayList<NFAState>();
+        LinkedList<NFAState> pending = new LinkedList<NFAState>();
+        index(startState, states, pending);
+        while(!pending.isEmpty()) {
+            NFAState state = pending.removeFirst();
+            // The FAFactory stops at the accepted state
+            if(state.isAcceptState())
+                continue;
+
+            for(int t=0; t<state.getNumberOfTransitions(); t++) {
+                NFAState target = targetOfTransition(state.transition(t));
+                Integer count = incoming.get(target);
+                incoming.put(target, count == null ? 1 : count + 1);
+                index(target, states, pending);
+            }
+        }
+
+        StringBuilder s = new StringBuilder();
+        for (NFAState state : states) {
+            appendState(s, state);
+        }
+        return digest(s.toString());
+    }
+
+    private void index(NFAState state, List<NFAState> states, LinkedList<NFAState> pending) {
+        if(indexes.containsKey(state))
+            return;
+
+        indexes.put(state, states.size());
+        states.add(state);
+        pending.add(state);
+    }
+
+    private void appendState(StringBuilder s, NFAState state) {
+        // Include everything the FAFactory looks at to decide if a state can be skipped
+        s.append(indexes.get(state));
+        if(state.stateNumber == 0) s.append('0');
+        if(state.isAcceptState()) s.append('A');
+        if(state.getDecisionNumber() > 0) s.append('D');
+        if(state.endOfBlockStateNumber != State.INVALID_STATE_NUMBER) s.append('B');
+        Integer count = incoming.get(state);
+        s.append('<').append(count == null ? 0 : count);
+
+        if(!state.isAcceptState()) {
+            for(int t=0; t<state.getNumberOfTransitions(); t++) {
+                Transition transition = state.transition(t);
+                s.append(t == 0 ? '{' : ',');
+                if(transition instanceof RuleClosureTransition) {
+                    s.append('@').append(g.getRuleName(((RuleClosureTransition)transition).rule.index));
+                } else if(transition.isEpsilon()) {
+                    s.append('e');
+                } else {
+                    s.append('\'').append(transition.label.toString(g)).append('\'');
+                }
+                s.append('>').append(indexes.get(targetOfTransition(transition)));
+            }
+        }
+        s.append(";\n");
+    }
+
+    private static NFAState targetOfTransition(Transition transition) {
+        if(transition instanceof RuleClosureTransition)
+            return ((RuleClosureTransition)transition).followState;
+        else
+            return (NFAState)transition.target;
+    }
+
+    private static String digest(String s) {
+        try {
+            return Utils.toHexString(MessageDigest.getInstance("MD5").digest(s.getBytes("UTF-8")));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
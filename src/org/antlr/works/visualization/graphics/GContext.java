@@ -41,20 +41,20 @@ import java.util.Stack;
 
 public class GContext {
 
-    public static final String EPSILON_WIDTH = "w";
-    public static final String EPSILON_UP = "u";
-    public static final String EPSILON_DOWN = "d";
+    public static final GLiteral EPSILON_WIDTH = GLiteral.symbol("w");
+    public static final GLiteral EPSILON_UP = GLiteral.symbol("u");
+    public static final GLiteral EPSILON_DOWN = GLiteral.symbol("d");
 
-    public static final String BOX_WIDTH = "W";
-    public static final String BOX_UP = "U";
-    public static final String BOX_DOWN = "D";
+    public static final GLiteral BOX_WIDTH = GLiteral.symbol("W");
+    public static final GLiteral BOX_UP = GLiteral.symbol("U");
+    public static final GLiteral BOX_DOWN = GLiteral.symbol("D");
 
-    public static final String NODE_WIDTH = "m";
-    public static final String NODE_UP = "y";
-    public static final String NODE_DOWN = "z";
+    public static final GLiteral NODE_WIDTH = GLiteral.symbol("m");
+    public static final GLiteral NODE_UP = GLiteral.symbol("y");
+    public static final GLiteral NODE_DOWN = GLiteral.symbol("z");
 
-    public static final String CHAR_WIDTH = "c";
-    public static final String LINE_SPACE = "L";
+    public static final GLiteral CHAR_WIDTH = GLiteral.symbol("c");
+    public static final GLiteral LINE_SPACE = GLiteral.symbol("L");
 
     public static final int ALIGN_CENTER = 0;
     public static final int ALIGN_CENTER_UP = 1;
@@ -63,6 +63,7 @@ public class GContext {
 
     public Container container;
     public GContextProvider provider;
+    public GContextListener listener;
 
     public GEngine engine;
     public Skin skin;
@@ -73,6 +74,8 @@ public class GContext {
     public int offsetY = 0;
     public boolean drawnode = false;
     public boolean drawdimension = false;
+    // Draws only the nodes intersecting the clip of the graphics
+    public boolean cull = true;
 
     private boolean showRuleName = true;
 
@@ -94,6 +97,10 @@ public class GContext {
         this.provider = provider;
     }
 
+    public void setListener(GContextListener listener) {
+        this.listener = listener;
+    }
+
     public void clearCache() {
         boxFont = null;
         titleFont = null;
@@ -197,27 +204,43 @@ public class GContext {
         return titleFont;
     }
 
-    public static String getStringWidth(String label) {
-        StringBuilder w = new StringBuilder();
-        for(int i=0; i<label.length(); i++) {
-            w.append(CHAR_WIDTH);
-        }
-        return GLiteral.max(w.toString(), GContext.BOX_WIDTH);
+    /** Returns the distance around the nodes and links within which the skin
+     * can still draw something: loops, arrows, circles and labels.
+     */
+    public float getPixelDrawingMargin() {
+        return getPixelNodeWidth()+getPixelValue(EPSILON_WIDTH)+getPixelBoxUp()+getPixelBoxDown()
+                +getPixelArrowWidth()+getPixelArrowHeight()+getBoxFont().getSize();
     }
 
-    public static String getBoxWidth(String label) {
-        StringBuilder w = new StringBuilder();
-        for(int i=0; i<label.length()+2; i++) {
-            w.append(CHAR_WIDTH);
-        }
-        return GLiteral.max(w.toString(), GContext.BOX_WIDTH);
+    /** Returns the area being drawn in the coordinates of the graph, or null if
+     * everything has to be drawn (i.e. no clip like when exporting to a file).
+     */
+    public Rectangle getDrawingArea() {
+        if(!cull || engine == null)
+            return null;
+
+        // Ask the engine: the graphics of the context is not used by the PS or SVG engines
+        Rectangle clip = engine.getClipBounds();
+        if(clip == null)
+            return null;
+
+        clip.translate(-offsetX, -offsetY);
+        return clip;
     }
 
-    public float getPixelValue(String s) {
-        if(s == null || s.length() == 0)
+    public static GLiteral getStringWidth(String label) {
+        return GLiteral.max(GLiteral.times(CHAR_WIDTH, label.length()), GContext.BOX_WIDTH);
+    }
+
+    public static GLiteral getBoxWidth(String label) {
+        return GLiteral.max(GLiteral.times(CHAR_WIDTH, label.length()+2), GContext.BOX_WIDTH);
+    }
+
+    public float getPixelValue(GLiteral s) {
+        if(GLiteral.isEmpty(s))
             return 0;
 
-        return GLiteral.evaluate(s, skin.getValuesMap())*value_factor;
+        return s.evaluate(skin.getValues())*value_factor;
     }
 
     public void setColor(Color color) {
@@ -335,6 +358,11 @@ public class GContext {
         skin.drawNode(node);
     }
 
+    public void nodeWasDrawn(GNode node) {
+        if(listener != null)
+            listener.contextDidDrawNode(node);
+    }
+
     public void drawLink(GLink link) {
         skin.drawLink(link);
     }
@@ -48,6 +48,11 @@ public abstract class GEngine {
 
     public abstract float getStringPixelWidth(Font font, String s);
 
+    /** Returns the bounds of the area being drawn, or null if everything is drawn */
+    public Rectangle getClipBounds() {
+        return null;
+    }
+
     public abstract void drawLine(float x0, float y0, float x1, float y1);
     public abstract void drawArc(float x, float y, float w, float h, int a0, int a1);
     public abstract void drawCircle(float x, float y, float r);
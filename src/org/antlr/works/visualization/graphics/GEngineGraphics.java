@@ -33,6 +33,7 @@ package org.antlr.works.visualization.graphics;
 
 import org.antlr.xjlib.appkit.gview.base.Vector2D;
 import org.antlr.xjlib.appkit.gview.shape.SLinkArc;
+import org.antlr.xjlib.appkit.swing.XJFontMetricsCache;
 
 import java.awt.*;
 import java.awt.font.TextLayout;
@@ -49,6 +50,12 @@ public class GEngineGraphics extends GEngine {
         return context.getGraphics2D();
     }
 
+    @Override
+    public Rectangle getClipBounds() {
+        Graphics2D g2d = getG2D();
+        return g2d == null ? null : g2d.getClipBounds();
+    }
+
     public void setColor(Color color) {
         getG2D().setColor(color);
     }
@@ -63,8 +70,7 @@ public class GEngineGraphics extends GEngine {
 
     public float getStringPixelWidth(Font font, String s) {
         getG2D().setFont(font);
-        TextLayout layout = new TextLayout(s, getG2D().getFont(), getG2D().getFontRenderContext());
-        return (float)layout.getBounds().getWidth();
+        return XJFontMetricsCache.getTextLayoutSize(getG2D().getFont(), getG2D().getFontRenderContext(), s).width;
     }
 
     public void drawLine(float x0, float y0, float x1, float y1) {
@@ -150,7 +156,11 @@ public class GEngineGraphics extends GEngine {
                 ty = (float)(y+layout.getBounds().getHeight()*0.5);
                 break;
         }
-        layout.draw(getG2D(), tx, ty-1);
+        drawLayout(layout, font, s, tx, ty-1);
+    }
+
+    protected void drawLayout(TextLayout layout, Font font, String s, float x, float y) {
+        layout.draw(getG2D(), x, y);
     }
 
     public void drawSpline(float x0, float y0, float x1, float y1, float startOffset, float endOffset, float flateness, boolean arrow) {
@@ -3,6 +3,7 @@ package org.antlr.works.visualization.graphics;
 import org.antlr.xjlib.appkit.swing.XJGraphics2DPS;
 
 import java.awt.*;
+import java.io.IOException;
 /*
 
 [The "BSD licence"]
@@ -51,4 +52,12 @@ public class GEnginePS extends GEngineGraphics {
         return g2d.getPSText();
     }
 
+    public void writePSToFile(String file, XJGraphics2DPS.ProgressListener listener) throws IOException {
+        g2d.writePSToFile(file, listener);
+    }
+
+    public void close() {
+        g2d.close();
+    }
+
 }
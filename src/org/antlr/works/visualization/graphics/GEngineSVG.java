@@ -0,0 +1,67 @@
+package org.antlr.works.visualization.graphics;
+
+import org.antlr.xjlib.appkit.swing.XJGraphics2DSVG;
+
+import java.awt.*;
+import java.awt.font.TextLayout;
+import java.io.IOException;
+import java.io.OutputStream;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+
+/**
+ * Renders the graph into SVG streamed to the output stream. Call close() once the graph has been drawn.
+ */
+public class GEngineSVG extends GEngineGraphics {
+
+    protected XJGraphics2DSVG g2d;
+
+    public GEngineSVG(OutputStream out, int width, int height) {
+        g2d = new XJGraphics2DSVG(out, width, height);
+    }
+
+    public Graphics2D getG2D() {
+        return g2d;
+    }
+
+    @Override
+    protected void drawLayout(TextLayout layout, Font font, String s, float x, float y) {
+        // Write the text instead of the outline of its glyphs
+        g2d.setFont(font);
+        g2d.drawString(s, x, y);
+    }
+
+    public void close() throws IOException {
+        g2d.close();
+    }
+
+}
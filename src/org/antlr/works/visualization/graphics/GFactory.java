@@ -37,13 +37,17 @@ import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
 import org.antlr.works.grammar.antlr.GrammarError;
 import org.antlr.works.utils.Console;
 import org.antlr.works.visualization.fa.FAFactory;
+import org.antlr.works.visualization.fa.FAFingerprint;
 import org.antlr.works.visualization.fa.FAState;
 import org.antlr.works.visualization.graphics.graph.GGraph;
+import org.antlr.works.visualization.graphics.graph.GGraphAbstract;
 import org.antlr.works.visualization.graphics.graph.GGraphGroup;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class GFactory {
 
@@ -51,9 +55,16 @@ public class GFactory {
     protected boolean optimize = true;
     protected Console console = null;
 
+    /** Set from another thread to abandon the graph being built with a CancellationException */
+    protected final AtomicBoolean cancelled = new AtomicBoolean(false);
+
     public GFactory() {
     }
 
+    public void setCancelled(boolean flag) {
+        cancelled.set(flag);
+    }
+
     public void setOptimize(boolean flag) {
         this.optimize = flag;
     }
@@ -66,14 +77,28 @@ public class GFactory {
         this.console = console;
     }
 
-    public List buildGraphsForRule(ANTLRGrammarEngine antlrEngineGrammar, String rule, List<GrammarError> errors) throws Exception {
+    /**
+     * Returns a key identifying the graph of the rule as built by this factory: two rules
+     * with the same key are rendered the same way, even if the grammar has changed elsewhere.
+     * Returns null if the rule has no NFA.
+     */
+    public String getGraphKey(ANTLRGrammarEngine antlrEngineGrammar, String rule) throws Exception {
+        NFAState startState = antlrEngineGrammar.getRuleStartState(rule);
+        if(startState == null)
+            return null;
+
+        String hash = new FAFingerprint(antlrEngineGrammar.getGrammarForRule(rule)).compute(startState);
+        return rule+":"+optimize+":"+hash;
+    }
+
+    public List<GGraphAbstract> buildGraphsForRule(ANTLRGrammarEngine antlrEngineGrammar, String rule, List<GrammarError> errors) throws Exception {
         if(antlrEngineGrammar == null)
             return null;
         
         if(errors == null || errors.size() == 0)
-            return Collections.singletonList(buildGraphsForRule(antlrEngineGrammar, rule));
+            return Collections.<GGraphAbstract>singletonList(buildGraphsForRule(antlrEngineGrammar, rule));
         else
-            return buildGraphsForErrors(antlrEngineGrammar, rule, errors);
+            return new ArrayList<GGraphAbstract>(buildGraphsForErrors(antlrEngineGrammar, rule, errors));
     }
 
     public GGraph buildGraphsForRule(ANTLRGrammarEngine antlrEngineGrammar, String rule) throws Exception {
@@ -81,7 +106,24 @@ public class GFactory {
         if(startState == null)
             return null;
 
-        FAState state = new FAFactory(antlrEngineGrammar.getGrammarForRule(rule)).buildNFA(startState, optimize);
+        return buildGraphsForRule(antlrEngineGrammar.getGrammarForRule(rule), rule);
+    }
+
+    /**
+     * Builds the graph of the rule from a grammar that has already been created. This method only
+     * reads the NFA of the grammar and can be called from several threads (one factory per thread).
+     */
+    public GGraph buildGraphsForRule(Grammar grammar, String rule) {
+        NFAState startState = grammar == null ? null : grammar.getRuleStartState(rule);
+        if(startState == null)
+            return null;
+
+        FAFactory factory = new FAFactory(grammar);
+        factory.setCancelFlag(cancelled);
+        FAState state = factory.buildNFA(startState, optimize);
+        if(cancelled.get())
+            throw new CancellationException();
+
         GGraph graph = renderer.render(state);
         graph.setName(rule);
 
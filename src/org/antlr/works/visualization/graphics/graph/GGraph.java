@@ -34,6 +34,7 @@ package org.antlr.works.visualization.graphics.graph;
 import org.antlr.analysis.NFAState;
 import org.antlr.works.visualization.graphics.GContext;
 import org.antlr.works.visualization.graphics.primitive.GDimension;
+import org.antlr.works.visualization.graphics.primitive.GLiteral;
 import org.antlr.works.visualization.graphics.shape.GLink;
 import org.antlr.works.visualization.graphics.shape.GNode;
 import org.antlr.works.visualization.serializable.SEncoder;
@@ -48,7 +49,7 @@ public class GGraph extends GGraphAbstract implements SSerializable {
     public List<GNode> nodes;
 
     public String name;
-    public String nameWidth;
+    public GLiteral nameWidth;
 
     public float offsetX = 0;
     public float offsetY = 0;
@@ -97,6 +98,10 @@ public class GGraph extends GGraphAbstract implements SSerializable {
         return getDimension().getPixelWidth(context);
     }
 
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
     public void render(float ox, float oy) {
         oy += getDimension().getPixelUp(context);
 
@@ -123,8 +128,13 @@ public class GGraph extends GGraphAbstract implements SSerializable {
             context.drawString(context.getRuleFont(), name, offsetX, offsetY, GContext.ALIGN_LEFT);            
         }
 
+        // Draw only the nodes visible in the clip (e.g. one tile of the view)
+        Rectangle area = context.getDrawingArea();
         for (GNode node : nodes) {
-            node.drawNodeAndLink();
+            if(area == null || node.intersects(area)) {
+                node.drawNodeAndLink();
+                context.nodeWasDrawn(node);
+            }
         }
 
         if(context.drawdimension) {
@@ -43,6 +43,7 @@ public abstract class GGraphAbstract extends GObject {
     public abstract GDimension getDimension();
     public abstract float getWidth();
     public abstract float getHeight();
+    public abstract int getNodeCount();
     public abstract void render(float ox, float oy);
     public abstract void draw();
 
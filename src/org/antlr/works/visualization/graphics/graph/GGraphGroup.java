@@ -102,6 +102,14 @@ public class GGraphGroup extends GGraphAbstract {
         return getDimension().getPixelWidth(context);
     }
 
+    public int getNodeCount() {
+        int count = 0;
+        for (GGraph graph : getGraphs()) {
+            count += graph.getNodeCount();
+        }
+        return count;
+    }
+
     public List<FATransition> getTransitionsMatchingSkippedStates(List<FATransition> candidates, List states) {
         /** First convert the list of NFAStates to a list of Integer containing
          * the state number
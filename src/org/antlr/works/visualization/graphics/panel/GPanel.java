@@ -464,6 +464,7 @@ public class GPanel implements XJNotificationObserver {
         public JPopupMenu getContextualMenu() {
             ContextualMenuFactory factory = editor.createContextualMenuFactory();
             factory.addItem(GrammarWindowMenu.MI_EXPORT_AS_EPS);
+            factory.addItem(GrammarWindowMenu.MI_EXPORT_AS_SVG);
             factory.addItem(GrammarWindowMenu.MI_EXPORT_AS_IMAGE);
             return factory.menu;
         }
@@ -0,0 +1,204 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+package org.antlr.works.visualization.graphics.panel;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Bounded cache of the fixed-size tiles used by GView to paint a graph. Only the tiles
+ * intersecting the visible area are rendered on the event thread; the ring of tiles
+ * around it is rendered in the background so scrolling does not have to wait for them.
+ *
+ * All the tiles belong to one paint size (i.e. one zoom level): a different size or a
+ * call to invalidate() bumps the generation and any tile rendered for an older
+ * generation is dropped instead of being stored.
+ */
+public class GTileCache {
+
+    public static final int TILE_SIZE = 256;
+
+    /** Number of bytes used by one tile (3 bytes per pixel) */
+    private static final long TILE_BYTES = (long)TILE_SIZE*TILE_SIZE*3;
+
+    private static final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "Syntax Diagram Tiles");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }
+    });
+
+    public interface Renderer {
+        /** Renders the area of the view whose top-left corner is at (x,y) into g2d */
+        void renderTile(Graphics2D g2d, int x, int y);
+    }
+
+    private final Map<Point,BufferedImage> tiles = new LinkedHashMap<Point,BufferedImage>(16, 0.75f, true);
+    private final Map<Point,Integer> pending = new LinkedHashMap<Point,Integer>();
+    private final int maxTiles;
+
+    private int generation = 0;
+    private int width = -1;
+    private int height = -1;
+
+    public GTileCache(long maxSize) {
+        maxTiles = (int)Math.max(1, maxSize/TILE_BYTES);
+    }
+
+    public synchronized void invalidate() {
+        generation++;
+        for(BufferedImage image : tiles.values()) {
+            image.flush();
+        }
+        tiles.clear();
+        pending.clear();
+    }
+
+    /**
+     * Sets the size of the area covered by the tiles. The tiles are discarded if the size changes.
+     */
+    public synchronized void setSize(int width, int height) {
+        if(this.width != width || this.height != height) {
+            invalidate();
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return tiles.isEmpty();
+    }
+
+    public synchronized int getWidth() {
+        return width;
+    }
+
+    public synchronized int getHeight() {
+        return height;
+    }
+
+    public synchronized int getCount() {
+        return tiles.size();
+    }
+
+    public synchronized BufferedImage get(int col, int row) {
+        return tiles.get(new Point(col, row));
+    }
+
+    /**
+     * Returns the tile at (col,row), rendering it synchronously if it is not yet in the cache.
+     */
+    public BufferedImage getOrRender(int col, int row, Renderer renderer) {
+        int g;
+        synchronized(this) {
+            BufferedImage image = tiles.get(new Point(col, row));
+            if(image != null)
+                return image;
+            g = generation;
+        }
+        BufferedImage image = render(col, row, renderer);
+        store(col, row, image, g);
+        return image;
+    }
+
+    /**
+     * Queues the background rendering of the tiles at (col,row) that are not yet in the cache.
+     */
+    public void prefetch(int col, int row, final Renderer renderer) {
+        final Point p = new Point(col, row);
+        final int g;
+        synchronized(this) {
+            if(tiles.containsKey(p) || pending.containsKey(p))
+                return;
+            if(col < 0 || row < 0 || col*TILE_SIZE >= width || row*TILE_SIZE >= height)
+                return;
+            g = generation;
+            pending.put(p, g);
+        }
+        prefetchExecutor.execute(new Runnable() {
+            public void run() {
+                synchronized(GTileCache.this) {
+                    if(generation != g) return;
+                }
+                BufferedImage image;
+                try {
+                    image = render(p.x, p.y, renderer);
+                } catch(RuntimeException e) {
+                    // The graph may have changed while rendering: the tile will be
+                    // rendered again when it becomes visible.
+                    synchronized(GTileCache.this) {
+                        pending.remove(p);
+                    }
+                    return;
+                }
+                store(p.x, p.y, image, g);
+            }
+        });
+    }
+
+    private synchronized void store(int col, int row, BufferedImage image, int g) {
+        Point p = new Point(col, row);
+        pending.remove(p);
+        if(generation != g)
+            return;
+
+        tiles.put(p, image);
+        // Evict the least recently used tiles
+        Iterator<BufferedImage> iterator = tiles.values().iterator();
+        while(tiles.size() > maxTiles && iterator.hasNext()) {
+            iterator.next().flush();
+            iterator.remove();
+        }
+    }
+
+    private static BufferedImage render(int col, int row, Renderer renderer) {
+        BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = (Graphics2D)image.getGraphics();
+        try {
+            g.setColor(Color.white);
+            g.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+            renderer.renderTile(g, col*TILE_SIZE, row*TILE_SIZE);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+}
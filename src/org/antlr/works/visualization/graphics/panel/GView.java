@@ -52,11 +52,13 @@ import java.util.List;
 public class GView extends JPanel implements XJMenuItemDelegate {
 
     protected boolean useCachedImage = true;
-    protected boolean cachedImageRerender = false;
     protected boolean cachedImageResize = false;
 
+    /** Maximum memory used by the tiles of the view */
+    protected static final long TILE_CACHE_SIZE = 32*1024*1024;
+
     protected String placeholder;
-    protected BufferedImage cachedImage = null;
+    protected GTileCache tileCache = new GTileCache(TILE_CACHE_SIZE);
 
     protected List graphs = new ArrayList();
     protected int currentGraphIndex = 0;
@@ -140,11 +142,11 @@ public class GView extends JPanel implements XJMenuItemDelegate {
     }
 
     public void cacheInvalidate() {
-        cachedImage = null;
+        tileCache.invalidate();
     }
 
     public void cacheRerender() {
-        cachedImageRerender = true;
+        tileCache.invalidate();
     }
 
     public void setCacheResizeImage(boolean flag) {
@@ -158,7 +160,7 @@ public class GView extends JPanel implements XJMenuItemDelegate {
         Graphics2D g = (Graphics2D)image.getGraphics();
         g.setColor(Color.white);
         g.fillRect(0, 0, getPaintWidth(), getPaintHeight());
-        render(g);
+        render(g, getCurrentGraph(), offset_x, offset_y);
         g.dispose();
         return image;
     }
@@ -205,8 +207,11 @@ public class GView extends JPanel implements XJMenuItemDelegate {
     }
 
     public void refresh() {
-        if(getCurrentGraph() != null)
-            getCurrentGraph().render(0, 0);
+        if(getCurrentGraph() != null) {
+            synchronized(context) {
+                getCurrentGraph().render(0, 0);
+            }
+        }
 
         cacheInvalidate();
         adjustSize();
@@ -217,8 +222,11 @@ public class GView extends JPanel implements XJMenuItemDelegate {
         if(useCachedImage) {
             setCacheResizeImage(useCacheImageResize);
             if(!useCacheImageResize) {
-                if(getCurrentGraph() != null)
-                    getCurrentGraph().render(0, 0);
+                if(getCurrentGraph() != null) {
+                    synchronized(context) {
+                        getCurrentGraph().render(0, 0);
+                    }
+                }
                 cacheInvalidate();
             }
             adjustSize();
@@ -295,12 +303,38 @@ public class GView extends JPanel implements XJMenuItemDelegate {
     }
 
     public void render(Graphics2D g2d) {
-        context.offsetX = offset_x;
-        context.offsetY = offset_y;
-        context.setGraphics2D(g2d);
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-        getCurrentGraph().draw();
+        render(g2d, getCurrentGraph(), offset_x, offset_y);
+    }
+
+    /**
+     * Renders the graph at the given offset. The tiles are rendered from the background thread
+     * which is why the graph and the offset are captured instead of being read from the view.
+     */
+    public void render(Graphics2D g2d, GGraphAbstract graph, int offsetX, int offsetY) {
+        // The context is shared by all the elements of the graphs
+        synchronized(context) {
+            context.offsetX = offsetX;
+            context.offsetY = offsetY;
+            context.setGraphics2D(g2d);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+            graph.draw();
+        }
+    }
+
+    protected GTileCache.Renderer createTileRenderer() {
+        final GGraphAbstract graph = getCurrentGraph();
+        final int offsetX = offset_x;
+        final int offsetY = offset_y;
+        return new GTileCache.Renderer() {
+            public void renderTile(Graphics2D g2d, int x, int y) {
+                ATEUtilities.prepareForText(g2d);
+                // The clip lets the graph draw only the nodes of this tile
+                g2d.clipRect(0, 0, GTileCache.TILE_SIZE, GTileCache.TILE_SIZE);
+                g2d.translate(-x, -y);
+                render(g2d, graph, offsetX, offsetY);
+            }
+        };
     }
 
     public int getPaintWidth() {
@@ -323,55 +357,92 @@ public class GView extends JPanel implements XJMenuItemDelegate {
         int width = getPaintWidth();
         int height = getPaintHeight();
 
-        if(useCachedImage) {
-            boolean sizeChanged = cachedImage != null && (cachedImage.getWidth() != width || cachedImage.getHeight() != height);
-
-            if(sizeChanged) {
-                // Discard the cache image only if it already exists and if the cachedImageResize flag is false.
-                // The cachedImageResize flag indicates, if true, that we should use the cachedImage
-                // instead of re-creating a new one (useful for fast live resize).
-                if(!cachedImageResize && cachedImage != null) {
-                    cachedImage.flush();
-                    cachedImage = null;
-                }
-            }
-
-            if(cachedImage == null) {
-                // Create a new cache image.
-                cachedImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
-                Graphics2D gCache = (Graphics2D)cachedImage.getGraphics();
-                ATEUtilities.prepareForText(gCache);
-                gCache.setColor(Color.white);
-                gCache.fillRect(0, 0, width, height);
-                render(gCache);
-                gCache.dispose();
-            } else if(cachedImageRerender) {
-                // Only render the cachedImage without re-creating it again
-                Graphics2D gCache = (Graphics2D)cachedImage.getGraphics();
-                ATEUtilities.prepareForText(gCache);
-                gCache.setColor(Color.white);
-                gCache.fillRect(0, 0, width, height);
-                render(gCache);
-                gCache.dispose();
-                cachedImageRerender = false;
-            }
-        }
-
-        if(cachedImage == null)
-            render((Graphics2D)g);
+        if(useCachedImage)
+            paintTiles(g, width, height);
         else
-            g.drawImage(cachedImage, 0, 0, width, height, null);
+            render((Graphics2D)g);
 
         if(!cachedImageResize && getCurrentGraph() instanceof GGraphGroup) {
             // Draw the selected segment of a path (and only if we are not resizing using only the cached image)
             Graphics2D g2d = (Graphics2D)g;
-            context.offsetX = offset_x;
-            context.offsetY = offset_y;
-            context.setGraphics2D(g2d);
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,RenderingHints.VALUE_ANTIALIAS_ON);
-            g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+            synchronized(context) {
+                context.offsetX = offset_x;
+                context.offsetY = offset_y;
+                context.setGraphics2D(g2d);
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,RenderingHints.VALUE_ANTIALIAS_ON);
+                g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+
+                getCurrentPathGroup().drawSelectedElement();
+            }
+        }
+    }
+
+    /**
+     * Paints only the tiles intersecting the clip. The tiles around them are rendered
+     * in the background at the current zoom level.
+     */
+    protected void paintTiles(Graphics g, int width, int height) {
+        Rectangle clip = g.getClipBounds();
+        if(clip == null)
+            clip = getVisibleRect();
+        clip = clip.intersection(new Rectangle(0, 0, width, height));
+        if(clip.isEmpty())
+            return;
+
+        Graphics2D g2d = (Graphics2D)g.create();
+        g2d.clipRect(0, 0, width, height);
+        try {
+            if(cachedImageResize && !tileCache.isEmpty()
+                    && (tileCache.getWidth() != width || tileCache.getHeight() != height))
+            {
+                // Live resize: scale the tiles of the previous size instead of rendering new ones
+                paintScaledTiles(g2d, clip, (double)width/tileCache.getWidth(), (double)height/tileCache.getHeight());
+                return;
+            }
+
+            tileCache.setSize(width, height);
+
+            GTileCache.Renderer renderer = createTileRenderer();
+            int size = GTileCache.TILE_SIZE;
+            int col0 = clip.x/size;
+            int row0 = clip.y/size;
+            int col1 = (clip.x+clip.width-1)/size;
+            int row1 = (clip.y+clip.height-1)/size;
+            for(int row = row0; row <= row1; row++) {
+                for(int col = col0; col <= col1; col++) {
+                    g2d.drawImage(tileCache.getOrRender(col, row, renderer), col*size, row*size, null);
+                }
+            }
+
+            // Prefetch the ring of tiles around the visible ones
+            for(int row = row0-1; row <= row1+1; row++) {
+                for(int col = col0-1; col <= col1+1; col++) {
+                    if(row < row0 || row > row1 || col < col0 || col > col1)
+                        tileCache.prefetch(col, row, renderer);
+                }
+            }
+        } finally {
+            g2d.dispose();
+        }
+    }
 
-            getCurrentPathGroup().drawSelectedElement();
+    protected void paintScaledTiles(Graphics2D g2d, Rectangle clip, double sx, double sy) {
+        int size = GTileCache.TILE_SIZE;
+        int col0 = (int)(clip.x/sx)/size;
+        int row0 = (int)(clip.y/sy)/size;
+        int col1 = (int)((clip.x+clip.width)/sx)/size;
+        int row1 = (int)((clip.y+clip.height)/sy)/size;
+        for(int row = row0; row <= row1; row++) {
+            for(int col = col0; col <= col1; col++) {
+                BufferedImage tile = tileCache.get(col, row);
+                if(tile == null) continue;
+
+                int x0 = (int)Math.floor(col*size*sx);
+                int y0 = (int)Math.floor(row*size*sy);
+                int x1 = (int)Math.ceil((col+1)*size*sx);
+                int y1 = (int)Math.ceil((row+1)*size*sy);
+                g2d.drawImage(tile, x0, y0, x1-x0, y1-y0, null);
+            }
         }
     }
 
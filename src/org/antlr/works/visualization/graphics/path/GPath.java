@@ -124,10 +124,14 @@ public class GPath extends GObject {
         context.linkColor = context.nodeColor;
         context.setLineWidth(width);
 
+        Rectangle area = context.getDrawingArea();
         for (GPathElement element : elements) {
             if (ignoreElements != null && ignoreElements.contains(element))
                 continue;
 
+            if (area != null && !element.intersects(area))
+                continue;
+
             if (!element.isVisible())
                 continue;
 
@@ -138,6 +138,25 @@ public class GPathElement extends GObject {
         }
     }
 
+    /** Returns true if the element can draw something inside the area (in the
+     * coordinates of the graph).
+     */
+    public boolean intersects(Rectangle area) {
+        if(nodeOrLink instanceof GNode)
+            return ((GNode)nodeOrLink).intersects(area);
+
+        if(nodeOrLink instanceof GLink)
+            return ((GLink)nodeOrLink).source.intersects(area);
+
+        Point2D p = getBeginPoint();
+        float x1 = (float)Math.min(p.getX(), target.getCenterX());
+        float y1 = (float)Math.min(p.getY(), target.getCenterY());
+        float x2 = (float)Math.max(p.getX(), target.getCenterX());
+        float y2 = (float)Math.max(p.getY(), target.getCenterY());
+        float margin = context.getPixelDrawingMargin();
+        return area.intersects(x1-margin, y1-margin, x2-x1+2*margin, y2-y1+2*margin);
+    }
+
     public void draw() {
         if(nodeOrLink != null)
             nodeOrLink.draw();
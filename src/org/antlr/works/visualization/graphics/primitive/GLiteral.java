@@ -31,15 +31,24 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.antlr.works.visualization.graphics.primitive;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /** This class is used to manipulate literal value in position/dimension.
  * Very useful in order to quickly redraw a graph without having to walk recursively
  * the NFA (this allows to remove the associated NFA and to be more independant of it)
  *
+ * A literal is an immutable expression of symbols (the skin values like the width of a box)
+ * whose sub-expressions are shared between the positions and dimensions of a graph. It is
+ * evaluated against the array of values of a skin and each node remembers its value for
+ * these values, so a graph is evaluated in a time proportional to the number of nodes
+ * when it is rendered again with the same skin. The string representation (see toString())
+ * is the one used by the serialization.
  */
 
-public class GLiteral {
+public abstract class GLiteral {
 
     public static final String OP_SUB = "-";
     public static final String OP_MAX = "#";
@@ -48,103 +57,252 @@ public class GLiteral {
     public static final String OP_COMA = ",";
     public static final String OP_NULL = "!";
 
-    public static String substract(String a, String b) {
-        return a+OP_SUB+OP_LPAREN+b+OP_RPAREN;
+    public static final GLiteral ZERO = new Zero();
+
+    private static final Map<String, Symbol> symbols = new HashMap<String, Symbol>();
+
+    /** Value of this literal for the last values it was evaluated with */
+    protected Memo memo;
+
+    /** Returns the literal of the symbol, always the same instance for the same name */
+    public static synchronized GLiteral symbol(String name) {
+        Symbol s = symbols.get(name);
+        if(s == null) {
+            s = new Symbol(name, symbols.size());
+            symbols.put(name, s);
+        }
+        return s;
     }
 
-    public static String add(String a, String b) {
-        return a+b;
+    public static synchronized int getSymbolCount() {
+        return symbols.size();
     }
 
-    public static String max(String a, String b) {
-        boolean anull = a == null || a.length() == 0;
-        boolean bnull = b == null || b.length() == 0;
+    public static GLiteral substract(GLiteral a, GLiteral b) {
+        return add(a, new Negate(b));
+    }
+
+    public static GLiteral add(GLiteral a, GLiteral b) {
+        if(isEmpty(a))
+            return b == null ? ZERO : b;
+        else if(isEmpty(b))
+            return a;
+        else
+            return new Sum(a, b);
+    }
+
+    public static GLiteral max(GLiteral a, GLiteral b) {
+        boolean anull = isEmpty(a);
+        boolean bnull = isEmpty(b);
         if(anull && bnull)
-            return "";
+            return ZERO;
         else if(anull)
             return b;
         else if(bnull)
             return a;
         else
-            return OP_MAX+OP_LPAREN+a+OP_COMA+b+OP_RPAREN;
+            return new Max(a, b);
     }
 
-    public static float evaluate(String s, Map<String,Float> values) {
-        if(s == null)
-            return 0;
+    /** Returns the sum of count times the literal */
+    public static GLiteral times(GLiteral a, int count) {
+        if(isEmpty(a) || count <= 0)
+            return ZERO;
+        else if(count == 1)
+            return a;
+        else
+            return new Times(a, count);
+    }
+
+    public static boolean isEmpty(GLiteral a) {
+        return a == null || a == ZERO;
+    }
+
+    public float evaluate(Values values) {
+        Memo m = memo;
+        if(m != null && m.values == values)
+            return m.value;
 
-        return new Evaluator(s, values).evaluate();
+        float value = compute(values);
+        memo = new Memo(values, value);
+        return value;
     }
 
-    private static class Evaluator {
+    private boolean isEvaluated(Values values) {
+        Memo m = memo;
+        return m != null && m.values == values;
+    }
+
+    protected abstract float compute(Values values);
+
+    protected abstract void append(StringBuilder sb);
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        append(sb);
+        return sb.toString();
+    }
 
-        public String s;
-        public Map<String,Float> values;
-        public int position;
+    /** The values of the symbols for a skin, indexed by symbol */
+    public static class Values {
 
-        public Evaluator(String s, Map<String,Float> values) {
-            this.s = s;
+        private final float[] values;
+
+        public Values(Map<String, Float> map) {
+            values = new float[getSymbolCount()];
+            for(Map.Entry<String, Float> entry : map.entrySet()) {
+                values[((Symbol)symbol(entry.getKey())).index] = entry.getValue();
+            }
+        }
+
+        public float get(int index) {
+            return index < values.length ? values[index] : 0;
+        }
+    }
+
+    private static class Memo {
+
+        final Values values;
+        final float value;
+
+        Memo(Values values, float value) {
             this.values = values;
+            this.value = value;
         }
+    }
+
+    private static class Zero extends GLiteral {
 
-        public float evaluate() {
-            position = 0;
-            return eval();
+        protected float compute(Values values) {
+            return 0;
         }
 
-        private float eval() {
-            float _value = 0;
+        protected void append(StringBuilder sb) {
+        }
+    }
+
+    private static class Symbol extends GLiteral {
 
-            do {
-                Float v = values.get(c());
-                if(v != null) {
-                    _value += v;
-                } else {
-                    if(c().equals(OP_SUB))
-                        _value -= evaluate_sub();
-                    else if(c().equals(OP_MAX))
-                        _value += evaluate_max();
-                    else if(c().equals(OP_RPAREN))
-                        break;
-                    else if(c().equals(OP_COMA))
-                        break;
-                    else
-                        System.err.println("** Evaluator: unexpected token \""+c()+"\"");
-                }
-            } while(nextChar());
+        final String name;
+        final int index;
 
-            return _value;
+        Symbol(String name, int index) {
+            this.name = name;
+            this.index = index;
         }
 
-        private float evaluate_sub() {
-            match(OP_SUB);
-            match(OP_LPAREN);
-            return eval();
+        protected float compute(Values values) {
+            return values.get(index);
+        }
+
+        protected void append(StringBuilder sb) {
+            sb.append(name);
+        }
+    }
+
+    private static class Times extends GLiteral {
+
+        final GLiteral a;
+        final int count;
+
+        Times(GLiteral a, int count) {
+            this.a = a;
+            this.count = count;
         }
 
-        private float evaluate_max() {
-            match(OP_MAX);
-            match(OP_LPAREN);
-            float a = eval();
-            match(OP_COMA);
-            float b = eval();
-            return Math.max(a,b);
+        protected float compute(Values values) {
+            return a.evaluate(values)*count;
         }
 
-        private boolean nextChar() {
-            position++;
-            return position<s.length();
+        protected void append(StringBuilder sb) {
+            for(int i=0; i<count; i++) {
+                a.append(sb);
+            }
+        }
+    }
+
+    private static class Sum extends GLiteral {
+
+        final GLiteral left;
+        final GLiteral right;
+
+        Sum(GLiteral left, GLiteral right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        protected float compute(Values values) {
+            // The positions are built by adding to the previous position which makes long chains
+            // on the left: evaluate them iteratively from the first sum not yet evaluated
+            List<Sum> chain = new ArrayList<Sum>();
+            GLiteral node = this;
+            while(node instanceof Sum && (node == this || !node.isEvaluated(values))) {
+                chain.add((Sum)node);
+                node = ((Sum)node).left;
+            }
+
+            float value = node.evaluate(values);
+            for(int i=chain.size()-1; i>0; i--) {
+                Sum s = chain.get(i);
+                value += s.right.evaluate(values);
+                s.memo = new Memo(values, value);
+            }
+            return value+right.evaluate(values);
+        }
+
+        protected void append(StringBuilder sb) {
+            List<GLiteral> rights = new ArrayList<GLiteral>();
+            GLiteral node = this;
+            while(node instanceof Sum) {
+                rights.add(((Sum)node).right);
+                node = ((Sum)node).left;
+            }
+            node.append(sb);
+            for(int i=rights.size()-1; i>=0; i--) {
+                rights.get(i).append(sb);
+            }
+        }
+    }
+
+    private static class Negate extends GLiteral {
+
+        final GLiteral a;
+
+        Negate(GLiteral a) {
+            this.a = a;
+        }
+
+        protected float compute(Values values) {
+            return -a.evaluate(values);
+        }
+
+        protected void append(StringBuilder sb) {
+            sb.append(OP_SUB).append(OP_LPAREN);
+            a.append(sb);
+            sb.append(OP_RPAREN);
+        }
+    }
+
+    private static class Max extends GLiteral {
+
+        final GLiteral a;
+        final GLiteral b;
+
+        Max(GLiteral a, GLiteral b) {
+            this.a = a;
+            this.b = b;
         }
 
-        private void match(String token) {
-            if(c().equals(token))
-                nextChar();
-            else
-                System.err.println("** Evaluator: unexpected token \""+c()+"\"");
+        protected float compute(Values values) {
+            return Math.max(a.evaluate(values), b.evaluate(values));
         }
 
-        private String c() {
-            return s.substring(position, position+1);
+        protected void append(StringBuilder sb) {
+            sb.append(OP_MAX).append(OP_LPAREN);
+            a.append(sb);
+            sb.append(OP_COMA);
+            b.append(sb);
+            sb.append(OP_RPAREN);
         }
     }
 }
@@ -152,9 +152,42 @@ public class GNode extends GObject implements SSerializable {
         return context.objectContainsPoint(this, p);
     }
 
+    /** Returns true if the node or one of its links can draw something inside
+     * the area (in the coordinates of the graph).
+     */
+    public boolean intersects(Rectangle area) {
+        float x1 = getX();
+        float y1 = getY()-globalDimension.getPixelUp(null);
+        float x2 = getX()+globalDimension.getPixelWidth(null);
+        float y2 = getY()+globalDimension.getPixelDown(null);
+
+        for (GLink link : links) {
+            x1 = Math.min(x1, link.target.getX());
+            y1 = Math.min(y1, link.target.getY());
+            x2 = Math.max(x2, link.target.getEndX());
+            y2 = Math.max(y2, link.target.getY());
+
+            if(link.virtualPosition != null) {
+                y1 = Math.min(y1, link.getVirtualY());
+                y2 = Math.max(y2, link.getVirtualY());
+            }
+
+            if(link.transition.label != null) {
+                // The label can be centered between the source and the target (e.g. NFA)
+                float middle = (getX()+link.target.getX())/2;
+                float half = context.getPixelValue(GContext.getBoxWidth(link.transition.label))/2;
+                x1 = Math.min(x1, middle-half);
+                x2 = Math.max(x2, middle+half);
+            }
+        }
+
+        float margin = context.getPixelDrawingMargin();
+        return area.intersects(x1-margin, y1-margin, x2-x1+2*margin, y2-y1+2*margin);
+    }
+
     private void cacheGlobalDimension(GContext context) {
         globalDimension = new GDimension();
-        globalDimension.addWidth(nodeDimension.width+linkDimension.width);
+        globalDimension.addWidth(GLiteral.add(nodeDimension.width, linkDimension.width));
         globalDimension.addUp(GLiteral.max(nodeDimension.up, linkDimension.up));
         globalDimension.addDown(GLiteral.max(nodeDimension.down, linkDimension.down));
         globalDimension.cache(context);
@@ -33,6 +33,7 @@ package org.antlr.works.visualization.skin;
 
 import org.antlr.works.visualization.graphics.GContext;
 import org.antlr.works.visualization.graphics.GObject;
+import org.antlr.works.visualization.graphics.primitive.GLiteral;
 import org.antlr.works.visualization.graphics.shape.GLink;
 import org.antlr.works.visualization.graphics.shape.GNode;
 
@@ -58,6 +59,7 @@ public abstract class Skin {
     protected float value_line_space = 0;
 
     protected Map<String,Float> values = null;
+    protected GLiteral.Values literalValues = null;
 
     public Skin() {
     }
@@ -66,26 +68,35 @@ public abstract class Skin {
         if(values == null) {
             values = new HashMap<String, Float>();
 
-            values.put(GContext.EPSILON_WIDTH, value_epsilon_width);
-            values.put(GContext.EPSILON_UP, value_epsilon_up);
-            values.put(GContext.EPSILON_DOWN, value_epsilon_down);
+            values.put(GContext.EPSILON_WIDTH.toString(), value_epsilon_width);
+            values.put(GContext.EPSILON_UP.toString(), value_epsilon_up);
+            values.put(GContext.EPSILON_DOWN.toString(), value_epsilon_down);
 
-            values.put(GContext.BOX_WIDTH, value_box_width);
-            values.put(GContext.BOX_UP, value_box_up);
-            values.put(GContext.BOX_DOWN, value_box_down);
+            values.put(GContext.BOX_WIDTH.toString(), value_box_width);
+            values.put(GContext.BOX_UP.toString(), value_box_up);
+            values.put(GContext.BOX_DOWN.toString(), value_box_down);
 
-            values.put(GContext.NODE_WIDTH, value_node_width);
-            values.put(GContext.NODE_UP, value_node_up);
-            values.put(GContext.NODE_DOWN, value_node_down);
+            values.put(GContext.NODE_WIDTH.toString(), value_node_width);
+            values.put(GContext.NODE_UP.toString(), value_node_up);
+            values.put(GContext.NODE_DOWN.toString(), value_node_down);
 
-            values.put(GContext.CHAR_WIDTH, value_char_width);
-            values.put(GContext.LINE_SPACE, value_line_space);
+            values.put(GContext.CHAR_WIDTH.toString(), value_char_width);
+            values.put(GContext.LINE_SPACE.toString(), value_line_space);
         }
         return values;
     }
 
+    /** Returns the values used to evaluate the literals of the graphs */
+    public GLiteral.Values getValues() {
+        if(literalValues == null) {
+            literalValues = new GLiteral.Values(getValuesMap());
+        }
+        return literalValues;
+    }
+
     public void resetValues() {
         values = null;
+        literalValues = null;
     }
     
     public void setValueLineSpace(float value) {
@@ -41,10 +41,12 @@ import org.antlr.xjlib.appkit.gview.timer.GTimer;
 import org.antlr.xjlib.appkit.gview.timer.GTimerDelegate;
 import org.antlr.xjlib.appkit.gview.utils.GAlphaVariator;
 import org.antlr.xjlib.appkit.gview.utils.GMagnetic;
+import org.antlr.xjlib.appkit.gview.utils.GSpatialIndex;
 import org.antlr.xjlib.appkit.menu.XJMenu;
 import org.antlr.xjlib.appkit.menu.XJMenuItem;
 import org.antlr.xjlib.appkit.menu.XJMenuItemDelegate;
 import org.antlr.xjlib.appkit.swing.XJGraphics2DPS;
+import org.antlr.xjlib.appkit.swing.XJGraphics2DSVG;
 
 import javax.swing.*;
 import javax.swing.event.PopupMenuEvent;
@@ -52,7 +54,11 @@ import javax.swing.event.PopupMenuListener;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.image.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 public class GView extends XJView implements XJMenuItemDelegate, GTimerDelegate, GEventDelegate {
@@ -65,6 +71,10 @@ public class GView extends XJView implements XJMenuItemDelegate, GTimerDelegate,
 
     protected GElement rootElement = null;
 
+    /** Index of the elements of the root used to find the element at a point */
+    protected GSpatialIndex spatialIndex = new GSpatialIndex();
+    protected boolean spatialIndexEnabled = true;
+
     protected Point lastMousePosition = null;
     protected boolean smoothGraphics = true;
     protected float zoom = 1;
@@ -113,6 +123,7 @@ public class GView extends XJView implements XJMenuItemDelegate, GTimerDelegate,
 
     public void setRootElement(GElement element) {
         this.rootElement = element;
+        spatialIndex.setRoot(element);
         if(rootElement != null) {
             this.rootElement.setPanel(this);
             autoAdjustSize();
@@ -123,6 +134,23 @@ public class GView extends XJView implements XJMenuItemDelegate, GTimerDelegate,
         return rootElement;
     }
 
+    /**
+     * Enables the spatial index used to find the element at a point. It can be disabled
+     * when the root element provides its own match() for which the order matters.
+     */
+    public void setSpatialIndexEnabled(boolean flag) {
+        this.spatialIndexEnabled = flag;
+        spatialIndex.invalidate();
+    }
+
+    public boolean isSpatialIndexEnabled() {
+        return spatialIndexEnabled;
+    }
+
+    public GSpatialIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
     public GEventManager getEventManager() {
         return eventManager;
     }
@@ -278,11 +306,11 @@ public class GView extends XJView implements XJMenuItemDelegate, GTimerDelegate,
 
     public void scrollElementToVisible(GElement element) {
         Rectangle r;
-        Rect frame = element.getFrame();
+        Rect frame = spatialIndexEnabled ? spatialIndex.getFrame(element) : element.getFrame();
         if(frame == null)
             r = new Rectangle((int)element.getPositionX(), (int)element.getPositionY(), 1, 1);
         else
-            r = frame.r;
+            r = new Rectangle(frame.r);
 
         // Scale according to the current zoom
         r.x *= zoom;
@@ -338,10 +366,37 @@ public class GView extends XJView implements XJMenuItemDelegate, GTimerDelegate,
     }
 
     public String getEPS() {
+        XJGraphics2DPS g2d = createEPS();
+        try {
+            return g2d.getPSText();
+        } finally {
+            g2d.close();
+        }
+    }
+
+    /**
+     * Draws the view into a PostScript graphics which can then be streamed using writePS()
+     * (and must be closed afterward). This method can be called from a background thread:
+     * drawRecursive() locks the elements of each level of the tree while they are drawn.
+     */
+    public XJGraphics2DPS createEPS() {
+        GElement root = rootElement;
         XJGraphics2DPS g2d = new XJGraphics2DPS();
         g2d.setMargins(6, 6);
+        try {
+            root.drawRecursive(g2d);
+        } catch(RuntimeException e) {
+            g2d.close();
+            throw e;
+        }
+        return g2d;
+    }
+
+    public void writeSVG(OutputStream out) throws IOException {
+        Dimension d = getPreferredSize();
+        XJGraphics2DSVG g2d = new XJGraphics2DSVG(out, d.width, d.height);
         rootElement.drawRecursive(g2d);
-        return g2d.getPSText();
+        g2d.close();
     }
 
     // Does not work currently - don't know why...
@@ -421,10 +476,34 @@ public class GView extends XJView implements XJMenuItemDelegate, GTimerDelegate,
     }
 
     public GElement getElementAtPoint(Point p) {
-        if(rootElement != null)
-            return rootElement.match(p);
-        else
+        if(rootElement == null)
             return null;
+
+        if(spatialIndexEnabled)
+            return spatialIndex.match(p);
+        else
+            return rootElement.match(p);
+    }
+
+    // *** Notifications from the elements
+
+    public void elementGeometryDidChange(GElement element) {
+        if(spatialIndexEnabled)
+            spatialIndex.elementGeometryDidChange(element);
+    }
+
+    public void elementWasAdded(GElement parent, GElement element) {
+        if(spatialIndexEnabled)
+            spatialIndex.elementWasAdded(parent, element);
+    }
+
+    public void elementWasRemoved(GElement parent, GElement element) {
+        if(spatialIndexEnabled)
+            spatialIndex.elementWasRemoved(parent, element);
+    }
+
+    public void elementHierarchyDidChange(GElement parent) {
+        spatialIndex.invalidate();
     }
 
     public void changeDone() {
@@ -439,16 +518,37 @@ public class GView extends XJView implements XJMenuItemDelegate, GTimerDelegate,
         if(rootElement == null || rootElement.getElements() == null)
             return;
 
-        for (GElement element : rootElement.getElements()) {
-            boolean selected = Rect.intersect(rectangle, element.bounds());
-            element.setSelected(selected);
-            if (selected)
-                addSelectedElement(element);
-            else
-                removeSelectedElement(element);
+        if(!spatialIndexEnabled) {
+            for (GElement element : rootElement.getElements()) {
+                setElementSelected(element, Rect.intersect(rectangle, element.bounds()));
+            }
+            return;
+        }
+
+        Set<GElement> selected = new LinkedHashSet<GElement>();
+        for (GElement element : spatialIndex.query(rectangle)) {
+            if(Rect.intersect(rectangle, element.bounds()))
+                selected.add(element);
+        }
+
+        // Only the elements already selected can have to be deselected
+        for (GElement element : new ArrayList<GElement>(getSelectedElements())) {
+            if(!selected.contains(element))
+                setElementSelected(element, false);
+        }
+        for (GElement element : selected) {
+            setElementSelected(element, true);
         }
     }
 
+    protected void setElementSelected(GElement element, boolean selected) {
+        element.setSelected(selected);
+        if (selected)
+            addSelectedElement(element);
+        else
+            removeSelectedElement(element);
+    }
+
     public void selectAllElements(boolean select) {
         if(rootElement == null)
             return;
@@ -85,6 +85,18 @@ public class Path2D {
         return false;
     }
 
+    /** Returns the bounds of the points of the path or null if the path is empty */
+    public Rect getBounds() {
+        Rectangle r = null;
+        for (Vector2D v : points) {
+            if(r == null)
+                r = new Rectangle((int)v.getX(), (int)v.getY(), 0, 0);
+            else
+                r.add(v.getX(), v.getY());
+        }
+        return r == null ? null : new Rect(r);
+    }
+
     public Vector2D getEndDirection() {
         if(points.size()<2)
             return null;
@@ -146,6 +146,8 @@ public abstract class GElement implements XJXMLSerializable {
 
     public void setElements(List<GElement> elements) {
         this.elements = elements;
+        if(view != null)
+            view.elementHierarchyDidChange(this);
     }
 
     public List<GElement> getElements() {
@@ -157,12 +159,17 @@ public abstract class GElement implements XJXMLSerializable {
         synchronized(lock) {
             elements.add(element);
         }
+        if(view != null)
+            view.elementWasAdded(this, element);
     }
 
     public void removeElement(GElement element) {
+        boolean removed;
         synchronized(lock) {
-            elements.remove(element);
+            removed = elements.remove(element);
         }
+        if(removed && view != null)
+            view.elementWasRemoved(this, element);
     }
 
     public GElement getFirstElement() {
@@ -266,6 +273,14 @@ public abstract class GElement implements XJXMLSerializable {
         return null;
     }
 
+    /**
+     * Returns the bounds of the area where match() can find this element or one of its
+     * children. It is the same as bounds() unless the element can be hit outside of its frame.
+     */
+    public Rect hitBounds() {
+        return bounds();
+    }
+
     public void setFocused(boolean flag) {
         focused = flag;
     }
@@ -435,10 +450,14 @@ public abstract class GElement implements XJXMLSerializable {
 
     public void elementPositionDidChange() {
         updateAnchors();
+        if(view != null)
+            view.elementGeometryDidChange(this);
     }
 
     public void elementDimensionDidChange() {
         updateAnchors();
+        if(view != null)
+            view.elementGeometryDidChange(this);
     }
 
     /**
@@ -95,6 +95,7 @@ public class GLink extends GElement implements XJXMLSerializable {
         if(link instanceof SLinkBezier) {
             SLinkBezier lb = (SLinkBezier)link;
             lb.setControlPoints(points);
+            elementDimensionDidChange();
         }
     }
 
@@ -123,6 +124,7 @@ public class GLink extends GElement implements XJXMLSerializable {
 
     public void setSource(GElement source) {
         this.source = source;
+        elementDimensionDidChange();
     }
 
     public GElement getSource() {
@@ -131,6 +133,7 @@ public class GLink extends GElement implements XJXMLSerializable {
 
     public void setTarget(GElement target) {
         this.target = target;
+        elementDimensionDidChange();
     }
 
     public GElement getTarget() {
@@ -240,11 +243,13 @@ public class GLink extends GElement implements XJXMLSerializable {
         link = createLinkInstance();
         link.setFlateness(flateness);
         link.setDirection(direction);
+        elementDimensionDidChange();
     }
 
     public void setMousePosition(Point mouse) {
         link.setDirection(Vector2D.vector(mouse).sub(target.getPosition()));
         link.setMousePosition(Vector2D.vector(mouse));
+        elementDimensionDidChange();
     }
 
     @Override
@@ -253,6 +258,12 @@ public class GLink extends GElement implements XJXMLSerializable {
         return link.getFrame();
     }
 
+    @Override
+    public Rect hitBounds() {
+        update();
+        return link.getHitFrame();
+    }
+
     @Override
     public boolean isInside(Point p) {
         return link != null && link.contains(p.x, p.y);
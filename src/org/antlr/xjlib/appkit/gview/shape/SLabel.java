@@ -33,6 +33,7 @@ package org.antlr.xjlib.appkit.gview.shape;
 
 import org.antlr.xjlib.appkit.gview.base.Rect;
 import org.antlr.xjlib.appkit.gview.base.Vector2D;
+import org.antlr.xjlib.appkit.swing.XJFontMetricsCache;
 import org.antlr.xjlib.foundation.XJXMLSerializable;
 
 import java.awt.*;
@@ -94,18 +95,18 @@ public class SLabel implements XJXMLSerializable {
 
     public static void drawCenteredString(String s, double x, double y, Graphics g) {
         if(s != null) {
-            FontMetrics fm = g.getFontMetrics();
-            int xx = (int)(x-fm.stringWidth(s)*0.5);
-            int yy = (int)(y+fm.getHeight()*0.5);
+            XJFontMetricsCache.Size size = XJFontMetricsCache.getStringSize(g.getFontMetrics(), s);
+            int xx = (int)(x-size.width*0.5);
+            int yy = (int)(y+size.height*0.5);
             g.drawString(s, xx, yy);
         }
     }
 
     public static Rect getFrame(String s, double x, double y, Graphics g) {
         if(s != null && g != null) {
-            FontMetrics fm = g.getFontMetrics();
-            return new Rect(x-fm.stringWidth(s)*0.5, y-fm.getHeight()*0.5,
-                            fm.stringWidth(s), fm.getHeight());
+            XJFontMetricsCache.Size size = XJFontMetricsCache.getStringSize(g.getFontMetrics(), s);
+            return new Rect(x-size.width*0.5, y-size.height*0.5,
+                            size.width, size.height);
         } else
             return new Rect(0, 0, 0, 0);
     }
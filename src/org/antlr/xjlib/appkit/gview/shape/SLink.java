@@ -251,6 +251,15 @@ public abstract class SLink implements XJXMLSerializable {
         return new Rect(start, end);
     }
 
+    /**
+     * Returns a frame containing every point for which contains() can be true. The frame
+     * only joins the two ends of the link so the links drawing a curve or an elbow outside
+     * of it have to extend it.
+     */
+    public Rect getHitFrame() {
+        return getFrame();
+    }
+
     public void setMousePosition(Vector2D position) {
 
     }
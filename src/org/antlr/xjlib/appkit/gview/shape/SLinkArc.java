@@ -31,6 +31,7 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.antlr.xjlib.appkit.gview.shape;
 
+import org.antlr.xjlib.appkit.gview.base.Rect;
 import org.antlr.xjlib.appkit.gview.base.Vector2D;
 import org.antlr.xjlib.foundation.XJXMLSerializable;
 
@@ -123,6 +124,16 @@ public class SLinkArc extends SLink implements XJXMLSerializable {
         return false;
     }
 
+    public Rect getHitFrame() {
+        // A curve is contained in the bounds of its control points
+        Rect frame = getFrame();
+        if(selfLoop && cubic != null)
+            return frame.union(new Rect(cubic.getBounds()));
+        if(!selfLoop && quad != null)
+            return frame.union(new Rect(quad.getBounds()));
+        return frame;
+    }
+
     public boolean contains(double x, double y) {
         if(selfLoop && cubic != null)
             return contains(cubic.getPathIterator(null), x, y);
@@ -33,6 +33,7 @@ package org.antlr.xjlib.appkit.gview.shape;
 
 import org.antlr.xjlib.appkit.gview.base.Anchor2D;
 import org.antlr.xjlib.appkit.gview.base.Path2D;
+import org.antlr.xjlib.appkit.gview.base.Rect;
 import org.antlr.xjlib.appkit.gview.base.Vector2D;
 import org.antlr.xjlib.foundation.XJXMLSerializable;
 
@@ -82,6 +83,12 @@ public class SLinkElbow extends SLink implements XJXMLSerializable {
         return offsetToMouse;
     }
 
+    public Rect getHitFrame() {
+        Rect frame = getFrame();
+        Rect bounds = path.getBounds();
+        return bounds == null ? frame : frame.union(bounds);
+    }
+
     public boolean contains(double x, double y) {
         return path.contains(x, y);
     }
@@ -0,0 +1,442 @@
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+
+package org.antlr.xjlib.appkit.gview.utils;
+
+import org.antlr.xjlib.appkit.gview.base.Rect;
+import org.antlr.xjlib.appkit.gview.object.GElement;
+import org.antlr.xjlib.appkit.gview.object.GLink;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Uniform grid indexing the children of the root element of a GView by their bounds so
+ * finding the element at a point only tests the few elements of one cell instead of the
+ * whole graph. The elements are found in the same order as GElement.match() would find them.
+ *
+ * The index is updated incrementally when an element is added, removed, moved or resized,
+ * together with the links attached to it. A change to a nested element updates the entry of
+ * the child of the root containing it. Replacing the children of an element makes the index
+ * rebuild itself the next time it is queried. Like the view, it is meant to be used from the
+ * event thread.
+ */
+public class GSpatialIndex {
+
+    public static final int CELL_SIZE = 128;
+
+    /** Elements covering more cells are kept in a list checked by every query */
+    public static final int MAX_CELLS_PER_ELEMENT = 256;
+
+    /** Margin around the bounds of an element to include the tolerance of the hit-test of the links */
+    public static final int MARGIN = 8;
+
+    private final Map<Long,List<Entry>> cells = new HashMap<Long,List<Entry>>();
+    private final List<Entry> large = new ArrayList<Entry>();
+    private final Map<GElement,Entry> entries = new HashMap<GElement,Entry>();
+    /** Entry of the child of the root containing each nested element */
+    private final Map<GElement,Entry> ancestors = new HashMap<GElement,Entry>();
+    private final Map<GElement,List<GLink>> links = new HashMap<GElement,List<GLink>>();
+
+    private GElement root = null;
+    private boolean valid = false;
+    private int nextOrder = 0;
+
+    private static final Comparator<Entry> ORDER_COMPARATOR = new Comparator<Entry>() {
+        public int compare(Entry e1, Entry e2) {
+            return e1.order < e2.order ? -1 : (e1.order == e2.order ? 0 : 1);
+        }
+    };
+
+    public void setRoot(GElement root) {
+        this.root = root;
+        invalidate();
+    }
+
+    public void invalidate() {
+        valid = false;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public int getCount() {
+        validate();
+        return entries.size();
+    }
+
+    /**
+     * Returns the deepest element at the point, as GElement.match() called on the root.
+     */
+    public GElement match(Point p) {
+        validate();
+        if(root == null)
+            return null;
+
+        List<Entry> candidates = new ArrayList<Entry>();
+        List<Entry> cell = cells.get(key(cell(p.x), cell(p.y)));
+        if(cell != null) {
+            for (Entry entry : cell) {
+                if(entry.bounds.contains(p))
+                    candidates.add(entry);
+            }
+        }
+        if(!large.isEmpty()) {
+            for (Entry entry : large) {
+                if(entry.bounds == null || entry.bounds.contains(p))
+                    candidates.add(entry);
+            }
+            Collections.sort(candidates, ORDER_COMPARATOR);
+        }
+
+        for (Entry entry : candidates) {
+            GElement match = entry.element.match(p);
+            if(match != null)
+                return match;
+        }
+
+        if(root.isInside(p))
+            return root;
+        else
+            return null;
+    }
+
+    /**
+     * Returns the children of the root whose bounds may intersect the rectangle,
+     * in the order of the children of the root.
+     */
+    public List<GElement> query(Rect rect) {
+        validate();
+        Rectangle r = rect.rectangle();
+        Set<Entry> found = new HashSet<Entry>();
+        for(int cx = cell(r.x); cx <= cell(r.x+r.width); cx++) {
+            for(int cy = cell(r.y); cy <= cell(r.y+r.height); cy++) {
+                List<Entry> cell = cells.get(key(cx, cy));
+                if(cell == null)
+                    continue;
+                for (Entry entry : cell) {
+                    if(entry.bounds.intersects(r))
+                        found.add(entry);
+                }
+            }
+        }
+        for (Entry entry : large) {
+            if(entry.bounds == null || entry.bounds.intersects(r))
+                found.add(entry);
+        }
+
+        List<Entry> sorted = new ArrayList<Entry>(found);
+        Collections.sort(sorted, ORDER_COMPARATOR);
+        List<GElement> elements = new ArrayList<GElement>(sorted.size());
+        for (Entry entry : sorted) {
+            elements.add(entry.element);
+        }
+        return elements;
+    }
+
+    /**
+     * Returns the frame of the element, without computing it again if the element is indexed.
+     */
+    public Rect getFrame(GElement element) {
+        validate();
+        Entry entry = entries.get(element);
+        if(entry == null)
+            return element.getFrame();
+        else
+            return entry.frame;
+    }
+
+    // *** Notifications
+
+    public void elementGeometryDidChange(GElement element) {
+        if(!valid || element == root)
+            return;
+
+        Entry entry = getEntry(element);
+        if(entry == null) {
+            // The element is not part of the indexed hierarchy
+            invalidate();
+            return;
+        }
+
+        reindex(entry);
+        List<GLink> attached = links.get(element);
+        if(attached != null) {
+            for (GLink link : attached) {
+                Entry e = getEntry(link);
+                if(e != null && e != entry)
+                    reindex(e);
+            }
+        }
+    }
+
+    public void elementWasAdded(GElement parent, GElement element) {
+        if(!valid)
+            return;
+
+        if(parent == root) {
+            insert(new Entry(element, nextOrder++));
+            return;
+        }
+
+        Entry entry = getEntry(parent);
+        if(entry == null) {
+            invalidate();
+            return;
+        }
+        addNested(element, entry);
+        reindex(entry);
+    }
+
+    public void elementWasRemoved(GElement parent, GElement element) {
+        if(!valid)
+            return;
+
+        Entry entry = entries.get(element);
+        if(parent == root && entry != null) {
+            remove(entry);
+            return;
+        }
+
+        entry = ancestors.get(element);
+        if(parent == root || entry == null) {
+            invalidate();
+            return;
+        }
+        removeNested(element);
+        reindex(entry);
+    }
+
+    // *** Index
+
+    private void validate() {
+        if(valid)
+            return;
+
+        cells.clear();
+        large.clear();
+        entries.clear();
+        ancestors.clear();
+        links.clear();
+        nextOrder = 0;
+
+        if(root != null && root.getElements() != null) {
+            for (GElement element : new ArrayList<GElement>(root.getElements())) {
+                insert(new Entry(element, nextOrder++));
+            }
+        }
+        valid = true;
+    }
+
+    private void reindex(Entry entry) {
+        removeFromCells(entry);
+        addToCells(entry);
+    }
+
+    private Entry getEntry(GElement element) {
+        Entry entry = entries.get(element);
+        if(entry == null)
+            entry = ancestors.get(element);
+        return entry;
+    }
+
+    private void insert(Entry entry) {
+        entries.put(entry.element, entry);
+        addLinks(entry.element);
+        addNestedChildren(entry.element, entry);
+        addToCells(entry);
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.element);
+        removeLinks(entry.element);
+        removeNestedChildren(entry.element);
+        removeFromCells(entry);
+    }
+
+    private void addNested(GElement element, Entry entry) {
+        ancestors.put(element, entry);
+        addLinks(element);
+        addNestedChildren(element, entry);
+    }
+
+    private void addNestedChildren(GElement element, Entry entry) {
+        List<GElement> children = element.getElements();
+        if(children == null)
+            return;
+
+        for (GElement child : children) {
+            if(child != element)
+                addNested(child, entry);
+        }
+    }
+
+    private void removeNested(GElement element) {
+        ancestors.remove(element);
+        removeLinks(element);
+        removeNestedChildren(element);
+    }
+
+    private void removeNestedChildren(GElement element) {
+        List<GElement> children = element.getElements();
+        if(children == null)
+            return;
+
+        for (GElement child : children) {
+            if(child != element)
+                removeNested(child);
+        }
+    }
+
+    private void addLinks(GElement element) {
+        if(element instanceof GLink) {
+            GLink link = (GLink)element;
+            addLink(link.source, link);
+            addLink(link.target, link);
+        }
+    }
+
+    private void removeLinks(GElement element) {
+        if(element instanceof GLink) {
+            GLink link = (GLink)element;
+            removeLink(link.source, link);
+            removeLink(link.target, link);
+        }
+    }
+
+    private void addLink(GElement element, GLink link) {
+        if(element == null)
+            return;
+
+        List<GLink> attached = links.get(element);
+        if(attached == null) {
+            attached = new ArrayList<GLink>(2);
+            links.put(element, attached);
+        }
+        attached.add(link);
+    }
+
+    private void removeLink(GElement element, GLink link) {
+        List<GLink> attached = links.get(element);
+        if(attached != null) {
+            attached.remove(link);
+            if(attached.isEmpty())
+                links.remove(element);
+        }
+    }
+
+    private void addToCells(Entry entry) {
+        entry.frame = entry.element.getFrame();
+        Rect bounds = entry.element.hitBounds();
+        if(bounds == null) {
+            entry.bounds = null;
+            addSorted(large, entry);
+            return;
+        }
+
+        Rectangle r = new Rectangle(bounds.rectangle());
+        r.grow(MARGIN, MARGIN);
+        entry.bounds = r;
+        entry.x0 = cell(r.x);
+        entry.y0 = cell(r.y);
+        entry.x1 = cell(r.x+r.width);
+        entry.y1 = cell(r.y+r.height);
+        if((long)(entry.x1-entry.x0+1)*(entry.y1-entry.y0+1) > MAX_CELLS_PER_ELEMENT) {
+            entry.x0 = entry.x1 = entry.y0 = entry.y1 = Integer.MIN_VALUE;
+            addSorted(large, entry);
+            return;
+        }
+
+        for(int cx = entry.x0; cx <= entry.x1; cx++) {
+            for(int cy = entry.y0; cy <= entry.y1; cy++) {
+                Long key = key(cx, cy);
+                List<Entry> cell = cells.get(key);
+                if(cell == null) {
+                    cell = new ArrayList<Entry>(4);
+                    cells.put(key, cell);
+                }
+                addSorted(cell, entry);
+            }
+        }
+    }
+
+    private void removeFromCells(Entry entry) {
+        if(entry.bounds == null || entry.x0 == Integer.MIN_VALUE) {
+            large.remove(entry);
+            return;
+        }
+
+        for(int cx = entry.x0; cx <= entry.x1; cx++) {
+            for(int cy = entry.y0; cy <= entry.y1; cy++) {
+                Long key = key(cx, cy);
+                List<Entry> cell = cells.get(key);
+                if(cell == null)
+                    continue;
+                cell.remove(entry);
+                if(cell.isEmpty())
+                    cells.remove(key);
+            }
+        }
+    }
+
+    /** Keeps the entries of a cell in the order of the children of the root */
+    private static void addSorted(List<Entry> list, Entry entry) {
+        int index = Collections.binarySearch(list, entry, ORDER_COMPARATOR);
+        list.add(index < 0 ? -index-1 : index, entry);
+    }
+
+    private static int cell(int v) {
+        return (int)Math.floor((double)v/CELL_SIZE);
+    }
+
+    private static Long key(int cx, int cy) {
+        return ((long)cx << 32) | (cy & 0xffffffffL);
+    }
+
+    private static class Entry {
+
+        public final GElement element;
+        public final int order;
+
+        public Rect frame;
+        public Rectangle bounds;
+        public int x0, y0, x1, y1;
+
+        public Entry(GElement element, int order) {
+            this.element = element;
+            this.order = order;
+        }
+    }
+
+}
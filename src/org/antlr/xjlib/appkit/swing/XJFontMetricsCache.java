@@ -0,0 +1,176 @@
+package org.antlr.xjlib.appkit.swing;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+
+/**
+ * Shared cache of the size of the labels measured by the graph and tree views. The size of a label
+ * only depends on its font, its rendering context and its text so the layouts done again on zoom,
+ * skin change or rebuild do not have to go through the font subsystem for the labels already seen.
+ *
+ * The cache keeps the most recently used entries and is safe to use from several threads.
+ */
+public class XJFontMetricsCache {
+
+    public static final int MAX_ENTRIES = 4096;
+
+    private static final Map<Key,Size> cache = new LinkedHashMap<Key,Size>(256, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<Key,Size> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private static int hits = 0;
+    private static int misses = 0;
+
+    public static class Size {
+
+        public final float width;
+        public final float height;
+
+        public Size(float width, float height) {
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * Returns the size of the string as measured by the font metrics: the width is the advance
+     * of the string and the height is the height of a line of text.
+     */
+    public static Size getStringSize(FontMetrics fm, String s) {
+        Key key = new Key(Key.METRICS, fm.getFont(), fm.getFontRenderContext(), s);
+        Size size = get(key);
+        if(size == null) {
+            size = new Size(fm.stringWidth(s), fm.getHeight());
+            put(key, size);
+        }
+        return size;
+    }
+
+    public static int getStringWidth(FontMetrics fm, String s) {
+        return (int)getStringSize(fm, s).width;
+    }
+
+    /**
+     * Returns the size of the visual bounds of the string laid out with the font in the
+     * rendering context (i.e. the size of the bounds of its TextLayout).
+     */
+    public static Size getTextLayoutSize(Font font, FontRenderContext frc, String s) {
+        Key key = new Key(Key.LAYOUT, font, frc, s);
+        Size size = get(key);
+        if(size == null) {
+            Rectangle2D bounds = new TextLayout(s, font, frc).getBounds();
+            size = new Size((float)bounds.getWidth(), (float)bounds.getHeight());
+            put(key, size);
+        }
+        return size;
+    }
+
+    public static synchronized void clear() {
+        cache.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    public static synchronized int getCount() {
+        return cache.size();
+    }
+
+    public static synchronized int getHits() {
+        return hits;
+    }
+
+    public static synchronized int getMisses() {
+        return misses;
+    }
+
+    private static synchronized Size get(Key key) {
+        Size size = cache.get(key);
+        if(size == null)
+            misses++;
+        else
+            hits++;
+        return size;
+    }
+
+    private static synchronized void put(Key key, Size size) {
+        cache.put(key, size);
+    }
+
+    private static class Key {
+
+        public static final int METRICS = 0;
+        public static final int LAYOUT = 1;
+
+        private final int kind;
+        private final Font font;
+        private final FontRenderContext frc;
+        private final String text;
+        private final int hash;
+
+        public Key(int kind, Font font, FontRenderContext frc, String text) {
+            this.kind = kind;
+            this.font = font;
+            this.frc = frc;
+            this.text = text;
+
+            int h = kind;
+            h = 31*h+font.hashCode();
+            h = 31*h+(frc == null ? 0 : frc.hashCode());
+            h = 31*h+text.hashCode();
+            this.hash = h;
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object other) {
+            if(this == other)
+                return true;
+            if(!(other instanceof Key))
+                return false;
+            Key k = (Key)other;
+            return kind == k.kind && hash == k.hash && text.equals(k.text) && font.equals(k.font)
+                    && (frc == null ? k.frc == null : frc.equals(k.frc));
+        }
+    }
+
+}
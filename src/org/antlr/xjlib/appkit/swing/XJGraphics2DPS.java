@@ -12,6 +12,7 @@ import java.text.AttributedCharacterIterator;
 import java.text.AttributedString;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.io.*;
 import java.util.Map;
 /*
 
@@ -45,11 +46,28 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 */
 
+/**
+ * Graphics2D producing Encapsulated PostScript. The bounding box written in the header is only known
+ * once everything has been drawn, so the PostScript operations are streamed into a body buffer that
+ * is kept in memory while it is small and spilled into a temporary file otherwise. The document is
+ * then streamed to a Writer by writePS().
+ */
 public class XJGraphics2DPS extends Graphics2D {
 
     protected static final String NEWLINE = System.getProperty("line.separator");
 
-    protected StringBuilder ps;
+    /** Size of the body kept in memory before it is spilled into a temporary file */
+    protected static final int BODY_MEMORY_SIZE = 1024*1024;
+
+    public interface ProgressListener {
+        /** Called while the document is written: written and total are in characters */
+        void writeProgress(long written, long total);
+    }
+
+    protected Body ps;
+    protected char lastChar;
+    protected final char[] numberBuffer = new char[32];
+    protected final char[] hexValue = new char[2];
     protected Font font;
     protected Color color;
     protected Color background;
@@ -64,7 +82,7 @@ public class XJGraphics2DPS extends Graphics2D {
     protected int marginWidth, marginHeight;
 
     public XJGraphics2DPS() {
-        ps = new StringBuilder();
+        ps = new Body();
         upperLeftCorner = new Point(Integer.MAX_VALUE, Integer.MAX_VALUE);
         lowerRightCorner = new Point();
         transform = new AffineTransform();
@@ -89,24 +107,45 @@ public class XJGraphics2DPS extends Graphics2D {
     }
 
     public String getPSText() {
+        StringWriter writer = new StringWriter();
+        try {
+            writePS(writer, null);
+        } catch (IOException e) {
+            // Cannot happen with a StringWriter (the body is in memory or in a temporary file)
+            throw new RuntimeException(e);
+        }
+        return writer.toString();
+    }
+
+    public void writePSToFile(String file, ProgressListener listener) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF8"));
+        try {
+            writePS(writer, listener);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes the EPS document. The listener, if any, is notified as the body is written.
+     */
+    public void writePS(Writer eps, ProgressListener listener) throws IOException {
         // Apply margins
-        lowerRightCorner.x += marginWidth;
-        lowerRightCorner.y += marginHeight;
-        upperLeftCorner.x -= marginWidth;
-        upperLeftCorner.y -= marginHeight;
+        int right = lowerRightCorner.x + marginWidth;
+        int bottom = lowerRightCorner.y + marginHeight;
+        int left = upperLeftCorner.x - marginWidth;
+        int top = upperLeftCorner.y - marginHeight;
 
         // EPS header
-        StringBuilder eps = new StringBuilder();
-
         eps.append("%!PS-Adobe-3.0 EPSF-3.0");
         eps.append(NEWLINE);
         eps.append("%%Creator: XJGraphics2DPS (c) 2005 by Jean Bovet and Terence Parr");
         eps.append(NEWLINE);
 
         eps.append("%%BoundingBox: 0 0 ");
-        eps.append(lowerRightCorner.x - upperLeftCorner.x);
+        eps.append(String.valueOf(right - left));
         eps.append(" ");
-        eps.append(lowerRightCorner.y - upperLeftCorner.y);
+        eps.append(String.valueOf(bottom - top));
         eps.append(NEWLINE);
 
         eps.append("%%Origin: 0 0");
@@ -137,29 +176,89 @@ public class XJGraphics2DPS extends Graphics2D {
         eps.append(redefineOperator("sd", "setdash"));
 
         // Initial offset because Swing and PS have their y-axis inverted
-        eps.append(-upperLeftCorner.x);
+        eps.append(String.valueOf(-left));
         eps.append(" ");
-        eps.append(upperLeftCorner.y + (lowerRightCorner.y-upperLeftCorner.y));
+        eps.append(String.valueOf(top + (bottom-top)));
         eps.append(" tr");
         eps.append(NEWLINE);
 
         // Append postscript code
-        eps.append(ps);
+        ps.writeTo(eps, listener);
+    }
 
-        return eps.toString();
+    /**
+     * Deletes the temporary file of the body, if any. The document cannot be written anymore.
+     */
+    public void close() {
+        ps.delete();
     }
 
     public void psAppend(double v) {
-        psAppend(df.format(v));
+        // Same output as DecimalFormat("###.##") without allocating a String per coordinate
+        int length = formatNumber(v, numberBuffer);
+        if(length < 0) {
+            psAppend(df.format(v));
+        } else {
+            psSeparate();
+            ps.write(numberBuffer, 0, length);
+            lastChar = numberBuffer[length-1];
+        }
     }
 
     public void psAppend(String s) {
-        if(ps.length() > 0) {
-            char c = ps.charAt(ps.length()-1);
-            if(c != ' ' && !String.valueOf(c).equals(NEWLINE))
-                ps.append(' ');
+        psSeparate();
+        ps.write(s);
+        if(s.length() > 0)
+            lastChar = s.charAt(s.length()-1);
+    }
+
+    private void psSeparate() {
+        if(lastChar != 0 && lastChar != ' ' && !(NEWLINE.length() == 1 && lastChar == NEWLINE.charAt(0))) {
+            ps.write(' ');
+            lastChar = ' ';
+        }
+    }
+
+    /**
+     * Formats v with at most two decimals, rounded half-even, into the buffer and returns its length.
+     * Returns -1 if the rounding cannot be decided reliably (the caller then uses DecimalFormat).
+     */
+    public static int formatNumber(double v, char[] buffer) {
+        if(Double.isNaN(v) || Double.isInfinite(v) || Math.abs(v) >= 1e15)
+            return -1;
+
+        boolean negative = v < 0 || (v == 0 && 1/v < 0);
+        double scaled = Math.abs(v)*100;
+        double floor = Math.floor(scaled);
+        if(scaled-floor == 0.5)
+            return -1;
+
+        long n = (long)Math.rint(scaled);
+        int length = 0;
+        if(negative)
+            buffer[length++] = '-';
+
+        long integer = n/100;
+        int decimals = (int)(n%100);
+        int start = length;
+        do {
+            buffer[length++] = (char)('0'+integer%10);
+            integer /= 10;
+        } while(integer > 0);
+        // Reverse the digits of the integer part
+        for(int i=start, j=length-1; i<j; i++, j--) {
+            char c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+
+        if(decimals != 0) {
+            buffer[length++] = '.';
+            buffer[length++] = (char)('0'+decimals/10);
+            if(decimals%10 != 0)
+                buffer[length++] = (char)('0'+decimals%10);
         }
-        ps.append(s);
+        return length;
     }
 
     public void psGSave() {
@@ -589,7 +688,8 @@ public class XJGraphics2DPS extends Graphics2D {
             for (int i = 0; i < w; i++) {
                 getSinglePixel(x+i, y+j, pixels[j * w + i]);
             }
-            ps.append(NEWLINE);
+            ps.write(NEWLINE);
+            lastChar = NEWLINE.charAt(NEWLINE.length()-1);
         }
     }
 
@@ -601,10 +701,9 @@ public class XJGraphics2DPS extends Graphics2D {
         int red   = (pixel >> 16) & 0xFF;
         int green = (pixel >>  8) & 0xFF;
         int blue  = (pixel      ) & 0xFF;
-        char[] hexValue = new char[2];
-        ASCIIHexEncode(red, hexValue); ps.append(hexValue);
-        ASCIIHexEncode(green, hexValue); ps.append(hexValue);
-        ASCIIHexEncode(blue, hexValue); ps.append(hexValue);
+        ASCIIHexEncode(red, hexValue); ps.write(hexValue, 0, 2);
+        ASCIIHexEncode(green, hexValue); ps.write(hexValue, 0, 2);
+        ASCIIHexEncode(blue, hexValue); ps.write(hexValue, 0, 2);
     }
 
     /** Convert a byte to a two-char hex sequence; no Strings allocation
@@ -615,6 +714,122 @@ public class XJGraphics2DPS extends Graphics2D {
         c[1]=hexmap[b&0xF]; // get lo nybble
     }
 
+    /**
+     * The PostScript operations. They are kept in memory until BODY_MEMORY_SIZE and then
+     * streamed into a temporary file. Any I/O error is thrown when the body is written.
+     */
+    protected static class Body {
+
+        private StringBuilder memory = new StringBuilder();
+        private File file;
+        private Writer fileWriter;
+        private long length;
+        private IOException error;
+
+        public void write(String s) {
+            length += s.length();
+            if(fileWriter == null) {
+                memory.append(s);
+                spillIfNeeded();
+            } else {
+                try {
+                    fileWriter.write(s);
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+        }
+
+        public void write(char c) {
+            length++;
+            if(fileWriter == null) {
+                memory.append(c);
+            } else {
+                try {
+                    fileWriter.write(c);
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+        }
+
+        public void write(char[] chars, int offset, int count) {
+            length += count;
+            if(fileWriter == null) {
+                memory.append(chars, offset, count);
+                spillIfNeeded();
+            } else {
+                try {
+                    fileWriter.write(chars, offset, count);
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+        }
+
+        private void spillIfNeeded() {
+            if(memory.length() < BODY_MEMORY_SIZE || error != null)
+                return;
+
+            try {
+                file = File.createTempFile("xjps", ".ps");
+                file.deleteOnExit();
+                fileWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF8"));
+                fileWriter.append(memory);
+                memory = null;
+            } catch (IOException e) {
+                // Keep everything in memory
+                fileWriter = null;
+                delete();
+            }
+        }
+
+        public void writeTo(Writer out, ProgressListener listener) throws IOException {
+            if(error != null)
+                throw error;
+            if(memory == null && file == null)
+                throw new IOException("The PostScript document has been closed");
+
+            if(fileWriter == null) {
+                out.append(memory);
+                if(listener != null)
+                    listener.writeProgress(length, length);
+                return;
+            }
+
+            fileWriter.flush();
+            Reader reader = new InputStreamReader(new FileInputStream(file), "UTF8");
+            try {
+                char[] buffer = new char[64*1024];
+                long written = 0;
+                int count;
+                while((count = reader.read(buffer)) != -1) {
+                    out.write(buffer, 0, count);
+                    written += count;
+                    if(listener != null)
+                        listener.writeProgress(written, length);
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        public void delete() {
+            if(fileWriter != null) {
+                try {
+                    fileWriter.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+                fileWriter = null;
+            }
+            if(file != null) {
+                file.delete();
+                file = null;
+            }
+        }
+    }
+
     // ************************************
     // Unsupported operations
 
@@ -0,0 +1,784 @@
+package org.antlr.xjlib.appkit.swing;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextAttribute;
+import java.awt.geom.*;
+import java.awt.image.*;
+import java.awt.image.renderable.RenderableImage;
+import java.io.*;
+import java.text.AttributedCharacterIterator;
+import java.text.CharacterIterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+
+/**
+ * Graphics2D that streams SVG to an output stream. The size of the document is given up front so
+ * the elements are written as they are drawn instead of being accumulated in memory.
+ *
+ * The output is kept small: the styles are shared CSS classes, consecutive shapes using the same
+ * style are merged into one path, and the paths use relative coordinates rounded to 1/100 of a
+ * pixel with the h/v shortcuts and without the repeated commands.
+ */
+public class XJGraphics2DSVG extends Graphics2D {
+
+    protected Output output;
+
+    protected Font font;
+    protected Color color;
+    protected Color background;
+    protected Stroke stroke;
+    protected AffineTransform transform;
+    protected FontRenderContext fontRenderContext;
+
+    public XJGraphics2DSVG(OutputStream stream, int width, int height) {
+        output = new Output(stream);
+        transform = new AffineTransform();
+        fontRenderContext = new FontRenderContext(null, false, true);
+
+        setFont(null);
+        setColor(Color.black);
+        setStroke(new BasicStroke());
+
+        output.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        output.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" xml:space=\"preserve\" width=\"");
+        output.write(String.valueOf(width)).write("\" height=\"").write(String.valueOf(height));
+        output.write("\" viewBox=\"0 0 ").write(String.valueOf(width)).write(" ").write(String.valueOf(height)).write("\">\n");
+    }
+
+    protected XJGraphics2DSVG(XJGraphics2DSVG g) {
+        output = g.output;
+        font = g.font;
+        color = g.color;
+        background = g.background;
+        stroke = g.stroke;
+        transform = new AffineTransform(g.transform);
+        fontRenderContext = g.fontRenderContext;
+    }
+
+    /**
+     * Writes the end of the document and closes the stream. Any error that occurred while
+     * drawing is thrown here because the Graphics methods cannot throw it.
+     */
+    public void close() throws IOException {
+        output.close();
+    }
+
+    protected void drawShape(Shape s, boolean fill) {
+        if(!transform.isIdentity())
+            s = transform.createTransformedShape(s);
+
+        if(fill) {
+            // Filled shapes are not merged: overlapping subpaths would change the filled area
+            output.appendPath(getFillStyle(s), s);
+            output.flushPath();
+        } else {
+            output.appendPath(getStrokeStyle(), s);
+        }
+    }
+
+    protected String getFillStyle(Shape s) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("fill:");
+        appendColor(sb, color, "fill-opacity");
+        if(s.getPathIterator(null).getWindingRule() == PathIterator.WIND_EVEN_ODD)
+            sb.append(";fill-rule:evenodd");
+        return sb.toString();
+    }
+
+    protected String getStrokeStyle() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("fill:none;stroke:");
+        appendColor(sb, color, "stroke-opacity");
+        if(stroke instanceof BasicStroke) {
+            BasicStroke bs = (BasicStroke)stroke;
+            sb.append(";stroke-width:");
+            Output.appendNumber(sb, Math.round(bs.getLineWidth()*100));
+            if(bs.getEndCap() == BasicStroke.CAP_ROUND)
+                sb.append(";stroke-linecap:round");
+            else if(bs.getEndCap() == BasicStroke.CAP_SQUARE)
+                sb.append(";stroke-linecap:square");
+            if(bs.getLineJoin() == BasicStroke.JOIN_ROUND)
+                sb.append(";stroke-linejoin:round");
+            else if(bs.getLineJoin() == BasicStroke.JOIN_BEVEL)
+                sb.append(";stroke-linejoin:bevel");
+            float[] dash = bs.getDashArray();
+            if(dash != null && dash.length > 0) {
+                sb.append(";stroke-dasharray:");
+                for(int i=0; i<dash.length; i++) {
+                    if(i > 0) sb.append(',');
+                    Output.appendNumber(sb, Math.round(dash[i]*100));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    protected String getTextStyle(Font f, double size) {
+        StringBuilder sb = new StringBuilder();
+        // Fallback on the generic family (the Java logical fonts are not known outside of Java)
+        String family = f.getFamily().toLowerCase();
+        sb.append("font-family:'").append(f.getFamily()).append("',");
+        if(family.contains("mono") || family.startsWith("courier"))
+            sb.append("monospace");
+        else if(family.equals("serif") || family.startsWith("times"))
+            sb.append("serif");
+        else
+            sb.append("sans-serif");
+        sb.append(";font-size:");
+        Output.appendNumber(sb, Math.round(size*100));
+        sb.append("px");
+        if(f.isBold())
+            sb.append(";font-weight:bold");
+        if(f.isItalic())
+            sb.append(";font-style:italic");
+        sb.append(";fill:");
+        appendColor(sb, color, "fill-opacity");
+        return sb.toString();
+    }
+
+    protected static void appendColor(StringBuilder sb, Color c, String opacity) {
+        sb.append('#');
+        String hex = Integer.toHexString(c.getRGB() & 0xFFFFFF);
+        for(int i=hex.length(); i<6; i++)
+            sb.append('0');
+        sb.append(hex);
+        if(c.getAlpha() < 255) {
+            sb.append(';').append(opacity).append(':');
+            Output.appendNumber(sb, Math.round(c.getAlpha()/2.55));
+        }
+    }
+
+    public void draw(Shape s) {
+        drawShape(s, false);
+    }
+
+    public void fill(Shape s) {
+        drawShape(s, true);
+    }
+
+    public void drawString(String str, int x, int y) {
+        drawString(str, (float)x, (float)y);
+    }
+
+    public void drawString(String s, float x, float y) {
+        drawString(s, getFont(), x, y);
+    }
+
+    protected void drawString(String s, Font f, float x, float y) {
+        if(s == null || s.length() == 0)
+            return;
+
+        Point2D p = transform.transform(new Point2D.Float(x, y), null);
+        double scale = Math.sqrt(Math.abs(transform.getDeterminant()));
+        output.appendText(getTextStyle(f, f.getSize2D()*scale), p.getX(), p.getY(), s);
+    }
+
+    public void drawString(AttributedCharacterIterator iterator, int x, int y) {
+        drawString(iterator, (float)x, (float)y);
+    }
+
+    public void drawString(AttributedCharacterIterator iterator, float x, float y) {
+        StringBuilder sb = new StringBuilder();
+        for(char c = iterator.first(); c != CharacterIterator.DONE; c = iterator.next()) {
+            sb.append(c);
+        }
+        Object f = iterator.getAttribute(TextAttribute.FONT);
+        drawString(sb.toString(), f instanceof Font ? (Font)f : getFont(), x, y);
+    }
+
+    public void drawChars(char data[], int offset, int length, int x, int y) {
+        drawString(new String(data, offset, length), x, y);
+    }
+
+    @SuppressWarnings("deprecation")
+    public void drawBytes(byte data[], int offset, int length, int x, int y) {
+        drawString(new String(data, 0, offset, length), x, y);
+    }
+
+    public void drawGlyphVector(GlyphVector g, float x, float y) {
+        fill(g.getOutline(x, y));
+    }
+
+    public Graphics create() {
+        return new XJGraphics2DSVG(this);
+    }
+
+    public void translate(int x, int y) {
+        translate((double)x, (double)y);
+    }
+
+    public void translate(double tx, double ty) {
+        transform(AffineTransform.getTranslateInstance(tx, ty));
+    }
+
+    public void rotate(double theta) {
+        transform(AffineTransform.getRotateInstance(theta));
+    }
+
+    public void rotate(double theta, double x, double y) {
+        transform(AffineTransform.getRotateInstance(theta, x, y));
+    }
+
+    public void scale(double sx, double sy) {
+        transform(AffineTransform.getScaleInstance(sx, sy));
+    }
+
+    public void shear(double shx, double shy) {
+        transform(AffineTransform.getShearInstance(shx, shy));
+    }
+
+    public void transform(AffineTransform Tx) {
+        transform.concatenate(Tx);
+    }
+
+    public void setTransform(AffineTransform Tx) {
+        if(Tx == null)
+            transform = new AffineTransform();
+        else
+            transform = new AffineTransform(Tx);
+    }
+
+    public AffineTransform getTransform() {
+        return new AffineTransform(transform);
+    }
+
+    public Font getFont() {
+        return font;
+    }
+
+    public void setFont(Font font) {
+        this.font = font==null?Font.decode(null):font;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public void setColor(Color c) {
+        if(c != null)
+            this.color = c;
+    }
+
+    public void setPaint(Paint paint) {
+        if(paint instanceof Color)
+            setColor((Color)paint);
+    }
+
+    public Paint getPaint() {
+        return color;
+    }
+
+    public void setBackground(Color color) {
+        background = color;
+    }
+
+    public Color getBackground() {
+        return background;
+    }
+
+    public void setStroke(Stroke s) {
+        this.stroke = s;
+    }
+
+    public Stroke getStroke() {
+        return stroke;
+    }
+
+    public FontRenderContext getFontRenderContext() {
+        return fontRenderContext;
+    }
+
+    public FontMetrics getFontMetrics() {
+        return getFontMetrics(getFont());
+    }
+
+    public FontMetrics getFontMetrics(Font f) {
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        Graphics g = image.getGraphics();
+        return g.getFontMetrics(f);
+    }
+
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        draw(new Line2D.Float(x1, y1, x2, y2));
+    }
+
+    public void drawRect(int x, int y, int width, int height) {
+        draw(new Rectangle(x, y, width, height));
+    }
+
+    public void fillRect(int x, int y, int width, int height) {
+        fill(new Rectangle(x, y, width, height));
+    }
+
+    public void clearRect(int x, int y, int width, int height) {
+        if(background == null)
+            return;
+
+        Color oldColor = getColor();
+        setColor(background);
+        fillRect(x, y, width, height);
+        setColor(oldColor);
+    }
+
+    public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        draw(new RoundRectangle2D.Float(x, y, width, height, arcWidth, arcHeight));
+    }
+
+    public void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        fill(new RoundRectangle2D.Float(x, y, width, height, arcWidth, arcHeight));
+    }
+
+    public void drawOval(int x, int y, int width, int height) {
+        draw(new Ellipse2D.Float(x, y, width, height));
+    }
+
+    public void fillOval(int x, int y, int width, int height) {
+        fill(new Ellipse2D.Float(x, y, width, height));
+    }
+
+    public void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        draw(new Arc2D.Float(x, y, width, height, startAngle, arcAngle, Arc2D.OPEN));
+    }
+
+    public void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        fill(new Arc2D.Float(x, y, width, height, startAngle, arcAngle, Arc2D.PIE));
+    }
+
+    public void drawPolyline(int xPoints[], int yPoints[], int nPoints) {
+        if(nPoints == 0)
+            return;
+
+        GeneralPath path = new GeneralPath();
+        path.moveTo(xPoints[0], yPoints[0]);
+        for(int p=1; p<nPoints; p++)
+            path.lineTo(xPoints[p], yPoints[p]);
+        draw(path);
+    }
+
+    public void drawPolygon(int xPoints[], int yPoints[], int nPoints) {
+        draw(new Polygon(xPoints, yPoints, nPoints));
+    }
+
+    public void drawPolygon(Polygon p) {
+        draw(p);
+    }
+
+    public void fillPolygon(int xPoints[], int yPoints[], int nPoints) {
+        fill(new Polygon(xPoints, yPoints, nPoints));
+    }
+
+    public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+        return drawImage(img, x, y, null, observer);
+    }
+
+    public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+        return drawImage(img, x, y, width, height, null, observer);
+    }
+
+    public boolean drawImage(Image img, int x, int y, Color bgcolor, ImageObserver observer) {
+        return drawImage(img, x, y, img.getWidth(null), img.getHeight(null), bgcolor, observer);
+    }
+
+    public boolean drawImage(Image img, int x, int y, int width, int height, Color bgcolor, ImageObserver observer) {
+        return drawImage(img, x, y, x+width, y+height, 0, 0, img.getWidth(null), img.getHeight(null), bgcolor, observer);
+    }
+
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, ImageObserver observer) {
+        return drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null, observer);
+    }
+
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, Color bgcolor, ImageObserver observer) {
+        int width = dx2-dx1;
+        int height = dy2-dy1;
+        if(width <= 0 || height <= 0)
+            return true;
+
+        // Embed the image as a PNG
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = image.getGraphics();
+        g.drawImage(img, 0, 0, width, height, sx1, sy1, sx2, sy2, bgcolor, observer);
+        g.dispose();
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", png);
+        } catch (IOException e) {
+            System.err.println("XJGraphics2DSVG: draw image error ("+e+")");
+            return false;
+        }
+
+        Point2D p = transform.transform(new Point2D.Float(dx1, dy1), null);
+        output.appendImage(p.getX(), p.getY(), width, height, png.toByteArray());
+        return true;
+    }
+
+    /**
+     * The document being written. It is shared by the graphics created from the same graphics.
+     */
+    protected static class Output {
+
+        private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+        private Writer writer;
+        private IOException error;
+
+        private final Map<String,String> styles = new LinkedHashMap<String, String>();
+
+        /** The path being built and its style: the next stroked shapes with the same style are appended to it */
+        private final StringBuilder path = new StringBuilder();
+        private String pathStyle;
+        private char lastCommand;
+        /** Current point of the path, in 1/100 of pixel */
+        private long cx, cy;
+        /** Start point of the current subpath, in 1/100 of pixel */
+        private long sx, sy;
+
+        private final StringBuilder buffer = new StringBuilder();
+
+        public Output(OutputStream stream) {
+            try {
+                writer = new BufferedWriter(new OutputStreamWriter(stream, "UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                writer = new BufferedWriter(new OutputStreamWriter(stream));
+            }
+        }
+
+        public Output write(CharSequence s) {
+            if(error != null)
+                return this;
+            try {
+                writer.append(s);
+            } catch (IOException e) {
+                error = e;
+            }
+            return this;
+        }
+
+        public String getStyleClass(String style) {
+            String name = styles.get(style);
+            if(name == null) {
+                name = "s"+styles.size();
+                styles.put(style, name);
+            }
+            return name;
+        }
+
+        public void appendPath(String style, Shape s) {
+            if(!style.equals(pathStyle)) {
+                flushPath();
+                pathStyle = style;
+            }
+
+            double[] coords = new double[6];
+            PathIterator iter = s.getPathIterator(null);
+            while(!iter.isDone()) {
+                switch(iter.currentSegment(coords)) {
+                    case PathIterator.SEG_MOVETO:
+                        long x = hundredths(coords[0]);
+                        long y = hundredths(coords[1]);
+                        if(path.length() == 0) {
+                            command('M');
+                            appendNumber(x);
+                            appendNumber(y);
+                        } else {
+                            command('m');
+                            appendNumber(x-cx);
+                            appendNumber(y-cy);
+                        }
+                        cx = sx = x;
+                        cy = sy = y;
+                        break;
+
+                    case PathIterator.SEG_LINETO:
+                        lineTo(hundredths(coords[0]), hundredths(coords[1]));
+                        break;
+
+                    case PathIterator.SEG_QUADTO:
+                        command('q');
+                        appendPoints(coords, 2);
+                        break;
+
+                    case PathIterator.SEG_CUBICTO:
+                        command('c');
+                        appendPoints(coords, 3);
+                        break;
+
+                    case PathIterator.SEG_CLOSE:
+                        command('z');
+                        cx = sx;
+                        cy = sy;
+                        break;
+                }
+                iter.next();
+            }
+        }
+
+        private void lineTo(long x, long y) {
+            if(y == cy) {
+                command('h');
+                appendNumber(x-cx);
+            } else if(x == cx) {
+                command('v');
+                appendNumber(y-cy);
+            } else {
+                command('l');
+                appendNumber(x-cx);
+                appendNumber(y-cy);
+            }
+            cx = x;
+            cy = y;
+        }
+
+        /** Appends the control points and the end point of a curve relative to the current point */
+        private void appendPoints(double[] coords, int count) {
+            long x = 0, y = 0;
+            for(int i=0; i<count; i++) {
+                x = hundredths(coords[2*i]);
+                y = hundredths(coords[2*i+1]);
+                appendNumber(x-cx);
+                appendNumber(y-cy);
+            }
+            cx = x;
+            cy = y;
+        }
+
+        private void command(char c) {
+            // A command repeating the previous one can be omitted, as well as a lineto
+            // following a relative moveto (its next coordinates are an implicit lineto)
+            boolean implicit = (c == lastCommand && c != 'z' && c != 'm' && c != 'M')
+                    || (c == 'l' && lastCommand == 'm');
+            if(!implicit)
+                path.append(c);
+            lastCommand = c;
+        }
+
+        private void appendNumber(long v) {
+            // A separator is only needed between two numbers and if the next one is not negative
+            char last = path.charAt(path.length()-1);
+            if(v >= 0 && (Character.isDigit(last) || last == '.'))
+                path.append(' ');
+            appendNumber(path, v);
+        }
+
+        /** Appends a value expressed in 1/100 without the trailing zeros of the decimals */
+        public static void appendNumber(StringBuilder sb, long v) {
+            if(v < 0) {
+                sb.append('-');
+                v = -v;
+            }
+            sb.append(v/100);
+            long decimals = v%100;
+            if(decimals != 0) {
+                sb.append('.');
+                if(decimals < 10)
+                    sb.append('0').append(decimals);
+                else if(decimals%10 == 0)
+                    sb.append(decimals/10);
+                else
+                    sb.append(decimals);
+            }
+        }
+
+        private static long hundredths(double v) {
+            return Math.round(v*100);
+        }
+
+        public void flushPath() {
+            if(path.length() > 0) {
+                write("<path class=\"").write(getStyleClass(pathStyle)).write("\" d=\"").write(path).write("\"/>\n");
+                path.setLength(0);
+            }
+            pathStyle = null;
+            lastCommand = 0;
+        }
+
+        public void appendText(String style, double x, double y, String text) {
+            flushPath();
+            buffer.setLength(0);
+            buffer.append("<text class=\"").append(getStyleClass(style)).append("\" x=\"");
+            appendNumber(buffer, hundredths(x));
+            buffer.append("\" y=\"");
+            appendNumber(buffer, hundredths(y));
+            buffer.append("\">");
+            escape(buffer, text);
+            buffer.append("</text>\n");
+            write(buffer);
+        }
+
+        public void appendImage(double x, double y, int width, int height, byte[] png) {
+            flushPath();
+            buffer.setLength(0);
+            buffer.append("<image x=\"");
+            appendNumber(buffer, hundredths(x));
+            buffer.append("\" y=\"");
+            appendNumber(buffer, hundredths(y));
+            buffer.append("\" width=\"").append(width).append("\" height=\"").append(height);
+            buffer.append("\" xlink:href=\"data:image/png;base64,");
+            base64(buffer, png);
+            buffer.append("\"/>\n");
+            write(buffer);
+        }
+
+        public void close() throws IOException {
+            flushPath();
+            // The style sheet applies to the whole document wherever it is located: it is written
+            // at the end because the styles are only known once everything has been drawn.
+            if(!styles.isEmpty()) {
+                write("<style type=\"text/css\"><![CDATA[\n");
+                for(Map.Entry<String,String> entry : styles.entrySet()) {
+                    write(".").write(entry.getValue()).write("{").write(entry.getKey()).write("}\n");
+                }
+                write("]]></style>\n");
+            }
+            write("</svg>\n");
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if(error == null)
+                    error = e;
+            }
+            if(error != null)
+                throw error;
+        }
+
+        private static void escape(StringBuilder sb, String s) {
+            for(int i=0; i<s.length(); i++) {
+                char c = s.charAt(i);
+                switch(c) {
+                    case '<': sb.append("&lt;"); break;
+                    case '>': sb.append("&gt;"); break;
+                    case '&': sb.append("&amp;"); break;
+                    case '"': sb.append("&quot;"); break;
+                    default: sb.append(c); break;
+                }
+            }
+        }
+
+        private static void base64(StringBuilder sb, byte[] data) {
+            for(int i=0; i<data.length; i+=3) {
+                int b0 = data[i] & 0xFF;
+                int b1 = i+1 < data.length ? data[i+1] & 0xFF : 0;
+                int b2 = i+2 < data.length ? data[i+2] & 0xFF : 0;
+                sb.append(BASE64[b0 >> 2]);
+                sb.append(BASE64[((b0 & 0x3) << 4) | (b1 >> 4)]);
+                sb.append(i+1 < data.length ? BASE64[((b1 & 0xF) << 2) | (b2 >> 6)] : '=');
+                sb.append(i+2 < data.length ? BASE64[b2 & 0x3F] : '=');
+            }
+        }
+    }
+
+    // ************************************
+    // Unsupported operations
+
+    public void dispose() {
+    }
+
+    public boolean drawImage(Image img, AffineTransform xform, ImageObserver obs) {
+        return false;
+    }
+
+    public void drawImage(BufferedImage img, BufferedImageOp op, int x, int y) {
+    }
+
+    public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+    }
+
+    public void drawRenderableImage(RenderableImage img, AffineTransform xform) {
+    }
+
+    public boolean hit(Rectangle rect, Shape s, boolean onStroke) {
+        return false;
+    }
+
+    public GraphicsConfiguration getDeviceConfiguration() {
+        return null;
+    }
+
+    public void setComposite(Composite comp) {
+    }
+
+    public void setRenderingHint(RenderingHints.Key hintKey, Object hintValue) {
+    }
+
+    public Object getRenderingHint(RenderingHints.Key hintKey) {
+        return null;
+    }
+
+    public void setRenderingHints(Map<?,?> hints) {
+    }
+
+    public void addRenderingHints(Map<?,?> hints) {
+    }
+
+    public RenderingHints getRenderingHints() {
+        return null;
+    }
+
+    public void setPaintMode() {
+    }
+
+    public void setXORMode(Color c1) {
+    }
+
+    public Rectangle getClipBounds() {
+        return null;
+    }
+
+    public void clipRect(int x, int y, int width, int height) {
+    }
+
+    public void setClip(int x, int y, int width, int height) {
+    }
+
+    public Shape getClip() {
+        return null;
+    }
+
+    public void setClip(Shape clip) {
+    }
+
+    public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+    }
+
+    public Composite getComposite() {
+        return null;
+    }
+
+    public void clip(Shape s) {
+    }
+
+}
@@ -45,6 +45,7 @@ public class XJTableView extends JScrollPane {
 
     private XJTable table = new XJTable();
     private boolean alternateBackground = true;
+    private int autoresizeRowLimit = 0;
 
     public XJTableView() {
         setViewportView(table);
@@ -80,8 +81,26 @@ public class XJTableView extends JScrollPane {
         }
     }
 
+    /** Limits the number of rows (counting from the last one) measured
+     * when resizing the columns. Zero means all the rows are measured.
+     */
+    public void setAutoresizeRowLimit(int limit) {
+        this.autoresizeRowLimit = limit;
+    }
+
+    public int getAutoresizeRowLimit() {
+        return autoresizeRowLimit;
+    }
+
     public void autoresizeColumns() {
-        resizeTableColumnsToFitContent(table, 20);
+        if(autoresizeRowLimit > 0) {
+            int count = table.getRowCount();
+            for(int c = 0; c < table.getColumnCount(); c++) {
+                resizeColumnToFitContent(table, c, 20, Math.max(0, count-autoresizeRowLimit), count);
+            }
+        } else {
+            resizeTableColumnsToFitContent(table, 20);
+        }
 
         TableColumnModel model = table.getColumnModel();
         int columnTotalWidth = 0;
@@ -124,6 +143,10 @@ public class XJTableView extends JScrollPane {
     }
 
     public static void resizeColumnToFitContent(JTable table, int columnIndex, int margin) {
+        resizeColumnToFitContent(table, columnIndex, margin, 0, table.getRowCount());
+    }
+
+    public static void resizeColumnToFitContent(JTable table, int columnIndex, int margin, int fromRow, int toRow) {
         TableColumn column = table.getColumnModel().getColumn(columnIndex);
         TableCellRenderer renderer = column.getHeaderRenderer();
         if (renderer == null) {
@@ -135,7 +158,7 @@ public class XJTableView extends JScrollPane {
                 0, 0);
         int maxWidth = c.getPreferredSize().width;
 
-        for(int row=0; row<table.getRowCount(); row++) {
+        for(int row=fromRow; row<toRow; row++) {
             renderer = table.getCellRenderer(row, columnIndex);
             c = renderer.getTableCellRendererComponent(table,
                     table.getValueAt(row, columnIndex),
@@ -2,6 +2,7 @@ package org.antlr.works.test;
 
 import junit.framework.TestCase;
 import org.antlr.Tool;
+import org.antlr.tool.Grammar;
 import org.antlr.works.ate.syntax.generic.ATESyntaxEngineDelegate;
 import org.antlr.works.grammar.engine.GrammarEngine;
 import org.antlr.works.grammar.engine.GrammarEngineDelegate;
@@ -12,7 +13,10 @@ import org.antlr.works.utils.Console;
 import org.antlr.works.utils.ConsoleHelper;
 import org.antlr.xjlib.foundation.XJUtils;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 /*
 
@@ -76,6 +80,33 @@ public abstract class AbstractTest extends TestCase {
         return text;
     }
 
+    /** Returns the grammar of the file with its NFA, followed by its implicit lexer grammar if any */
+    public static List<Grammar> loadGrammars(String path) throws Exception {
+        Tool tool = new Tool();
+        tool.setLibDirectory(new File(path).getParent());
+
+        Grammar g = new Grammar();
+        g.setTool(tool);
+        g.setFileName(path);
+        g.setGrammarContent(XJUtils.getStringFromFile(path));
+        g.composite.createNFAs();
+
+        List<Grammar> grammars = new ArrayList<Grammar>();
+        grammars.add(g);
+        String lexer = g.getLexerGrammar();
+        if(lexer != null) {
+            Grammar lg = new Grammar();
+            lg.implicitLexer = true;
+            lg.setTool(tool);
+            lg.setFileName("<internally-generated-lexer>");
+            lg.importTokenVocabulary(g);
+            lg.setGrammarContent(lexer);
+            lg.composite.createNFAs();
+            grammars.add(lg);
+        }
+        return grammars;
+    }
+
     public GrammarEngine getEngine() {
         return engine;
     }
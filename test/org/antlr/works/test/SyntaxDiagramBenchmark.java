@@ -0,0 +1,110 @@
+package org.antlr.works.test;
+
+import org.antlr.analysis.NFAState;
+import org.antlr.tool.Grammar;
+import org.antlr.tool.Rule;
+import org.antlr.works.visualization.fa.FAFactory;
+
+import java.io.File;
+import java.util.*;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/**
+ * Measures the time FAFactory takes to build the syntax diagrams of the rules of the larger
+ * test grammars. This is not part of the unit tests: run its main() with the test classes
+ * in the classpath. The equivalence of the diagrams is checked by TestSyntaxDiagram.
+ */
+public class SyntaxDiagramBenchmark {
+
+    public static final String[] FILES = new String[] { TestConstants.MANTRA, TestConstants.CODE_GEN_PHASE,
+            TestConstants.RESOLVE_PHASE, TestConstants.SEMANTIC_PHASE, TestConstants.PREFIX+"groups.g",
+            TestConstants.PREFIX+"sd/expr/expr.g", TestConstants.PREFIX+"sd/vsql/vsql.g" };
+
+    public static final int WARMUP_RUNS = 3;
+    public static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        Map<String,Grammar> grammars = new LinkedHashMap<String, Grammar>();
+        for(String file : FILES) {
+            // The files are relative to the package of the unit tests
+            String path = new File(SyntaxDiagramBenchmark.class.getResource("ut/"+file).getFile()).getCanonicalPath();
+            for(Grammar g : AbstractTest.loadGrammars(path)) {
+                grammars.put(new File(file).getName()+(g.implicitLexer ? " (lexer)" : ""), g);
+            }
+        }
+
+        for(int i=0; i<WARMUP_RUNS; i++) {
+            run(grammars, null);
+        }
+
+        final Map<String,Long> times = new HashMap<String, Long>();
+        long total = 0;
+        for(int i=0; i<RUNS; i++) {
+            total += run(grammars, times);
+        }
+
+        List<String> rules = new ArrayList<String>(times.keySet());
+        Collections.sort(rules, new Comparator<String>() {
+            public int compare(String a, String b) {
+                return times.get(b).compareTo(times.get(a));
+            }
+        });
+
+        System.out.println("FAFactory: "+times.size()+" rules built "+RUNS+" times in "+total/1000000+" ms");
+        for(String rule : rules.subList(0, Math.min(10, rules.size()))) {
+            System.out.println("  "+rule+": "+times.get(rule)/(RUNS*1000)+" us");
+        }
+    }
+
+    /** Builds every rule once with one factory per grammar and returns the total time */
+    private static long run(Map<String,Grammar> grammars, Map<String,Long> times) {
+        long total = 0;
+        for(Map.Entry<String,Grammar> entry : grammars.entrySet()) {
+            Grammar g = entry.getValue();
+            FAFactory factory = new FAFactory(g);
+            for(Rule rule : g.getRules()) {
+                NFAState start = g.getRuleStartState(rule.name);
+                long t = System.nanoTime();
+                factory.buildNFA(start, true);
+                t = System.nanoTime() - t;
+                total += t;
+                if(times != null) {
+                    String key = entry.getKey()+":"+rule.name;
+                    Long time = times.get(key);
+                    times.put(key, time == null ? t : time+t);
+                }
+            }
+        }
+        return total;
+    }
+
+}
@@ -0,0 +1,806 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.Token;
+import org.antlr.runtime.debug.RemoteDebugEventSocketListener;
+import org.antlr.runtime.tree.CommonTree;
+import org.antlr.works.debugger.DebuggerCompiler;
+import org.antlr.works.debugger.batch.DBProfileReport;
+import org.antlr.works.debugger.events.*;
+import org.antlr.works.debugger.input.DBInputProcessorToken;
+import org.antlr.works.debugger.tivo.DBBreakpointCondition;
+import org.antlr.works.debugger.tivo.DBBreakpointConditions;
+import org.antlr.works.debugger.tivo.DBBreakpointMatcher;
+import org.antlr.works.debugger.tivo.DBDecisionProfiler;
+import org.antlr.works.debugger.tivo.DBEventClock;
+import org.antlr.works.debugger.tivo.DBEventContextIndex;
+import org.antlr.works.debugger.tivo.DBEventFilter;
+import org.antlr.works.debugger.tivo.DBEventSearchIndex;
+import org.antlr.works.debugger.tivo.DBInProcessEventListener;
+import org.antlr.works.debugger.tivo.DBPlayerContextInfo;
+import org.antlr.works.debugger.tree.DBASTModel;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.works.utils.NumberSet;
+import org.antlr.works.utils.TextPane;
+import org.antlr.works.utils.awtree.AWTreeGraphView;
+import org.antlr.works.utils.awtree.AWTreeModel;
+import org.antlr.works.utils.awtree.AWTreeNode;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Stack;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestDebugger extends AbstractTest {
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestDebugger.class));
+    }
+
+    public void testEventContextIndex() throws Exception {
+        List<DBEvent> events = createEvents(3000);
+
+        DBPlayerContextInfo played = new DBPlayerContextInfo();
+        DBEventContextIndex index = new DBEventContextIndex();
+        index.setEvents(events);
+
+        List<DBPlayerContextInfo> expected = new ArrayList<DBPlayerContextInfo>();
+        for(DBEvent event : events) {
+            played.playEvent(event);
+            expected.add(played.copy());
+        }
+
+        // Random access, backward and forward
+        for(int i=events.size()-1; i>=0; i-=7) {
+            assertContext("backward "+i, expected.get(i), index.getContextAt(i));
+        }
+        for(int i=0; i<events.size(); i++) {
+            assertContext("forward "+i, expected.get(i), index.getContextAt(i));
+        }
+    }
+
+    public void testEventFilter() throws Exception {
+        List<DBEvent> events = createEvents(3000);
+
+        DBEventFilter filter = new DBEventFilter();
+        filter.setEvents(events);
+        assertFalse(filter.isEnabled());
+
+        filter.setFilter(DBEvent.ENTER_DECISION, null);
+        int count = filter.update(events.size());
+        int expected = 0;
+        for(DBEvent event : events) {
+            if(event.getEventType() == DBEvent.ENTER_DECISION) expected++;
+        }
+        assertEquals("decisions", expected, count);
+        for(int i=0; i<count; i++) {
+            assertEquals(DBEvent.ENTER_DECISION, events.get(filter.getPosition(i)).getEventType());
+        }
+
+        // Backward step only counts the events before the limit
+        int half = filter.update(events.size()/2);
+        assertTrue(half < count);
+        assertTrue(filter.getPosition(half-1) < events.size()/2);
+        assertTrue(filter.getPosition(half) >= events.size()/2);
+
+        filter.setFilter(DBEvent.ALL, "b");
+        count = filter.update(events.size());
+        assertTrue(count > 0);
+        for(int i=0; i<count; i++) {
+            DBEvent event = events.get(filter.getPosition(i));
+            if(event instanceof DBEventEnterRule)
+                assertEquals("b", ((DBEventEnterRule)event).name);
+        }
+    }
+
+    public void testInputTokenRendering() throws Exception {
+        TextPane textPane = new TextPane();
+        DBInputProcessorToken processor = new DBInputProcessorToken(null, textPane);
+
+        // The tokens are rendered in the order of their index even if received out of order
+        for(int index : new int[] { 0, 1, 3, 2, 5 }) {
+            processor.addToken(createToken(index));
+        }
+        processor.renderTokensText();
+        assertEquals("t0 t1 t2 t3 t5 ", textPane.getText());
+        assertEquals(6, processor.getTokenInfoAtTokenIndex(2).start);
+        assertEquals(12, processor.getTokenInfoAtTokenIndex(5).start);
+
+        // Only the text after the first new token is replaced
+        final int[] firstChange = { Integer.MAX_VALUE };
+        textPane.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                firstChange[0] = Math.min(firstChange[0], e.getOffset());
+            }
+            public void removeUpdate(DocumentEvent e) {
+                firstChange[0] = Math.min(firstChange[0], e.getOffset());
+            }
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        processor.addToken(createToken(6));
+        processor.addToken(createToken(4));
+        processor.renderTokensText();
+        assertEquals("t0 t1 t2 t3 t4 t5 t6 ", textPane.getText());
+        assertEquals(12, firstChange[0]);
+        assertEquals(18, processor.getTokenInfoAtTokenIndex(6).start);
+
+        firstChange[0] = Integer.MAX_VALUE;
+        processor.renderTokensText();
+        assertEquals(Integer.MAX_VALUE, firstChange[0]);
+
+        // The text of the previous session is removed
+        processor.reset();
+        textPane.setText("stale");
+        processor.renderTokensText();
+        assertEquals("", textPane.getText());
+        processor.addToken(createToken(0));
+        processor.renderTokensText();
+        assertEquals("t0 ", textPane.getText());
+    }
+
+    public void testParseTreeIncrementalLayout() throws Exception {
+        AWTreeModel model = new AWTreeModel();
+        TestTreeNode root = new TestTreeNode("root");
+
+        final int[] fullLayouts = new int[1];
+        AWTreeGraphView incremental = new AWTreeGraphView(null) {
+            protected void layoutTree(GElementNode rootNodeElement) {
+                fullLayouts[0]++;
+                super.layoutTree(rootNodeElement);
+            }
+        };
+        incremental.setModel(model);
+        incremental.setRoot(root);
+        incremental.paintComponent(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB).createGraphics());
+
+        // Grow the tree the same way the parse tree does: rules are pushed and
+        // popped and tokens are added to the current rule, with a refresh at each break
+        growParseTree(model, root, incremental, 2000);
+        assertEquals(0, model.getNewNodesCount());
+
+        // The nodes are added along the right edge of the tree: only the initial layout is complete
+        assertEquals(1, fullLayouts[0]);
+        assertTreeLayout(root, incremental);
+
+        // Nodes added below the maximum depth are hidden and their ancestor is collapsed
+        incremental.setMaximumDepth(4);
+        growParseTree(model, root, incremental, 500);
+        assertTreeLayout(root, incremental);
+        TestTreeNode node = root;
+        for(int depth=0; depth<4 && node.getChildCount() > 0; depth++) {
+            node = (TestTreeNode)node.getLastChild();
+        }
+        assertEquals(node.getChildCount() > 0, incremental.getGElementForNode(node).isCollapsed());
+    }
+
+    public void testParseTreeLayout() throws Exception {
+        TestTreeNode root = new TestTreeNode("root");
+        List<TestTreeNode> nodes = new ArrayList<TestTreeNode>();
+        nodes.add(root);
+        for(int i=1; i<3000; i++) {
+            TestTreeNode parent = nodes.get((i*7919) % nodes.size());
+            TestTreeNode node = new TestTreeNode(i % 13 == 0 ? "long_rule_name_"+i : "t"+i);
+            parent.add(node);
+            nodes.add(node);
+        }
+
+        AWTreeGraphView view = createGraphView(null, root);
+        for(TestTreeNode node : nodes) {
+            AWTreeGraphView.GElementNode element = view.getGElementForNode(node);
+            if(node.getChildCount() == 0)
+                continue;
+
+            // Each parent is centered above its first and last children
+            AWTreeGraphView.GElementNode first = view.getGElementForNode(node.getFirstChild());
+            AWTreeGraphView.GElementNode last = view.getGElementForNode(node.getLastChild());
+            assertEquals(node.label, (first.getPositionX()+last.getPositionX())*0.5, element.getPositionX(), 0.001);
+
+            // Siblings do not overlap
+            for(int i=1; i<node.getChildCount(); i++) {
+                AWTreeGraphView.GElementNode left = view.getGElementForNode(node.getChildAt(i-1));
+                AWTreeGraphView.GElementNode right = view.getGElementForNode(node.getChildAt(i));
+                assertTrue(node.label, right.getLeft()-left.getRight() >= AWTreeGraphView.HORIZONTAL_GAP-0.001);
+                assertEquals(left.getTop(), right.getTop(), 0.001);
+            }
+        }
+
+        // A very deep tree must not overflow the stack
+        TestTreeNode deepRoot = new TestTreeNode("deep");
+        TestTreeNode node = deepRoot;
+        for(int i=0; i<10000; i++) {
+            TestTreeNode child = new TestTreeNode("n"+i);
+            node.add(child);
+            node = child;
+        }
+        AWTreeGraphView deepView = createGraphView(null, deepRoot);
+        assertNotNull(deepView.getGElementForNode(node));
+        assertTrue(deepView.getRootElement().bounds().r.height > 10000);
+
+        // Collapse the subtrees deeper than 10
+        deepView.setMaximumDepth(10);
+        assertTrue(deepView.getGElementForNode(deepRoot.getChildAt(0).getChildAt(0)).getTop() > 0);
+        assertTrue(deepView.getRootElement().bounds().r.height < 1000);
+        TestTreeNode collapsed = deepRoot;
+        for(int i=0; i<10; i++) collapsed = (TestTreeNode)collapsed.getChildAt(0);
+        assertTrue(deepView.getGElementForNode(collapsed).isCollapsed());
+    }
+
+    public void testBreakpointMatcher() throws Exception {
+        DBBreakpointMatcher matcher = new DBBreakpointMatcher();
+        matcher.setBreakEvents(new NumberSet(DBEvent.ENTER_RULE));
+        matcher.addGrammarBreakpoint("T", 9);
+        matcher.addTokenBreakpoint(3);
+
+        assertEquals(DBEvent.COMMENCE, matcher.match(new DBEvent(DBEvent.COMMENCE), false));
+        assertEquals(DBEvent.ENTER_RULE, matcher.match(new DBEventEnterRule("T", "a"), false));
+        assertEquals(DBEvent.NO_EVENT, matcher.match(new DBEventExitRule("T", "a"), false));
+
+        DBEventLocation location = new DBEventLocation(10, 0);
+        location.setGrammarName("T");
+        assertEquals(DBEvent.LOCATION, matcher.match(location, false));
+        assertEquals(DBEvent.NO_EVENT, matcher.match(location, true));
+        location.setGrammarName("U");
+        assertEquals(DBEvent.NO_EVENT, matcher.match(location, false));
+
+        CommonToken token = new CommonToken(4, "x");
+        token.setTokenIndex(3);
+        assertEquals(DBEvent.CONSUME_TOKEN, matcher.match(new DBEventConsumeToken(token), false));
+        token.setTokenIndex(4);
+        assertEquals(DBEvent.NO_EVENT, matcher.match(new DBEventConsumeToken(token), false));
+
+        // Break on consume token only for the default channel
+        matcher.setBreakEvents(new NumberSet(DBEvent.CONSUME_TOKEN));
+        assertEquals(DBEvent.CONSUME_TOKEN, matcher.match(new DBEventConsumeToken(token), false));
+        token.setChannel(Token.HIDDEN_CHANNEL);
+        assertEquals(DBEvent.NO_EVENT, matcher.match(new DBEventConsumeToken(token), false));
+
+        matcher.setBreakEvents(new NumberSet(DBEvent.ALL));
+        assertEquals(DBEvent.MARK, matcher.match(new DBEventMark(1), false));
+    }
+
+    public void testBreakpointConditions() throws Exception {
+        // Recursive rule 'e' consuming a token of type 4 at each level
+        // and decision 1 predicting alternative 2 at the deepest level
+        List<DBEvent> events = new ArrayList<DBEvent>();
+        final int levels = 50;
+        for(int i=0; i<levels; i++) {
+            events.add(new DBEventEnterRule("T", "e"));
+            events.add(new DBEventEnterDecision(1));
+            events.add(new DBEventExitDecision(1));
+            events.add(new DBEventEnterAlt(i == levels-1 ? 2 : 1));
+            events.add(new DBEventConsumeToken(new CommonToken(4, "x")));
+        }
+        for(int i=0; i<levels; i++) {
+            events.add(new DBEventExitRule("T", "e"));
+        }
+
+        List<DBBreakpointCondition> list = new ArrayList<DBBreakpointCondition>();
+        list.add(DBBreakpointCondition.parse("rule e depth > 40"));
+        DBBreakpointConditions conditions = new DBBreakpointConditions();
+        conditions.setConditions(list);
+        assertEquals(41, firstMatch(conditions, events)/5+1);
+        assertEquals(events.size()-levels-5, conditions.findLastMatch(events, events.size()-1));
+
+        list.set(0, DBBreakpointCondition.parse("consume 4 hit 10"));
+        conditions.setConditions(list);
+        assertEquals(9*5+4, firstMatch(conditions, events));
+
+        list.set(0, DBBreakpointCondition.parse("decision 1 alt 2"));
+        conditions.setConditions(list);
+        assertEquals((levels-1)*5+3, firstMatch(conditions, events));
+        // Evaluating backward replays the state from the nearest checkpoint
+        assertFalse(conditions.matchAt(events, 3));
+        assertTrue(conditions.matchAt(events, (levels-1)*5+3));
+
+        // The checkpoints restore the hit counts and the depth
+        List<DBEvent> log = new ArrayList<DBEvent>();
+        for(int i=0; log.size()<10*DBBreakpointConditions.CHECKPOINT_INTERVAL; i++) {
+            log.addAll(events.subList(0, (i % levels)*5));
+            log.addAll(events.subList(events.size()-(i % levels), events.size()));
+        }
+        list.set(0, DBBreakpointCondition.parse("depth >= 30 hit 20"));
+        list.add(DBBreakpointCondition.parse("consume 4 hit 1500"));
+        conditions.setConditions(list);
+        boolean[] expected = new boolean[log.size()];
+        int matches = 0;
+        for(int i=0; i<log.size(); i++) {
+            expected[i] = conditions.matchAt(log, i);
+            if(expected[i]) matches++;
+        }
+        assertEquals(2, matches);
+        for(int i=log.size()-1; i>=0; i-=7) {
+            assertEquals(expected[i], conditions.matchAt(log, i));
+            int lastExpected = -1;
+            for(int j=i; j>=0 && lastExpected == -1; j--) {
+                if(expected[j]) lastExpected = j;
+            }
+            assertEquals(lastExpected, conditions.findLastMatch(log, i));
+        }
+
+        try {
+            DBBreakpointCondition.parse("rule e consume 4");
+            fail("Conflicting event selectors");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private int firstMatch(DBBreakpointConditions conditions, List<DBEvent> events) {
+        for(int i=0; i<events.size(); i++) {
+            if(conditions.matchAt(events, i))
+                return i;
+        }
+        return -1;
+    }
+
+    public void testEventSearchIndex() throws Exception {
+        List<DBEvent> events = new ArrayList<DBEvent>();
+        DBEventSearchIndex index = new DBEventSearchIndex();
+        index.setEvents(events);
+
+        for(int i=0; i<1000; i++) {
+            events.add(new DBEventEnterRule("T", i % 2 == 0 ? "a" : "b"));
+            CommonToken token = new CommonToken(4, "x");
+            token.setTokenIndex(i);
+            events.add(new DBEventConsumeToken(token));
+            if(i % 100 == 99)
+                events.add(new DBEventRecognitionException(null));
+            events.add(new DBEventExitRule("T", i % 2 == 0 ? "a" : "b"));
+        }
+        index.update();
+        assertEquals(events.size(), index.getIndexedCount());
+
+        DBEventSearchIndex.Positions exceptions = index.getTypePositions(DBEvent.RECOGNITION_EXCEPTION);
+        assertEquals(10, exceptions.size());
+        assertEquals(DBEvent.RECOGNITION_EXCEPTION, events.get(exceptions.get(2)).getEventType());
+
+        DBEventSearchIndex.Positions enterB = index.getEnterRulePositions("b");
+        assertEquals(500, enterB.size());
+        int next = enterB.indexAfter(0);
+        assertEquals(3, enterB.get(next));
+        assertEquals(-1, enterB.indexBefore(3));
+        assertEquals(0, index.getExitRulePositions("c").size());
+
+        int position = index.getConsumePosition(512);
+        assertEquals(512, ((DBEventConsumeToken)events.get(position)).token.getTokenIndex());
+        assertEquals(-1, index.getConsumePosition(5000));
+
+        // Incremental update
+        events.add(new DBEventEnterRule("T", "b"));
+        index.update();
+        assertEquals(501, index.getEnterRulePositions("b").size());
+    }
+
+    public void testDecisionProfiler() throws Exception {
+        // Rule 'a' with decision 1 looking 3 tokens ahead and backtracking
+        // the second time, then decision 2 looking 1 token ahead
+        List<DBEvent> events = new ArrayList<DBEvent>();
+        long time = 0;
+        for(int n=0; n<2; n++) {
+            int start = n*10;
+            events.add(new DBEventEnterRule("T", "a"));
+            events.add(new DBEventLocation(3, 1));
+            events.add(new DBEventEnterDecision(1));
+            if(n == 1)
+                events.add(new DBEventBeginBacktrack(1));
+            for(int i=1; i<=3; i++) {
+                CommonToken token = new CommonToken(4, "x");
+                token.setTokenIndex(start+i-1);
+                events.add(new DBEventLT(i, token));
+            }
+            events.add(new DBEventExitDecision(1));
+            events.add(new DBEventLocation(5, 2));
+            events.add(new DBEventEnterDecision(2));
+            CommonToken token = new CommonToken(4, "x");
+            token.setTokenIndex(start);
+            events.add(new DBEventLT(1, token));
+            events.add(new DBEventExitDecision(2));
+            events.add(new DBEventExitRule("T", "a"));
+        }
+        for(DBEvent event : events) {
+            event.setTime(time += 1000);
+        }
+
+        DBDecisionProfiler profiler = new DBDecisionProfiler();
+        profiler.setEvents(events);
+        profiler.update(events.size());
+
+        List<DBDecisionProfiler.Stats> stats = profiler.getStats(DBDecisionProfiler.SORT_BACKTRACKS);
+        assertEquals(3, stats.size());
+        DBDecisionProfiler.Stats d1 = stats.get(0).isRule() ? stats.get(1) : stats.get(0);
+        assertEquals(3, d1.maxLookahead);
+        assertEquals(1, d1.decision);
+        assertEquals(2, d1.invocations);
+        assertEquals(1, d1.backtracks);
+        assertEquals("a", d1.rule);
+        assertEquals(3, d1.location.line);
+
+        stats = profiler.getStats(DBDecisionProfiler.SORT_TIME);
+        DBDecisionProfiler.Stats rule = stats.get(0);
+        assertTrue(rule.isRule());
+        assertEquals(2, rule.invocations);
+        assertEquals(2.0, rule.getAverageLookahead(), 0.001);
+        assertEquals(11000+12000, rule.time);
+
+        // Moving backward computes the statistics again
+        profiler.update(events.size()/2);
+        assertEquals(1, profiler.getStats(DBDecisionProfiler.SORT_TIME).get(0).invocations);
+    }
+
+    public void testProfilePause() throws Exception {
+        final long[] now = new long[] { 0 };
+        DBEventClock clock = new DBEventClock() {
+            protected long nanoTime() {
+                return now[0];
+            }
+        };
+
+        // The debugger stops for one second at a breakpoint inside the decision
+        List<DBEvent> events = new ArrayList<DBEvent>();
+        DBEvent[] trace = new DBEvent[] { new DBEventEnterRule("T", "a"), new DBEventEnterDecision(1),
+                new DBEventLT(1, new CommonToken(4, "x")), new DBEventExitDecision(1), new DBEventExitRule("T", "a") };
+        for(DBEvent event : trace) {
+            now[0] += 1000;
+            event.setTime(clock.now());
+            events.add(event);
+            if(event instanceof DBEventEnterDecision) {
+                clock.pause();
+                now[0] += 1000000000L;
+                assertTrue(clock.isPaused());
+                clock.resume();
+            }
+        }
+
+        DBDecisionProfiler profiler = new DBDecisionProfiler();
+        profiler.setEvents(events);
+        profiler.update(events.size());
+        List<DBDecisionProfiler.Stats> stats = profiler.getStats(DBDecisionProfiler.SORT_TIME);
+        assertEquals(2, stats.size());
+        for(DBDecisionProfiler.Stats s : stats) {
+            assertEquals(s.isRule() ? 4000 : 2000, s.time);
+        }
+    }
+
+    public void testProfileReport() throws Exception {
+        DBProfileReport worker1 = new DBProfileReport();
+        DBProfileReport.FileResult file = new DBProfileReport.FileResult("b.txt");
+        file.tokens = 100;
+        file.time = 2000000;
+        file.errors = 1;
+        file.error = "mismatched\tinput";
+        worker1.addFile(file);
+        DBDecisionProfiler.Stats decision = new DBDecisionProfiler.Stats("T", "a", 12);
+        decision.invocations = 3;
+        decision.maxLookahead = 2;
+        decision.totalLookahead = 4;
+        decision.lookaheadCount = 3;
+        decision.location = new DBEventLocation(5, 4);
+        List<DBDecisionProfiler.Stats> stats = new ArrayList<DBDecisionProfiler.Stats>();
+        stats.add(decision);
+        stats.add(new DBDecisionProfiler.Stats("T", "a", -1));
+        worker1.addStats(stats);
+
+        DBProfileReport worker2 = new DBProfileReport();
+        worker2.addFile(new DBProfileReport.FileResult("a.txt"));
+        decision = new DBDecisionProfiler.Stats("T", "a", 12);
+        decision.invocations = 1;
+        decision.maxLookahead = 5;
+        decision.totalLookahead = 5;
+        decision.lookaheadCount = 1;
+        decision.backtracks = 1;
+        stats.clear();
+        stats.add(decision);
+        stats.add(new DBDecisionProfiler.Stats("T", "a", 2));
+        worker2.addStats(stats);
+
+        // Write and read back each partial report before merging them
+        DBProfileReport report = new DBProfileReport();
+        for(DBProfileReport partial : new DBProfileReport[] { worker1, worker2 }) {
+            StringWriter w = new StringWriter();
+            partial.write(w);
+            report.merge(DBProfileReport.read(new StringReader(w.toString())));
+        }
+
+        StringWriter w = new StringWriter();
+        report.write(w);
+        String[] lines = w.toString().split("\n");
+        assertEquals(DBProfileReport.HEADER, lines[0]);
+        assertTrue(lines[1].startsWith("file\ta.txt"));
+        assertEquals("file\tb.txt\t0\t100\t0\t2000000\t1\tmismatched input", lines[2]);
+        assertTrue(lines[3].startsWith("rule\tT\ta\t-"));
+        // Decisions sorted by number after the rules
+        assertTrue(lines[4].startsWith("decision\tT\ta\t2\t"));
+        assertEquals("decision\tT\ta\t12\t4\t5\t9\t4\t1\t0\t5:4", lines[5]);
+        List<DBProfileReport.FileResult> files = new ArrayList<DBProfileReport.FileResult>(report.getFiles());
+        assertEquals(50000, files.get(1).getTokensPerSecond(), 0.1);
+    }
+
+    public void testInProcessEventListener() throws Exception {
+        DBInProcessEventListener listener = new DBInProcessEventListener(null);
+        CommonToken token = new CommonToken(4, "x");
+        token.setLine(3);
+        token.setCharPositionInLine(7);
+        token.setTokenIndex(12);
+        CommonTree root = new CommonTree(token);
+        CommonTree child = new CommonTree(new CommonToken(5, "y"));
+
+        // Each node gets the same ID for the whole session
+        RemoteDebugEventSocketListener.ProxyTree p = listener.getProxyTree(root);
+        assertEquals(1, p.ID);
+        assertEquals(4, p.type);
+        assertEquals("x", p.text);
+        assertEquals(3, p.line);
+        assertEquals(7, p.charPos);
+        assertEquals(2, listener.getProxyTree(child).ID);
+        assertEquals(1, listener.getProxyTree(root).ID);
+        assertSame(p, listener.getProxyTree(p));
+
+        // Once aborted, any event unwinds the parser before reaching the recorder
+        listener.abort();
+        try {
+            listener.addChild(root, child);
+            fail("AbortException expected");
+        } catch(DBInProcessEventListener.AbortException e) {
+            assertTrue(listener.isAborted());
+        }
+    }
+
+    public void testDebuggerCompiler() throws Exception {
+        DebuggerCompiler compiler = DebuggerCompiler.shared();
+        if(!compiler.isAvailable()) {
+            // Running on a JRE
+            return;
+        }
+
+        File dir = File.createTempFile("compiler", "");
+        dir.delete();
+        try {
+            File source = new File(dir, "Foo.java");
+            dir.mkdirs();
+            XJUtils.writeStringToFile("package a; public class Foo { class Bar {} }", source.getAbsolutePath());
+
+            String output = dir.getAbsolutePath();
+            assertNull(compiler.compile(null, new String[] { source.getAbsolutePath() }, "", output, null));
+            Map<String, byte[]> classes = compiler.getClasses(output);
+            assertEquals(2, classes.size());
+            assertTrue(classes.containsKey("a.Foo$Bar"));
+            assertTrue(new File(output, "a/Foo.class").exists());
+
+            XJUtils.writeStringToFile("public class Foo { int x = ; }", source.getAbsolutePath());
+            String error = compiler.compile(null, new String[] { source.getAbsolutePath() }, "", output, null);
+            assertTrue(error, error.contains("Foo.java:1: error"));
+
+            compiler.clearClasses(output);
+            assertTrue(compiler.getClasses(output).isEmpty());
+        } finally {
+            XJUtils.deleteDirectory(dir.getAbsolutePath());
+        }
+    }
+
+    public void testASTModelTrace() throws Exception {
+        // Tree construction trace of a rule collecting many subtrees before
+        // adding them to its root: ^(LIST ^(OP ID)*)
+        final int count = 20000;
+        List<DBEvent> events = new ArrayList<DBEvent>();
+        Random random = new Random(7);
+        int rootID = random.nextInt();
+        int[] opIDs = new int[count];
+        events.add(new DBEventNilNode(rootID));
+        for(int i=0; i<count; i++) {
+            int nilID = random.nextInt();
+            int idID = random.nextInt();
+            opIDs[i] = random.nextInt();
+            events.add(new DBEventNilNode(nilID));
+            events.add(new DBEventCreateNode(idID, "id"+i, 4));
+            events.add(new DBEventAddChild(nilID, idID));
+            events.add(new DBEventCreateNode(opIDs[i], "op"+i, 5));
+            events.add(new DBEventBecomeRoot(opIDs[i], nilID));
+        }
+        for(int i=0; i<count; i++) {
+            events.add(new DBEventAddChild(rootID, opIDs[i]));
+        }
+
+        DBASTModel model = new DBASTModel(null);
+        model.pushRule("list");
+        for(DBEvent event : events) {
+            switch(event.getEventType()) {
+                case DBEvent.NIL_NODE:
+                    model.nilNode(((DBEventNilNode)event).id);
+                    break;
+                case DBEvent.CREATE_NODE:
+                    DBEventCreateNode create = (DBEventCreateNode)event;
+                    model.createNode(create.id, new CommonToken(create.type, create.text));
+                    break;
+                case DBEvent.ADD_CHILD:
+                    DBEventAddChild add = (DBEventAddChild)event;
+                    model.addChild(add.rootID, add.childID);
+                    break;
+                case DBEvent.BECOME_ROOT:
+                    DBEventBecomeRoot become = (DBEventBecomeRoot)event;
+                    model.becomeRoot(become.newRootID, become.oldRootID);
+                    break;
+            }
+        }
+        assertEquals(1, model.getRootCount());
+        DBASTModel.ASTNode root = model.getRuleAtIndex(0).getRootAtIndex(0);
+        assertEquals(count, root.getChildCount());
+        for(int i=0; i<count; i++) {
+            DBASTModel.ASTNode op = (DBASTModel.ASTNode)root.getChildAt(i);
+            assertEquals("op"+i, op.toString());
+            assertEquals(1, op.getChildCount());
+            assertEquals("id"+i, op.getChildAt(0).toString());
+        }
+    }
+
+    private AWTreeGraphView createGraphView(AWTreeModel model, TestTreeNode root) {
+        AWTreeGraphView view = new AWTreeGraphView(null);
+        view.setModel(model);
+        view.setRoot(root);
+        view.paintComponent(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB).createGraphics());
+        return view;
+    }
+
+    private Token createToken(int index) {
+        CommonToken token = new CommonToken(1, "t"+index+" ");
+        token.setTokenIndex(index);
+        return token;
+    }
+
+    private void growParseTree(AWTreeModel model, TestTreeNode root, AWTreeGraphView view, int count) {
+        List<TestTreeNode> rules = new ArrayList<TestTreeNode>();
+        TestTreeNode rule = root;
+        while(rule != null) {
+            rules.add(rule);
+            rule = rule.getChildCount() == 0 ? null : (TestTreeNode)rule.getLastChild();
+        }
+        for(int i=0; i<count; i++) {
+            TestTreeNode parent = rules.get(rules.size()-1);
+            TestTreeNode node = new TestTreeNode((i % 7 == 0 ? "rule" : "t")+i);
+            model.addNode(parent, node);
+            if(i % 3 == 0)
+                rules.add(node);
+            else if(i % 5 == 0 && rules.size() > 1)
+                rules.remove(rules.size()-1);
+            if(i % 11 == 0) {
+                model.nodeChanged(node);
+                view.refresh();
+            }
+        }
+        view.refresh();
+    }
+
+    private void assertTreeLayout(TestTreeNode root, AWTreeGraphView view) {
+        // Visit the visible nodes from left to right at each depth
+        List<List<AWTreeGraphView.GElementNode>> levels = new ArrayList<List<AWTreeGraphView.GElementNode>>();
+        Stack<AWTreeGraphView.GElementNode> stack = new Stack<AWTreeGraphView.GElementNode>();
+        Stack<Integer> depths = new Stack<Integer>();
+        stack.push(view.getGElementForNode(root));
+        depths.push(0);
+        while(!stack.isEmpty()) {
+            AWTreeGraphView.GElementNode element = stack.pop();
+            int depth = depths.pop();
+            if(levels.size() <= depth)
+                levels.add(new ArrayList<AWTreeGraphView.GElementNode>());
+            levels.get(depth).add(element);
+            if(element.isCollapsed() || element.getChildCount() == 0)
+                continue;
+
+            // Each parent is centered above its first and last children
+            AWTreeGraphView.GElementNode first = element.getChildAt(0);
+            AWTreeGraphView.GElementNode last = element.getChildAt(element.getChildCount()-1);
+            assertEquals((first.getPositionX()+last.getPositionX())*0.5, element.getPositionX(), 0.001);
+
+            for(int i=element.getChildCount()-1; i>=0; i--) {
+                AWTreeGraphView.GElementNode child = element.getChildAt(i);
+                assertEquals(element.getBottom()+AWTreeGraphView.VERTICAL_GAP, child.getTop(), 0.001);
+                stack.push(child);
+                depths.push(depth+1);
+            }
+        }
+
+        // The nodes at the same depth do not overlap
+        for(List<AWTreeGraphView.GElementNode> level : levels) {
+            for(int i=1; i<level.size(); i++) {
+                assertTrue(level.get(i).getLeft()-level.get(i-1).getRight() >= AWTreeGraphView.HORIZONTAL_GAP-0.001);
+            }
+        }
+    }
+
+    private void assertContext(String message, DBPlayerContextInfo expected, DBPlayerContextInfo actual) {
+        assertEquals(message, expected.subrule, actual.subrule);
+        assertEquals(message, expected.decision, actual.decision);
+        assertEquals(message, expected.mark, actual.mark);
+        assertEquals(message, expected.backtrack, actual.backtrack);
+    }
+
+    private List<DBEvent> createEvents(int count) {
+        List<DBEvent> events = new ArrayList<DBEvent>();
+        int depth = 0;
+        for(int i=0; events.size()<count; i++) {
+            String rule = i % 3 == 0 ? "a" : "b";
+            events.add(new DBEventEnterRule("T.g", rule));
+            events.add(new DBEventEnterDecision(i));
+            events.add(new DBEventMark(i));
+            if(i % 5 == 0) {
+                events.add(new DBEventBeginBacktrack(1));
+                events.add(new DBEventEndBacktrack(1, true));
+            }
+            events.add(new DBEventRewind(i));
+            events.add(new DBEventExitDecision(i));
+            events.add(new DBEventEnterSubRule(i));
+            depth++;
+            if(i % 4 == 3) {
+                while(depth > 0) {
+                    events.add(new DBEventExitSubRule(i));
+                    events.add(new DBEventExitRule("T.g", rule));
+                    depth--;
+                }
+            }
+        }
+        return events;
+    }
+
+    private static class TestTreeNode extends AWTreeNode {
+
+        public String label;
+
+        public TestTreeNode(String label) {
+            this.label = label;
+        }
+
+        public String getInfoString() {
+            return label;
+        }
+
+        public Color getColor() {
+            return Color.black;
+        }
+
+        public String toString() {
+            return label;
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.Tool;
+import org.antlr.works.generate.BuildCache;
+import org.antlr.works.generate.CodeGenerate;
+import org.antlr.works.generate.CodeGenerateAll;
+import org.antlr.works.generate.CodeGenerateTool;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestGenerate extends AbstractTest {
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestGenerate.class));
+    }
+
+    public void testCodeGenerateTool() throws Exception {
+        File dir = File.createTempFile("generate", "");
+        dir.delete();
+        dir.mkdirs();
+        File grammar = new File(dir, "T.g");
+        XJUtils.writeStringToFile("parser grammar T; tokens { X; } a : X ;", grammar.getAbsolutePath());
+
+        String output = new File(dir, "output").getAbsolutePath();
+        String[] error = new String[1];
+        Map<String, String> files = CodeGenerateTool.run(new String[] { "-debug", "-o", output, grammar.getAbsolutePath() }, error);
+        assertNull(error[0]);
+        String parser = new File(output, "T.java").getAbsolutePath();
+        assertTrue(files.get(parser).contains("DebugParser"));
+        // Nothing is written until requested
+        assertFalse(new File(parser).exists());
+
+        assertEquals(files.size(), CodeGenerateTool.writeOutputs(files));
+        assertTrue(new File(parser).exists());
+        // Unchanged files are not written again
+        assertEquals(0, CodeGenerateTool.writeOutputs(files));
+    }
+
+    public void testCodeGenerateAll() throws Exception {
+        File dir = File.createTempFile("generateall", "");
+        dir.delete();
+        dir.mkdirs();
+        XJUtils.writeStringToFile("lexer grammar L; A : 'a' ; B : 'b' ;", new File(dir, "L.g").getAbsolutePath());
+        XJUtils.writeStringToFile("parser grammar P; options { tokenVocab=L; output=AST; } a : A B ;", new File(dir, "P.g").getAbsolutePath());
+        XJUtils.writeStringToFile("tree grammar W; options { tokenVocab=P; } a : A B ;", new File(dir, "W.g").getAbsolutePath());
+        XJUtils.writeStringToFile("parser grammar E; tokens { X; } e : X ;", new File(dir, "E.g").getAbsolutePath());
+        XJUtils.writeStringToFile("parser grammar F; options { tokenVocab=E; } f : X ( ;", new File(dir, "F.g").getAbsolutePath());
+
+        String output = new File(dir, "output").getAbsolutePath();
+        BuildCache cache = new BuildCache(new File(dir, "cache"), 16);
+        CodeGenerateAll all = new CodeGenerateAll(CodeGenerateAll.listGrammarFiles(dir.getAbsolutePath()), output);
+        all.setCache(cache);
+        List<String> order = new ArrayList<String>();
+        for(CodeGenerateAll.Result r : all.getDependencyOrder()) {
+            order.add(r.grammarName);
+        }
+        assertTrue(order.indexOf("L") < order.indexOf("P"));
+        assertTrue(order.indexOf("P") < order.indexOf("W"));
+        assertTrue(order.indexOf("E") < order.indexOf("F"));
+
+        // F has a syntax error: its error is reported only in its own result
+        assertFalse(all.generate());
+        for(CodeGenerateAll.Result r : all.getResults()) {
+            if(r.grammarName.equals("F")) {
+                assertEquals(CodeGenerateAll.STATUS_FAILED, r.status);
+                assertFalse(r.errors.isEmpty());
+            } else {
+                assertEquals(r.toString(), CodeGenerateAll.STATUS_GENERATED, r.status);
+                assertTrue(r.errors.isEmpty());
+            }
+        }
+        assertTrue(new File(output, "W.java").exists());
+
+        // The grammars are now restored from the cache
+        new File(output, "W.java").delete();
+        all = new CodeGenerateAll(CodeGenerateAll.listGrammarFiles(dir.getAbsolutePath()), output);
+        all.setCache(cache);
+        all.generate();
+        for(CodeGenerateAll.Result r : all.getResults()) {
+            if(!r.grammarName.equals("F"))
+                assertEquals(CodeGenerateAll.STATUS_CACHED, r.status);
+        }
+        assertTrue(new File(output, "W.java").exists());
+
+        XJUtils.deleteDirectory(dir.getAbsolutePath());
+    }
+
+    public void testBuildCache() throws Exception {
+        File dir = File.createTempFile("cache", "");
+        dir.delete();
+        dir.mkdirs();
+        File output = new File(dir, "output");
+        File source = new File(output, "sub/A.java");
+        source.getParentFile().mkdirs();
+        XJUtils.writeStringToFile("class A {}", source.getAbsolutePath());
+        XJUtils.writeStringToFile("key", new File(output, ".A.md5").getAbsolutePath());
+
+        BuildCache.Key key = new BuildCache.Key().add("params", new String[] { "-o", "x" }).addFile("file", source.getAbsolutePath());
+        // The labels separate the values: the same strings in a different grouping give a different key
+        assertFalse(key.getHash().equals(new BuildCache.Key().add("params", "-o").add("x", (String)null).getHash()));
+        assertEquals(key.getHash(), new BuildCache.Key().add("params", new String[] { "-o", "x" }).addFile("file", source.getAbsolutePath()).getHash());
+
+        BuildCache cache = new BuildCache(new File(dir, "cache"), 2);
+        assertFalse(cache.restore(key.getHash(), output.getAbsolutePath()));
+        assertTrue(cache.storeDirectory(key.getHash(), output.getAbsolutePath()));
+        assertTrue(cache.contains(key.getHash()));
+
+        // Restore into another window's output path: stamp files are not part of the entry
+        File other = new File(dir, "other");
+        assertTrue(cache.restore(key.getHash(), other.getAbsolutePath()));
+        assertEquals("class A {}", XJUtils.getStringFromFile(new File(other, "sub/A.java").getAbsolutePath()));
+        assertFalse(new File(other, ".A.md5").exists());
+
+        // The least recently used entries are removed
+        new File(dir, "cache/"+key.getHash()).setLastModified(System.currentTimeMillis()-60000);
+        assertTrue(cache.store("k2", output.getAbsolutePath(), Arrays.asList(source.getAbsolutePath())));
+        assertTrue(cache.store("k3", output.getAbsolutePath(), Arrays.asList(source.getAbsolutePath())));
+        assertFalse(cache.contains(key.getHash()));
+        assertTrue(cache.contains("k2"));
+        assertTrue(cache.contains("k3"));
+
+        XJUtils.deleteDirectory(dir.getAbsolutePath());
+    }
+
+    public void testGrammarHash() throws Exception {
+        assertEquals(new Tool().VERSION, CodeGenerate.getAntlrVersion());
+
+        File grammar = File.createTempFile("hash", ".g");
+        XJUtils.writeStringToFile("parser grammar T; a : X ;", grammar.getAbsolutePath());
+        String[] params = new String[] { "-o", "x" };
+        List<String> files = Arrays.asList(grammar.getAbsolutePath(), null);
+
+        String hash = CodeGenerate.computeGrammarHash(params, files);
+        assertEquals(hash, CodeGenerate.computeGrammarHash(params, files));
+        assertFalse(hash.equals(CodeGenerate.computeGrammarHash(new String[] { "-o", "y" }, files)));
+
+        // The digest of a file is computed again when the file changes
+        byte[] digest = BuildCache.getFileDigest(grammar);
+        assertSame(digest, BuildCache.getFileDigest(grammar));
+        XJUtils.writeStringToFile("parser grammar T; a : X Y ;", grammar.getAbsolutePath());
+        assertFalse(hash.equals(CodeGenerate.computeGrammarHash(params, files)));
+
+        grammar.delete();
+        assertFalse(hash.equals(CodeGenerate.computeGrammarHash(params, files)));
+    }
+
+}
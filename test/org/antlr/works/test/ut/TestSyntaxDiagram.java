@@ -1,10 +1,45 @@
 package org.antlr.works.test.ut;
 
+import org.antlr.analysis.NFAState;
+import org.antlr.tool.ErrorManager;
+import org.antlr.tool.Grammar;
+import org.antlr.tool.Rule;
 import org.antlr.works.test.AbstractTest;
 import org.antlr.works.test.TestConstants;
+import org.antlr.works.visualization.GraphCache;
+import org.antlr.works.visualization.SDBatchExporter;
+import org.antlr.works.visualization.fa.FAFactory;
+import org.antlr.works.visualization.fa.FAFingerprint;
+import org.antlr.works.visualization.fa.FAState;
+import org.antlr.works.visualization.fa.FATransition;
+import org.antlr.works.visualization.graphics.GContext;
+import org.antlr.works.visualization.graphics.GContextListener;
+import org.antlr.works.visualization.graphics.GEngine;
+import org.antlr.works.visualization.graphics.GEngineGraphics;
+import org.antlr.works.visualization.graphics.GEnginePS;
+import org.antlr.works.visualization.graphics.GEngineSVG;
+import org.antlr.works.visualization.graphics.GFactory;
+import org.antlr.works.visualization.graphics.graph.GGraph;
+import org.antlr.works.visualization.graphics.graph.GGraphAbstract;
+import org.antlr.works.visualization.graphics.graph.GGraphGroup;
+import org.antlr.works.visualization.graphics.panel.GTileCache;
+import org.antlr.works.visualization.graphics.primitive.GLiteral;
+import org.antlr.works.visualization.graphics.shape.GNode;
+import org.antlr.works.visualization.skin.Skin;
+import org.antlr.works.visualization.skin.nfa.NFASkin;
+import org.antlr.works.visualization.skin.syntaxdiagram.SDSkin;
+import org.antlr.xjlib.appkit.swing.XJGraphics2DSVG;
 import org.antlr.xjlib.foundation.XJUtils;
 
-import java.io.File;/*
+import java.awt.*;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.CancellationException;/*
 
 [The "BSD licence"]
 Copyright (c) 2005-07 Jean Bovet
@@ -43,25 +78,400 @@ public class TestSyntaxDiagram extends AbstractTest {
     }
 
     public void testExpr() throws Exception {
-        //    todo redo these syntax diagram
-  //      assertSD("expr", "expr");
+        assertSD("expr", "expr");
+    }
+
+    public void testMantra() throws Exception {
+        // The diagrams of these larger grammars were serialized with the recursive factory
+        assertSD("mantra", "mantra", TestConstants.MANTRA);
+        assertSD("mantra", "CodeGenPhase", TestConstants.CODE_GEN_PHASE);
+        // Don't let the errors of these grammars interfere with the other tests
+        ErrorManager.resetErrorState();
+    }
+
+    public void testLiteral() throws Exception {
+        Map<String,Float> map = new HashMap<String, Float>();
+        map.put(GContext.NODE_WIDTH.toString(), 1f);
+        map.put(GContext.EPSILON_WIDTH.toString(), 2f);
+        map.put(GContext.CHAR_WIDTH.toString(), 3f);
+        map.put(GContext.BOX_WIDTH.toString(), 10f);
+        GLiteral.Values values = new GLiteral.Values(map);
+
+        GLiteral label = GContext.getBoxWidth("abc");
+        GLiteral l = GLiteral.add(GLiteral.add(GContext.NODE_WIDTH, label), GContext.EPSILON_WIDTH);
+        l = GLiteral.substract(l, GLiteral.max(GContext.NODE_WIDTH, GLiteral.ZERO));
+        // Same representation as the serialized strings
+        assertEquals("m#(ccccc,W)w-(m)", l.toString());
+        assertEquals(1+15+2-1f, l.evaluate(values));
+
+        // Long chains of sums sharing their prefix
+        GLiteral x = GLiteral.ZERO;
+        GLiteral[] points = new GLiteral[100000];
+        for(int i=0; i<points.length; i++) {
+            x = GLiteral.add(x, i % 2 == 0 ? label : GContext.NODE_WIDTH);
+            points[i] = x;
+        }
+        assertEquals(50000*15+50000f, x.evaluate(values));
+        assertEquals(15f, points[0].evaluate(values));
+
+        // New values are taken into account
+        map.put(GContext.NODE_WIDTH.toString(), 2f);
+        assertEquals(50000*15+100000f, x.evaluate(new GLiteral.Values(map)));
+    }
+
+    public void testFingerprint() throws Exception {
+        String a = fingerprint("parser grammar T;\na : b (X|Y)* ;\nb : X Y ;\nc : a b ;\n", "c");
+        // Editing another rule shifts the state numbers but not the structure of the rule
+        String b = fingerprint("parser grammar T;\na : b (X|Y|Z)+ b ;\nb : X Y? ;\nc : a b ;\n", "c");
+        assertEquals(a, b);
+
+        assertFalse(a.equals(fingerprint("parser grammar T;\na : b (X|Y)* ;\nb : X Y ;\nc : b a ;\n", "c")));
+        assertFalse(a.equals(fingerprint("parser grammar T;\na : b (X|Y)* ;\nb : X Y ;\nc : a b? ;\n", "c")));
+        assertFalse(fingerprint("parser grammar T;\na : X Y ;\n", "a").equals(fingerprint("parser grammar T;\na : X Z ;\n", "a")));
+    }
+
+    public void testGraphCache() throws Exception {
+        GraphCache cache = new GraphCache(3*GraphCache.GRAPH_SIZE);
+        cache.put("a", graphs(1));
+        cache.put("b", graphs(1));
+        assertEquals(2*GraphCache.GRAPH_SIZE, cache.getSize());
+
+        // The least recently used graphs are evicted when the budget is exceeded
+        assertNotNull(cache.get("a"));
+        cache.put("c", graphs(2));
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+        assertEquals(3*GraphCache.GRAPH_SIZE, cache.getSize());
+
+        // A graph larger than the budget is still kept until the next one
+        cache.put("d", graphs(4));
+        assertEquals(1, cache.getCount());
+        assertTrue(cache.contains("d"));
+    }
+
+    private static List<GGraphAbstract> graphs(int count) {
+        List<GGraphAbstract> graphs = new ArrayList<GGraphAbstract>();
+        for(int i=0; i<count; i++) {
+            graphs.add(new GGraphGroup());
+        }
+        return graphs;
+    }
+
+    public void testTileCache() throws Exception {
+        final List<Point> rendered = new ArrayList<Point>();
+        GTileCache.Renderer renderer = new GTileCache.Renderer() {
+            public void renderTile(Graphics2D g2d, int x, int y) {
+                rendered.add(new Point(x, y));
+            }
+        };
+        GTileCache cache = new GTileCache(2L*GTileCache.TILE_SIZE*GTileCache.TILE_SIZE*3);
+        cache.setSize(1000, 1000);
+
+        // A tile is rendered only once
+        assertNotNull(cache.getOrRender(0, 0, renderer));
+        assertNotNull(cache.getOrRender(0, 0, renderer));
+        assertEquals(Arrays.asList(new Point(0, 0)), rendered);
+
+        // The least recently used tile is evicted
+        cache.getOrRender(1, 0, renderer);
+        cache.getOrRender(0, 0, renderer);
+        cache.getOrRender(0, 1, renderer);
+        assertEquals(2, cache.getCount());
+        assertNotNull(cache.get(0, 0));
+        assertNull(cache.get(1, 0));
+        assertEquals(new Point(0, GTileCache.TILE_SIZE), rendered.get(rendered.size()-1));
+
+        // Same size keeps the tiles, another size (zoom) discards them
+        cache.setSize(1000, 1000);
+        assertEquals(2, cache.getCount());
+        cache.setSize(2000, 1000);
+        assertEquals(0, cache.getCount());
+    }
+
+    public void testTileCulling() throws Exception {
+        // The parser rules of mantra are large enough to span many tiles
+        Grammar g = createGrammars(TestConstants.MANTRA).get(0);
+        for(Skin skin : new Skin[] { new SDSkin(), new NFASkin() }) {
+            GContext context = new GContext();
+            context.setSkin(skin);
+            context.setEngine(new GEngineGraphics());
+            GGraph largest = null;
+            for(Rule rule : g.getRules()) {
+                GGraph graph = new GFactory().buildGraphsForRule(g, rule.name);
+                if(graph == null)
+                    continue;
+
+                graph.setContext(context);
+                graph.render(0, 0);
+
+                // Drawing only the nodes of each tile gives the same image as drawing all the nodes
+                int width = (int)(graph.getWidth()+1);
+                int height = (int)(graph.getHeight()+1);
+                assertFalse(graph.nodes.get(0).intersects(new Rectangle(width+1000, 0, 64, 64)));
+                context.cull = false;
+                BufferedImage expected = drawTiles(context, graph, width, height);
+                context.cull = true;
+                BufferedImage culled = drawTiles(context, graph, width, height);
+                byte[] a = ((DataBufferByte)expected.getRaster().getDataBuffer()).getData();
+                byte[] b = ((DataBufferByte)culled.getRaster().getDataBuffer()).getData();
+                for(int i=0; i<a.length; i++) {
+                    if(a[i] != b[i])
+                        fail(rule.name+" differs at "+(i/3)%width+","+(i/3)/width+" with "+skin.getClass().getSimpleName());
+                }
+
+                if(largest == null || graph.nodes.size() > largest.nodes.size())
+                    largest = graph;
+            }
+
+            // The export draws all the nodes even if the view left a clipped graphics in the context
+            BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D tile = (Graphics2D)image.getGraphics();
+            tile.clipRect(0, 0, 64, 64);
+            context.setGraphics2D(tile);
+            String svg = drawSVG(context, largest);
+            context.cull = false;
+            assertEquals(largest.name, drawSVG(context, largest), svg);
+            context.cull = true;
+            tile.dispose();
+        }
+        // Don't let the errors of this grammar interfere with the other tests
+        ErrorManager.resetErrorState();
+    }
+
+    private static String drawSVG(GContext context, GGraph graph) throws Exception {
+        GEngine engine = context.engine;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GEngineSVG svg = new GEngineSVG(out, 100, 100);
+        context.setEngine(svg);
+        try {
+            graph.draw();
+        } finally {
+            svg.close();
+            context.setEngine(engine);
+        }
+        return out.toString("UTF-8");
+    }
+
+    private static BufferedImage drawTiles(GContext context, GGraph graph, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g2d = (Graphics2D)image.getGraphics();
+        g2d.setColor(Color.white);
+        g2d.fillRect(0, 0, width, height);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        // Tiles smaller than the view's so most of the nodes are outside of each tile
+        for(int x=0; x<width; x+=128) {
+            for(int y=0; y<height; y+=128) {
+                Graphics2D tile = (Graphics2D)g2d.create();
+                tile.clipRect(x, y, 128, 128);
+                context.setGraphics2D(tile);
+                graph.draw();
+                tile.dispose();
+            }
+        }
+        g2d.dispose();
+        return image;
+    }
+
+    public void testBatchExport() throws Exception {
+        String source = getResourceFile(TestConstants.PREFIX+"sd/expr/expr.g");
+        File dir = File.createTempFile("sdexport", "");
+        dir.delete();
+
+        try {
+            org.antlr.works.Console.main(new String[] { "-f", source, "-sd", "png,svg,eps", "-threads", "3", "-o", dir.getAbsolutePath() });
+
+            String index = XJUtils.getStringFromFile(new File(dir, SDBatchExporter.INDEX_FILE).getAbsolutePath());
+            for(String rule : new String[] { "prog", "stat", "expr", "multExpr", "atom", "ID", "WS" }) {
+                assertTrue(rule, new File(dir, rule+".png").length() > 0);
+                assertTrue(rule, new File(dir, rule+".eps").length() > 0);
+                assertTrue(rule, new File(dir, rule+".svg").length() > 0);
+                assertTrue(rule, index.contains("<img src=\""+rule+".svg\""));
+                assertTrue(rule, index.contains("<img src=\""+rule+".png\""));
+                assertTrue(rule, index.contains("<a href=\""+rule+".eps\">"));
+            }
+            // The rules are listed in the order of the grammar
+            assertTrue(index.indexOf("prog.png") < index.indexOf("stat.png"));
+            assertTrue(index.indexOf("atom.png") < index.indexOf("ID.png"));
+        } finally {
+            XJUtils.deleteDirectory(dir.getAbsolutePath());
+        }
+    }
+
+    public void testSVG() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XJGraphics2DSVG g = new XJGraphics2DSVG(out, 100, 50);
+        g.drawLine(10, 10, 40, 10);
+        g.drawLine(40, 10, 40, 30);
+        g.draw(new Line2D.Float(40, 30, 45.5f, 35.25f));
+        g.setColor(Color.red);
+        g.fillRect(0, 0, 5, 5);
+        g.setColor(Color.black);
+        g.drawLine(0, 0, 1, 1);
+        g.drawString("a<b", 1, 2);
+        g.drawString("c  d", 1, 12);
+        g.close();
+
+        String svg = out.toString("UTF-8");
+        assertTrue(svg, svg.contains("width=\"100\" height=\"50\" viewBox=\"0 0 100 50\""));
+        // The lines with the same style are merged into one compacted path
+        assertTrue(svg, svg.contains("<path class=\"s0\" d=\"M10 10h30m0 0v20m0 0 5.5 5.25\"/>"));
+        assertTrue(svg, svg.contains("<path class=\"s1\" d=\"M0 0h5v5h-5v-5z\"/>"));
+        assertTrue(svg, svg.contains("<path class=\"s0\" d=\"M0 0l1 1\"/>"));
+        assertTrue(svg, svg.contains("x=\"1\" y=\"2\">a&lt;b</text>"));
+        // The runs of spaces in the text are kept
+        assertTrue(svg, svg.contains("xml:space=\"preserve\""));
+        assertTrue(svg, svg.contains(">c  d</text>"));
+        assertTrue(svg, svg.contains(".s1{fill:#ff0000}"));
+        assertTrue(svg, svg.endsWith("</style>\n</svg>\n"));
+    }
+
+    public void testFactoryReuse() throws Exception {
+        String[] files = new String[] { TestConstants.MANTRA, TestConstants.CODE_GEN_PHASE,
+                TestConstants.RESOLVE_PHASE, TestConstants.SEMANTIC_PHASE, TestConstants.PREFIX+"groups.g",
+                TestConstants.PREFIX+"sd/expr/expr.g", TestConstants.PREFIX+"sd/vsql/vsql.g" };
+        for(String file : files) {
+            for(Grammar g : createGrammars(file)) {
+                // A factory reused for all the rules builds the same diagrams as a new factory for each rule
+                FAFactory factory = new FAFactory(g);
+                for(Rule rule : g.getRules()) {
+                    NFAState start = g.getRuleStartState(rule.name);
+                    String expected = describe(new FAFactory(g).buildNFA(start, true));
+                    assertEquals(rule.name, expected, describe(factory.buildNFA(start, true)));
+                    assertEquals(rule.name, expected, describe(factory.buildNFA(start, true)));
+                }
+            }
+        }
+        // Don't let the errors of these grammars interfere with the other tests
+        ErrorManager.resetErrorState();
+    }
+
+    public void testFactoryLongRule() throws Exception {
+        StringBuilder text = new StringBuilder("parser grammar T;\na : ");
+        for(int i=0; i<20000; i++) {
+            text.append(i % 2 == 0 ? "X " : "Y ");
+        }
+        text.append(";\n");
+        Grammar g = new Grammar(text.toString());
+        g.buildNFA();
+
+        // Follow the first transition until the end of the rule
+        FAState state = new FAFactory(g).buildNFA(g.getRuleStartState("a"), true);
+        int count = 0;
+        while(!state.acceptedState) {
+            state = state.getNextFirstState();
+            count++;
+        }
+        assertTrue(count > 20000);
+    }
+
+    public void testFactoryCancel() throws Exception {
+        Grammar g = new Grammar("parser grammar T;\na : X (Y | Z)* ;\n");
+        g.buildNFA();
+
+        // A cancelled factory abandons the build until the flag is cleared
+        GFactory factory = new GFactory();
+        factory.setCancelled(true);
+        try {
+            factory.buildGraphsForRule(g, "a");
+            fail("The build was not cancelled");
+        } catch (CancellationException e) {
+            // expected
+        }
+        factory.setCancelled(false);
+        assertNotNull(factory.buildGraphsForRule(g, "a"));
+    }
+
+    public void testDrawProgress() throws Exception {
+        Grammar g = new Grammar("parser grammar T;\na : X (Y | Z)* b ;\nb : X ;\n");
+        g.buildNFA();
+
+        GGraph graph = new GFactory().buildGraphsForRule(g, "a");
+        GContext context = new GContext();
+        context.setSkin(new SDSkin());
+        graph.setContext(context);
+        graph.render(0, 0);
+
+        // The export reports each node drawn into the PostScript graphics
+        final List<GNode> drawn = new ArrayList<GNode>();
+        context.setListener(new GContextListener() {
+            public void contextDidDrawNode(GNode node) {
+                drawn.add(node);
+            }
+        });
+        GEnginePS engine = new GEnginePS();
+        context.setEngine(engine);
+        try {
+            graph.draw();
+        } finally {
+            engine.close();
+        }
+        assertEquals(graph.nodes, drawn);
+        assertEquals(drawn.size(), graph.getNodeCount());
+    }
+
+    private String describe(FAState start) {
+        if(start == null)
+            return "null";
+
+        // The states of the external rule references are numbered by the factory:
+        // number the states in the order they are visited instead
+        StringBuilder sb = new StringBuilder();
+        Map<FAState,Integer> ids = new IdentityHashMap<FAState, Integer>();
+        Stack<FAState> stack = new Stack<FAState>();
+        stack.push(start);
+        ids.put(start, 0);
+        while(!stack.isEmpty()) {
+            FAState state = stack.pop();
+            sb.append(ids.get(state)).append(state.acceptedState ? "!" : "").append(state.loop ? "*" : "");
+            sb.append(state.externalRuleRefName == null ? "" : "@"+state.externalRuleRefName).append(':');
+            for(FATransition t : state.transitions) {
+                if(!ids.containsKey(t.target)) {
+                    ids.put(t.target, ids.size());
+                    stack.push(t.target);
+                }
+                sb.append(' ').append(t.label).append("->").append(ids.get(t.target));
+                sb.append(t.loop ? "*" : "").append(t.externalRuleRef ? "@" : "").append(t.skippedStates);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private List<Grammar> createGrammars(String file) throws Exception {
+        return loadGrammars(getResourceFile(file));
+    }
+
+    private String fingerprint(String text, String rule) throws Exception {
+        Grammar g = new Grammar(text);
+        g.buildNFA();
+        return new FAFingerprint(g).compute(g.getRuleStartState(rule));
     }
 
     private void assertSD(String folder, String name) throws Exception {
+        assertSD(folder, name, TestConstants.PREFIX+"sd/"+folder+"/"+name+".g");
+    }
+
+    private void assertSD(String folder, String name, String grammar) throws Exception {
         // Read the grammar file
-        String source = getResourceFile(TestConstants.PREFIX+"sd/"+folder+"/"+name+".g");
-        String target = File.createTempFile(name+"-sd", ".txt").getAbsolutePath();
-
-        // Generate the XML-string representation of the syntax diagram
-        String[] args = new String[] { "-f", source, "-serialize", target};
-        org.antlr.works.Console.main(args);
-
-        // Compare the result with the one that has been pre-generated
-        String expected = getTextFromFile(TestConstants.PREFIX+"sd/"+folder+"/"+name+".txt");
-        String actual = XJUtils.getStringFromFile(target);
-        // normalize the line ending
-        expected = expected.replaceAll("\\\r\\\n", "\\\n");
-        assertEquals(name, expected, actual);
+        String source = getResourceFile(grammar);
+        File target = File.createTempFile(name+"-sd", ".txt");
+
+        try {
+            // Generate the XML-string representation of the syntax diagram
+            String[] args = new String[] { "-f", source, "-serialize", target.getAbsolutePath()};
+            org.antlr.works.Console.main(args);
+
+            // Compare the result with the one that has been pre-generated
+            String expected = getTextFromFile(TestConstants.PREFIX+"sd/"+folder+"/"+name+".txt");
+            String actual = XJUtils.getStringFromFile(target.getAbsolutePath());
+            // normalize the line ending
+            expected = expected.replaceAll("\\\r\\\n", "\\\n");
+            assertEquals(name, expected, actual);
+        } finally {
+            target.delete();
+        }
     }
 
 }
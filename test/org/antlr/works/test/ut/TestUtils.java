@@ -3,7 +3,26 @@ package org.antlr.works.test.ut;
 import junit.framework.TestSuite;
 import junit.textui.TestRunner;
 import org.antlr.works.test.AbstractTest;
+import org.antlr.works.utils.IntHashMap;
+import org.antlr.xjlib.appkit.gview.GView;
+import org.antlr.xjlib.appkit.gview.base.Rect;
+import org.antlr.xjlib.appkit.gview.object.GElement;
+import org.antlr.xjlib.appkit.gview.object.GElementRect;
+import org.antlr.xjlib.appkit.gview.object.GLink;
+import org.antlr.xjlib.appkit.swing.XJFontMetricsCache;
+import org.antlr.xjlib.appkit.swing.XJGraphics2DPS;
 import org.antlr.xjlib.foundation.XJUtils;
+
+import java.awt.*;
+import java.awt.font.TextLayout;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.*;
+import java.util.List;
 /*
 
 [The "BSD licence"]
@@ -37,6 +56,8 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 public class TestUtils extends AbstractTest {
 
+    private static final String NEWLINE = System.getProperty("line.separator");
+
     public static void main(String[] args) {
         new TestRunner().doRun(new TestSuite(TestUtils.class));
     }
@@ -64,4 +85,204 @@ public class TestUtils extends AbstractTest {
         assertEquals("localize 9", "ab\r\nc\r\ndef\r\nghj", XJUtils.getTextByReplacingEOL("ab\rc\rdef\r\nghj", "\r\n"));
     }
 
-}
\ No newline at end of file
+    public void testIntHashMap() throws Exception {
+        IntHashMap<String> map = new IntHashMap<String>();
+        Map<Integer,String> expected = new HashMap<Integer, String>();
+        Random random = new Random(1);
+        for(int i=0; i<100000; i++) {
+            // Small key range so puts, replacements and removals collide often
+            int key = random.nextInt(5000)*(random.nextBoolean() ? 1 : -64);
+            if(random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, "v"+i), map.put(key, "v"+i));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for(Map.Entry<Integer,String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0));
+    }
+
+    public void testPSNumberFormat() throws Exception {
+        DecimalFormatSymbols symbols = new DecimalFormatSymbols();
+        symbols.setDecimalSeparator('.');
+        DecimalFormat df = new DecimalFormat("###.##", symbols);
+        char[] buffer = new char[32];
+        Random random = new Random(1);
+        double[] values = new double[] { 0, -0.0, 0.004, 0.005, 0.125, -0.125, 1.005, 12.5, -3, 99.999, 123456.789 };
+        for(int i=0; i<200000+values.length; i++) {
+            double v = i < values.length ? values[i] : (random.nextDouble()-0.5)*(random.nextBoolean() ? 2000 : 2);
+            if(i >= values.length && random.nextBoolean())
+                v = Math.round(v*1000)/1000.0;
+            int length = XJGraphics2DPS.formatNumber(v, buffer);
+            if(length >= 0)
+                assertEquals(String.valueOf(v), df.format(v), new String(buffer, 0, length));
+        }
+    }
+
+    public void testPSStreaming() throws Exception {
+        XJGraphics2DPS g = new XJGraphics2DPS();
+        // Large enough for the body to be spilled into a temporary file
+        for(int i=0; i<60000; i++) {
+            g.drawLine(i, 0, i, 10);
+        }
+        final long[] progress = new long[2];
+        StringWriter out = new StringWriter();
+        g.writePS(out, new XJGraphics2DPS.ProgressListener() {
+            public void writeProgress(long written, long total) {
+                progress[0] = written;
+                progress[1] = total;
+            }
+        });
+        g.close();
+
+        String ps = out.toString();
+        assertTrue(ps.startsWith("%!PS-Adobe-3.0 EPSF-3.0"));
+        assertTrue(ps.contains("%%BoundingBox: 0 0 59999 10"));
+        assertTrue(ps.endsWith("59999 -0 m "+NEWLINE+"59999 -10 l "+NEWLINE+"s "+NEWLINE));
+        assertTrue(progress[1] > 1024*1024);
+        assertEquals(progress[1], progress[0]);
+
+        try {
+            g.writePS(new StringWriter(), null);
+            fail("The document has been closed");
+        } catch(IOException e) {
+            // expected
+        }
+    }
+
+    public void testFontMetricsCache() throws Exception {
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = (Graphics2D)image.getGraphics();
+        g.setFont(new Font("Monospaced", Font.BOLD, 12));
+        FontMetrics fm = g.getFontMetrics();
+
+        XJFontMetricsCache.clear();
+        assertEquals(fm.stringWidth("expression"), XJFontMetricsCache.getStringWidth(fm, "expression"));
+        assertEquals(fm.getHeight(), (int)XJFontMetricsCache.getStringSize(fm, "expression").height);
+        assertEquals(1, XJFontMetricsCache.getMisses());
+        assertEquals(1, XJFontMetricsCache.getHits());
+
+        // Same label measured with another font or as a text layout is another entry
+        FontMetrics fm2 = g.getFontMetrics(new Font("Monospaced", Font.PLAIN, 24));
+        assertEquals(fm2.stringWidth("expression"), XJFontMetricsCache.getStringWidth(fm2, "expression"));
+        XJFontMetricsCache.Size size = XJFontMetricsCache.getTextLayoutSize(fm.getFont(), g.getFontRenderContext(), "expression");
+        Rectangle2D bounds = new TextLayout("expression", fm.getFont(), g.getFontRenderContext()).getBounds();
+        assertEquals((float)bounds.getWidth(), size.width);
+        assertEquals((float)bounds.getHeight(), size.height);
+        assertEquals(3, XJFontMetricsCache.getMisses());
+        assertEquals(3, XJFontMetricsCache.getCount());
+
+        for(int i=0; i<XJFontMetricsCache.MAX_ENTRIES*2; i++) {
+            XJFontMetricsCache.getStringWidth(fm, "label"+i);
+        }
+        assertEquals(XJFontMetricsCache.MAX_ENTRIES, XJFontMetricsCache.getCount());
+        g.dispose();
+    }
+
+    public void testSpatialIndex() throws Exception {
+        Random random = new Random(7);
+        GElementRect root = new GElementRect();
+        root.setPositionOfUpperLeftCorner(0, 0);
+        root.setSize(2000, 2000);
+
+        List<GElementRect> nodes = new ArrayList<GElementRect>();
+        for(int i=0; i<400; i++) {
+            GElementRect node = new GElementRect();
+            node.setSize(10+random.nextInt(80), 10+random.nextInt(40));
+            node.setPosition(random.nextInt(2000), random.nextInt(2000));
+            nodes.add(node);
+            root.addElement(node);
+        }
+        List<GElementRect> nested = new ArrayList<GElementRect>();
+        for(int i=0; i<40; i++) {
+            nested.add(addNestedNode(nodes.get(i), random));
+        }
+
+        GView view = new GView();
+        view.setRootElement(root);
+
+        for(int i=0; i<200; i++) {
+            GElementRect source = nodes.get(random.nextInt(nodes.size()));
+            GElementRect target = nodes.get(random.nextInt(nodes.size()));
+            if(i % 2 == 0)
+                root.addElement(new GLink(source, GElement.ANCHOR_CENTER, target, GElement.ANCHOR_CENTER,
+                        GLink.SHAPE_ARC, "", 30));
+            else
+                root.addElement(new GLink(source, GElement.ANCHOR_BOTTOM, target, GElement.ANCHOR_TOP,
+                        GLink.SHAPE_ELBOW, "", 0));
+        }
+        assertSpatialIndexMatches(view, root, random);
+
+        // Move, resize, remove and modify elements: the index is updated without being rebuilt
+        for(int i=0; i<50; i++) {
+            GElementRect node = nodes.get(random.nextInt(nodes.size()));
+            node.move(random.nextInt(200)-100, random.nextInt(200)-100);
+            node.setSize(10+random.nextInt(80), 10+random.nextInt(40));
+        }
+        // Nested elements update the entry of the child of the root containing them
+        for(int i=0; i<50; i++) {
+            GElementRect node = nested.get(random.nextInt(nested.size()));
+            node.move(random.nextInt(200)-100, random.nextInt(200)-100);
+            node.setSize(10+random.nextInt(80), 10+random.nextInt(40));
+        }
+        for(int i=0; i<10; i++) {
+            GElementRect node = nested.remove(0);
+            nodes.get(i).removeElement(node);
+            nested.add(addNestedNode(nodes.get(40+i), random));
+        }
+        assertTrue(view.getSpatialIndex().isValid());
+        for(int i=0; i<20; i++) {
+            root.removeElement(root.getElements().get(random.nextInt(root.getElements().size())));
+        }
+        for(GElement element : root.getElements()) {
+            if(element instanceof GLink && random.nextInt(4) == 0) {
+                if(random.nextBoolean())
+                    ((GLink)element).toggleShape();
+                else
+                    ((GLink)element).setMousePosition(new Point(random.nextInt(2000), random.nextInt(2000)));
+            }
+        }
+        assertTrue(view.getSpatialIndex().isValid());
+        assertSpatialIndexMatches(view, root, random);
+    }
+
+    private static GElementRect addNestedNode(GElement parent, Random random) {
+        GElementRect node = new GElementRect();
+        node.setSize(5+random.nextInt(20), 5+random.nextInt(20));
+        node.setPosition(parent.getPosition().x+random.nextInt(60)-30, parent.getPosition().y+random.nextInt(60)-30);
+        parent.addElement(node);
+        return node;
+    }
+
+    private static void assertSpatialIndexMatches(GView view, GElement root, Random random) {
+        for(int i=0; i<5000; i++) {
+            Point p = new Point(random.nextInt(2200)-100, random.nextInt(2200)-100);
+            GElement indexed = view.getElementAtPoint(p);
+            assertSame(p.toString(), root.match(p), indexed);
+        }
+
+        for(int i=0; i<50; i++) {
+            int x = random.nextInt(2000);
+            int y = random.nextInt(2000);
+            int dx = random.nextInt(400);
+            int dy = random.nextInt(400);
+            view.selectElementsInRect(x, y, dx, dy);
+
+            Rect rect = new Rect(x, y, dx, dy);
+            Set<GElement> selected = new HashSet<GElement>();
+            for(GElement element : root.getElements()) {
+                assertEquals(Rect.intersect(rect, element.bounds()), element.isSelected());
+                if(element.isSelected())
+                    selected.add(element);
+            }
+            assertEquals(selected, new HashSet<GElement>(view.getSelectedElements()));
+        }
+    }
+
+}